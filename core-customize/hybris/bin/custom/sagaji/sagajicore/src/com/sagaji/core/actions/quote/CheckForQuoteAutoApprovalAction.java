@@ -10,6 +10,7 @@ import de.hybris.platform.core.model.order.QuoteModel;
 import de.hybris.platform.order.QuoteService;
 import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
 import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.core.quote.QuoteVersioningService;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
@@ -26,6 +27,7 @@ public class CheckForQuoteAutoApprovalAction extends AbstractSimpleDecisionActio
 {
 	private QuoteService quoteService;
 	private CommerceQuoteService commerceQuoteService;
+	private QuoteVersioningService quoteVersioningService;
 	private static final Logger LOG = Logger.getLogger(CheckSellerApproverResponseOnQuoteAction.class);
 
 	@Override
@@ -42,12 +44,12 @@ public class CheckForQuoteAutoApprovalAction extends AbstractSimpleDecisionActio
 
 		if (getCommerceQuoteService().shouldAutoApproveTheQuoteForSellerApproval(quoteModel))
 		{
-			getCommerceQuoteService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLERAPPROVER_APPROVED);
+			getQuoteVersioningService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLERAPPROVER_APPROVED);
 			result = Transition.OK;
 		}
 		else
 		{
-			getCommerceQuoteService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLERAPPROVER_PENDING);
+			getQuoteVersioningService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLERAPPROVER_PENDING);
 			result = Transition.NOK;
 		}
 
@@ -76,4 +78,15 @@ public class CheckForQuoteAutoApprovalAction extends AbstractSimpleDecisionActio
 		this.commerceQuoteService = commerceQuoteService;
 	}
 
+	protected QuoteVersioningService getQuoteVersioningService()
+	{
+		return quoteVersioningService;
+	}
+
+	@Required
+	public void setQuoteVersioningService(final QuoteVersioningService quoteVersioningService)
+	{
+		this.quoteVersioningService = quoteVersioningService;
+	}
+
 }
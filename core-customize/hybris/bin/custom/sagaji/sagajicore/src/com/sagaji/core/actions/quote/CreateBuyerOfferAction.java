@@ -4,12 +4,12 @@
 package com.sagaji.core.actions.quote;
 
 import de.hybris.platform.commerceservices.model.process.QuoteProcessModel;
-import de.hybris.platform.commerceservices.order.CommerceQuoteService;
 import de.hybris.platform.core.enums.QuoteState;
 import de.hybris.platform.core.model.order.QuoteModel;
 import de.hybris.platform.order.QuoteService;
 import de.hybris.platform.processengine.action.AbstractProceduralAction;
 import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.core.quote.QuoteVersioningService;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
@@ -22,7 +22,7 @@ import org.springframework.beans.factory.annotation.Required;
 public class CreateBuyerOfferAction extends AbstractProceduralAction<QuoteProcessModel>
 {
 	private QuoteService quoteService;
-	private CommerceQuoteService commerceQuoteService;
+	private QuoteVersioningService quoteVersioningService;
 	private static final Logger LOG = Logger.getLogger(CheckSellerApproverResponseOnQuoteAction.class);
 
 	@Override
@@ -37,7 +37,7 @@ public class CreateBuyerOfferAction extends AbstractProceduralAction<QuoteProces
 
 		if (QuoteState.SELLERAPPROVER_APPROVED.equals(quoteModel.getState()))
 		{
-			getCommerceQuoteService().createQuoteSnapshotWithState(quoteModel, QuoteState.BUYER_OFFER);
+			getQuoteVersioningService().createQuoteSnapshotWithState(quoteModel, QuoteState.BUYER_OFFER);
 		}
 	}
 
@@ -52,14 +52,14 @@ public class CreateBuyerOfferAction extends AbstractProceduralAction<QuoteProces
 		this.quoteService = quoteService;
 	}
 
-	protected CommerceQuoteService getCommerceQuoteService()
+	protected QuoteVersioningService getQuoteVersioningService()
 	{
-		return commerceQuoteService;
+		return quoteVersioningService;
 	}
 
 	@Required
-	public void setCommerceQuoteService(final CommerceQuoteService commerceQuoteService)
+	public void setQuoteVersioningService(final QuoteVersioningService quoteVersioningService)
 	{
-		this.commerceQuoteService = commerceQuoteService;
+		this.quoteVersioningService = quoteVersioningService;
 	}
 }
@@ -4,12 +4,12 @@
 package com.sagaji.core.actions.quote;
 
 import de.hybris.platform.commerceservices.model.process.QuoteProcessModel;
-import de.hybris.platform.commerceservices.order.CommerceQuoteService;
 import de.hybris.platform.core.enums.QuoteState;
 import de.hybris.platform.core.model.order.QuoteModel;
 import de.hybris.platform.order.QuoteService;
 import de.hybris.platform.processengine.action.AbstractProceduralAction;
 import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.core.quote.QuoteVersioningService;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
@@ -21,7 +21,7 @@ import org.springframework.beans.factory.annotation.Required;
 public class QuoteApprovalRejectedAction extends AbstractProceduralAction<QuoteProcessModel>
 {
 	private QuoteService quoteService;
-	private CommerceQuoteService commerceQuoteService;
+	private QuoteVersioningService quoteVersioningService;
 	private static final Logger LOG = Logger.getLogger(CheckSellerApproverResponseOnQuoteAction.class);
 
 	@Override
@@ -36,7 +36,7 @@ public class QuoteApprovalRejectedAction extends AbstractProceduralAction<QuoteP
 
 		if (QuoteState.SELLERAPPROVER_REJECTED.equals(quoteModel.getState()))
 		{
-			getCommerceQuoteService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLER_REQUEST);
+			getQuoteVersioningService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLER_REQUEST);
 		}
 	}
 
@@ -51,14 +51,14 @@ public class QuoteApprovalRejectedAction extends AbstractProceduralAction<QuoteP
 		this.quoteService = quoteService;
 	}
 
-	protected CommerceQuoteService getCommerceQuoteService()
+	protected QuoteVersioningService getQuoteVersioningService()
 	{
-		return commerceQuoteService;
+		return quoteVersioningService;
 	}
 
 	@Required
-	public void setCommerceQuoteService(final CommerceQuoteService commerceQuoteService)
+	public void setQuoteVersioningService(final QuoteVersioningService quoteVersioningService)
 	{
-		this.commerceQuoteService = commerceQuoteService;
+		this.quoteVersioningService = quoteVersioningService;
 	}
 }
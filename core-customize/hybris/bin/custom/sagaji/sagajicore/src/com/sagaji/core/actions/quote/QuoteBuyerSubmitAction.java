@@ -7,12 +7,12 @@ import static com.sagaji.core.constants.SagajiCoreConstants.QUOTE_USER_TYPE;
 
 import de.hybris.platform.commerceservices.enums.QuoteUserType;
 import de.hybris.platform.commerceservices.model.process.QuoteProcessModel;
-import de.hybris.platform.commerceservices.order.CommerceQuoteService;
 import de.hybris.platform.core.enums.QuoteState;
 import de.hybris.platform.core.model.order.QuoteModel;
 import de.hybris.platform.order.QuoteService;
 import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
 import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.core.quote.QuoteVersioningService;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
@@ -24,7 +24,7 @@ import org.springframework.beans.factory.annotation.Required;
 public class QuoteBuyerSubmitAction extends AbstractSimpleDecisionAction<QuoteProcessModel>
 {
 	private static final Logger LOG = Logger.getLogger(QuoteBuyerSubmitAction.class);
-	private CommerceQuoteService commerceQuoteService;
+	private QuoteVersioningService quoteVersioningService;
 	private QuoteService quoteService;
 
 	@Override
@@ -44,7 +44,7 @@ public class QuoteBuyerSubmitAction extends AbstractSimpleDecisionAction<QuotePr
 
 		if (QuoteUserType.BUYER.equals(quoteUserType))
 		{
-			getCommerceQuoteService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLER_REQUEST);
+			getQuoteVersioningService().createQuoteSnapshotWithState(quoteModel, QuoteState.SELLER_REQUEST);
 			result = Transition.OK;
 		}
 		else
@@ -67,14 +67,14 @@ public class QuoteBuyerSubmitAction extends AbstractSimpleDecisionAction<QuotePr
 		this.quoteService = quoteService;
 	}
 
-	protected CommerceQuoteService getCommerceQuoteService()
+	protected QuoteVersioningService getQuoteVersioningService()
 	{
-		return commerceQuoteService;
+		return quoteVersioningService;
 	}
 
 	@Required
-	public void setCommerceQuoteService(final CommerceQuoteService commerceQuoteService)
+	public void setQuoteVersioningService(final QuoteVersioningService quoteVersioningService)
 	{
-		this.commerceQuoteService = commerceQuoteService;
+		this.quoteVersioningService = quoteVersioningService;
 	}
 }
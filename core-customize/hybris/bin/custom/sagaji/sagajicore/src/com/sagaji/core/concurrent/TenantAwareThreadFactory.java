@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.concurrent;
+
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+import de.hybris.platform.servicelayer.session.SessionService;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * Thread factory for the worker pools of the custom extensions. Every thread runs in the tenant that was current when
+ * the factory was created, and closes its session and unsets the tenant when the thread ends. A pool thread runs many
+ * tasks, so a task that changes its session must run in a local view or close the session itself; the session closed
+ * here is only the one left over by the last task. The threads are named <code>namePrefix-n</code>.
+ */
+public class TenantAwareThreadFactory implements ThreadFactory
+{
+	private final Tenant tenant = Registry.getCurrentTenantNoFallback();
+	private final AtomicInteger threadNumber = new AtomicInteger();
+	private final String namePrefix;
+	private final SessionService sessionService;
+	private final boolean daemon;
+
+	/**
+	 * Creates a factory for daemon threads that close their session when they end.
+	 *
+	 * @param namePrefix
+	 *           prefix of the thread names
+	 * @param sessionService
+	 *           the session service to close the session of a thread with, or <code>null</code> if the tasks do not
+	 *           open sessions
+	 */
+	public TenantAwareThreadFactory(final String namePrefix, final SessionService sessionService)
+	{
+		this(namePrefix, sessionService, true);
+	}
+
+	/**
+	 * @param namePrefix
+	 *           prefix of the thread names
+	 * @param sessionService
+	 *           the session service to close the session of a thread with, or <code>null</code> if the tasks do not
+	 *           open sessions
+	 * @param daemon
+	 *           whether the threads are daemon threads
+	 */
+	public TenantAwareThreadFactory(final String namePrefix, final SessionService sessionService, final boolean daemon)
+	{
+		this.namePrefix = namePrefix;
+		this.sessionService = sessionService;
+		this.daemon = daemon;
+	}
+
+	@Override
+	public Thread newThread(final Runnable runnable)
+	{
+		final Thread thread = new Thread(() -> runInTenant(runnable), namePrefix + "-" + threadNumber.incrementAndGet());
+		thread.setDaemon(daemon);
+		return thread;
+	}
+
+	protected void runInTenant(final Runnable runnable)
+	{
+		if (tenant != null)
+		{
+			Registry.setCurrentTenant(tenant);
+		}
+		try
+		{
+			runnable.run();
+		}
+		finally
+		{
+			try
+			{
+				if (sessionService != null)
+				{
+					sessionService.closeCurrentSession();
+				}
+			}
+			finally
+			{
+				Registry.unsetCurrentTenant();
+			}
+		}
+	}
+}
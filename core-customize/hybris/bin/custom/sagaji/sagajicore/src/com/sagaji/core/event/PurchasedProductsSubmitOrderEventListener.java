@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.event;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.order.events.SubmitOrderEvent;
+import de.hybris.platform.servicelayer.event.impl.AbstractEventListener;
+import com.sagaji.core.suggestion.PurchasedProductsIndex;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Adds the products of submitted orders to the {@link PurchasedProductsIndex}.
+ */
+public class PurchasedProductsSubmitOrderEventListener extends AbstractEventListener<SubmitOrderEvent>
+{
+	private PurchasedProductsIndex purchasedProductsIndex;
+
+	@Override
+	protected void onEvent(final SubmitOrderEvent event)
+	{
+		final OrderModel order = event.getOrder();
+		if (order != null)
+		{
+			getPurchasedProductsIndex().addPurchasedProducts(order);
+		}
+	}
+
+	protected PurchasedProductsIndex getPurchasedProductsIndex()
+	{
+		return purchasedProductsIndex;
+	}
+
+	@Required
+	public void setPurchasedProductsIndex(final PurchasedProductsIndex purchasedProductsIndex)
+	{
+		this.purchasedProductsIndex = purchasedProductsIndex;
+	}
+}
@@ -15,6 +15,8 @@ import de.hybris.platform.servicelayer.util.ServicesUtil;
 import de.hybris.platform.store.BaseStoreModel;
 import de.hybris.platform.store.services.BaseStoreService;
 
+import java.util.UUID;
+
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
@@ -112,11 +114,12 @@ public class SubmitOrderEventListener extends AbstractAcceleratorSiteEventListen
 			}
 			else
 			{
-				final String processCode = fulfilmentProcessDefinitionName + "-" + order.getCode() + "-" + System.currentTimeMillis();
+				// a random suffix keeps the code unique when the same order is submitted twice within one millisecond
+				final String processCode = fulfilmentProcessDefinitionName + "-" + order.getCode() + "-" + UUID.randomUUID();
 				final OrderProcessModel businessProcessModel = getBusinessProcessService().createProcess(processCode,
 						fulfilmentProcessDefinitionName);
 				businessProcessModel.setOrder(order);
-				getModelService().save(businessProcessModel);
+				// starting the process saves it together with its first task
 				getBusinessProcessService().startProcess(businessProcessModel);
 				if (LOG.isInfoEnabled())
 				{
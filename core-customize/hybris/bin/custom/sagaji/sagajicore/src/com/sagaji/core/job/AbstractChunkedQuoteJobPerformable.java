@@ -0,0 +1,304 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.job;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.CronJobProgressTracker;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+
+
+/**
+ * Base class for the quote notification jobs. The quotes found by {@link #findQuotes()} are processed in chunks of
+ * <code>chunkSize</code> quotes by up to <code>workerCount</code> workers, each running in its own session as the
+ * session user of the cron job. A chunk is only read from the search result when a worker is free to take it, so the
+ * models of the remaining quotes are not loaded before they are needed and the events of a run are published at the
+ * pace of the workers. The workers get the PKs of their chunk and load the quotes in their own session, models are not
+ * shared between threads. With a single worker the chunks are processed on the cron job thread.
+ * <p>
+ * The progress is stored on the cron job after every chunk, and the job can be aborted between chunks.
+ */
+public abstract class AbstractChunkedQuoteJobPerformable extends AbstractJobPerformable<CronJobModel>
+{
+	private static final Logger LOG = Logger.getLogger(AbstractChunkedQuoteJobPerformable.class);
+
+	private int chunkSize;
+	private int workerCount;
+
+	/**
+	 * Finds the quotes to process in this run.
+	 */
+	protected abstract List<QuoteModel> findQuotes();
+
+	/**
+	 * Processes one chunk of the quotes found by {@link #findQuotes()}.
+	 */
+	protected abstract void processChunk(List<QuoteModel> quotes);
+
+	@Override
+	public PerformResult perform(final CronJobModel cronJob)
+	{
+		final List<QuoteModel> quotes = findQuotes();
+		if (quotes.isEmpty())
+		{
+			return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+		}
+
+		final CronJobProgressTracker progressTracker = createProgressTracker(cronJob);
+		try
+		{
+			if (getWorkerCount() <= 1)
+			{
+				return processInline(cronJob, quotes, progressTracker);
+			}
+
+			final ExecutorService executor = Executors.newFixedThreadPool(getWorkerCount(), createThreadFactory(cronJob));
+			try
+			{
+				return processConcurrently(cronJob, quotes, executor, progressTracker);
+			}
+			finally
+			{
+				executor.shutdownNow();
+			}
+		}
+		finally
+		{
+			progressTracker.close();
+		}
+	}
+
+	protected PerformResult processInline(final CronJobModel cronJob, final List<QuoteModel> quotes,
+			final CronJobProgressTracker progressTracker)
+	{
+		boolean failed = false;
+		int processed = 0;
+		while (processed < quotes.size())
+		{
+			final List<QuoteModel> chunk = nextChunk(quotes, processed);
+			try
+			{
+				processChunk(chunk);
+			}
+			catch (final RuntimeException e)
+			{
+				LOG.error(String.format("Chunk of %d quotes starting at %d failed", Integer.valueOf(chunk.size()),
+						Integer.valueOf(processed)), e);
+				failed = true;
+			}
+			processed += chunk.size();
+			progressTracker.setProgress(getProgress(processed, quotes.size()));
+
+			if (processed < quotes.size() && clearAbortRequestedIfNeeded(cronJob))
+			{
+				return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+			}
+		}
+		return getResult(failed, processed);
+	}
+
+	protected PerformResult processConcurrently(final CronJobModel cronJob, final List<QuoteModel> quotes,
+			final ExecutorService executor, final CronJobProgressTracker progressTracker)
+	{
+		final UserModel sessionUser = cronJob.getSessionUser();
+		final CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+		final Map<Future<Integer>, Integer> pending = new HashMap<Future<Integer>, Integer>();
+
+		boolean failed = false;
+		int submitted = 0;
+		int processed = 0;
+		while (processed < quotes.size())
+		{
+			while (pending.size() < getWorkerCount() && submitted < quotes.size())
+			{
+				final List<PK> chunk = nextChunkPks(quotes, submitted);
+				pending.put(completionService.submit(() -> processChunkInSession(chunk, sessionUser)),
+						Integer.valueOf(chunk.size()));
+				submitted += chunk.size();
+			}
+
+			final Future<Integer> future = takeCompleted(completionService);
+			if (future == null)
+			{
+				pending.keySet().forEach(remaining -> remaining.cancel(true));
+				return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+			}
+			processed += pending.remove(future).intValue();
+			failed |= !isCompleted(future);
+			progressTracker.setProgress(getProgress(processed, quotes.size()));
+
+			if (processed < quotes.size() && clearAbortRequestedIfNeeded(cronJob))
+			{
+				pending.keySet().forEach(remaining -> remaining.cancel(true));
+				return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+			}
+		}
+		return getResult(failed, processed);
+	}
+
+	protected boolean isCompleted(final Future<Integer> future)
+	{
+		try
+		{
+			future.get();
+			return true;
+		}
+		catch (final ExecutionException e)
+		{
+			LOG.error("Chunk of quotes failed", e.getCause());
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		return false;
+	}
+
+	protected Integer processChunkInSession(final List<PK> chunk, final UserModel sessionUser)
+	{
+		final SessionExecutionBody body = new SessionExecutionBody()
+		{
+			@Override
+			public Object execute()
+			{
+				processChunk(loadQuotes(chunk));
+				return Integer.valueOf(chunk.size());
+			}
+		};
+		return sessionUser == null ? sessionService.executeInLocalView(body)
+				: sessionService.executeInLocalView(body, sessionUser);
+	}
+
+	/**
+	 * Reads the next chunk from the search result, which loads the models of the chunk.
+	 */
+	protected List<QuoteModel> nextChunk(final List<QuoteModel> quotes, final int start)
+	{
+		return new ArrayList<QuoteModel>(quotes.subList(start, Math.min(start + getChunkSize(quotes.size()), quotes.size())));
+	}
+
+	/**
+	 * Reads the PKs of the next chunk from the search result, for a worker that loads the quotes in its own session.
+	 */
+	protected List<PK> nextChunkPks(final List<QuoteModel> quotes, final int start)
+	{
+		final List<PK> pks = new ArrayList<PK>();
+		for (final QuoteModel quote : nextChunk(quotes, start))
+		{
+			pks.add(quote.getPk());
+		}
+		return pks;
+	}
+
+	/**
+	 * Loads the quotes of a chunk in the session of the current worker.
+	 */
+	protected List<QuoteModel> loadQuotes(final List<PK> pks)
+	{
+		final List<QuoteModel> quotes = new ArrayList<QuoteModel>(pks.size());
+		for (final PK pk : pks)
+		{
+			quotes.add(modelService.get(pk));
+		}
+		return quotes;
+	}
+
+	protected int getChunkSize(final int quoteCount)
+	{
+		return getChunkSize() > 0 ? getChunkSize() : Math.max(1, quoteCount);
+	}
+
+	protected Double getProgress(final int processed, final int total)
+	{
+		return Double.valueOf(100d * processed / total);
+	}
+
+	protected PerformResult getResult(final boolean failed, final int processed)
+	{
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(String.format("Processed %d quotes", Integer.valueOf(processed)));
+		}
+		return failed ? new PerformResult(CronJobResult.ERROR, CronJobStatus.FINISHED)
+				: new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+	}
+
+	protected Future<Integer> takeCompleted(final CompletionService<Integer> completionService)
+	{
+		try
+		{
+			return completionService.take();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	protected CronJobProgressTracker createProgressTracker(final CronJobModel cronJob)
+	{
+		return new CronJobProgressTracker(cronJob);
+	}
+
+	protected ThreadFactory createThreadFactory(final CronJobModel cronJob)
+	{
+		return new TenantAwareThreadFactory(getClass().getSimpleName() + "-" + cronJob.getCode(), sessionService, false);
+	}
+
+	@Override
+	public boolean isAbortable()
+	{
+		return true;
+	}
+
+	protected int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	/**
+	 * @param chunkSize
+	 *           number of quotes per chunk, all quotes are processed as one chunk if not positive
+	 */
+	@Required
+	public void setChunkSize(final int chunkSize)
+	{
+		this.chunkSize = chunkSize;
+	}
+
+	protected int getWorkerCount()
+	{
+		return workerCount;
+	}
+
+	@Required
+	public void setWorkerCount(final int workerCount)
+	{
+		this.workerCount = workerCount;
+	}
+}
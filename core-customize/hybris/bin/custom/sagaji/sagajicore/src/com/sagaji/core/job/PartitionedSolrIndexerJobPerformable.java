@@ -0,0 +1,501 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.job;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.servicelayer.type.TypeService;
+import de.hybris.platform.solrfacetsearch.config.CommitMode;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfig;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfigService;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexOperation;
+import de.hybris.platform.solrfacetsearch.config.IndexedType;
+import de.hybris.platform.solrfacetsearch.config.IndexedTypeFlexibleSearchQuery;
+import de.hybris.platform.solrfacetsearch.config.exceptions.FacetConfigServiceException;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerQueriesExecutor;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerService;
+import de.hybris.platform.solrfacetsearch.indexer.exceptions.IndexerException;
+import de.hybris.platform.solrfacetsearch.model.SolrIndexModel;
+import de.hybris.platform.solrfacetsearch.solr.Index;
+import de.hybris.platform.solrfacetsearch.solr.SolrIndexService;
+import de.hybris.platform.solrfacetsearch.solr.SolrSearchProvider;
+import de.hybris.platform.solrfacetsearch.solr.SolrSearchProviderFactory;
+import de.hybris.platform.solrfacetsearch.solr.exceptions.SolrServiceException;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.core.model.PartitionedSolrIndexerCronJobModel;
+import com.sagaji.core.model.SolrIndexPartitionModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * The job indexes all products of a facet search configuration in parallel. The items returned by the full index query
+ * of every indexed product type are sorted by PK and split into {@link PartitionedSolrIndexerCronJobModel#getPartitionCount()}
+ * contiguous PK ranges, which are indexed concurrently by {@link PartitionedSolrIndexerCronJobModel#getWorkerCount()}
+ * workers. Every worker runs in its own session, and each indexer batch of a worker keeps its own price context, so the
+ * value providers do not share any state between workers. The partitions are indexed without intermediate commits and
+ * the index is committed once after all partitions have finished.
+ * <p>
+ * Documents are updated in the active index, so documents of items that are no longer returned by the full index query
+ * are only removed by the next regular full index.
+ * <p>
+ * The progress of every partition is stored as {@link SolrIndexPartitionModel} on the cron job.
+ */
+public class PartitionedSolrIndexerJobPerformable extends AbstractJobPerformable<PartitionedSolrIndexerCronJobModel>
+{
+	private static final Logger LOG = Logger.getLogger(PartitionedSolrIndexerJobPerformable.class);
+
+	private FacetSearchConfigService facetSearchConfigService;
+	private IndexerService indexerService;
+	private IndexerQueriesExecutor indexerQueriesExecutor;
+	private SolrIndexService solrIndexService;
+	private SolrSearchProviderFactory solrSearchProviderFactory;
+	private TypeService typeService;
+	private TimeService timeService;
+	private long abortTimeout;
+
+	@Override
+	public PerformResult perform(final PartitionedSolrIndexerCronJobModel cronJob)
+	{
+		final FacetSearchConfig facetSearchConfig;
+		try
+		{
+			facetSearchConfig = getFacetSearchConfigService().getConfiguration(cronJob.getFacetSearchConfig().getName());
+		}
+		catch (final FacetConfigServiceException e)
+		{
+			LOG.error("Cannot load facet search configuration " + cronJob.getFacetSearchConfig().getName(), e);
+			return new PerformResult(CronJobResult.ERROR, CronJobStatus.ABORTED);
+		}
+
+		if (CollectionUtils.isNotEmpty(cronJob.getPartitions()))
+		{
+			modelService.removeAll(cronJob.getPartitions());
+			modelService.refresh(cronJob);
+		}
+
+		final FacetSearchConfig partitionConfig = createPartitionConfig(facetSearchConfig);
+		final ExecutorService executor = Executors.newFixedThreadPool(getWorkerCount(cronJob), createThreadFactory(cronJob));
+		try
+		{
+			for (final IndexedType indexedType : facetSearchConfig.getIndexConfig().getIndexedTypes().values())
+			{
+				if (!isProductType(indexedType))
+				{
+					continue;
+				}
+
+				final PerformResult result = indexType(cronJob, facetSearchConfig, partitionConfig, indexedType, executor);
+				if (result != null)
+				{
+					return result;
+				}
+			}
+		}
+		catch (final IndexerException | SolrServiceException e)
+		{
+			LOG.error("Partitioned index of " + facetSearchConfig.getName() + " failed", e);
+			return new PerformResult(CronJobResult.ERROR, CronJobStatus.ABORTED);
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+	}
+
+	/**
+	 * Indexes all partitions of one indexed type and commits the index afterwards. A partition is only submitted when a
+	 * worker is free to take it, so it is marked as running when it starts, and an abort request is honoured before every
+	 * submit and after every finished partition.
+	 *
+	 * @return <code>null</code> if all partitions were indexed, the result of the job otherwise
+	 */
+	protected PerformResult indexType(final PartitionedSolrIndexerCronJobModel cronJob,
+			final FacetSearchConfig facetSearchConfig, final FacetSearchConfig partitionConfig, final IndexedType indexedType,
+			final ExecutorService executor) throws IndexerException, SolrServiceException
+	{
+		final List<List<PK>> partitions = partition(resolvePks(facetSearchConfig, indexedType),
+				cronJob.getPartitionCount().intValue());
+		final List<SolrIndexPartitionModel> partitionModels = createPartitionModels(cronJob, indexedType, partitions);
+
+		final CompletionService<Integer> completionService = new ExecutorCompletionService<Integer>(executor);
+		final Map<Future<Integer>, SolrIndexPartitionModel> futures = new HashMap<Future<Integer>, SolrIndexPartitionModel>();
+		final int workerCount = getWorkerCount(cronJob);
+
+		boolean failed = false;
+		int submitted = 0;
+		int completed = 0;
+		while (completed < partitions.size())
+		{
+			while (futures.size() < workerCount && submitted < partitions.size())
+			{
+				if (clearAbortRequestedIfNeeded(cronJob))
+				{
+					return abort(executor, futures, partitionModels.subList(submitted, partitionModels.size()));
+				}
+				final List<PK> pks = partitions.get(submitted);
+				final SolrIndexPartitionModel partitionModel = partitionModels.get(submitted);
+				startPartition(partitionModel);
+				futures.put(completionService.submit(() -> indexPartition(partitionConfig, indexedType, pks)), partitionModel);
+				submitted++;
+			}
+
+			final Future<Integer> future = takeCompleted(completionService);
+			final SolrIndexPartitionModel partitionModel = future == null ? null : futures.remove(future);
+			if (partitionModel != null)
+			{
+				failed |= !updatePartitionModel(partitionModel, future);
+			}
+			completed++;
+
+			if (future == null || (completed < partitions.size() && clearAbortRequestedIfNeeded(cronJob)))
+			{
+				return abort(executor, futures, partitionModels.subList(submitted, partitionModels.size()));
+			}
+		}
+
+		commit(facetSearchConfig, indexedType);
+
+		return failed ? new PerformResult(CronJobResult.ERROR, CronJobStatus.FINISHED) : null;
+	}
+
+	/**
+	 * Cancels the running partitions and waits at most <code>abortTimeout</code> ms for the workers to stop, so an aborted
+	 * job does not return while its workers are still writing to the index.
+	 */
+	protected PerformResult abort(final ExecutorService executor, final Map<Future<Integer>, SolrIndexPartitionModel> futures,
+			final List<SolrIndexPartitionModel> unstartedPartitionModels)
+	{
+		futures.keySet().forEach(pending -> pending.cancel(true));
+		executor.shutdownNow();
+		try
+		{
+			if (!executor.awaitTermination(getAbortTimeout(), TimeUnit.MILLISECONDS))
+			{
+				LOG.warn("Workers of the aborted partitioned index did not stop within " + getAbortTimeout() + " ms");
+			}
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		final List<SolrIndexPartitionModel> abortedPartitionModels = new ArrayList<SolrIndexPartitionModel>(futures.values());
+		abortedPartitionModels.addAll(unstartedPartitionModels);
+		markPartitions(abortedPartitionModels, CronJobStatus.ABORTED, CronJobResult.UNKNOWN);
+		return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+	}
+
+	protected void startPartition(final SolrIndexPartitionModel partitionModel)
+	{
+		partitionModel.setStatus(CronJobStatus.RUNNING);
+		partitionModel.setStartTime(getTimeService().getCurrentTime());
+		modelService.save(partitionModel);
+	}
+
+	protected int getWorkerCount(final PartitionedSolrIndexerCronJobModel cronJob)
+	{
+		return Math.max(1, cronJob.getWorkerCount().intValue());
+	}
+
+	protected Future<Integer> takeCompleted(final CompletionService<Integer> completionService)
+	{
+		try
+		{
+			return completionService.take();
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			return null;
+		}
+	}
+
+	protected Integer indexPartition(final FacetSearchConfig partitionConfig, final IndexedType indexedType, final List<PK> pks)
+	{
+		return sessionService.executeInLocalView(new SessionExecutionBody()
+		{
+			@Override
+			public Object execute()
+			{
+				try
+				{
+					getIndexerService().updateTypeIndex(partitionConfig, indexedType, pks);
+				}
+				catch (final IndexerException e)
+				{
+					throw new IllegalStateException("Indexing of partition failed", e);
+				}
+				return Integer.valueOf(pks.size());
+			}
+		});
+	}
+
+	protected boolean updatePartitionModel(final SolrIndexPartitionModel partitionModel, final Future<Integer> future)
+	{
+		boolean success;
+		try
+		{
+			future.get();
+			partitionModel.setResult(CronJobResult.SUCCESS);
+			success = true;
+		}
+		catch (final ExecutionException e)
+		{
+			LOG.error(String.format("Partition %s of indexed type %s failed", partitionModel.getPartitionIndex(),
+					partitionModel.getIndexedType()), e.getCause());
+			partitionModel.setResult(CronJobResult.ERROR);
+			success = false;
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			partitionModel.setResult(CronJobResult.UNKNOWN);
+			success = false;
+		}
+		partitionModel.setStatus(CronJobStatus.FINISHED);
+		partitionModel.setEndTime(getTimeService().getCurrentTime());
+		modelService.save(partitionModel);
+		return success;
+	}
+
+	protected void markPartitions(final Iterable<SolrIndexPartitionModel> partitionModels, final CronJobStatus status,
+			final CronJobResult result)
+	{
+		final List<SolrIndexPartitionModel> changed = new ArrayList<SolrIndexPartitionModel>();
+		for (final SolrIndexPartitionModel partitionModel : partitionModels)
+		{
+			partitionModel.setStatus(status);
+			partitionModel.setResult(result);
+			partitionModel.setEndTime(getTimeService().getCurrentTime());
+			changed.add(partitionModel);
+		}
+		modelService.saveAll(changed);
+	}
+
+	protected List<SolrIndexPartitionModel> createPartitionModels(final PartitionedSolrIndexerCronJobModel cronJob,
+			final IndexedType indexedType, final List<List<PK>> partitions)
+	{
+		final List<SolrIndexPartitionModel> partitionModels = new ArrayList<SolrIndexPartitionModel>(partitions.size());
+		for (int i = 0; i < partitions.size(); i++)
+		{
+			final List<PK> pks = partitions.get(i);
+			final SolrIndexPartitionModel partitionModel = modelService.create(SolrIndexPartitionModel.class);
+			partitionModel.setCronJob(cronJob);
+			partitionModel.setIndexedType(indexedType.getIdentifier());
+			partitionModel.setPartitionIndex(Integer.valueOf(i));
+			partitionModel.setLowerPk(Long.valueOf(pks.get(0).getLongValue()));
+			partitionModel.setUpperPk(Long.valueOf(pks.get(pks.size() - 1).getLongValue()));
+			partitionModel.setItemCount(Integer.valueOf(pks.size()));
+			partitionModel.setStatus(CronJobStatus.UNKNOWN);
+			partitionModel.setResult(CronJobResult.UNKNOWN);
+			partitionModels.add(partitionModel);
+		}
+		modelService.saveAll(partitionModels);
+		return partitionModels;
+	}
+
+	protected List<PK> resolvePks(final FacetSearchConfig facetSearchConfig, final IndexedType indexedType)
+			throws IndexerException
+	{
+		final IndexedTypeFlexibleSearchQuery query = indexedType.getFlexibleSearchQueries().get(IndexOperation.FULL);
+		final Map<String, Object> queryParameters = new HashMap<String, Object>();
+		if (query.getParameters() != null)
+		{
+			queryParameters.putAll(query.getParameters());
+		}
+		if (query.isInjectCurrentTime())
+		{
+			queryParameters.put("currentTime", getTimeService().getCurrentTime());
+		}
+		if (query.isInjectCurrentDate())
+		{
+			queryParameters.put("currentDate", getTimeService().getCurrentTime());
+		}
+		return getIndexerQueriesExecutor().getPks(facetSearchConfig, indexedType, query.getQuery(), queryParameters);
+	}
+
+	/**
+	 * Splits the PKs into contiguous ranges of the PK space with the same number of items.
+	 */
+	protected List<List<PK>> partition(final List<PK> pks, final int partitionCount)
+	{
+		if (pks.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<PK> sortedPks = new ArrayList<PK>(pks);
+		sortedPks.sort(Comparator.comparingLong(PK::getLongValue));
+
+		final int partitionSize = (sortedPks.size() + Math.max(1, partitionCount) - 1) / Math.max(1, partitionCount);
+		final List<List<PK>> partitions = new ArrayList<List<PK>>();
+		for (int start = 0; start < sortedPks.size(); start += partitionSize)
+		{
+			partitions.add(new ArrayList<PK>(sortedPks.subList(start, Math.min(start + partitionSize, sortedPks.size()))));
+		}
+		return partitions;
+	}
+
+	/**
+	 * Creates a copy of the facet search configuration that does not commit after the partitions and runs every
+	 * partition on a single indexer thread, so that the number of workers controls the parallelism.
+	 */
+	protected FacetSearchConfig createPartitionConfig(final FacetSearchConfig facetSearchConfig)
+	{
+		final IndexConfig indexConfig = new IndexConfig();
+		BeanUtils.copyProperties(facetSearchConfig.getIndexConfig(), indexConfig);
+		indexConfig.setCommitMode(CommitMode.NEVER);
+		indexConfig.setNumberOfThreads(1);
+
+		final FacetSearchConfig partitionConfig = new FacetSearchConfig();
+		BeanUtils.copyProperties(facetSearchConfig, partitionConfig);
+		partitionConfig.setIndexConfig(indexConfig);
+		return partitionConfig;
+	}
+
+	protected void commit(final FacetSearchConfig facetSearchConfig, final IndexedType indexedType) throws SolrServiceException
+	{
+		final SolrIndexModel solrIndex = getSolrIndexService().getActiveIndex(facetSearchConfig.getName(),
+				indexedType.getIdentifier());
+		final SolrSearchProvider searchProvider = getSolrSearchProviderFactory().getSearchProvider(facetSearchConfig,
+				indexedType);
+		final Index index = searchProvider.resolveIndex(facetSearchConfig, indexedType, solrIndex.getQualifier());
+		searchProvider.commit(index, SolrSearchProvider.CommitType.HARD);
+	}
+
+	protected boolean isProductType(final IndexedType indexedType)
+	{
+		return getTypeService().isAssignableFrom(ProductModel._TYPECODE, indexedType.getComposedType().getCode());
+	}
+
+	protected ThreadFactory createThreadFactory(final PartitionedSolrIndexerCronJobModel cronJob)
+	{
+		return new TenantAwareThreadFactory("PartitionedSolrIndexer-" + cronJob.getCode(), sessionService, false);
+	}
+
+	@Override
+	public boolean isAbortable()
+	{
+		return true;
+	}
+
+	protected FacetSearchConfigService getFacetSearchConfigService()
+	{
+		return facetSearchConfigService;
+	}
+
+	@Required
+	public void setFacetSearchConfigService(final FacetSearchConfigService facetSearchConfigService)
+	{
+		this.facetSearchConfigService = facetSearchConfigService;
+	}
+
+	protected IndexerService getIndexerService()
+	{
+		return indexerService;
+	}
+
+	@Required
+	public void setIndexerService(final IndexerService indexerService)
+	{
+		this.indexerService = indexerService;
+	}
+
+	protected IndexerQueriesExecutor getIndexerQueriesExecutor()
+	{
+		return indexerQueriesExecutor;
+	}
+
+	@Required
+	public void setIndexerQueriesExecutor(final IndexerQueriesExecutor indexerQueriesExecutor)
+	{
+		this.indexerQueriesExecutor = indexerQueriesExecutor;
+	}
+
+	protected SolrIndexService getSolrIndexService()
+	{
+		return solrIndexService;
+	}
+
+	@Required
+	public void setSolrIndexService(final SolrIndexService solrIndexService)
+	{
+		this.solrIndexService = solrIndexService;
+	}
+
+	protected SolrSearchProviderFactory getSolrSearchProviderFactory()
+	{
+		return solrSearchProviderFactory;
+	}
+
+	@Required
+	public void setSolrSearchProviderFactory(final SolrSearchProviderFactory solrSearchProviderFactory)
+	{
+		this.solrSearchProviderFactory = solrSearchProviderFactory;
+	}
+
+	protected TypeService getTypeService()
+	{
+		return typeService;
+	}
+
+	@Required
+	public void setTypeService(final TypeService typeService)
+	{
+		this.typeService = typeService;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	protected long getAbortTimeout()
+	{
+		return abortTimeout;
+	}
+
+	/**
+	 * @param abortTimeout
+	 *           maximum time in ms an abort waits for the running partitions to stop
+	 */
+	@Required
+	public void setAbortTimeout(final long abortTimeout)
+	{
+		this.abortTimeout = abortTimeout;
+	}
+}
@@ -4,25 +4,21 @@
 package com.sagaji.core.job;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import de.hybris.platform.commerceservices.enums.QuoteNotificationType;
 import de.hybris.platform.commerceservices.event.QuoteExpiredEvent;
 import de.hybris.platform.commerceservices.order.CommerceQuoteService;
 import de.hybris.platform.commerceservices.order.dao.CommerceQuoteDao;
 import de.hybris.platform.core.enums.QuoteState;
-import de.hybris.platform.core.model.order.AbstractOrderModel;
 import de.hybris.platform.core.model.order.QuoteModel;
 import de.hybris.platform.core.Registry;
-import de.hybris.platform.cronjob.enums.CronJobResult;
-import de.hybris.platform.cronjob.enums.CronJobStatus;
-import de.hybris.platform.cronjob.model.CronJobModel;
-import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
-import de.hybris.platform.servicelayer.cronjob.PerformResult;
 import de.hybris.platform.servicelayer.event.EventService;
 import de.hybris.platform.servicelayer.search.SearchResult;
 import de.hybris.platform.servicelayer.time.TimeService;
@@ -32,10 +28,14 @@ import de.hybris.platform.servicelayer.time.TimeService;
  * The job finds quotes that qualify for {@link QuoteNotificationType#EXPIRED} email notification. The notification is
  * sent for all quotes in {@link QuoteState#BUYER_OFFER} state, which have had expired by the time the job runs. The
  * notification is then marked on the {@link QuoteModel} so that it is not sent again once the job runs next time.
+ * <p>
+ * The quotes are expired in chunks by the workers of {@link AbstractChunkedQuoteJobPerformable}. In bulk mode the
+ * {@link QuoteState#EXPIRED} snapshots of a chunk are created in one transaction and the events of the chunk are only
+ * published once it is committed, so a failing quote rolls back its whole chunk instead of leaving it half expired.
  *
  * @since 6.4
  */
-public class QuoteExpiredJobPerformable extends AbstractJobPerformable<CronJobModel>
+public class QuoteExpiredJobPerformable extends AbstractChunkedQuoteJobPerformable
 {
 	private static final Logger LOG = Logger.getLogger(QuoteExpiredJobPerformable.class);
 
@@ -49,26 +49,43 @@ public class QuoteExpiredJobPerformable extends AbstractJobPerformable<CronJobMo
 
 	private CommerceQuoteService commerceQuoteService;
 
+	private boolean bulkTransition;
+
+	private TransactionTemplate transactionTemplate;
+
 	@Override
-	public PerformResult perform(final CronJobModel cronJob)
+	protected List<QuoteModel> findQuotes()
 	{
 		final Date currentDate = getTimeService().getCurrentTime();
 
 		final SearchResult<QuoteModel> searchResult = getCommerceQuoteDao().findQuotesExpired(currentDate,
 				QuoteNotificationType.EXPIRED, getSupportedQuoteStatuses());
 
+		final List<QuoteModel> quotes = searchResult.getResult();
 		if (LOG.isDebugEnabled())
 		{
-			LOG.debug(String.format("Quotes expired as of %s: %s", currentDate,
-					searchResult.getResult().stream().map(AbstractOrderModel::getCode).collect(Collectors.joining(", "))));
+			LOG.debug(String.format("Quotes expired as of %s: %d", currentDate, Integer.valueOf(quotes.size())));
 		}
+		return quotes;
+	}
 
-		searchResult.getResult().stream().forEach(r -> {
-			final QuoteModel updatedQuote = getCommerceQuoteService().createQuoteSnapshotWithState(r, QuoteState.EXPIRED);
-			this.publishQuoteExpiredEvent(updatedQuote);
-		});
+	@Override
+	protected void processChunk(final List<QuoteModel> quotes)
+	{
+		if (!isBulkTransition())
+		{
+			quotes.forEach(quote -> publishQuoteExpiredEvent(expireQuote(quote)));
+			return;
+		}
 
-		return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+		final List<QuoteModel> expiredQuotes = getTransactionTemplate()
+				.execute(status -> quotes.stream().map(this::expireQuote).collect(Collectors.toList()));
+		expiredQuotes.forEach(this::publishQuoteExpiredEvent);
+	}
+
+	protected QuoteModel expireQuote(final QuoteModel quoteModel)
+	{
+		return getCommerceQuoteService().createQuoteSnapshotWithState(quoteModel, QuoteState.EXPIRED);
 	}
 
 	protected void publishQuoteExpiredEvent(final QuoteModel quoteModel)
@@ -135,4 +152,28 @@ public class QuoteExpiredJobPerformable extends AbstractJobPerformable<CronJobMo
 	{
 		this.commerceQuoteService = commerceQuoteService;
 	}
+
+	protected boolean isBulkTransition()
+	{
+		return bulkTransition;
+	}
+
+	/**
+	 * @param bulkTransition
+	 *           whether the quotes of a chunk are expired in one transaction
+	 */
+	public void setBulkTransition(final boolean bulkTransition)
+	{
+		this.bulkTransition = bulkTransition;
+	}
+
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
+	}
 }
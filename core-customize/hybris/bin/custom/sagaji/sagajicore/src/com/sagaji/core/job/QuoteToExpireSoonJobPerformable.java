@@ -7,8 +7,8 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
 import java.util.Date;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
@@ -17,14 +17,8 @@ import de.hybris.platform.commerceservices.enums.QuoteNotificationType;
 import de.hybris.platform.commerceservices.event.QuoteToExpireSoonEvent;
 import de.hybris.platform.commerceservices.order.dao.CommerceQuoteDao;
 import de.hybris.platform.core.enums.QuoteState;
-import de.hybris.platform.core.model.order.AbstractOrderModel;
 import de.hybris.platform.core.model.order.QuoteModel;
-import de.hybris.platform.cronjob.enums.CronJobResult;
-import de.hybris.platform.cronjob.enums.CronJobStatus;
-import de.hybris.platform.cronjob.model.CronJobModel;
 import de.hybris.platform.servicelayer.config.ConfigurationService;
-import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
-import de.hybris.platform.servicelayer.cronjob.PerformResult;
 import de.hybris.platform.servicelayer.event.EventService;
 import de.hybris.platform.servicelayer.search.SearchResult;
 import de.hybris.platform.servicelayer.time.TimeService;
@@ -36,10 +30,12 @@ import de.hybris.platform.servicelayer.time.TimeService;
  * {@link QuoteToExpireSoonJobPerformable#DAYS_TO_EXPIRE}. A quote qualifies for the notification if it is in
  * {@link QuoteState#BUYER_OFFER} state and expires in DAYS_TO_EXPIRE days from the current date (Set on
  * {@link QuoteModel#EXPIRATIONTIME}).
+ * <p>
+ * The events are published in chunks by the workers of {@link AbstractChunkedQuoteJobPerformable}.
  * 
  * @since 6.4
  */
-public class QuoteToExpireSoonJobPerformable extends AbstractJobPerformable<CronJobModel>
+public class QuoteToExpireSoonJobPerformable extends AbstractChunkedQuoteJobPerformable
 {
 	private static final Logger LOG = Logger.getLogger(QuoteToExpireSoonJobPerformable.class);
 
@@ -58,7 +54,7 @@ public class QuoteToExpireSoonJobPerformable extends AbstractJobPerformable<Cron
 	private TimeService timeService;
 
 	@Override
-	public PerformResult perform(final CronJobModel cronJob)
+	protected List<QuoteModel> findQuotes()
 	{
 		final LocalDateTime currentDateTime = getCurrentDateTime();
 		final Date expiredAfter = toDate(currentDateTime);
@@ -69,15 +65,18 @@ public class QuoteToExpireSoonJobPerformable extends AbstractJobPerformable<Cron
 		final SearchResult<QuoteModel> searchResult = getCommerceQuoteDao().findQuotesSoonToExpire(expiredAfter, expiredBy,
 				QuoteNotificationType.EXPIRING_SOON, getSupportedQuoteStatuses());
 
+		final List<QuoteModel> quotes = searchResult.getResult();
 		if (LOG.isDebugEnabled())
 		{
-			LOG.debug(String.format("Quotes to expire by %s: %s", expiredBy,
-					searchResult.getResult().stream().map(AbstractOrderModel::getCode).collect(Collectors.joining(", "))));
+			LOG.debug(String.format("Quotes to expire by %s: %d", expiredBy, Integer.valueOf(quotes.size())));
 		}
+		return quotes;
+	}
 
-		searchResult.getResult().stream().forEach(this::publishQuoteToExpireSoonEvent);
-
-		return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+	@Override
+	protected void processChunk(final List<QuoteModel> quotes)
+	{
+		quotes.forEach(this::publishQuoteToExpireSoonEvent);
 	}
 
 	protected void publishQuoteToExpireSoonEvent(final QuoteModel quoteModel)
@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote;
+
+import de.hybris.platform.core.enums.QuoteState;
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.core.model.user.UserModel;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+
+
+/**
+ * One version in the history of a quote, stored either as a quote of its own or as a {@link QuoteVersionRecordModel}.
+ */
+public class QuoteHistoryEntry
+{
+	private final Integer version;
+	private final QuoteState state;
+	private final UserModel user;
+	private final QuoteModel quote;
+	private final boolean versionRecord;
+
+	protected QuoteHistoryEntry(final Integer version, final QuoteState state, final UserModel user, final QuoteModel quote,
+			final boolean versionRecord)
+	{
+		this.version = version;
+		this.state = state;
+		this.user = user;
+		this.quote = quote;
+		this.versionRecord = versionRecord;
+	}
+
+	/**
+	 * Creates the entry of a version stored as a quote.
+	 */
+	public static QuoteHistoryEntry forQuote(final QuoteModel quote)
+	{
+		return new QuoteHistoryEntry(quote.getVersion(), quote.getState(), null, quote, false);
+	}
+
+	/**
+	 * Creates the entry of a version stored as a version record.
+	 */
+	public static QuoteHistoryEntry forVersionRecord(final QuoteVersionRecordModel versionRecord)
+	{
+		return new QuoteHistoryEntry(versionRecord.getVersion(), versionRecord.getState(), versionRecord.getUser(),
+				versionRecord.getSnapshot(), true);
+	}
+
+	public Integer getVersion()
+	{
+		return version;
+	}
+
+	public QuoteState getState()
+	{
+		return state;
+	}
+
+	/**
+	 * @return the user who changed the state, only known for versions stored as version records
+	 */
+	public UserModel getUser()
+	{
+		return user;
+	}
+
+	/**
+	 * @return the quote holding the entries of this version, which is a later version for a version record
+	 */
+	public QuoteModel getQuote()
+	{
+		return quote;
+	}
+
+	/**
+	 * @return true if the version is stored as a version record
+	 */
+	public boolean isVersionRecord()
+	{
+		return versionRecord;
+	}
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote;
+
+import de.hybris.platform.core.enums.QuoteState;
+import de.hybris.platform.core.model.order.QuoteModel;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+
+import java.util.List;
+
+
+/**
+ * Service that creates the versions of a quote for the state transitions of the quote processes. A transition that
+ * only changes the state of the quote is stored as a {@link QuoteVersionRecordModel} of the replaced version, and the
+ * current quote keeps its entries. Only transitions that have to leave the replaced version visible as a quote of its
+ * own clone the quote with all of its entries. The history of a quote lists the versions of both kinds.
+ */
+public interface QuoteVersioningService
+{
+	/**
+	 * Creates the next version of the quote with the given state.
+	 *
+	 * @param quote
+	 *           the current version of the quote
+	 * @param state
+	 *           the state of the new version
+	 * @return the new version of the quote, which is the given quote itself for a state-only transition
+	 */
+	QuoteModel createQuoteSnapshotWithState(QuoteModel quote, QuoteState state);
+
+	/**
+	 * Returns all versions of the quote, including those stored as version records.
+	 *
+	 * @param quoteCode
+	 *           the quote code
+	 * @return the versions of the quote ordered by version
+	 */
+	List<QuoteHistoryEntry> getQuoteHistory(String quoteCode);
+
+	/**
+	 * @return the number of versions stored as version records
+	 */
+	long getStateOnlyVersionCount();
+
+	/**
+	 * @return the number of versions created by cloning the quote with its entries
+	 */
+	long getClonedVersionCount();
+}
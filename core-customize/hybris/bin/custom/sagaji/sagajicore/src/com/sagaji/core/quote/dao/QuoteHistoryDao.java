@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote.dao;
+
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+
+import java.util.List;
+
+
+/**
+ * Dao used by the {@link com.sagaji.core.quote.QuoteVersioningService} to read the versions of a quote, stored either
+ * as quotes or as {@link QuoteVersionRecordModel}s.
+ */
+public interface QuoteHistoryDao extends Dao
+{
+	/**
+	 * Returns the quotes with the given code, ordered by version.
+	 *
+	 * @param quoteCode
+	 *           the quote code
+	 * @return the quote versions stored as quotes
+	 */
+	List<QuoteModel> findQuoteVersions(String quoteCode);
+
+	/**
+	 * Returns the version records of the quote with the given code, ordered by version.
+	 *
+	 * @param quoteCode
+	 *           the quote code
+	 * @return the quote versions stored as version records
+	 */
+	List<QuoteVersionRecordModel> findVersionRecords(String quoteCode);
+}
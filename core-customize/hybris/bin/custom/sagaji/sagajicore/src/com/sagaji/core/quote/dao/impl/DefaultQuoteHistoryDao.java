@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote.dao.impl;
+
+import static de.hybris.platform.servicelayer.util.ServicesUtil.validateParameterNotNullStandardMessage;
+
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+import com.sagaji.core.quote.dao.QuoteHistoryDao;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Default implementation of {@link QuoteHistoryDao}.
+ */
+public class DefaultQuoteHistoryDao extends AbstractItemDao implements QuoteHistoryDao
+{
+	private static final String QUERY_PARAM_CODE = "code";
+
+	private static final String QUOTE_VERSIONS_QUERY = "SELECT {q.PK} FROM {Quote AS q}"
+			+ " WHERE {q.code} = ?code ORDER BY {q.version} ASC";
+
+	private static final String VERSION_RECORDS_QUERY = "SELECT {r.PK} FROM {QuoteVersionRecord AS r}"
+			+ " WHERE {r.code} = ?code ORDER BY {r.version} ASC";
+
+	@Override
+	public List<QuoteModel> findQuoteVersions(final String quoteCode)
+	{
+		return search(QUOTE_VERSIONS_QUERY, quoteCode);
+	}
+
+	@Override
+	public List<QuoteVersionRecordModel> findVersionRecords(final String quoteCode)
+	{
+		return search(VERSION_RECORDS_QUERY, quoteCode);
+	}
+
+	protected <T> List<T> search(final String queryString, final String quoteCode)
+	{
+		validateParameterNotNullStandardMessage("quoteCode", quoteCode);
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString,
+				Collections.singletonMap(QUERY_PARAM_CODE, quoteCode));
+		query.setNeedTotal(false);
+
+		final SearchResult<T> result = getFlexibleSearchService().search(query);
+		return result.getResult();
+	}
+}
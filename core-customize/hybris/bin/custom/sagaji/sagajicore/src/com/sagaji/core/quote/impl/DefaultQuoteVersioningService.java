@@ -0,0 +1,195 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote.impl;
+
+import static de.hybris.platform.servicelayer.util.ServicesUtil.validateParameterNotNullStandardMessage;
+
+import de.hybris.platform.commerceservices.order.CommerceQuoteService;
+import de.hybris.platform.core.enums.QuoteState;
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.user.UserService;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+import com.sagaji.core.quote.QuoteHistoryEntry;
+import com.sagaji.core.quote.QuoteVersioningService;
+import com.sagaji.core.quote.dao.QuoteHistoryDao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link QuoteVersioningService}. The transitions listed in <code>stateOnlyTransitions</code>
+ * are state-only: the state and version of the replaced version are stored as a {@link QuoteVersionRecordModel}
+ * referencing the current quote as its snapshot, and the current quote moves to the next version and the new state in
+ * place. All other transitions, and all transitions if <code>stateOnlyVersioning</code> is disabled, create a snapshot
+ * with the {@link CommerceQuoteService}, which clones the quote with all of its entries.
+ * <p>
+ * A state-only transition must only be configured if no user is left who can view the replaced state but not the new
+ * one, as the replaced version is no longer a quote of its own. Changes to the entries are not affected, because
+ * editing a quote in a state of the quote processes always starts with a cloned draft version, so the entries of a
+ * snapshot do not change after records reference it.
+ * <p>
+ * The history of a quote merges the quotes and the version records with its code by version. A version stored both
+ * ways is listed once, as the quote.
+ */
+public class DefaultQuoteVersioningService implements QuoteVersioningService
+{
+	private static final Logger LOG = Logger.getLogger(DefaultQuoteVersioningService.class);
+
+	private CommerceQuoteService commerceQuoteService;
+	private ModelService modelService;
+	private UserService userService;
+	private QuoteHistoryDao quoteHistoryDao;
+	private Map<QuoteState, Set<QuoteState>> stateOnlyTransitions;
+	private boolean stateOnlyVersioning;
+
+	private final AtomicLong stateOnlyVersionCount = new AtomicLong();
+	private final AtomicLong clonedVersionCount = new AtomicLong();
+
+	@Override
+	public QuoteModel createQuoteSnapshotWithState(final QuoteModel quote, final QuoteState state)
+	{
+		validateParameterNotNullStandardMessage("quote", quote);
+		validateParameterNotNullStandardMessage("state", state);
+
+		if (!isStateOnlyTransition(quote.getState(), state))
+		{
+			clonedVersionCount.incrementAndGet();
+			return getCommerceQuoteService().createQuoteSnapshotWithState(quote, state);
+		}
+
+		final QuoteVersionRecordModel versionRecord = getModelService().create(QuoteVersionRecordModel.class);
+		versionRecord.setCode(quote.getCode());
+		versionRecord.setVersion(quote.getVersion());
+		versionRecord.setState(quote.getState());
+		versionRecord.setSnapshot(quote);
+		versionRecord.setUser(getUserService().getCurrentUser());
+
+		quote.setVersion(Integer.valueOf(quote.getVersion().intValue() + 1));
+		quote.setState(state);
+		getModelService().saveAll(versionRecord, quote);
+		stateOnlyVersionCount.incrementAndGet();
+
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(String.format("Quote [%s] moved from %s to %s in version %s without cloning its entries",
+					quote.getCode(), versionRecord.getState(), state, quote.getVersion()));
+		}
+		return quote;
+	}
+
+	@Override
+	public List<QuoteHistoryEntry> getQuoteHistory(final String quoteCode)
+	{
+		validateParameterNotNullStandardMessage("quoteCode", quoteCode);
+
+		final Map<Integer, QuoteHistoryEntry> history = new TreeMap<Integer, QuoteHistoryEntry>();
+		for (final QuoteVersionRecordModel versionRecord : getQuoteHistoryDao().findVersionRecords(quoteCode))
+		{
+			history.put(versionRecord.getVersion(), QuoteHistoryEntry.forVersionRecord(versionRecord));
+		}
+		for (final QuoteModel quote : getQuoteHistoryDao().findQuoteVersions(quoteCode))
+		{
+			history.put(quote.getVersion(), QuoteHistoryEntry.forQuote(quote));
+		}
+		return new ArrayList<QuoteHistoryEntry>(history.values());
+	}
+
+	protected boolean isStateOnlyTransition(final QuoteState from, final QuoteState to)
+	{
+		return isStateOnlyVersioning() && from != null
+				&& getStateOnlyTransitions().getOrDefault(from, Collections.emptySet()).contains(to);
+	}
+
+	@Override
+	public long getStateOnlyVersionCount()
+	{
+		return stateOnlyVersionCount.get();
+	}
+
+	@Override
+	public long getClonedVersionCount()
+	{
+		return clonedVersionCount.get();
+	}
+
+	protected CommerceQuoteService getCommerceQuoteService()
+	{
+		return commerceQuoteService;
+	}
+
+	@Required
+	public void setCommerceQuoteService(final CommerceQuoteService commerceQuoteService)
+	{
+		this.commerceQuoteService = commerceQuoteService;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected UserService getUserService()
+	{
+		return userService;
+	}
+
+	@Required
+	public void setUserService(final UserService userService)
+	{
+		this.userService = userService;
+	}
+
+	protected QuoteHistoryDao getQuoteHistoryDao()
+	{
+		return quoteHistoryDao;
+	}
+
+	@Required
+	public void setQuoteHistoryDao(final QuoteHistoryDao quoteHistoryDao)
+	{
+		this.quoteHistoryDao = quoteHistoryDao;
+	}
+
+	protected Map<QuoteState, Set<QuoteState>> getStateOnlyTransitions()
+	{
+		return stateOnlyTransitions;
+	}
+
+	/**
+	 * @param stateOnlyTransitions
+	 *           the states every state can move to without cloning the quote
+	 */
+	@Required
+	public void setStateOnlyTransitions(final Map<QuoteState, Set<QuoteState>> stateOnlyTransitions)
+	{
+		this.stateOnlyTransitions = stateOnlyTransitions;
+	}
+
+	protected boolean isStateOnlyVersioning()
+	{
+		return stateOnlyVersioning;
+	}
+
+	@Required
+	public void setStateOnlyVersioning(final boolean stateOnlyVersioning)
+	{
+		this.stateOnlyVersioning = stateOnlyVersioning;
+	}
+}
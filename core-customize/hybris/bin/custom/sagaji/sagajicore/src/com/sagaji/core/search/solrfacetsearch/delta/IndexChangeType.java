@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta;
+
+/**
+ * Kind of change that requires a partial update of the product documents in the Solr index.
+ */
+public enum IndexChangeType
+{
+	/**
+	 * A price row of the product was created or changed.
+	 */
+	PRICE,
+
+	/**
+	 * A stock level of the product was created or changed.
+	 */
+	STOCK,
+
+	/**
+	 * The swatch colors of the apparel style (or of the style of an apparel size variant) may have changed.
+	 */
+	SWATCH_COLORS
+}
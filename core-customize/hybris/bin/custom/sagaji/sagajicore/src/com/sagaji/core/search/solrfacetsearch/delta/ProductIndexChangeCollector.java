@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta;
+
+import de.hybris.platform.core.PK;
+
+
+/**
+ * Collects changes of items that affect single fields of the indexed product documents, coalesces them per product
+ * and periodically pushes partial (atomic) updates of the affected fields to Solr.
+ */
+public interface ProductIndexChangeCollector
+{
+	/**
+	 * Registers a changed price row, stock level or product. The item is resolved to the affected products when the
+	 * pending changes are flushed, so that repeated changes of the same item within one window are indexed once.
+	 *
+	 * @param itemPk
+	 *           the pk of the changed item
+	 */
+	void registerItemChange(PK itemPk);
+
+	/**
+	 * Resolves all pending changes and updates the affected fields of the affected products in the configured indexes.
+	 *
+	 * @return the number of product documents updated
+	 */
+	int flush();
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.dao;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Dao used by the {@link com.sagaji.core.search.solrfacetsearch.delta.ProductIndexChangeCollector} to resolve changed
+ * items to the affected products.
+ */
+public interface ProductIndexChangeDao extends Dao
+{
+	/**
+	 * Returns the pks of the products with the given codes in the given catalog versions.
+	 *
+	 * @param productCodes
+	 *           the product codes
+	 * @param catalogVersions
+	 *           the catalog versions to search in
+	 * @return the product pks
+	 */
+	List<PK> findProductPks(Collection<String> productCodes, Collection<CatalogVersionModel> catalogVersions);
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.dao.impl;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import com.sagaji.core.search.solrfacetsearch.delta.dao.ProductIndexChangeDao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.collections.CollectionUtils;
+
+
+/**
+ * Default implementation of {@link ProductIndexChangeDao}.
+ */
+public class DefaultProductIndexChangeDao extends AbstractItemDao implements ProductIndexChangeDao
+{
+	private static final String QUERY_PARAM_CODES = "codes";
+	private static final String QUERY_PARAM_CATALOG_VERSIONS = "catalogVersions";
+
+	private static final String PRODUCT_PKS_QUERY = "SELECT {p.PK} FROM {Product AS p}"
+			+ " WHERE {p.code} IN (?codes) AND {p.catalogVersion} IN (?catalogVersions)";
+
+	@Override
+	public List<PK> findProductPks(final Collection<String> productCodes, final Collection<CatalogVersionModel> catalogVersions)
+	{
+		if (CollectionUtils.isEmpty(productCodes) || CollectionUtils.isEmpty(catalogVersions))
+		{
+			return Collections.emptyList();
+		}
+
+		final Map<String, Object> params = new HashMap<String, Object>();
+		params.put(QUERY_PARAM_CODES, productCodes);
+		params.put(QUERY_PARAM_CATALOG_VERSIONS, catalogVersions);
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(PRODUCT_PKS_QUERY);
+		query.addQueryParameters(params);
+		query.setNeedTotal(false);
+		query.setResultClassList(Collections.singletonList(PK.class));
+
+		final SearchResult<PK> result = getFlexibleSearchService().search(query);
+		return result.getResult();
+	}
+}
@@ -0,0 +1,486 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.impl;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.type.TypeService;
+import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfig;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfigService;
+import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
+import de.hybris.platform.solrfacetsearch.config.IndexedType;
+import de.hybris.platform.solrfacetsearch.config.exceptions.FacetConfigServiceException;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerService;
+import de.hybris.platform.solrfacetsearch.indexer.exceptions.IndexerException;
+import de.hybris.platform.variants.model.VariantProductModel;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.core.model.ApparelSizeVariantProductModel;
+import com.sagaji.core.model.ApparelStyleVariantProductModel;
+import com.sagaji.core.search.solrfacetsearch.delta.IndexChangeType;
+import com.sagaji.core.search.solrfacetsearch.delta.ProductIndexChangeCollector;
+import com.sagaji.core.search.solrfacetsearch.delta.dao.ProductIndexChangeDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link ProductIndexChangeCollector}.
+ * <p>
+ * Changed item pks are coalesced in memory and flushed every {@link #setFlushInterval(long) flush interval} or as soon
+ * as {@link #setMaxPendingChanges(int) max pending changes} are collected. On flush the items are resolved to the
+ * affected products:
+ * <ul>
+ * <li>price rows update the {@link IndexChangeType#PRICE} fields of their product, or of all products with their
+ * product id if they are not bound to a product model,</li>
+ * <li>stock levels update the {@link IndexChangeType#STOCK} fields of all products with their product code,</li>
+ * <li>apparel styles update the {@link IndexChangeType#SWATCH_COLORS} fields of the style and its variants.</li>
+ * </ul>
+ * The affected fields of every configured facet search configuration are sent to Solr as atomic updates, so documents
+ * are not rebuilt from scratch and the remaining fields keep their indexed values. Changes of removed items cannot be
+ * resolved to products anymore and are left to the next full or update index.
+ */
+public class DefaultProductIndexChangeCollector implements ProductIndexChangeCollector, InitializingBean, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(DefaultProductIndexChangeCollector.class);
+
+	private final Set<PK> pendingChanges = ConcurrentHashMap.newKeySet();
+	private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+	private ModelService modelService;
+	private SessionService sessionService;
+	private UserService userService;
+	private TypeService typeService;
+	private FacetSearchConfigService facetSearchConfigService;
+	private IndexerService indexerService;
+	private ProductIndexChangeDao productIndexChangeDao;
+	private List<String> facetSearchConfigs;
+	private Map<IndexChangeType, Set<String>> indexedProperties;
+	private boolean enabled;
+	private long flushInterval;
+	private int maxPendingChanges;
+
+	private ScheduledExecutorService scheduler;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (enabled)
+		{
+			scheduler = createScheduler();
+			scheduler.scheduleWithFixedDelay(this::flushSafely, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	protected ScheduledExecutorService createScheduler()
+	{
+		return Executors.newSingleThreadScheduledExecutor(
+				new TenantAwareThreadFactory("ProductIndexChangeCollector", getSessionService()));
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (scheduler != null)
+		{
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Override
+	public void registerItemChange(final PK itemPk)
+	{
+		// only one flush is scheduled at a time, changes registered while it waits are flushed with it
+		if (pendingChanges.add(itemPk) && pendingChanges.size() >= maxPendingChanges && scheduler != null
+				&& flushScheduled.compareAndSet(false, true))
+		{
+			scheduler.execute(this::flushScheduledChanges);
+		}
+	}
+
+	protected void flushScheduledChanges()
+	{
+		flushScheduled.set(false);
+		flushSafely();
+	}
+
+	protected void flushSafely()
+	{
+		try
+		{
+			flush();
+		}
+		catch (final RuntimeException e)
+		{
+			LOG.error("Delta index of pending product changes failed", e);
+		}
+	}
+
+	@Override
+	public synchronized int flush()
+	{
+		final List<PK> changes = drainPendingChanges();
+		if (changes.isEmpty())
+		{
+			return 0;
+		}
+
+		return getSessionService().executeInLocalView(new SessionExecutionBody()
+		{
+			@Override
+			public Object execute()
+			{
+				return Integer.valueOf(indexChanges(changes));
+			}
+		}, getUserService().getAdminUser()).intValue();
+	}
+
+	protected List<PK> drainPendingChanges()
+	{
+		final List<PK> changes = new ArrayList<>(pendingChanges);
+		pendingChanges.removeAll(changes);
+		return changes;
+	}
+
+	protected int indexChanges(final List<PK> changes)
+	{
+		final ResolvedChanges resolvedChanges = resolveChanges(changes);
+		if (resolvedChanges.isEmpty())
+		{
+			return 0;
+		}
+
+		int updated = 0;
+		for (final String facetSearchConfigName : getFacetSearchConfigs())
+		{
+			try
+			{
+				final FacetSearchConfig facetSearchConfig = getFacetSearchConfigService().getConfiguration(facetSearchConfigName);
+				updated += indexChanges(facetSearchConfig, resolvedChanges);
+			}
+			catch (final FacetConfigServiceException | IndexerException e)
+			{
+				LOG.error("Delta index of " + facetSearchConfigName + " failed", e);
+			}
+		}
+		return updated;
+	}
+
+	protected int indexChanges(final FacetSearchConfig facetSearchConfig, final ResolvedChanges resolvedChanges)
+			throws IndexerException
+	{
+		final Map<PK, Set<IndexChangeType>> changesByProduct = resolvedChanges.getChangesByProduct(getProductIndexChangeDao(),
+				getCatalogVersions(facetSearchConfig));
+		if (changesByProduct.isEmpty())
+		{
+			return 0;
+		}
+
+		final Map<Set<IndexChangeType>, List<PK>> productsByChangeTypes = new HashMap<>();
+		changesByProduct.forEach(
+				(productPk, changeTypes) -> productsByChangeTypes.computeIfAbsent(changeTypes, key -> new ArrayList<>()).add(productPk));
+
+		int updated = 0;
+		for (final IndexedType indexedType : facetSearchConfig.getIndexConfig().getIndexedTypes().values())
+		{
+			if (!getTypeService().isAssignableFrom(ProductModel._TYPECODE, indexedType.getComposedType().getCode()))
+			{
+				continue;
+			}
+
+			for (final Map.Entry<Set<IndexChangeType>, List<PK>> entry : productsByChangeTypes.entrySet())
+			{
+				final Collection<IndexedProperty> properties = getIndexedProperties(indexedType, entry.getKey());
+				if (!properties.isEmpty())
+				{
+					getIndexerService().updatePartialTypeIndex(facetSearchConfig, indexedType, properties, entry.getValue());
+					updated += entry.getValue().size();
+				}
+			}
+		}
+		return updated;
+	}
+
+	protected ResolvedChanges resolveChanges(final List<PK> changes)
+	{
+		final ResolvedChanges resolvedChanges = new ResolvedChanges();
+		for (final PK pk : changes)
+		{
+			final Object item;
+			try
+			{
+				item = getModelService().get(pk);
+			}
+			catch (final ModelLoadingException e)
+			{
+				LOG.debug("Changed item " + pk + " no longer exists", e);
+				continue;
+			}
+
+			if (item instanceof PriceRowModel)
+			{
+				final PriceRowModel priceRow = (PriceRowModel) item;
+				if (priceRow.getProduct() != null)
+				{
+					resolvedChanges.addProduct(priceRow.getProduct(), IndexChangeType.PRICE);
+				}
+				else
+				{
+					// price rows imported for a product code only carry the product id
+					resolvedChanges.addProductCode(priceRow.getProductId(), IndexChangeType.PRICE);
+				}
+			}
+			else if (item instanceof StockLevelModel)
+			{
+				resolvedChanges.addProductCode(((StockLevelModel) item).getProductCode(), IndexChangeType.STOCK);
+			}
+			else if (item instanceof ApparelStyleVariantProductModel && !(item instanceof ApparelSizeVariantProductModel))
+			{
+				final ApparelStyleVariantProductModel style = (ApparelStyleVariantProductModel) item;
+				resolvedChanges.addProduct(style, IndexChangeType.SWATCH_COLORS);
+				for (final VariantProductModel variant : style.getVariants())
+				{
+					resolvedChanges.addProduct(variant, IndexChangeType.SWATCH_COLORS);
+				}
+			}
+		}
+		return resolvedChanges;
+	}
+
+	protected Collection<IndexedProperty> getIndexedProperties(final IndexedType indexedType,
+			final Set<IndexChangeType> changeTypes)
+	{
+		final Map<String, IndexedProperty> properties = new LinkedHashMap<>();
+		for (final IndexChangeType changeType : changeTypes)
+		{
+			for (final String propertyName : getIndexedProperties().getOrDefault(changeType, Collections.emptySet()))
+			{
+				final IndexedProperty indexedProperty = indexedType.getIndexedProperties().get(propertyName);
+				if (indexedProperty != null)
+				{
+					properties.put(propertyName, indexedProperty);
+				}
+			}
+		}
+		return properties.values();
+	}
+
+	protected Collection<CatalogVersionModel> getCatalogVersions(final FacetSearchConfig facetSearchConfig)
+	{
+		final List<CatalogVersionModel> catalogVersions = facetSearchConfig.getIndexConfig().getCatalogVersions();
+		return catalogVersions == null ? Collections.emptyList() : catalogVersions;
+	}
+
+	/**
+	 * Changes resolved to products (by model) and to product codes (stock levels and price rows with a product id only are
+	 * not bound to a catalog version).
+	 */
+	protected static class ResolvedChanges
+	{
+		private final Map<ProductModel, Set<IndexChangeType>> products = new HashMap<>();
+		private final Map<String, Set<IndexChangeType>> productCodes = new HashMap<>();
+
+		public void addProduct(final ProductModel product, final IndexChangeType changeType)
+		{
+			if (product != null)
+			{
+				products.computeIfAbsent(product, key -> EnumSet.noneOf(IndexChangeType.class)).add(changeType);
+			}
+		}
+
+		public void addProductCode(final String productCode, final IndexChangeType changeType)
+		{
+			if (productCode != null)
+			{
+				productCodes.computeIfAbsent(productCode, key -> EnumSet.noneOf(IndexChangeType.class)).add(changeType);
+			}
+		}
+
+		public boolean isEmpty()
+		{
+			return products.isEmpty() && productCodes.isEmpty();
+		}
+
+		public Map<PK, Set<IndexChangeType>> getChangesByProduct(final ProductIndexChangeDao productIndexChangeDao,
+				final Collection<CatalogVersionModel> catalogVersions)
+		{
+			final Map<PK, Set<IndexChangeType>> changesByProduct = new LinkedHashMap<>();
+			if (CollectionUtils.isEmpty(catalogVersions))
+			{
+				return changesByProduct;
+			}
+
+			final Set<CatalogVersionModel> indexedCatalogVersions = new HashSet<>(catalogVersions);
+			products.forEach((product, changeTypes) -> {
+				if (indexedCatalogVersions.contains(product.getCatalogVersion()))
+				{
+					changesByProduct.computeIfAbsent(product.getPk(), key -> EnumSet.noneOf(IndexChangeType.class))
+							.addAll(changeTypes);
+				}
+			});
+
+			if (!productCodes.isEmpty())
+			{
+				final Map<Set<IndexChangeType>, Set<String>> codesByChangeTypes = new HashMap<>();
+				productCodes.forEach((code, changeTypes) -> codesByChangeTypes
+						.computeIfAbsent(changeTypes, key -> new LinkedHashSet<>()).add(code));
+				codesByChangeTypes.forEach((changeTypes, codes) -> {
+					for (final PK productPk : productIndexChangeDao.findProductPks(codes, catalogVersions))
+					{
+						changesByProduct.computeIfAbsent(productPk, key -> EnumSet.noneOf(IndexChangeType.class))
+								.addAll(changeTypes);
+					}
+				});
+			}
+			return changesByProduct;
+		}
+	}
+
+	protected int getPendingChangeCount()
+	{
+		return pendingChanges.size();
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected UserService getUserService()
+	{
+		return userService;
+	}
+
+	@Required
+	public void setUserService(final UserService userService)
+	{
+		this.userService = userService;
+	}
+
+	protected TypeService getTypeService()
+	{
+		return typeService;
+	}
+
+	@Required
+	public void setTypeService(final TypeService typeService)
+	{
+		this.typeService = typeService;
+	}
+
+	protected FacetSearchConfigService getFacetSearchConfigService()
+	{
+		return facetSearchConfigService;
+	}
+
+	@Required
+	public void setFacetSearchConfigService(final FacetSearchConfigService facetSearchConfigService)
+	{
+		this.facetSearchConfigService = facetSearchConfigService;
+	}
+
+	protected IndexerService getIndexerService()
+	{
+		return indexerService;
+	}
+
+	@Required
+	public void setIndexerService(final IndexerService indexerService)
+	{
+		this.indexerService = indexerService;
+	}
+
+	protected ProductIndexChangeDao getProductIndexChangeDao()
+	{
+		return productIndexChangeDao;
+	}
+
+	@Required
+	public void setProductIndexChangeDao(final ProductIndexChangeDao productIndexChangeDao)
+	{
+		this.productIndexChangeDao = productIndexChangeDao;
+	}
+
+	protected List<String> getFacetSearchConfigs()
+	{
+		return facetSearchConfigs;
+	}
+
+	@Required
+	public void setFacetSearchConfigs(final List<String> facetSearchConfigs)
+	{
+		this.facetSearchConfigs = facetSearchConfigs;
+	}
+
+	protected Map<IndexChangeType, Set<String>> getIndexedProperties()
+	{
+		return indexedProperties;
+	}
+
+	@Required
+	public void setIndexedProperties(final Map<IndexChangeType, Set<String>> indexedProperties)
+	{
+		this.indexedProperties = indexedProperties;
+	}
+
+	public void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	public void setFlushInterval(final long flushInterval)
+	{
+		this.flushInterval = flushInterval;
+	}
+
+	public void setMaxPendingChanges(final int maxPendingChanges)
+	{
+		this.maxPendingChanges = maxPendingChanges;
+	}
+}
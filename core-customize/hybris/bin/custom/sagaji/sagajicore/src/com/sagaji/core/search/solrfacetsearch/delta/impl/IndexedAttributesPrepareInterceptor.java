@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.impl;
+
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.interceptor.InterceptorContext;
+import de.hybris.platform.servicelayer.interceptor.PrepareInterceptor;
+
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Marks an existing item for the {@link ProductIndexChangeAfterSaveListener} when one of the attributes feeding the
+ * delta indexed Solr fields is modified, so saves that only touch other attributes do not cause a Solr update. New
+ * items have no pk yet and are always forwarded by the listener.
+ */
+public class IndexedAttributesPrepareInterceptor implements PrepareInterceptor<ItemModel>
+{
+	private ProductIndexChangeAfterSaveListener productIndexChangeAfterSaveListener;
+	private Set<String> attributes;
+
+	@Override
+	public void onPrepare(final ItemModel item, final InterceptorContext ctx)
+	{
+		if (ctx.isNew(item) || item.getPk() == null)
+		{
+			return;
+		}
+
+		for (final String attribute : getAttributes())
+		{
+			if (ctx.isModified(item, attribute))
+			{
+				getProductIndexChangeAfterSaveListener().registerModifiedItem(item.getPk());
+				return;
+			}
+		}
+	}
+
+	protected ProductIndexChangeAfterSaveListener getProductIndexChangeAfterSaveListener()
+	{
+		return productIndexChangeAfterSaveListener;
+	}
+
+	@Required
+	public void setProductIndexChangeAfterSaveListener(
+			final ProductIndexChangeAfterSaveListener productIndexChangeAfterSaveListener)
+	{
+		this.productIndexChangeAfterSaveListener = productIndexChangeAfterSaveListener;
+	}
+
+	protected Set<String> getAttributes()
+	{
+		return attributes;
+	}
+
+	/**
+	 * @param attributes
+	 *           qualifiers of the attributes that are read by the delta indexed Solr fields
+	 */
+	@Required
+	public void setAttributes(final Set<String> attributes)
+	{
+		this.attributes = attributes;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.impl;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.jalo.type.TypeManager;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.tx.AfterSaveEvent;
+import de.hybris.platform.tx.AfterSaveListener;
+import com.sagaji.core.search.solrfacetsearch.delta.ProductIndexChangeCollector;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Forwards created and updated price rows, stock levels and products to the {@link ProductIndexChangeCollector}. The
+ * listener runs after every commit, so it only inspects the type code of the changed items and leaves loading them to
+ * the collector. Updated items are only forwarded if the {@link IndexedAttributesPrepareInterceptor} marked them,
+ * that is if an attribute of a delta indexed field was modified. Removed items cannot be resolved anymore and are
+ * ignored.
+ * <p>
+ * An item marked in a transaction that is rolled back stays marked until its next committed update.
+ */
+public class ProductIndexChangeAfterSaveListener implements AfterSaveListener
+{
+	private ProductIndexChangeCollector productIndexChangeCollector;
+	private boolean enabled;
+
+	private volatile int[] typeCodes;
+	private final Set<PK> modifiedItems = ConcurrentHashMap.newKeySet();
+
+	@Override
+	public void afterSave(final Collection<AfterSaveEvent> events)
+	{
+		if (!enabled)
+		{
+			return;
+		}
+
+		for (final AfterSaveEvent event : events)
+		{
+			if (isRelevantChange(event) && isRelevantTypeCode(event.getPk().getTypeCode()))
+			{
+				getProductIndexChangeCollector().registerItemChange(event.getPk());
+			}
+		}
+	}
+
+	/**
+	 * Marks an item whose indexed attributes are modified by a save that has not been committed yet.
+	 */
+	public void registerModifiedItem(final PK itemPk)
+	{
+		if (enabled)
+		{
+			modifiedItems.add(itemPk);
+		}
+	}
+
+	protected boolean isRelevantChange(final AfterSaveEvent event)
+	{
+		switch (event.getType())
+		{
+			case AfterSaveEvent.CREATE:
+				return true;
+			case AfterSaveEvent.UPDATE:
+				return modifiedItems.remove(event.getPk());
+			default:
+				return false;
+		}
+	}
+
+	protected boolean isRelevantTypeCode(final int typeCode)
+	{
+		for (final int relevantTypeCode : getTypeCodes())
+		{
+			if (relevantTypeCode == typeCode)
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected int[] getTypeCodes()
+	{
+		if (typeCodes == null)
+		{
+			final TypeManager typeManager = TypeManager.getInstance();
+			typeCodes = new int[]
+			{ typeManager.getComposedType(PriceRowModel._TYPECODE).getItemTypeCode(),
+					typeManager.getComposedType(StockLevelModel._TYPECODE).getItemTypeCode(),
+					typeManager.getComposedType(ProductModel._TYPECODE).getItemTypeCode() };
+		}
+		return typeCodes;
+	}
+
+	protected ProductIndexChangeCollector getProductIndexChangeCollector()
+	{
+		return productIndexChangeCollector;
+	}
+
+	@Required
+	public void setProductIndexChangeCollector(final ProductIndexChangeCollector productIndexChangeCollector)
+	{
+		this.productIndexChangeCollector = productIndexChangeCollector;
+	}
+
+	public void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.jalo.order.price.PriceInformation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * In-memory table of the prices of the products of one indexer batch, grouped by product and currency.
+ */
+public class BatchPriceTable
+{
+	private final Map<PK, Map<String, List<PriceInformation>>> prices;
+
+	public BatchPriceTable(final Map<PK, Map<String, List<PriceInformation>>> prices)
+	{
+		this.prices = prices == null ? Collections.<PK, Map<String, List<PriceInformation>>> emptyMap() : prices;
+	}
+
+	/**
+	 * Returns the prices of a product in the given currency.
+	 *
+	 * @param productPk
+	 *           the product pk
+	 * @param currencyIsocode
+	 *           the currency iso code
+	 * @return a modifiable copy of the prices, or <code>null</code> if the table holds no price for the product in this
+	 *         currency
+	 */
+	public List<PriceInformation> getPrices(final PK productPk, final String currencyIsocode)
+	{
+		final Map<String, List<PriceInformation>> pricesByCurrency = prices.get(productPk);
+		if (pricesByCurrency == null)
+		{
+			return null;
+		}
+		final List<PriceInformation> currencyPrices = pricesByCurrency.get(currencyIsocode);
+		return currencyPrices == null ? null : new ArrayList<PriceInformation>(currencyPrices);
+	}
+
+	public int size()
+	{
+		return prices.size();
+	}
+}
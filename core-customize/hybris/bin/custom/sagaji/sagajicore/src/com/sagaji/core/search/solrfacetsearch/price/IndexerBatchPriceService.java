@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price;
+
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.jalo.order.price.PriceInformation;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+
+import java.util.List;
+
+
+/**
+ * Service that resolves product prices for the Solr value providers. Within an indexer batch the prices of a product
+ * are resolved once per currency and shared through an {@link IndexerPriceContext} by every provider asking for them.
+ * Optionally the prices of all products of the batch are loaded at once, so that providers do not have to query the
+ * price service product by product.
+ */
+public interface IndexerBatchPriceService
+{
+	/**
+	 * Returns the prices of the product for the anonymous user and the session catalog versions.
+	 *
+	 * @param indexConfig
+	 *           the index configuration
+	 * @param product
+	 *           the product
+	 * @param currency
+	 *           the currency, <code>null</code> to use the session currency
+	 * @return a modifiable list of prices
+	 */
+	List<PriceInformation> getPriceInformations(IndexConfig indexConfig, ProductModel product, CurrencyModel currency);
+
+	/**
+	 * @return the number of price lookups answered from an already resolved entry of the price context
+	 */
+	long getContextHitCount();
+
+	/**
+	 * @return the number of price lookups that had to be resolved, either from the batch price table or the price service
+	 */
+	long getContextMissCount();
+
+	/**
+	 * @return the number of price lookups delegated to the price service
+	 */
+	long getPriceServiceCallCount();
+
+	/**
+	 * Resets all counters, e.g. before a full index operation.
+	 */
+	void resetStatistics();
+}
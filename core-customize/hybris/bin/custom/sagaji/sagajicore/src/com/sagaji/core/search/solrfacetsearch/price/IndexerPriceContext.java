@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.jalo.order.price.PriceInformation;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Price context of one indexer batch. Holds the prices already resolved for a product and currency, so that every value
+ * provider indexing price related fields can share them, together with the data that is constant for the whole batch.
+ */
+public class IndexerPriceContext
+{
+	private final Collection<CatalogVersionModel> catalogVersions;
+	private final Map<PriceKey, List<PriceInformation>> prices = new HashMap<PriceKey, List<PriceInformation>>();
+	private BatchPriceTable batchPriceTable;
+	private boolean batchPriceTableLoaded;
+
+	public IndexerPriceContext(final Collection<CatalogVersionModel> catalogVersions)
+	{
+		this.catalogVersions = catalogVersions;
+	}
+
+	/**
+	 * @return the session catalog versions prices are resolved for, without classification and content catalogs
+	 */
+	public Collection<CatalogVersionModel> getCatalogVersions()
+	{
+		return catalogVersions;
+	}
+
+	/**
+	 * Returns the prices already resolved in this context.
+	 *
+	 * @param productPk
+	 *           the product pk
+	 * @param currencyIsocode
+	 *           the currency iso code, <code>null</code> for the session currency
+	 * @return a modifiable copy of the prices, or <code>null</code> if the prices have not been resolved yet
+	 */
+	public List<PriceInformation> getPrices(final PK productPk, final String currencyIsocode)
+	{
+		final List<PriceInformation> resolvedPrices = prices.get(new PriceKey(productPk, currencyIsocode));
+		return resolvedPrices == null ? null : new ArrayList<PriceInformation>(resolvedPrices);
+	}
+
+	public void putPrices(final PK productPk, final String currencyIsocode, final List<PriceInformation> resolvedPrices)
+	{
+		prices.put(new PriceKey(productPk, currencyIsocode), Collections.unmodifiableList(new ArrayList<PriceInformation>(
+				resolvedPrices)));
+	}
+
+	public BatchPriceTable getBatchPriceTable()
+	{
+		return batchPriceTable;
+	}
+
+	public void setBatchPriceTable(final BatchPriceTable batchPriceTable)
+	{
+		this.batchPriceTable = batchPriceTable;
+		this.batchPriceTableLoaded = true;
+	}
+
+	/**
+	 * @return <code>true</code> once the batch price table has been requested, even if it could not be built
+	 */
+	public boolean isBatchPriceTableLoaded()
+	{
+		return batchPriceTableLoaded;
+	}
+
+	protected static final class PriceKey
+	{
+		private final PK productPk;
+		private final String currencyIsocode;
+
+		protected PriceKey(final PK productPk, final String currencyIsocode)
+		{
+			this.productPk = productPk;
+			this.currencyIsocode = currencyIsocode;
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (!(obj instanceof PriceKey))
+			{
+				return false;
+			}
+			final PriceKey other = (PriceKey) obj;
+			return Objects.equals(productPk, other.productPk) && Objects.equals(currencyIsocode, other.currencyIsocode);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(productPk, currencyIsocode);
+		}
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price.dao;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+
+/**
+ * Dao to retrieve price rows for a whole indexer batch with a single query.
+ */
+public interface IndexerPriceRowDao extends Dao
+{
+	/**
+	 * Returns the price rows that apply to any user and user group, for the given products and currencies, valid at the
+	 * given date. A price row applies to a product if it references the product or its code, and price rows for all
+	 * products are returned as well, so that callers can tell whether the price rows of a product are complete. Price
+	 * rows of a product price group are not returned. Give-away prices are excluded.
+	 *
+	 * @param products
+	 *           the products to load the price rows for
+	 * @param currencies
+	 *           the currencies the price rows must be defined in
+	 * @param catalogVersions
+	 *           the catalog versions the price rows may belong to, in addition to price rows without catalog version
+	 * @param date
+	 *           the date the price rows must be valid at
+	 * @return the matching price rows
+	 */
+	List<PriceRowModel> findAnonymousPriceRows(Collection<ProductModel> products, Collection<CurrencyModel> currencies,
+			Collection<CatalogVersionModel> catalogVersions, Date date);
+}
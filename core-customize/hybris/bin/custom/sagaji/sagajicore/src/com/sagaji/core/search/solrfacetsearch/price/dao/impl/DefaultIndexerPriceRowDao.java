@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price.dao.impl;
+
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import com.sagaji.core.search.solrfacetsearch.price.dao.IndexerPriceRowDao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.springframework.util.Assert;
+
+
+/**
+ * Default implementation of {@link IndexerPriceRowDao}.
+ */
+public class DefaultIndexerPriceRowDao extends AbstractItemDao implements IndexerPriceRowDao
+{
+	private static final String QUERY_PARAM_PRODUCTS = "products";
+	private static final String QUERY_PARAM_PRODUCT_CODES = "productCodes";
+	private static final String QUERY_PARAM_CURRENCIES = "currencies";
+	private static final String QUERY_PARAM_CATALOG_VERSIONS = "catalogVersions";
+	private static final String QUERY_PARAM_DATE = "date";
+	private static final String QUERY_PARAM_GIVE_AWAY = "giveAway";
+
+	private static final String ANONYMOUS_PRICE_ROWS_QUERY = "SELECT {pr.PK}"
+			+ " FROM {PriceRow AS pr}"
+			+ " WHERE ({pr.product} IN (?products)%s"
+			+ " OR ({pr.product} IS NULL AND {pr.productId} IS NULL AND {pr.pg} IS NULL))"
+			+ " AND {pr.currency} IN (?currencies)"
+			+ " AND {pr.user} IS NULL AND {pr.ug} IS NULL"
+			+ " AND ({pr.giveAwayPrice} IS NULL OR {pr.giveAwayPrice}=?giveAway)"
+			+ " AND ({pr.startTime} IS NULL OR {pr.startTime}<=?date)"
+			+ " AND ({pr.endTime} IS NULL OR {pr.endTime}>=?date)"
+			+ " AND ({pr.catalogVersion} IS NULL%s)";
+	private static final String PRODUCT_CODES_CONDITION = " OR {pr.productId} IN (?productCodes)";
+	private static final String CATALOG_VERSIONS_CONDITION = " OR {pr.catalogVersion} IN (?catalogVersions)";
+
+	@Override
+	public List<PriceRowModel> findAnonymousPriceRows(final Collection<ProductModel> products,
+			final Collection<CurrencyModel> currencies, final Collection<CatalogVersionModel> catalogVersions, final Date date)
+	{
+		Assert.notNull(date);
+
+		if (CollectionUtils.isEmpty(products) || CollectionUtils.isEmpty(currencies))
+		{
+			return Collections.emptyList();
+		}
+
+		final Set<String> productCodes = new LinkedHashSet<String>();
+		for (final ProductModel product : products)
+		{
+			if (product.getCode() != null)
+			{
+				productCodes.add(product.getCode());
+			}
+		}
+
+		final Map<String, Object> params = new HashMap<String, Object>();
+		params.put(QUERY_PARAM_PRODUCTS, products);
+		params.put(QUERY_PARAM_CURRENCIES, currencies);
+		params.put(QUERY_PARAM_DATE, date);
+		params.put(QUERY_PARAM_GIVE_AWAY, Boolean.FALSE);
+		if (!productCodes.isEmpty())
+		{
+			params.put(QUERY_PARAM_PRODUCT_CODES, productCodes);
+		}
+		if (CollectionUtils.isNotEmpty(catalogVersions))
+		{
+			params.put(QUERY_PARAM_CATALOG_VERSIONS, catalogVersions);
+		}
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(String.format(ANONYMOUS_PRICE_ROWS_QUERY,
+				productCodes.isEmpty() ? "" : PRODUCT_CODES_CONDITION,
+				CollectionUtils.isEmpty(catalogVersions) ? "" : CATALOG_VERSIONS_CONDITION));
+		query.addQueryParameters(params);
+		query.setNeedTotal(false);
+
+		final SearchResult<PriceRowModel> result = getFlexibleSearchService().search(query);
+		return result.getResult();
+	}
+}
@@ -0,0 +1,451 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price.impl;
+
+import de.hybris.platform.catalog.CatalogVersionService;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.catalog.model.classification.ClassificationSystemVersionModel;
+import de.hybris.platform.cms2.model.contents.ContentCatalogModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.europe1.jalo.PriceRow;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.jalo.order.price.PriceInformation;
+import de.hybris.platform.product.PriceService;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContext;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContextFactory;
+import de.hybris.platform.util.PriceValue;
+import com.sagaji.core.search.solrfacetsearch.price.BatchPriceTable;
+import com.sagaji.core.search.solrfacetsearch.price.IndexerBatchPriceService;
+import com.sagaji.core.search.solrfacetsearch.price.IndexerPriceContext;
+import com.sagaji.core.search.solrfacetsearch.price.dao.IndexerPriceRowDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link IndexerBatchPriceService}.<br>
+ * The {@link IndexerPriceContext} is kept in the attributes of the current indexer batch context and lives as long as
+ * the batch. Outside of an indexer batch prices are always resolved through the price service.<br>
+ * When batch price lookup is enabled, the price rows of all products of the batch and all index currencies are loaded
+ * with one query, restricted to the catalog versions of the batch. Only price rows that are not bound to a user or user
+ * group are considered, so the table is only built when the anonymous user has no user price group assigned, and it is
+ * not used at all if a price row for all products exists. The table only holds the prices of products whose price rows
+ * match the price factory unambiguously: products of a product price group, products with price rows in another unit
+ * than their own and products with more than one price row for the same currency and minimum quantity are resolved
+ * through the price service, as are products without a matching price row.
+ */
+public class DefaultIndexerBatchPriceService implements IndexerBatchPriceService
+{
+	private static final Logger LOG = Logger.getLogger(DefaultIndexerBatchPriceService.class);
+
+	protected static final String PRICE_CONTEXT_ATTRIBUTE = "sagajiIndexerPriceContext";
+
+	private final LongAdder contextHits = new LongAdder();
+	private final LongAdder contextMisses = new LongAdder();
+	private final LongAdder priceServiceCalls = new LongAdder();
+
+	private IndexerPriceRowDao indexerPriceRowDao;
+	private IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory;
+	private PriceService priceService;
+	private UserService userService;
+	private SessionService sessionService;
+	private CommonI18NService commonI18NService;
+	private CatalogVersionService catalogVersionService;
+	private TimeService timeService;
+	private ModelService modelService;
+	private boolean batchPriceLookup;
+
+	@Override
+	public List<PriceInformation> getPriceInformations(final IndexConfig indexConfig, final ProductModel product,
+			final CurrencyModel currency)
+	{
+		final IndexerBatchContext batchContext = getCurrentBatchContext();
+		if (batchContext == null)
+		{
+			priceServiceCalls.increment();
+			return loadPrices(product, currency, filterCatalogVersions(getCatalogVersionService().getSessionCatalogVersions()));
+		}
+
+		final IndexerPriceContext priceContext = getPriceContext(batchContext);
+		final String currencyIsocode = currency == null ? null : currency.getIsocode();
+		List<PriceInformation> prices = priceContext.getPrices(product.getPk(), currencyIsocode);
+		if (prices != null)
+		{
+			contextHits.increment();
+			return prices;
+		}
+
+		contextMisses.increment();
+		if (currency != null && isBatchPriceLookup())
+		{
+			if (!priceContext.isBatchPriceTableLoaded())
+			{
+				priceContext.setBatchPriceTable(loadBatchPriceTable(batchContext.getItems(), indexConfig.getCurrencies(),
+						priceContext.getCatalogVersions()));
+			}
+			final BatchPriceTable batchPriceTable = priceContext.getBatchPriceTable();
+			prices = batchPriceTable == null ? null : batchPriceTable.getPrices(product.getPk(), currencyIsocode);
+		}
+
+		if (prices == null)
+		{
+			priceServiceCalls.increment();
+			prices = loadPrices(product, currency, priceContext.getCatalogVersions());
+		}
+
+		priceContext.putPrices(product.getPk(), currencyIsocode, prices);
+		return prices;
+	}
+
+	protected IndexerPriceContext getPriceContext(final IndexerBatchContext batchContext)
+	{
+		final Map<String, Object> attributes = batchContext.getAttributes();
+		IndexerPriceContext priceContext = (IndexerPriceContext) attributes.get(PRICE_CONTEXT_ATTRIBUTE);
+		if (priceContext == null)
+		{
+			// the session catalog versions do not change within a batch, so they are filtered only once
+			priceContext = new IndexerPriceContext(filterCatalogVersions(getCatalogVersionService().getSessionCatalogVersions()));
+			attributes.put(PRICE_CONTEXT_ATTRIBUTE, priceContext);
+		}
+		return priceContext;
+	}
+
+	protected IndexerBatchContext getCurrentBatchContext()
+	{
+		if (getIndexerBatchContextFactory() == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return getIndexerBatchContextFactory().getContext();
+		}
+		catch (final IllegalStateException e)
+		{
+			// not called from within an indexer batch
+			return null;
+		}
+	}
+
+	protected List<PriceInformation> loadPrices(final ProductModel product, final CurrencyModel currency,
+			final Collection<CatalogVersionModel> catalogVersions)
+	{
+		final List<PriceInformation> prices = new ArrayList<PriceInformation>();
+		getSessionService().executeInLocalView(new SessionExecutionBody()
+		{
+			@Override
+			public void executeWithoutResult()
+			{
+				getCatalogVersionService().setSessionCatalogVersions(catalogVersions);
+				if (currency != null)
+				{
+					getCommonI18NService().setCurrentCurrency(currency);
+				}
+				prices.addAll(getPriceService().getPriceInformationsForProduct(product));
+			}
+		}, getUserService().getAnonymousUser());
+		return prices;
+	}
+
+	protected BatchPriceTable loadBatchPriceTable(final Collection<ItemModel> items, final Collection<CurrencyModel> currencies,
+			final Collection<CatalogVersionModel> catalogVersions)
+	{
+		if (CollectionUtils.isEmpty(currencies) || getUserService().getAnonymousUser().getEurope1PriceFactory_UPG() != null)
+		{
+			return null;
+		}
+
+		final List<ProductModel> products = new ArrayList<ProductModel>();
+		if (items != null)
+		{
+			for (final ItemModel item : items)
+			{
+				if (item instanceof ProductModel)
+				{
+					products.add((ProductModel) item);
+				}
+			}
+		}
+
+		if (products.isEmpty())
+		{
+			return new BatchPriceTable(Collections.<PK, Map<String, List<PriceInformation>>> emptyMap());
+		}
+
+		final List<PriceRowModel> priceRows = getIndexerPriceRowDao().findAnonymousPriceRows(products, currencies,
+				catalogVersions, getTimeService().getCurrentTime());
+
+		final Map<String, List<ProductModel>> productsByCode = new HashMap<String, List<ProductModel>>();
+		for (final ProductModel product : products)
+		{
+			productsByCode.computeIfAbsent(product.getCode(), code -> new ArrayList<ProductModel>()).add(product);
+		}
+
+		final Map<ProductModel, List<PriceRowModel>> priceRowsByProduct = new HashMap<ProductModel, List<PriceRowModel>>();
+		for (final PriceRowModel priceRow : priceRows)
+		{
+			final Collection<ProductModel> rowProducts = getProducts(priceRow, productsByCode);
+			if (rowProducts == null)
+			{
+				LOG.debug("Found a price row for all products, prices of the batch are resolved by the price service");
+				return null;
+			}
+			for (final ProductModel product : rowProducts)
+			{
+				priceRowsByProduct.computeIfAbsent(product, key -> new ArrayList<PriceRowModel>()).add(priceRow);
+			}
+		}
+
+		final Map<PK, Map<String, List<PriceInformation>>> prices = new HashMap<PK, Map<String, List<PriceInformation>>>(
+				products.size());
+		for (final Map.Entry<ProductModel, List<PriceRowModel>> entry : priceRowsByProduct.entrySet())
+		{
+			if (!isResolvableFromPriceRows(entry.getKey(), entry.getValue()))
+			{
+				continue;
+			}
+			final Map<String, List<PriceInformation>> productPrices = new HashMap<String, List<PriceInformation>>();
+			for (final PriceRowModel priceRow : entry.getValue())
+			{
+				final String currencyIsocode = priceRow.getCurrency().getIsocode();
+				productPrices.computeIfAbsent(currencyIsocode, isocode -> new ArrayList<PriceInformation>())
+						.add(createPriceInformation(priceRow, currencyIsocode));
+			}
+			prices.put(entry.getKey().getPk(), productPrices);
+		}
+
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug(String.format("Loaded %d price rows for %d of %d products in batch", Integer.valueOf(priceRows.size()),
+					Integer.valueOf(prices.size()), Integer.valueOf(products.size())));
+		}
+
+		return new BatchPriceTable(prices);
+	}
+
+	/**
+	 * Returns the products of the batch a price row applies to, or <code>null</code> for a price row of all products.
+	 */
+	protected Collection<ProductModel> getProducts(final PriceRowModel priceRow,
+			final Map<String, List<ProductModel>> productsByCode)
+	{
+		if (priceRow.getProduct() != null)
+		{
+			return Collections.singletonList(priceRow.getProduct());
+		}
+		if (priceRow.getProductId() != null)
+		{
+			return productsByCode.getOrDefault(priceRow.getProductId(), Collections.<ProductModel> emptyList());
+		}
+		return null;
+	}
+
+	/**
+	 * Checks whether the price factory would return exactly the given price rows for the product. Prices of a product
+	 * price group, the conversion between units and the choice between several price rows of the same currency and
+	 * minimum quantity are left to the price service.
+	 */
+	protected boolean isResolvableFromPriceRows(final ProductModel product, final List<PriceRowModel> priceRows)
+	{
+		if (product.getEurope1PriceFactory_PPG() != null)
+		{
+			return false;
+		}
+		final Set<String> matchKeys = new HashSet<String>();
+		for (final PriceRowModel priceRow : priceRows)
+		{
+			if (!Objects.equals(priceRow.getUnit(), product.getUnit())
+					|| !matchKeys.add(priceRow.getCurrency().getIsocode() + "|" + priceRow.getMinqtd()))
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+	protected PriceInformation createPriceInformation(final PriceRowModel priceRow, final String currencyIsocode)
+	{
+		final Map<String, Object> qualifiers = new HashMap<String, Object>();
+		qualifiers.put(PriceRow.MINQTD, priceRow.getMinqtd());
+		qualifiers.put(PriceRow.UNIT, priceRow.getUnit() == null ? null : getModelService().getSource(priceRow.getUnit()));
+		qualifiers.put(PriceRow.PRICEROW, getModelService().getSource(priceRow));
+		final double price = priceRow.getPrice() == null ? 0.0d : priceRow.getPrice().doubleValue();
+		return new PriceInformation(qualifiers, new PriceValue(currencyIsocode, price, Boolean.TRUE.equals(priceRow.getNet())));
+	}
+
+	protected Collection<CatalogVersionModel> filterCatalogVersions(final Collection<CatalogVersionModel> sessionCatalogVersions)
+	{
+		final List<CatalogVersionModel> result = new ArrayList<CatalogVersionModel>(sessionCatalogVersions.size());
+
+		for (final CatalogVersionModel catalogVersion : sessionCatalogVersions)
+		{
+			if (!(catalogVersion instanceof ClassificationSystemVersionModel)
+					&& !(catalogVersion.getCatalog() instanceof ContentCatalogModel))
+			{
+				result.add(catalogVersion);
+			}
+		}
+
+		return result;
+	}
+
+	@Override
+	public long getContextHitCount()
+	{
+		return contextHits.sum();
+	}
+
+	@Override
+	public long getContextMissCount()
+	{
+		return contextMisses.sum();
+	}
+
+	@Override
+	public long getPriceServiceCallCount()
+	{
+		return priceServiceCalls.sum();
+	}
+
+	@Override
+	public void resetStatistics()
+	{
+		contextHits.reset();
+		contextMisses.reset();
+		priceServiceCalls.reset();
+	}
+
+	protected IndexerPriceRowDao getIndexerPriceRowDao()
+	{
+		return indexerPriceRowDao;
+	}
+
+	@Required
+	public void setIndexerPriceRowDao(final IndexerPriceRowDao indexerPriceRowDao)
+	{
+		this.indexerPriceRowDao = indexerPriceRowDao;
+	}
+
+	protected IndexerBatchContextFactory<IndexerBatchContext> getIndexerBatchContextFactory()
+	{
+		return indexerBatchContextFactory;
+	}
+
+	@Required
+	public void setIndexerBatchContextFactory(final IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory)
+	{
+		this.indexerBatchContextFactory = indexerBatchContextFactory;
+	}
+
+	protected PriceService getPriceService()
+	{
+		return priceService;
+	}
+
+	@Required
+	public void setPriceService(final PriceService priceService)
+	{
+		this.priceService = priceService;
+	}
+
+	protected UserService getUserService()
+	{
+		return userService;
+	}
+
+	@Required
+	public void setUserService(final UserService userService)
+	{
+		this.userService = userService;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected CommonI18NService getCommonI18NService()
+	{
+		return commonI18NService;
+	}
+
+	@Required
+	public void setCommonI18NService(final CommonI18NService commonI18NService)
+	{
+		this.commonI18NService = commonI18NService;
+	}
+
+	protected CatalogVersionService getCatalogVersionService()
+	{
+		return catalogVersionService;
+	}
+
+	@Required
+	public void setCatalogVersionService(final CatalogVersionService catalogVersionService)
+	{
+		this.catalogVersionService = catalogVersionService;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected boolean isBatchPriceLookup()
+	{
+		return batchPriceLookup;
+	}
+
+	public void setBatchPriceLookup(final boolean batchPriceLookup)
+	{
+		this.batchPriceLookup = batchPriceLookup;
+	}
+}
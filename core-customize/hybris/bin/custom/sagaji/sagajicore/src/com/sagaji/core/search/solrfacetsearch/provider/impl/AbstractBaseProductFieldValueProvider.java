@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.provider.impl;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
+import de.hybris.platform.solrfacetsearch.config.exceptions.FieldValueProviderException;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContext;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContextFactory;
+import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
+import de.hybris.platform.solrfacetsearch.provider.FieldValue;
+import de.hybris.platform.solrfacetsearch.provider.FieldValueProvider;
+import de.hybris.platform.solrfacetsearch.provider.impl.AbstractPropertyFieldValueProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Base class for value providers that index a value of a base product (e.g. the style of a size variant) on all of its
+ * variants.
+ * <p>
+ * The field values are computed once per base product and indexed property and are kept in the attributes of the
+ * current indexer batch, so the variants of the same base product that are indexed in one batch share the result.
+ * Outside of an indexer batch the values are computed on every call. The field names of an indexed property do not
+ * depend on the indexed item and are resolved once per {@link IndexedProperty}.
+ *
+ * @param <T>
+ *           type of the base product
+ */
+public abstract class AbstractBaseProductFieldValueProvider<T extends ProductModel> extends AbstractPropertyFieldValueProvider
+		implements FieldValueProvider
+{
+	private final Map<IndexedProperty, Collection<String>> fieldNames = Collections.synchronizedMap(new WeakHashMap<>());
+
+	private FieldNameProvider fieldNameProvider;
+	private IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory;
+
+	@Override
+	public Collection<FieldValue> getFieldValues(final IndexConfig indexConfig, final IndexedProperty indexedProperty,
+			final Object model) throws FieldValueProviderException
+	{
+		final T baseProduct = getBaseProduct(model);
+		if (baseProduct == null)
+		{
+			return Collections.emptyList();
+		}
+
+		final Map<PK, List<FieldValue>> batchCache = getBatchCache(indexedProperty);
+		if (batchCache == null)
+		{
+			return createFieldValues(baseProduct, indexedProperty);
+		}
+
+		List<FieldValue> fieldValues = batchCache.get(baseProduct.getPk());
+		if (fieldValues == null)
+		{
+			fieldValues = createFieldValues(baseProduct, indexedProperty);
+			batchCache.put(baseProduct.getPk(), fieldValues);
+		}
+		return new ArrayList<>(fieldValues);
+	}
+
+	/**
+	 * Resolves the base product whose values are indexed for the given item.
+	 *
+	 * @param model
+	 *           the indexed item
+	 * @return the base product or <code>null</code> if the item has no values
+	 */
+	protected abstract T getBaseProduct(Object model);
+
+	/**
+	 * Creates the field values of the given base product.
+	 *
+	 * @param baseProduct
+	 *           the base product
+	 * @param indexedProperty
+	 *           the indexed property
+	 * @return the field values
+	 */
+	protected abstract List<FieldValue> createFieldValues(T baseProduct, IndexedProperty indexedProperty);
+
+	protected List<FieldValue> createFieldValuesForValue(final Object value, final IndexedProperty indexedProperty)
+	{
+		final List<FieldValue> fieldValues = new ArrayList<FieldValue>();
+		for (final String fieldName : getFieldNames(indexedProperty))
+		{
+			fieldValues.add(new FieldValue(fieldName, value));
+		}
+		return fieldValues;
+	}
+
+	protected Collection<String> getFieldNames(final IndexedProperty indexedProperty)
+	{
+		Collection<String> names = fieldNames.get(indexedProperty);
+		if (names == null)
+		{
+			names = Collections.unmodifiableList(new ArrayList<>(getFieldNameProvider().getFieldNames(indexedProperty, null)));
+			fieldNames.put(indexedProperty, names);
+		}
+		return names;
+	}
+
+	protected Map<PK, List<FieldValue>> getBatchCache(final IndexedProperty indexedProperty)
+	{
+		final IndexerBatchContext batchContext = getBatchContext();
+		if (batchContext == null)
+		{
+			return null;
+		}
+
+		final String attribute = getClass().getName() + "." + indexedProperty.getName();
+		@SuppressWarnings("unchecked")
+		Map<PK, List<FieldValue>> batchCache = (Map<PK, List<FieldValue>>) batchContext.getAttributes().get(attribute);
+		if (batchCache == null)
+		{
+			batchCache = new HashMap<>();
+			batchContext.getAttributes().put(attribute, batchCache);
+		}
+		return batchCache;
+	}
+
+	protected IndexerBatchContext getBatchContext()
+	{
+		if (getIndexerBatchContextFactory() == null)
+		{
+			return null;
+		}
+
+		try
+		{
+			return getIndexerBatchContextFactory().getContext();
+		}
+		catch (final IllegalStateException e)
+		{
+			// not called from within an indexer batch
+			return null;
+		}
+	}
+
+	protected FieldNameProvider getFieldNameProvider()
+	{
+		return fieldNameProvider;
+	}
+
+	@Required
+	public void setFieldNameProvider(final FieldNameProvider fieldNameProvider)
+	{
+		this.fieldNameProvider = fieldNameProvider;
+	}
+
+	protected IndexerBatchContextFactory<IndexerBatchContext> getIndexerBatchContextFactory()
+	{
+		return indexerBatchContextFactory;
+	}
+
+	public void setIndexerBatchContextFactory(final IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory)
+	{
+		this.indexerBatchContextFactory = indexerBatchContextFactory;
+	}
+}
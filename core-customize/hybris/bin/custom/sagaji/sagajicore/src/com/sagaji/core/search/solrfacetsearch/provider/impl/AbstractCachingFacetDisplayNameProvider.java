@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.provider.impl;
+
+import de.hybris.platform.cache.Cache;
+import de.hybris.platform.cache.InvalidationListener;
+import de.hybris.platform.cache.InvalidationManager;
+import de.hybris.platform.cache.InvalidationTarget;
+import de.hybris.platform.cache.InvalidationTopic;
+import de.hybris.platform.cache.RemoteInvalidationSource;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.jalo.type.TypeManager;
+import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
+import de.hybris.platform.solrfacetsearch.provider.impl.AbstractFacetValueDisplayNameProvider;
+import de.hybris.platform.solrfacetsearch.search.SearchQuery;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+
+/**
+ * Base class for facet display name providers that resolve the display names of all facet values of a language at once
+ * and keep them in an immutable map, so rendering a facet does not access the database.
+ * <p>
+ * The cached names are dropped whenever an item of one of the {@link #setInvalidationTypes(List) invalidation types} is
+ * modified. The provider listens to the platform cache invalidation, so modifications on other cluster nodes are
+ * picked up as well. Invalidating replaces the whole cache, so names that were loaded while it was invalidated are put
+ * into the dropped cache and not served afterwards.
+ */
+public abstract class AbstractCachingFacetDisplayNameProvider extends AbstractFacetValueDisplayNameProvider
+		implements InvalidationListener, InitializingBean, DisposableBean
+{
+	private volatile Map<Locale, Map<String, String>> displayNames = new ConcurrentHashMap<>();
+
+	private List<String> invalidationTypes = Collections.emptyList();
+	private volatile String[] invalidationTypeCodes;
+	private InvalidationTopic invalidationTopic;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (!invalidationTypes.isEmpty() && Registry.hasCurrentTenant())
+		{
+			invalidationTopic = InvalidationManager.getInstance().getInvalidationTopic(new String[]
+			{ Cache.CACHEKEY_HJMP, Cache.CACHEKEY_ENTITY });
+			invalidationTopic.addInvalidationListener(this);
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (invalidationTopic != null)
+		{
+			invalidationTopic.removeInvalidationListener(this);
+			invalidationTopic = null;
+		}
+	}
+
+	@Override
+	public String getDisplayName(final SearchQuery query, final IndexedProperty property, final String facetValue)
+	{
+		if (facetValue == null)
+		{
+			return "";
+		}
+
+		final Locale locale = resolveLocale(query);
+		final String displayName = getDisplayNames(locale).get(facetValue);
+		if (displayName == null || displayName.isEmpty())
+		{
+			return getDefaultDisplayName(query, facetValue);
+		}
+		return displayName;
+	}
+
+	/**
+	 * Returns the display name of a facet value that is not contained in the preloaded names.
+	 *
+	 * @param query
+	 *           the search query
+	 * @param facetValue
+	 *           the facet value
+	 * @return the display name
+	 */
+	protected String getDefaultDisplayName(final SearchQuery query, final String facetValue)
+	{
+		return facetValue;
+	}
+
+	/**
+	 * Resolves the locale the display names are returned in. The locale is used as cache key, <code>null</code> is
+	 * allowed if the names do not depend on the language.
+	 *
+	 * @param query
+	 *           the search query
+	 * @return the locale
+	 */
+	protected abstract Locale resolveLocale(SearchQuery query);
+
+	/**
+	 * Loads the display names of all facet values for the given locale.
+	 *
+	 * @param locale
+	 *           the locale, may be <code>null</code>
+	 * @return the display names by facet value
+	 */
+	protected abstract Map<String, String> loadDisplayNames(Locale locale);
+
+	protected Map<String, String> getDisplayNames(final Locale locale)
+	{
+		final Locale key = locale == null ? Locale.ROOT : locale;
+		// names loaded while the cache is invalidated end up in the replaced map
+		final Map<Locale, Map<String, String>> cache = displayNames;
+		Map<String, String> names = cache.get(key);
+		if (names == null)
+		{
+			names = Collections.unmodifiableMap(new HashMap<>(loadDisplayNames(locale)));
+			cache.putIfAbsent(key, names);
+		}
+		return names;
+	}
+
+	/**
+	 * Drops all cached display names.
+	 */
+	public void invalidate()
+	{
+		displayNames = new ConcurrentHashMap<>();
+	}
+
+	@Override
+	public void keyInvalidated(final Object[] key, final int invalidationType, final InvalidationTarget target,
+			final RemoteInvalidationSource remoteSrc)
+	{
+		if (key.length > 2 && isInvalidationTypeCode(key[2]))
+		{
+			invalidate();
+		}
+	}
+
+	protected boolean isInvalidationTypeCode(final Object typeCode)
+	{
+		for (final String invalidationTypeCode : getInvalidationTypeCodes())
+		{
+			if (invalidationTypeCode.equals(typeCode))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected String[] getInvalidationTypeCodes()
+	{
+		if (invalidationTypeCodes == null)
+		{
+			final TypeManager typeManager = TypeManager.getInstance();
+			invalidationTypeCodes = invalidationTypes.stream()
+					.map(type -> String.valueOf(typeManager.getComposedType(type).getItemTypeCode())).toArray(String[]::new);
+		}
+		return invalidationTypeCodes;
+	}
+
+	protected int getCachedLocaleCount()
+	{
+		return displayNames.size();
+	}
+
+	public void setInvalidationTypes(final List<String> invalidationTypes)
+	{
+		this.invalidationTypes = invalidationTypes;
+	}
+}
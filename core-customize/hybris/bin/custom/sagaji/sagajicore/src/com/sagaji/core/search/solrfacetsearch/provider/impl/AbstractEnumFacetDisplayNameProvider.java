@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.provider.impl;
+
+import de.hybris.platform.core.HybrisEnumValue;
+import de.hybris.platform.enumeration.EnumerationService;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.i18n.I18NService;
+import de.hybris.platform.solrfacetsearch.search.SearchQuery;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Display name provider for facets on enumeration values. The localized names of all values of the enumeration are
+ * loaded once per language.
+ *
+ * @param <T>
+ *           the enumeration type
+ */
+public abstract class AbstractEnumFacetDisplayNameProvider<T extends HybrisEnumValue> extends
+		AbstractCachingFacetDisplayNameProvider
+{
+	private EnumerationService enumerationService;
+	private I18NService i18nService;
+	private CommonI18NService commonI18NService;
+
+	/**
+	 * @return the enumeration class the facet values belong to
+	 */
+	protected abstract Class<T> getEnumerationClass();
+
+	@Override
+	protected Locale resolveLocale(final SearchQuery query)
+	{
+		Locale queryLocale = null;
+		if (query == null || query.getLanguage() == null || query.getLanguage().isEmpty())
+		{
+			queryLocale = getI18nService().getCurrentLocale();
+		}
+
+		if (queryLocale == null && query != null)
+		{
+			queryLocale = getCommonI18NService().getLocaleForLanguage(getCommonI18NService().getLanguage(query.getLanguage()));
+		}
+		return queryLocale;
+	}
+
+	@Override
+	protected Map<String, String> loadDisplayNames(final Locale locale)
+	{
+		final Map<String, String> displayNames = new HashMap<>();
+		for (final T enumValue : getEnumerationService().getEnumerationValues(getEnumerationClass()))
+		{
+			final String name = getEnumerationService().getEnumerationName(enumValue, locale);
+			if (name != null && !name.isEmpty())
+			{
+				displayNames.put(enumValue.getCode(), name);
+			}
+		}
+		return displayNames;
+	}
+
+	protected EnumerationService getEnumerationService()
+	{
+		return enumerationService;
+	}
+
+	@Required
+	public void setEnumerationService(final EnumerationService enumerationService)
+	{
+		this.enumerationService = enumerationService;
+	}
+
+	protected I18NService getI18nService()
+	{
+		return i18nService;
+	}
+
+	@Required
+	public void setI18nService(final I18NService i18nService)
+	{
+		this.i18nService = i18nService;
+	}
+
+	protected CommonI18NService getCommonI18NService()
+	{
+		return commonI18NService;
+	}
+
+	@Required
+	public void setCommonI18NService(final CommonI18NService commonI18NService)
+	{
+		this.commonI18NService = commonI18NService;
+	}
+}
@@ -3,45 +3,35 @@
  */
 package com.sagaji.core.search.solrfacetsearch.provider.impl;
 
-import de.hybris.platform.solrfacetsearch.config.IndexConfig;
 import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
-import de.hybris.platform.solrfacetsearch.config.exceptions.FieldValueProviderException;
-import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
 import de.hybris.platform.solrfacetsearch.provider.FieldValue;
-import de.hybris.platform.solrfacetsearch.provider.FieldValueProvider;
-import de.hybris.platform.solrfacetsearch.provider.impl.AbstractPropertyFieldValueProvider;
 import com.sagaji.core.enums.SwatchColorEnum;
 import com.sagaji.core.model.ApparelSizeVariantProductModel;
 import com.sagaji.core.model.ApparelStyleVariantProductModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
-import org.springframework.beans.factory.annotation.Required;
 
-
-public class ColorFacetValueProvider extends AbstractPropertyFieldValueProvider implements FieldValueProvider
+public class ColorFacetValueProvider extends AbstractBaseProductFieldValueProvider<ApparelStyleVariantProductModel>
 {
-	private FieldNameProvider fieldNameProvider;
-
 	@Override
-	public Collection<FieldValue> getFieldValues(final IndexConfig indexConfig, final IndexedProperty indexedProperty,
-			final Object model) throws FieldValueProviderException
+	protected ApparelStyleVariantProductModel getBaseProduct(final Object model)
 	{
-		final ApparelStyleVariantProductModel apparelStyleModel = getApparelStyleProductModel(model);
-		if (apparelStyleModel == null)
-		{
-			return Collections.emptyList();
-		}
+		return getApparelStyleProductModel(model);
+	}
 
+	@Override
+	protected List<FieldValue> createFieldValues(final ApparelStyleVariantProductModel apparelStyleModel,
+			final IndexedProperty indexedProperty)
+	{
 		final Set<SwatchColorEnum> colors = apparelStyleModel.getSwatchColors();
 
 		if (colors != null && !colors.isEmpty())
 		{
-			final Collection<FieldValue> fieldValues = new ArrayList<FieldValue>();
+			final List<FieldValue> fieldValues = new ArrayList<FieldValue>();
 			for (final SwatchColorEnum color : colors)
 			{
 				fieldValues.addAll(createFieldValue(color, indexedProperty));
@@ -56,14 +46,7 @@ public class ColorFacetValueProvider extends AbstractPropertyFieldValueProvider
 
 	protected List<FieldValue> createFieldValue(final SwatchColorEnum color, final IndexedProperty indexedProperty)
 	{
-		final List<FieldValue> fieldValues = new ArrayList<FieldValue>();
-		final Object value = color.getCode();
-		final Collection<String> fieldNames = fieldNameProvider.getFieldNames(indexedProperty, null);
-		for (final String fieldName : fieldNames)
-		{
-			fieldValues.add(new FieldValue(fieldName, value));
-		}
-		return fieldValues;
+		return createFieldValuesForValue(color.getCode(), indexedProperty);
 	}
 
 	protected ApparelStyleVariantProductModel getApparelStyleProductModel(final Object model)
@@ -84,10 +67,4 @@ public class ColorFacetValueProvider extends AbstractPropertyFieldValueProvider
 		}
 	}
 
-	@Required
-	public void setFieldNameProvider(final FieldNameProvider fieldNameProvider)
-	{
-		this.fieldNameProvider = fieldNameProvider;
-	}
-
 }
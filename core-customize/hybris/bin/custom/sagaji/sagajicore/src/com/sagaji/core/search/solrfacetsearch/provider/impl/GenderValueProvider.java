@@ -4,44 +4,33 @@
 package com.sagaji.core.search.solrfacetsearch.provider.impl;
 
 import de.hybris.platform.core.enums.Gender;
-import de.hybris.platform.solrfacetsearch.config.IndexConfig;
 import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
-import de.hybris.platform.solrfacetsearch.config.exceptions.FieldValueProviderException;
-import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
 import de.hybris.platform.solrfacetsearch.provider.FieldValue;
-import de.hybris.platform.solrfacetsearch.provider.FieldValueProvider;
-import de.hybris.platform.solrfacetsearch.provider.impl.AbstractPropertyFieldValueProvider;
 import com.sagaji.core.model.ApparelProductModel;
 import com.sagaji.core.model.ApparelSizeVariantProductModel;
 import com.sagaji.core.model.ApparelStyleVariantProductModel;
 
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 
-import org.springframework.beans.factory.annotation.Required;
 
-
-public class GenderValueProvider extends AbstractPropertyFieldValueProvider implements FieldValueProvider
+public class GenderValueProvider extends AbstractBaseProductFieldValueProvider<ApparelProductModel>
 {
-	private FieldNameProvider fieldNameProvider;
-
 	@Override
-	public Collection<FieldValue> getFieldValues(final IndexConfig indexConfig, final IndexedProperty indexedProperty,
-			final Object model) throws FieldValueProviderException
+	protected ApparelProductModel getBaseProduct(final Object model)
 	{
-		final ApparelProductModel apparelModel = getApparelProductModel(model);
-		if (apparelModel == null)
-		{
-			return Collections.emptyList();
-		}
+		return getApparelProductModel(model);
+	}
 
+	@Override
+	protected List<FieldValue> createFieldValues(final ApparelProductModel apparelModel, final IndexedProperty indexedProperty)
+	{
 		final List<Gender> genders = apparelModel.getGenders();
 
 		if (genders != null && !genders.isEmpty())
 		{
-			final Collection<FieldValue> fieldValues = new ArrayList<FieldValue>();
+			final List<FieldValue> fieldValues = new ArrayList<FieldValue>();
 			for (final Gender gender : genders)
 			{
 				fieldValues.addAll(createFieldValue(gender, indexedProperty));
@@ -56,14 +45,7 @@ public class GenderValueProvider extends AbstractPropertyFieldValueProvider impl
 
 	protected List<FieldValue> createFieldValue(final Gender gender, final IndexedProperty indexedProperty)
 	{
-		final List<FieldValue> fieldValues = new ArrayList<FieldValue>();
-		final Object value = gender.getCode();
-		final Collection<String> fieldNames = fieldNameProvider.getFieldNames(indexedProperty, null);
-		for (final String fieldName : fieldNames)
-		{
-			fieldValues.add(new FieldValue(fieldName, value));
-		}
-		return fieldValues;
+		return createFieldValuesForValue(gender.getCode(), indexedProperty);
 	}
 
 	protected ApparelProductModel getApparelProductModel(final Object model)
@@ -89,10 +71,4 @@ public class GenderValueProvider extends AbstractPropertyFieldValueProvider impl
 		}
 	}
 
-	@Required
-	public void setFieldNameProvider(final FieldNameProvider fieldNameProvider)
-	{
-		this.fieldNameProvider = fieldNameProvider;
-	}
-
 }
@@ -3,38 +3,55 @@
  */
 package com.sagaji.core.search.solrfacetsearch.provider.impl;
 
-import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
-import de.hybris.platform.solrfacetsearch.provider.impl.AbstractFacetValueDisplayNameProvider;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
 import de.hybris.platform.solrfacetsearch.search.SearchQuery;
 import de.hybris.platform.storelocator.model.PointOfServiceModel;
-import de.hybris.platform.storelocator.pos.PointOfServiceService;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Required;
 
 
-public class PointOfServiceFacetDisplayNameProvider extends AbstractFacetValueDisplayNameProvider
+public class PointOfServiceFacetDisplayNameProvider extends AbstractCachingFacetDisplayNameProvider
 {
-	private PointOfServiceService pointOfServiceService;
+	private static final String POINT_OF_SERVICE_NAMES_QUERY = "SELECT {" + PointOfServiceModel.NAME + "} FROM {"
+			+ PointOfServiceModel._TYPECODE + "}";
+
+	private FlexibleSearchService flexibleSearchService;
 
 	@Override
-	public String getDisplayName(final SearchQuery query, final IndexedProperty property, final String facetValue)
+	protected Locale resolveLocale(final SearchQuery query)
 	{
-		final PointOfServiceModel posModel = getPointOfServiceService().getPointOfServiceForName(facetValue);
-		if (posModel != null)
+		// the point of service name is the display name and is not localized
+		return null;
+	}
+
+	@Override
+	protected Map<String, String> loadDisplayNames(final Locale locale)
+	{
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(POINT_OF_SERVICE_NAMES_QUERY);
+		query.setResultClassList(Collections.singletonList(String.class));
+
+		final Map<String, String> displayNames = new HashMap<>();
+		for (final String name : getFlexibleSearchService().<String> search(query).getResult())
 		{
-			return posModel.getName();
+			displayNames.put(name, name);
 		}
-		return facetValue;
+		return displayNames;
 	}
 
-	protected PointOfServiceService getPointOfServiceService()
+	protected FlexibleSearchService getFlexibleSearchService()
 	{
-		return pointOfServiceService;
+		return flexibleSearchService;
 	}
 
 	@Required
-	public void setPointOfServiceService(final PointOfServiceService pointOfServiceService)
+	public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
 	{
-		this.pointOfServiceService = pointOfServiceService;
+		this.flexibleSearchService = flexibleSearchService;
 	}
 }
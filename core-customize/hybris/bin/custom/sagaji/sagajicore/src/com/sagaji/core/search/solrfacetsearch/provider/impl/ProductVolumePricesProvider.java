@@ -7,7 +7,6 @@ import de.hybris.platform.core.model.c2l.CurrencyModel;
 import de.hybris.platform.core.model.product.ProductModel;
 import de.hybris.platform.europe1.jalo.PriceRow;
 import de.hybris.platform.jalo.order.price.PriceInformation;
-import de.hybris.platform.product.PriceService;
 import de.hybris.platform.solrfacetsearch.config.IndexConfig;
 import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
 import de.hybris.platform.solrfacetsearch.config.exceptions.FieldValueProviderException;
@@ -15,6 +14,7 @@ import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
 import de.hybris.platform.solrfacetsearch.provider.FieldValue;
 import de.hybris.platform.solrfacetsearch.provider.FieldValueProvider;
 import de.hybris.platform.solrfacetsearch.provider.impl.AbstractPropertyFieldValueProvider;
+import com.sagaji.core.search.solrfacetsearch.price.IndexerBatchPriceService;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -26,12 +26,14 @@ import org.springframework.beans.factory.annotation.Required;
 
 
 /**
- * Provides value for volumePrices flag. "true" if product has volume prices, "false" otherwise.
+ * Provides value for volumePrices flag. "true" if product has volume prices, "false" otherwise.<br>
+ * Prices are resolved through the {@link IndexerBatchPriceService}, so they are shared with the price value provider of
+ * the same indexer batch.
  */
 public class ProductVolumePricesProvider extends AbstractPropertyFieldValueProvider implements FieldValueProvider
 {
 	private FieldNameProvider fieldNameProvider;
-	private PriceService priceService;
+	private IndexerBatchPriceService indexerBatchPriceService;
 
 	@Override
 	public Collection<FieldValue> getFieldValues(final IndexConfig indexConfig, final IndexedProperty indexedProperty,
@@ -39,41 +41,33 @@ public class ProductVolumePricesProvider extends AbstractPropertyFieldValueProvi
 	{
 		final ProductModel product = (ProductModel) model;//this provider shall only be used with products
 		final Collection<FieldValue> fieldValues = new ArrayList<FieldValue>();
-		final CurrencyModel sessionCurrency = i18nService.getCurrentCurrency();
-		try
+		for (final CurrencyModel currency : indexConfig.getCurrencies())
 		{
-			for (final CurrencyModel currency : indexConfig.getCurrencies())
+			final List<PriceInformation> prices = getIndexerBatchPriceService().getPriceInformations(indexConfig, product,
+					currency);
+			if (prices != null && !prices.isEmpty())
 			{
-				i18nService.setCurrentCurrency(currency);
-				final List<PriceInformation> prices = getPriceService().getPriceInformationsForProduct(product);
-				if (prices != null && !prices.isEmpty())
-				{
-					addFieldValues(indexedProperty, product, fieldValues, currency);
-				}
+				addFieldValues(indexedProperty, fieldValues, currency, prices);
 			}
 		}
-		finally
+		return fieldValues;
+	}
+
+	protected void addFieldValues(final IndexedProperty indexedProperty, final Collection<FieldValue> fieldValues,
+			final CurrencyModel currency, final List<PriceInformation> prices)
+	{
+		final Collection<String> fieldNames = getFieldNameProvider().getFieldNames(indexedProperty,
+				currency.getIsocode().toLowerCase());
+		final Boolean hasVolumePrices = hasVolumePrices(prices);
+		for (final String fieldName : fieldNames)
 		{
-			i18nService.setCurrentCurrency(sessionCurrency);
+			fieldValues.add(new FieldValue(fieldName, hasVolumePrices));
 		}
-		return fieldValues;
 	}
-
-	protected void addFieldValues(final IndexedProperty indexedProperty, final ProductModel product,
-			final Collection<FieldValue> fieldValues, final CurrencyModel currency) {
-		final Collection<String> fieldNames = getFieldNameProvider().getFieldNames(indexedProperty,
-				currency.getIsocode().toLowerCase());
-		final Boolean hasVolumePrices = hasVolumePrices(product);
-		for (final String fieldName : fieldNames)
-		{
-			fieldValues.add(new FieldValue(fieldName, hasVolumePrices));
-		}
-	}
-	
-	protected Boolean hasVolumePrices(final ProductModel product)
+
+	protected Boolean hasVolumePrices(final List<PriceInformation> priceInfos)
 	{
 		final Set<Long> volumes = new HashSet<Long>();
-		final List<PriceInformation> priceInfos = getPriceService().getPriceInformationsForProduct(product);
 		for (final PriceInformation priceInfo : priceInfos)
 		{
 			if (priceInfo.getQualifiers().containsKey(PriceRow.MINQTD))
@@ -92,15 +86,15 @@ public class ProductVolumePricesProvider extends AbstractPropertyFieldValueProvi
 		}
 	}
 
-	protected PriceService getPriceService()
+	protected IndexerBatchPriceService getIndexerBatchPriceService()
 	{
-		return priceService;
+		return indexerBatchPriceService;
 	}
 
 	@Required
-	public void setPriceService(final PriceService priceService)
+	public void setIndexerBatchPriceService(final IndexerBatchPriceService indexerBatchPriceService)
 	{
-		this.priceService = priceService;
+		this.indexerBatchPriceService = indexerBatchPriceService;
 	}
 
 	protected FieldNameProvider getFieldNameProvider()
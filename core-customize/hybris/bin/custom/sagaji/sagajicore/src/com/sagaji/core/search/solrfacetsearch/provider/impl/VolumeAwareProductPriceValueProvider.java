@@ -3,18 +3,9 @@
  */
 package com.sagaji.core.search.solrfacetsearch.provider.impl;
 
-import de.hybris.platform.catalog.CatalogVersionService;
-import de.hybris.platform.catalog.model.CatalogVersionModel;
-import de.hybris.platform.catalog.model.classification.ClassificationSystemVersionModel;
-import de.hybris.platform.cms2.model.contents.ContentCatalogModel;
 import de.hybris.platform.core.model.c2l.CurrencyModel;
 import de.hybris.platform.core.model.product.ProductModel;
 import de.hybris.platform.jalo.order.price.PriceInformation;
-import de.hybris.platform.product.PriceService;
-import de.hybris.platform.servicelayer.i18n.CommonI18NService;
-import de.hybris.platform.servicelayer.session.SessionExecutionBody;
-import de.hybris.platform.servicelayer.session.SessionService;
-import de.hybris.platform.servicelayer.user.UserService;
 import de.hybris.platform.solrfacetsearch.config.IndexConfig;
 import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
 import de.hybris.platform.solrfacetsearch.config.exceptions.FieldValueProviderException;
@@ -22,6 +13,7 @@ import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
 import de.hybris.platform.solrfacetsearch.provider.FieldValue;
 import de.hybris.platform.solrfacetsearch.provider.FieldValueProvider;
 import de.hybris.platform.solrfacetsearch.provider.impl.AbstractPropertyFieldValueProvider;
+import com.sagaji.core.search.solrfacetsearch.price.IndexerBatchPriceService;
 
 import java.util.ArrayList;
 import java.util.Collection;
@@ -36,18 +28,16 @@ import org.springframework.beans.factory.annotation.Required;
 /**
  * {@link FieldValueProvider} for prices. Supports multi-currencies.<br>
  * The list of prices is loaded for the anonymous user and current catalog version. <br>
+ * Prices are resolved through the {@link IndexerBatchPriceService}, which shares them with the other price related
+ * providers of the same indexer batch. <br>
  */
 public class VolumeAwareProductPriceValueProvider extends AbstractPropertyFieldValueProvider implements FieldValueProvider
 {
 	private static final Logger LOG = Logger.getLogger(FieldValueProvider.class.getName());
 
 	private FieldNameProvider fieldNameProvider;
-	private PriceService priceService;
-	private UserService userService;
-	private SessionService sessionService;
-	private CommonI18NService commonI18NService;
 	private Comparator<PriceInformation> priceComparator;
-	private CatalogVersionService catalogVersionService;
+	private IndexerBatchPriceService indexerBatchPriceService;
 
 	@Override
 	public Collection<FieldValue> getFieldValues(final IndexConfig indexConfig, final IndexedProperty indexedProperty,
@@ -58,39 +48,18 @@ public class VolumeAwareProductPriceValueProvider extends AbstractPropertyFieldV
 		{
 			checkModel(model);
 
-			final Collection<CatalogVersionModel> filteredCatalogVersions = filterCatalogVersions(
-					getCatalogVersionService().getSessionCatalogVersions());
+			final ProductModel product = (ProductModel) model;
 			if (indexConfig.getCurrencies().isEmpty())
 			{
-				final List<PriceInformation> prices = new ArrayList<PriceInformation>();
-				sessionService.executeInLocalView(new SessionExecutionBody()
-				{
-					@Override
-					public void executeWithoutResult()
-					{
-						getCatalogVersionService().setSessionCatalogVersions(filteredCatalogVersions);
-						prices.addAll(priceService.getPriceInformationsForProduct((ProductModel) model));
-					}
-				}, userService.getAnonymousUser());
-
+				final List<PriceInformation> prices = getIndexerBatchPriceService().getPriceInformations(indexConfig, product, null);
 				processPricesWithEmptyCurrencies(indexedProperty, fieldValues, prices);
 			}
 			else
 			{
 				for (final CurrencyModel currency : indexConfig.getCurrencies())
 				{
-					final List<PriceInformation> prices = new ArrayList<PriceInformation>();
-					sessionService.executeInLocalView(new SessionExecutionBody()
-					{
-						@Override
-						public void executeWithoutResult()
-						{
-							getCatalogVersionService().setSessionCatalogVersions(filteredCatalogVersions);
-							commonI18NService.setCurrentCurrency(currency);
-							prices.addAll(priceService.getPriceInformationsForProduct((ProductModel) model));
-						}
-					}, userService.getAnonymousUser());
-
+					final List<PriceInformation> prices = getIndexerBatchPriceService().getPriceInformations(indexConfig, product,
+							currency);
 					processPricesForCurrency(indexedProperty, fieldValues, currency, prices);
 				}
 			}
@@ -162,22 +131,6 @@ public class VolumeAwareProductPriceValueProvider extends AbstractPropertyFieldV
 		}
 	}
 
-	protected Collection<CatalogVersionModel> filterCatalogVersions(final Collection<CatalogVersionModel> sessionCatalogVersions)
-	{
-		final List<CatalogVersionModel> result = new ArrayList<CatalogVersionModel>(sessionCatalogVersions.size());
-
-		for (final CatalogVersionModel catalogVersion : sessionCatalogVersions)
-		{
-			if (!(catalogVersion instanceof ClassificationSystemVersionModel)
-					&& !(catalogVersion.getCatalog() instanceof ContentCatalogModel))
-			{
-				result.add(catalogVersion);
-			}
-		}
-
-		return result;
-	}
-
 	protected FieldNameProvider getFieldNameProvider()
 	{
 		return fieldNameProvider;
@@ -189,50 +142,6 @@ public class VolumeAwareProductPriceValueProvider extends AbstractPropertyFieldV
 		this.fieldNameProvider = fieldNameProvider;
 	}
 
-	protected PriceService getPriceService()
-	{
-		return priceService;
-	}
-
-	@Required
-	public void setPriceService(final PriceService priceService)
-	{
-		this.priceService = priceService;
-	}
-
-	protected UserService getUserService()
-	{
-		return userService;
-	}
-
-	@Required
-	public void setUserService(final UserService userService)
-	{
-		this.userService = userService;
-	}
-
-	protected SessionService getSessionService()
-	{
-		return sessionService;
-	}
-
-	@Required
-	public void setSessionService(final SessionService sessionService)
-	{
-		this.sessionService = sessionService;
-	}
-
-	protected CommonI18NService getCommonI18NService()
-	{
-		return commonI18NService;
-	}
-
-	@Required
-	public void setCommonI18NService(final CommonI18NService commonI18NService)
-	{
-		this.commonI18NService = commonI18NService;
-	}
-
 	protected Comparator<PriceInformation> getPriceComparator()
 	{
 		return priceComparator;
@@ -244,14 +153,14 @@ public class VolumeAwareProductPriceValueProvider extends AbstractPropertyFieldV
 		this.priceComparator = priceComparator;
 	}
 
-	protected CatalogVersionService getCatalogVersionService()
+	protected IndexerBatchPriceService getIndexerBatchPriceService()
 	{
-		return catalogVersionService;
+		return indexerBatchPriceService;
 	}
 
 	@Required
-	public void setCatalogVersionService(final CatalogVersionService catalogVersionService)
+	public void setIndexerBatchPriceService(final IndexerBatchPriceService indexerBatchPriceService)
 	{
-		this.catalogVersionService = catalogVersionService;
+		this.indexerBatchPriceService = indexerBatchPriceService;
 	}
 }
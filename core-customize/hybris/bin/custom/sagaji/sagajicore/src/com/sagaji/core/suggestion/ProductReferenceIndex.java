@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion;
+
+import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
+import de.hybris.platform.core.PK;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * In-memory adjacency index of all product references (source product to target products by reference type), used to
+ * answer suggestion queries without joining the product reference table.
+ */
+public interface ProductReferenceIndex
+{
+	/**
+	 * Returns whether the index is loaded. The index is loaded in the background, lookups have to be answered from the
+	 * database until it is.
+	 *
+	 * @return <code>true</code> if the index can answer lookups
+	 */
+	boolean isLoaded();
+
+	/**
+	 * Returns the products referenced by the given source products, ordered by the number of references from the source
+	 * products (most referenced first). The source products themselves are never returned. Nothing is returned while the
+	 * index is not {@link #isLoaded() loaded}.
+	 *
+	 * @param sourcePks
+	 *           the pks of the source products
+	 * @param referenceTypes
+	 *           the reference types to follow, all types if empty or <code>null</code>
+	 * @return the pks of the referenced products
+	 */
+	List<PK> getReferencedProducts(Collection<PK> sourcePks, Collection<ProductReferenceTypeEnum> referenceTypes);
+
+	/**
+	 * Marks a product reference as changed. The references of its source product are reloaded before the next lookup.
+	 *
+	 * @param referencePk
+	 *           the pk of the created, modified or removed product reference
+	 */
+	void invalidateReference(PK referencePk);
+
+	/**
+	 * Drops the index and reloads it in the background.
+	 */
+	void invalidate();
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion;
+
+import de.hybris.platform.core.PK;
+
+import java.util.Arrays;
+
+
+/**
+ * Immutable set of the pks of the products a user has purchased, stored as a sorted primitive array.
+ */
+public final class PurchasedProducts
+{
+	public static final PurchasedProducts EMPTY = new PurchasedProducts(new long[0], 0L);
+
+	private final long[] productPks;
+	private final long creationTime;
+
+	private PurchasedProducts(final long[] sortedProductPks, final long creationTime)
+	{
+		this.productPks = sortedProductPks;
+		this.creationTime = creationTime;
+	}
+
+	/**
+	 * Creates the set of the given product pks.
+	 *
+	 * @param productPks
+	 *           the product pks, may contain duplicates
+	 * @param creationTime
+	 *           the time the product pks were read
+	 * @return the set
+	 */
+	public static PurchasedProducts of(final long[] productPks, final long creationTime)
+	{
+		final long[] sorted = productPks.clone();
+		Arrays.sort(sorted);
+		return new PurchasedProducts(distinct(sorted), creationTime);
+	}
+
+	/**
+	 * Returns a new set that additionally contains the given product pks.
+	 *
+	 * @param additionalProductPks
+	 *           the product pks to add
+	 * @return the new set, or this set if it already contains all product pks
+	 */
+	public PurchasedProducts with(final long[] additionalProductPks)
+	{
+		final long[] merged = Arrays.copyOf(productPks, productPks.length + additionalProductPks.length);
+		System.arraycopy(additionalProductPks, 0, merged, productPks.length, additionalProductPks.length);
+		Arrays.sort(merged);
+		final long[] distinct = distinct(merged);
+		return distinct.length == productPks.length ? this : new PurchasedProducts(distinct, creationTime);
+	}
+
+	public boolean contains(final PK productPk)
+	{
+		return productPk != null && contains(productPk.getLongValue());
+	}
+
+	public boolean contains(final long productPk)
+	{
+		return Arrays.binarySearch(productPks, productPk) >= 0;
+	}
+
+	public int size()
+	{
+		return productPks.length;
+	}
+
+	public boolean isEmpty()
+	{
+		return productPks.length == 0;
+	}
+
+	/**
+	 * @return the time the purchased products of the user were read from the database
+	 */
+	public long getCreationTime()
+	{
+		return creationTime;
+	}
+
+	private static long[] distinct(final long[] sorted)
+	{
+		int size = 0;
+		for (int i = 0; i < sorted.length; i++)
+		{
+			if (i == 0 || sorted[i] != sorted[i - 1])
+			{
+				sorted[size++] = sorted[i];
+			}
+		}
+		return size == sorted.length ? sorted : Arrays.copyOf(sorted, size);
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.user.UserModel;
+
+
+/**
+ * Keeps the products each user has purchased in memory, so suggestions can exclude purchased products without
+ * scanning the order history of the user.
+ */
+public interface PurchasedProductsIndex
+{
+	/**
+	 * Returns the products purchased by the given user. The products are read from the order history on first use and
+	 * kept until they expire or the user is evicted from the index.
+	 *
+	 * @param user
+	 *           the user
+	 * @return the purchased products
+	 */
+	PurchasedProducts getPurchasedProducts(UserModel user);
+
+	/**
+	 * Adds the products of a placed order to the purchased products of its user, if they are already loaded.
+	 *
+	 * @param order
+	 *           the placed order
+	 */
+	void addPurchasedProducts(OrderModel order);
+
+	/**
+	 * Drops the purchased products of the given user, they are read again on next use.
+	 *
+	 * @param user
+	 *           the user
+	 */
+	void invalidate(UserModel user);
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.dao;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Dao to read the product references for the {@link com.sagaji.core.suggestion.ProductReferenceIndex}.
+ * <p>
+ * All methods return rows of <code>[reference pk, source pk, target pk, reference type code]</code> ordered by the
+ * reference pk.
+ */
+public interface ProductReferenceIndexDao extends Dao
+{
+	/**
+	 * Returns a page of all product references.
+	 *
+	 * @param afterReferencePk
+	 *           only references with a greater pk are returned, <code>null</code> for the first page
+	 * @param pageSize
+	 *           the maximum number of returned references
+	 * @return the reference rows
+	 */
+	List<List<Object>> findReferences(PK afterReferencePk, int pageSize);
+
+	/**
+	 * Returns all references of the given source products.
+	 *
+	 * @param sourcePks
+	 *           the source product pks
+	 * @return the reference rows
+	 */
+	List<List<Object>> findReferencesForSources(Collection<PK> sourcePks);
+
+	/**
+	 * Returns the source product pks of the given references.
+	 *
+	 * @param referencePks
+	 *           the reference pks
+	 * @return the source product pks
+	 */
+	List<PK> findSourcesOfReferences(Collection<PK> referencePks);
+}
@@ -0,0 +1,23 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.dao;
+
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+
+/**
+ * Dao to read the purchased products of a user for the {@link com.sagaji.core.suggestion.PurchasedProductsIndex}.
+ */
+public interface PurchasedProductsDao extends Dao
+{
+	/**
+	 * Returns the pks of all products the given user has ordered.
+	 *
+	 * @param user
+	 *           the user that has placed the orders
+	 * @return the distinct product pks
+	 */
+	long[] findPurchasedProductPks(UserModel user);
+}
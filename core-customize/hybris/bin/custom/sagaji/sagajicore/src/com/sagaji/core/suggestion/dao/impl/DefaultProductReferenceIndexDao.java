@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.dao.impl;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import com.sagaji.core.suggestion.dao.ProductReferenceIndexDao;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.collections.CollectionUtils;
+
+
+/**
+ * Default implementation of {@link ProductReferenceIndexDao}.
+ */
+public class DefaultProductReferenceIndexDao extends AbstractItemDao implements ProductReferenceIndexDao
+{
+	private static final String QUERY_PARAM_AFTER = "after";
+	private static final String QUERY_PARAM_SOURCES = "sources";
+	private static final String QUERY_PARAM_REFERENCES = "references";
+
+	private static final String REFERENCES_SELECT = "SELECT {r.PK}, {r.source}, {r.target}, {t.code}"
+			+ " FROM {ProductReference AS r JOIN ProductReferenceTypeEnum AS t ON {r.referenceType}={t.PK} }";
+	private static final String REFERENCES_ORDER = " ORDER BY {r.PK}";
+
+	private static final String REFERENCES_PAGE_QUERY = REFERENCES_SELECT + " WHERE {r.PK} > ?after" + REFERENCES_ORDER;
+	private static final String REFERENCES_FIRST_PAGE_QUERY = REFERENCES_SELECT + REFERENCES_ORDER;
+	private static final String REFERENCES_FOR_SOURCES_QUERY = REFERENCES_SELECT + " WHERE {r.source} IN (?sources)"
+			+ REFERENCES_ORDER;
+	private static final String SOURCES_OF_REFERENCES_QUERY = "SELECT DISTINCT {r.source} FROM {ProductReference AS r}"
+			+ " WHERE {r.PK} IN (?references)";
+
+	private static final List<Class<?>> REFERENCE_RESULT_CLASSES = Arrays.<Class<?>> asList(PK.class, PK.class, PK.class,
+			String.class);
+
+	@Override
+	public List<List<Object>> findReferences(final PK afterReferencePk, final int pageSize)
+	{
+		final FlexibleSearchQuery query;
+		if (afterReferencePk == null)
+		{
+			query = new FlexibleSearchQuery(REFERENCES_FIRST_PAGE_QUERY);
+		}
+		else
+		{
+			query = new FlexibleSearchQuery(REFERENCES_PAGE_QUERY);
+			query.addQueryParameter(QUERY_PARAM_AFTER, afterReferencePk);
+		}
+		query.setCount(pageSize);
+		return searchReferences(query);
+	}
+
+	@Override
+	public List<List<Object>> findReferencesForSources(final Collection<PK> sourcePks)
+	{
+		if (CollectionUtils.isEmpty(sourcePks))
+		{
+			return Collections.emptyList();
+		}
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(REFERENCES_FOR_SOURCES_QUERY);
+		query.addQueryParameter(QUERY_PARAM_SOURCES, sourcePks);
+		return searchReferences(query);
+	}
+
+	@Override
+	public List<PK> findSourcesOfReferences(final Collection<PK> referencePks)
+	{
+		if (CollectionUtils.isEmpty(referencePks))
+		{
+			return Collections.emptyList();
+		}
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(SOURCES_OF_REFERENCES_QUERY);
+		query.addQueryParameter(QUERY_PARAM_REFERENCES, referencePks);
+		query.setNeedTotal(false);
+		query.setResultClassList(Collections.singletonList(PK.class));
+
+		final SearchResult<PK> result = getFlexibleSearchService().search(query);
+		return result.getResult();
+	}
+
+	protected List<List<Object>> searchReferences(final FlexibleSearchQuery query)
+	{
+		query.setNeedTotal(false);
+		query.setResultClassList(REFERENCE_RESULT_CLASSES);
+
+		final SearchResult<List<Object>> result = getFlexibleSearchService().search(query);
+		return result.getResult();
+	}
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.dao.impl;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.SearchResult;
+import com.sagaji.core.suggestion.dao.PurchasedProductsDao;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+
+/**
+ * Default implementation of {@link PurchasedProductsDao}.
+ */
+public class DefaultPurchasedProductsDao extends AbstractItemDao implements PurchasedProductsDao
+{
+	private static final String QUERY_PARAM_USER = "user";
+
+	private static final String PURCHASED_PRODUCTS_QUERY = "SELECT DISTINCT {e.product}"
+			+ " FROM {OrderEntry AS e LEFT JOIN Order AS o ON {e.order}={o.PK} }"
+			+ " WHERE {o.user}=?user";
+
+	@Override
+	public long[] findPurchasedProductPks(final UserModel user)
+	{
+		Assert.notNull(user);
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(PURCHASED_PRODUCTS_QUERY);
+		query.addQueryParameter(QUERY_PARAM_USER, user);
+		query.setNeedTotal(false);
+		query.setResultClassList(Collections.singletonList(PK.class));
+
+		final SearchResult<PK> result = getFlexibleSearchService().search(query);
+		final List<PK> productPks = result.getResult();
+		final long[] pks = new long[productPks.size()];
+		for (int i = 0; i < pks.length; i++)
+		{
+			pks[i] = productPks.get(i).getLongValue();
+		}
+		return pks;
+	}
+}
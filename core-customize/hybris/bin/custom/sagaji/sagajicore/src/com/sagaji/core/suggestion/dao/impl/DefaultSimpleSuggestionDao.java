@@ -5,13 +5,18 @@ package com.sagaji.core.suggestion.dao.impl;
 
 import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
 import de.hybris.platform.category.model.CategoryModel;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.model.product.ProductModel;
 import de.hybris.platform.core.model.user.UserModel;
 import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import de.hybris.platform.servicelayer.search.SearchResult;
+import com.sagaji.core.suggestion.ProductReferenceIndex;
+import com.sagaji.core.suggestion.PurchasedProducts;
+import com.sagaji.core.suggestion.PurchasedProductsIndex;
 import com.sagaji.core.suggestion.dao.SimpleSuggestionDao;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,15 +29,25 @@ import org.springframework.util.Assert;
  * Default implementation of {@link SimpleSuggestionDao}.
  *
  * Finds products that are related products that the user has bought.
+ *
+ * If a {@link ProductReferenceIndex} is configured and loaded, the products related to products are resolved from the
+ * in-memory index. The ranked candidates are then read with flexible searches of at most
+ * <code>candidateChunkSize</code> pks each, which also exclude the products the user has bought, until enough products
+ * are found.
+ *
+ * If a {@link PurchasedProductsIndex} is configured, purchased products are filtered in memory instead of checking the
+ * order history of the user for every referenced product.
  */
 public class DefaultSimpleSuggestionDao extends AbstractItemDao implements SimpleSuggestionDao
 {
 	private static final int DEFAULT_LIMIT = 100;
+	private static final int DEFAULT_CANDIDATE_CHUNK_SIZE = 1000;
 	private static final String REF_QUERY_PARAM_CATEGORY = "category";
 	private static final String REF_QUERY_PARAM_PRODUCTS = "products";
 	private static final String REF_QUERY_PARAM_USER = "user";
 	private static final String REF_QUERY_PARAM_TYPE = "referenceType";
 	private static final String REF_QUERY_PARAM_TYPES = "referenceTypes";
+	private static final String REF_QUERY_PARAM_CANDIDATES = "candidates";
 
 	private static final String REF_QUERY_CATEGORY_START = "SELECT {p.PK}"
 			+ " FROM {Product AS p"
@@ -59,6 +74,14 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 	private static final String REF_QUERY_PRODUCT_GROUP = " GROUP BY {p.PK}";
 	private static final String REF_QUERY_PRODUCT_ORDER = " ORDER BY NUM DESC";
 
+	private static final String CANDIDATES_QUERY = "SELECT {p.PK} FROM {Product AS p} WHERE {p.PK} IN (?candidates)";
+	private static final String CANDIDATES_QUERY_SUB = " AND NOT EXISTS ({{"
+			+ " SELECT 1 FROM {OrderEntry AS e2 LEFT JOIN Order AS o2 ON {e2.order}={o2.PK} } "
+			+ " WHERE {e2.product}={p.PK} AND {o2.user}=?user }})";
+
+	private ProductReferenceIndex productReferenceIndex;
+	private PurchasedProductsIndex purchasedProductsIndex;
+	private int candidateChunkSize = DEFAULT_CANDIDATE_CHUNK_SIZE;
 
 	@Override
 	public List<ProductModel> findProductsRelatedToPurchasedProductsByCategory(final CategoryModel category,
@@ -72,7 +95,7 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 
 		final Map<String, Object> params = new HashMap<String, Object>();
 		final StringBuilder builder = new StringBuilder(REF_QUERY_CATEGORY_START);
-		if (excludePurchased)
+		if (excludePurchased && getPurchasedProductsIndex() == null)
 		{
 			builder.append(REF_QUERY_SUB);
 		}
@@ -86,13 +109,7 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 		params.put(REF_QUERY_PARAM_USER, user);
 		params.put(REF_QUERY_PARAM_CATEGORY, category);
 
-		final FlexibleSearchQuery query = new FlexibleSearchQuery(builder.toString());
-		query.addQueryParameters(params);
-		query.setNeedTotal(false);
-		query.setCount(maxResultCount);
-
-		final SearchResult<ProductModel> result = getFlexibleSearchService().search(query);
-		return result.getResult();
+		return search(builder.toString(), params, user, excludePurchased, maxResultCount);
 	}
 
 	@Override
@@ -105,9 +122,14 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 
 		final int maxResultCount = limit == null ? DEFAULT_LIMIT : limit.intValue();
 
+		if (getProductReferenceIndex() != null && getProductReferenceIndex().isLoaded())
+		{
+			return findProductsRelatedToProductsInIndex(products, referenceTypes, user, excludePurchased, maxResultCount);
+		}
+
 		final Map<String, Object> params = new HashMap<String, Object>();
 		final StringBuilder builder = new StringBuilder(REF_QUERY_PRODUCT_START);
-		if (excludePurchased)
+		if (excludePurchased && getPurchasedProductsIndex() == null)
 		{
 			builder.append(REF_QUERY_SUB);
 		}
@@ -122,13 +144,117 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 		params.put(REF_QUERY_PARAM_USER, user);
 		params.put(REF_QUERY_PARAM_PRODUCTS, products);
 
-		final FlexibleSearchQuery query = new FlexibleSearchQuery(builder.toString());
-		query.addQueryParameters(params);
+		return search(builder.toString(), params, user, excludePurchased, maxResultCount);
+	}
+
+	protected List<ProductModel> findProductsRelatedToProductsInIndex(final List<ProductModel> products,
+			final List<ProductReferenceTypeEnum> referenceTypes, final UserModel user, final boolean excludePurchased,
+			final int maxResultCount)
+	{
+		final List<PK> sourcePks = new ArrayList<PK>(products.size());
+		for (final ProductModel product : products)
+		{
+			sourcePks.add(product.getPk());
+		}
+
+		final List<PK> candidates = getProductReferenceIndex().getReferencedProducts(sourcePks, referenceTypes);
+		final boolean excludePurchasedInQuery = excludePurchased && getPurchasedProductsIndex() == null;
+		final PurchasedProducts purchased = excludePurchased && !excludePurchasedInQuery
+				? getPurchasedProductsIndex().getPurchasedProducts(user)
+				: PurchasedProducts.EMPTY;
+
+		final List<ProductModel> result = new ArrayList<ProductModel>(Math.min(maxResultCount, candidates.size()));
+		for (int start = 0; start < candidates.size() && result.size() < maxResultCount; start += getCandidateChunkSize())
+		{
+			final List<PK> chunk = new ArrayList<PK>();
+			for (final PK candidate : candidates.subList(start, Math.min(start + getCandidateChunkSize(), candidates.size())))
+			{
+				if (!purchased.contains(candidate))
+				{
+					chunk.add(candidate);
+				}
+			}
+			if (chunk.isEmpty())
+			{
+				continue;
+			}
+
+			// the query returns the products in any order, so they are added in the order of the candidates
+			final Map<PK, ProductModel> found = findCandidates(chunk, user, excludePurchasedInQuery);
+			for (final PK candidate : chunk)
+			{
+				final ProductModel product = found.get(candidate);
+				if (product != null && result.size() < maxResultCount)
+				{
+					result.add(product);
+				}
+			}
+		}
+		return result;
+	}
+
+	protected Map<PK, ProductModel> findCandidates(final List<PK> candidates, final UserModel user,
+			final boolean excludePurchased)
+	{
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(
+				excludePurchased ? CANDIDATES_QUERY + CANDIDATES_QUERY_SUB : CANDIDATES_QUERY);
+		query.addQueryParameter(REF_QUERY_PARAM_CANDIDATES, candidates);
+		if (excludePurchased)
+		{
+			query.addQueryParameter(REF_QUERY_PARAM_USER, user);
+		}
 		query.setNeedTotal(false);
-		query.setCount(maxResultCount);
 
 		final SearchResult<ProductModel> result = getFlexibleSearchService().search(query);
-		return result.getResult();
+		final Map<PK, ProductModel> products = new HashMap<PK, ProductModel>(result.getResult().size());
+		for (final ProductModel product : result.getResult())
+		{
+			products.put(product.getPk(), product);
+		}
+		return products;
+	}
+
+	protected List<ProductModel> search(final String queryString, final Map<String, Object> params, final UserModel user,
+			final boolean excludePurchased, final int maxResultCount)
+	{
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(queryString);
+		query.addQueryParameters(params);
+		query.setNeedTotal(false);
+
+		if (!excludePurchased || getPurchasedProductsIndex() == null)
+		{
+			query.setCount(maxResultCount);
+			final SearchResult<ProductModel> result = getFlexibleSearchService().search(query);
+			return result.getResult();
+		}
+
+		// purchased products are not excluded by the query, so read pages until enough products are left
+		final PurchasedProducts purchased = getPurchasedProductsIndex().getPurchasedProducts(user);
+		final int pageSize = Math.max(1, maxResultCount * 2);
+		final List<ProductModel> products = new ArrayList<ProductModel>(maxResultCount);
+		int start = 0;
+		List<ProductModel> page;
+		do
+		{
+			query.setStart(start);
+			query.setCount(pageSize);
+			final SearchResult<ProductModel> result = getFlexibleSearchService().search(query);
+			page = result.getResult();
+			for (final ProductModel product : page)
+			{
+				if (products.size() >= maxResultCount)
+				{
+					return products;
+				}
+				if (!purchased.contains(product.getPk()))
+				{
+					products.add(product);
+				}
+			}
+			start += pageSize;
+		}
+		while (page.size() == pageSize && products.size() < maxResultCount);
+		return products;
 	}
 
 	/**
@@ -147,7 +273,7 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 
 		final Map<String, Object> params = new HashMap<String, Object>();
 		final StringBuilder builder = new StringBuilder(REF_QUERY_CATEGORY_START);
-		if (excludePurchased)
+		if (excludePurchased && getPurchasedProductsIndex() == null)
 		{
 			builder.append(REF_QUERY_SUB);
 		}
@@ -161,12 +287,40 @@ public class DefaultSimpleSuggestionDao extends AbstractItemDao implements Simpl
 		params.put(REF_QUERY_PARAM_USER, user);
 		params.put(REF_QUERY_PARAM_CATEGORY, category);
 
-		final FlexibleSearchQuery query = new FlexibleSearchQuery(builder.toString());
-		query.addQueryParameters(params);
-		query.setNeedTotal(false);
-		query.setCount(maxResultCount);
+		return search(builder.toString(), params, user, excludePurchased, maxResultCount);
+	}
 
-		final SearchResult<ProductModel> result = getFlexibleSearchService().search(query);
-		return result.getResult();
+	protected ProductReferenceIndex getProductReferenceIndex()
+	{
+		return productReferenceIndex;
+	}
+
+	public void setProductReferenceIndex(final ProductReferenceIndex productReferenceIndex)
+	{
+		this.productReferenceIndex = productReferenceIndex;
+	}
+
+	protected PurchasedProductsIndex getPurchasedProductsIndex()
+	{
+		return purchasedProductsIndex;
+	}
+
+	public void setPurchasedProductsIndex(final PurchasedProductsIndex purchasedProductsIndex)
+	{
+		this.purchasedProductsIndex = purchasedProductsIndex;
+	}
+
+	protected int getCandidateChunkSize()
+	{
+		return candidateChunkSize;
+	}
+
+	/**
+	 * @param candidateChunkSize
+	 *           the maximum number of referenced products read with one query
+	 */
+	public void setCandidateChunkSize(final int candidateChunkSize)
+	{
+		this.candidateChunkSize = candidateChunkSize;
 	}
 }
@@ -0,0 +1,432 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.impl;
+
+import de.hybris.platform.cache.Cache;
+import de.hybris.platform.cache.InvalidationListener;
+import de.hybris.platform.cache.InvalidationManager;
+import de.hybris.platform.cache.InvalidationTarget;
+import de.hybris.platform.cache.InvalidationTopic;
+import de.hybris.platform.cache.RemoteInvalidationSource;
+import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
+import de.hybris.platform.catalog.model.ProductReferenceModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.jalo.type.TypeManager;
+import de.hybris.platform.servicelayer.session.SessionService;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.core.suggestion.ProductReferenceIndex;
+import com.sagaji.core.suggestion.dao.ProductReferenceIndexDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.collections.CollectionUtils;
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link ProductReferenceIndex}.
+ * <p>
+ * The references of every source product are kept as primitive arrays of target pks and reference type codes. The
+ * index is loaded page by page by a background thread when the application context starts, so no lookup waits for
+ * it; until it is loaded {@link #isLoaded()} is <code>false</code>. It listens to the platform cache invalidation of
+ * product references (on all cluster nodes) and reloads only the references of the affected source products before
+ * the next lookup.
+ */
+public class DefaultProductReferenceIndex
+		implements ProductReferenceIndex, InvalidationListener, InitializingBean, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(DefaultProductReferenceIndex.class);
+
+	private final Set<PK> changedReferences = ConcurrentHashMap.newKeySet();
+
+	private ProductReferenceIndexDao productReferenceIndexDao;
+	private SessionService sessionService;
+	private int pageSize;
+
+	private volatile IndexState state;
+	private volatile String productReferenceTypeCode;
+	private InvalidationTopic invalidationTopic;
+	private ExecutorService loader;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (Registry.hasCurrentTenant())
+		{
+			invalidationTopic = InvalidationManager.getInstance().getInvalidationTopic(new String[]
+			{ Cache.CACHEKEY_HJMP, Cache.CACHEKEY_ENTITY });
+			invalidationTopic.addInvalidationListener(this);
+
+			loader = Executors
+					.newSingleThreadExecutor(new TenantAwareThreadFactory("ProductReferenceIndex", getSessionService()));
+			scheduleLoad();
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (invalidationTopic != null)
+		{
+			invalidationTopic.removeInvalidationListener(this);
+			invalidationTopic = null;
+		}
+		if (loader != null)
+		{
+			loader.shutdownNow();
+		}
+	}
+
+	@Override
+	public boolean isLoaded()
+	{
+		return state != null;
+	}
+
+	@Override
+	public List<PK> getReferencedProducts(final Collection<PK> sourcePks,
+			final Collection<ProductReferenceTypeEnum> referenceTypes)
+	{
+		final IndexState current = getUpToDateState();
+		if (current == null)
+		{
+			return Collections.emptyList();
+		}
+
+		final Map<Long, SourceReferences> index = current.referencesBySource;
+
+		final Set<Long> sources = new HashSet<>();
+		for (final PK sourcePk : sourcePks)
+		{
+			sources.add(Long.valueOf(sourcePk.getLongValue()));
+		}
+		final Set<String> types = getTypeCodes(referenceTypes);
+
+		final Map<Long, int[]> referenceCounts = new LinkedHashMap<>();
+		for (final PK sourcePk : sourcePks)
+		{
+			final SourceReferences references = index.get(Long.valueOf(sourcePk.getLongValue()));
+			if (references == null)
+			{
+				continue;
+			}
+
+			for (int i = 0; i < references.targetPks.length; i++)
+			{
+				final Long target = Long.valueOf(references.targetPks[i]);
+				if ((types == null || types.contains(references.referenceTypes[i])) && !sources.contains(target))
+				{
+					referenceCounts.computeIfAbsent(target, key -> new int[1])[0]++;
+				}
+			}
+		}
+
+		final List<Map.Entry<Long, int[]>> ranked = new ArrayList<>(referenceCounts.entrySet());
+		ranked.sort(Comparator.comparingInt((Map.Entry<Long, int[]> entry) -> entry.getValue()[0]).reversed());
+
+		final List<PK> result = new ArrayList<>(ranked.size());
+		for (final Map.Entry<Long, int[]> entry : ranked)
+		{
+			result.add(PK.fromLong(entry.getKey().longValue()));
+		}
+		return result;
+	}
+
+	@Override
+	public void invalidateReference(final PK referencePk)
+	{
+		changedReferences.add(referencePk);
+	}
+
+	@Override
+	public void invalidate()
+	{
+		state = null;
+		scheduleLoad();
+	}
+
+	@Override
+	public void keyInvalidated(final Object[] key, final int invalidationType, final InvalidationTarget target,
+			final RemoteInvalidationSource remoteSrc)
+	{
+		if (key.length > 3 && key[3] instanceof PK && getProductReferenceTypeCode().equals(key[2]))
+		{
+			invalidateReference((PK) key[3]);
+		}
+	}
+
+	protected void scheduleLoad()
+	{
+		if (loader != null && !loader.isShutdown())
+		{
+			loader.execute(this::loadSafely);
+		}
+	}
+
+	protected void loadSafely()
+	{
+		try
+		{
+			load();
+		}
+		catch (final RuntimeException e)
+		{
+			LOG.error("Loading the product reference index failed, suggestions are read from the database", e);
+		}
+	}
+
+	/**
+	 * Loads the index and replaces the current one. References changed while loading are refreshed on the next lookup.
+	 */
+	protected void load()
+	{
+		final IndexState loaded = buildIndex();
+		synchronized (this)
+		{
+			state = loaded;
+		}
+	}
+
+	protected IndexState getUpToDateState()
+	{
+		IndexState current = state;
+		if (current != null && !changedReferences.isEmpty())
+		{
+			synchronized (this)
+			{
+				current = state;
+				if (current != null && !changedReferences.isEmpty())
+				{
+					refreshChangedReferences(current);
+				}
+			}
+		}
+		return current;
+	}
+
+	protected IndexState buildIndex()
+	{
+		final long start = System.currentTimeMillis();
+		changedReferences.clear();
+
+		final IndexState loaded = new IndexState();
+		final Map<Long, SourceReferencesBuilder> builders = new HashMap<>();
+		PK lastReferencePk = null;
+		List<List<Object>> page;
+		int referenceCount = 0;
+		do
+		{
+			page = getProductReferenceIndexDao().findReferences(lastReferencePk, pageSize);
+			for (final List<Object> row : page)
+			{
+				addReference(loaded, builders, row);
+				lastReferencePk = (PK) row.get(0);
+			}
+			referenceCount += page.size();
+		}
+		while (page.size() == pageSize);
+
+		builders.forEach((source, builder) -> loaded.referencesBySource.put(source, builder.build()));
+
+		if (LOG.isInfoEnabled())
+		{
+			LOG.info("Loaded " + referenceCount + " product references of " + loaded.referencesBySource.size()
+					+ " products in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		return loaded;
+	}
+
+	protected void refreshChangedReferences(final IndexState current)
+	{
+		final Map<Long, SourceReferences> index = current.referencesBySource;
+		final Map<Long, Long> sourceByReference = current.sourceByReference;
+		final List<PK> references = new ArrayList<>(changedReferences);
+		changedReferences.removeAll(references);
+
+		final Set<PK> sources = new HashSet<>();
+		final List<PK> unknownReferences = new ArrayList<>();
+		for (final PK reference : references)
+		{
+			final Long source = sourceByReference.get(Long.valueOf(reference.getLongValue()));
+			if (source == null)
+			{
+				unknownReferences.add(reference);
+			}
+			else
+			{
+				sources.add(PK.fromLong(source.longValue()));
+			}
+		}
+		sources.addAll(getProductReferenceIndexDao().findSourcesOfReferences(unknownReferences));
+		if (sources.isEmpty())
+		{
+			return;
+		}
+
+		final Map<Long, SourceReferencesBuilder> builders = new HashMap<>();
+		for (final List<Object> row : getProductReferenceIndexDao().findReferencesForSources(sources))
+		{
+			addReference(current, builders, row);
+		}
+
+		for (final PK sourcePk : sources)
+		{
+			final Long source = Long.valueOf(sourcePk.getLongValue());
+			final SourceReferencesBuilder builder = builders.get(source);
+			final SourceReferences previous = builder == null ? index.remove(source) : index.put(source, builder.build());
+			if (previous != null)
+			{
+				for (final long referencePk : previous.referencePks)
+				{
+					if (builder == null || !builder.containsReference(referencePk))
+					{
+						sourceByReference.remove(Long.valueOf(referencePk));
+					}
+				}
+			}
+		}
+	}
+
+	protected void addReference(final IndexState target, final Map<Long, SourceReferencesBuilder> builders,
+			final List<Object> row)
+	{
+		final long reference = ((PK) row.get(0)).getLongValue();
+		final Long source = Long.valueOf(((PK) row.get(1)).getLongValue());
+		builders.computeIfAbsent(source, key -> new SourceReferencesBuilder()).add(reference, ((PK) row.get(2)).getLongValue(),
+				(String) row.get(3));
+		target.sourceByReference.put(Long.valueOf(reference), source);
+	}
+
+	protected Set<String> getTypeCodes(final Collection<ProductReferenceTypeEnum> referenceTypes)
+	{
+		if (CollectionUtils.isEmpty(referenceTypes))
+		{
+			return null;
+		}
+
+		final Set<String> typeCodes = new HashSet<>();
+		for (final ProductReferenceTypeEnum referenceType : referenceTypes)
+		{
+			typeCodes.add(referenceType.getCode());
+		}
+		return typeCodes;
+	}
+
+	protected String getProductReferenceTypeCode()
+	{
+		if (productReferenceTypeCode == null)
+		{
+			productReferenceTypeCode = String
+					.valueOf(TypeManager.getInstance().getComposedType(ProductReferenceModel._TYPECODE).getItemTypeCode());
+		}
+		return productReferenceTypeCode;
+	}
+
+	protected ProductReferenceIndexDao getProductReferenceIndexDao()
+	{
+		return productReferenceIndexDao;
+	}
+
+	@Required
+	public void setProductReferenceIndexDao(final ProductReferenceIndexDao productReferenceIndexDao)
+	{
+		this.productReferenceIndexDao = productReferenceIndexDao;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	@Required
+	public void setPageSize(final int pageSize)
+	{
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * A loaded index: the references by source product and the source product of every reference.
+	 */
+	protected static final class IndexState
+	{
+		private final Map<Long, SourceReferences> referencesBySource = new ConcurrentHashMap<>();
+		private final Map<Long, Long> sourceByReference = new ConcurrentHashMap<>();
+	}
+
+	/**
+	 * The immutable references of one source product.
+	 */
+	protected static final class SourceReferences
+	{
+		private final long[] referencePks;
+		private final long[] targetPks;
+		private final String[] referenceTypes;
+
+		private SourceReferences(final long[] referencePks, final long[] targetPks, final String[] referenceTypes)
+		{
+			this.referencePks = referencePks;
+			this.targetPks = targetPks;
+			this.referenceTypes = referenceTypes;
+		}
+	}
+
+	protected static final class SourceReferencesBuilder
+	{
+		private final List<long[]> references = new ArrayList<>();
+		private final List<String> referenceTypes = new ArrayList<>();
+
+		private void add(final long referencePk, final long targetPk, final String referenceType)
+		{
+			references.add(new long[]
+			{ referencePk, targetPk });
+			referenceTypes.add(referenceType.intern());
+		}
+
+		private boolean containsReference(final long referencePk)
+		{
+			for (final long[] reference : references)
+			{
+				if (reference[0] == referencePk)
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private SourceReferences build()
+		{
+			final long[] referencePks = new long[references.size()];
+			final long[] targetPks = new long[references.size()];
+			for (int i = 0; i < references.size(); i++)
+			{
+				referencePks[i] = references.get(i)[0];
+				targetPks[i] = references.get(i)[1];
+			}
+			return new SourceReferences(referencePks, targetPks, referenceTypes.toArray(new String[referenceTypes.size()]));
+		}
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.impl;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.core.suggestion.PurchasedProducts;
+import com.sagaji.core.suggestion.PurchasedProductsIndex;
+import com.sagaji.core.suggestion.dao.PurchasedProductsDao;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link PurchasedProductsIndex}.
+ * <p>
+ * The purchased products of the most recently used {@link #setMaxUsers(int) max users} users are kept in a least
+ * recently used map. Orders placed on this node are added to the loaded sets right away; the sets expire after
+ * {@link #setMaxAge(long) max age} milliseconds so orders placed on other cluster nodes are picked up as well.
+ */
+public class DefaultPurchasedProductsIndex implements PurchasedProductsIndex
+{
+	private PurchasedProductsDao purchasedProductsDao;
+	private TimeService timeService;
+	private int maxUsers;
+	private long maxAge;
+
+	private final Map<PK, PurchasedProducts> purchasedProductsByUser = new LinkedHashMap<PK, PurchasedProducts>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<PK, PurchasedProducts> eldest)
+		{
+			return size() > maxUsers;
+		}
+	};
+
+	@Override
+	public PurchasedProducts getPurchasedProducts(final UserModel user)
+	{
+		if (user == null || user.getPk() == null)
+		{
+			return PurchasedProducts.EMPTY;
+		}
+
+		final long now = getTimeService().getCurrentTime().getTime();
+		PurchasedProducts purchasedProducts;
+		synchronized (purchasedProductsByUser)
+		{
+			purchasedProducts = purchasedProductsByUser.get(user.getPk());
+		}
+
+		if (isExpired(purchasedProducts, now))
+		{
+			final PurchasedProducts loaded = PurchasedProducts.of(getPurchasedProductsDao().findPurchasedProductPks(user), now);
+			// a set loaded or extended by another thread in the meantime is kept, so placed orders are not dropped
+			synchronized (purchasedProductsByUser)
+			{
+				purchasedProducts = purchasedProductsByUser.merge(user.getPk(), loaded,
+						(current, replacement) -> isExpired(current, now) ? replacement : current);
+			}
+		}
+		return purchasedProducts;
+	}
+
+	protected boolean isExpired(final PurchasedProducts purchasedProducts, final long now)
+	{
+		return purchasedProducts == null || now - purchasedProducts.getCreationTime() > maxAge;
+	}
+
+	@Override
+	public void addPurchasedProducts(final OrderModel order)
+	{
+		final UserModel user = order.getUser();
+		if (user == null || order.getEntries() == null)
+		{
+			return;
+		}
+
+		final long[] productPks = order.getEntries().stream().map(AbstractOrderEntryModel::getProduct)
+				.filter(product -> product != null && product.getPk() != null)
+				.mapToLong(product -> product.getPk().getLongValue()).toArray();
+
+		synchronized (purchasedProductsByUser)
+		{
+			final PurchasedProducts purchasedProducts = purchasedProductsByUser.get(user.getPk());
+			if (purchasedProducts != null)
+			{
+				purchasedProductsByUser.put(user.getPk(), purchasedProducts.with(productPks));
+			}
+		}
+	}
+
+	@Override
+	public void invalidate(final UserModel user)
+	{
+		synchronized (purchasedProductsByUser)
+		{
+			purchasedProductsByUser.remove(user.getPk());
+		}
+	}
+
+	protected int getLoadedUserCount()
+	{
+		synchronized (purchasedProductsByUser)
+		{
+			return purchasedProductsByUser.size();
+		}
+	}
+
+	protected PurchasedProductsDao getPurchasedProductsDao()
+	{
+		return purchasedProductsDao;
+	}
+
+	@Required
+	public void setPurchasedProductsDao(final PurchasedProductsDao purchasedProductsDao)
+	{
+		this.purchasedProductsDao = purchasedProductsDao;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	@Required
+	public void setMaxUsers(final int maxUsers)
+	{
+		this.maxUsers = maxUsers;
+	}
+
+	@Required
+	public void setMaxAge(final long maxAge)
+	{
+		this.maxAge = maxAge;
+	}
+}
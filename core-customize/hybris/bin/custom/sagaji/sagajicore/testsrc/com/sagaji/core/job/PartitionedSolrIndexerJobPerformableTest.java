@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.job;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.solrfacetsearch.config.CommitMode;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexedType;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerService;
+import com.sagaji.core.model.PartitionedSolrIndexerCronJobModel;
+import com.sagaji.core.model.SolrIndexPartitionModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class PartitionedSolrIndexerJobPerformableTest
+{
+	private final List<SolrIndexPartitionModel> partitionModels = new ArrayList<>();
+	private PartitionedSolrIndexerJobPerformable job;
+	private IndexerService indexerService;
+	private PartitionedSolrIndexerCronJobModel cronJob;
+	private FacetSearchConfig facetSearchConfig;
+	private IndexedType indexedType;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		final ModelService modelService = mock(ModelService.class);
+		given(modelService.create(SolrIndexPartitionModel.class)).willAnswer(invocation -> {
+			final SolrIndexPartitionModel partitionModel = new SolrIndexPartitionModel();
+			partitionModels.add(partitionModel);
+			return partitionModel;
+		});
+		final SessionService sessionService = mock(SessionService.class);
+		given(sessionService.executeInLocalView(any(SessionExecutionBody.class))).willAnswer(
+				invocation -> ((SessionExecutionBody) invocation.getArgument(0)).execute());
+		final TimeService timeService = mock(TimeService.class);
+		given(timeService.getCurrentTime()).willReturn(new Date());
+		indexerService = mock(IndexerService.class);
+
+		job = spy(new PartitionedSolrIndexerJobPerformable());
+		job.setModelService(modelService);
+		job.setSessionService(sessionService);
+		job.setTimeService(timeService);
+		job.setIndexerService(indexerService);
+		job.setAbortTimeout(10000);
+
+		facetSearchConfig = new FacetSearchConfig();
+		facetSearchConfig.setName("apparel-ukIndex");
+		indexedType = new IndexedType();
+		indexedType.setIdentifier("ApparelProduct");
+		final List<PK> pks = new ArrayList<>();
+		for (long i = 1; i <= 6; i++)
+		{
+			pks.add(PK.fromLong(i));
+		}
+		doReturn(pks).when(job).resolvePks(facetSearchConfig, indexedType);
+		doNothing().when(job).commit(facetSearchConfig, indexedType);
+
+		cronJob = mock(PartitionedSolrIndexerCronJobModel.class);
+		given(cronJob.getPartitionCount()).willReturn(Integer.valueOf(3));
+	}
+
+	@After
+	public void tearDown()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testPartitionsAreMarkedRunningWhenTheyStart() throws Exception
+	{
+		given(cronJob.getWorkerCount()).willReturn(Integer.valueOf(1));
+		executor = Executors.newFixedThreadPool(1);
+		final List<List<CronJobStatus>> statusesAtStart = Collections.synchronizedList(new ArrayList<>());
+		doAnswer(invocation -> {
+			final List<CronJobStatus> statuses = new ArrayList<>();
+			partitionModels.forEach(partitionModel -> statuses.add(partitionModel.getStatus()));
+			statusesAtStart.add(statuses);
+			return null;
+		}).when(indexerService).updateTypeIndex(any(FacetSearchConfig.class), eq(indexedType), anyList());
+
+		final PerformResult result = job.indexType(cronJob, facetSearchConfig, facetSearchConfig, indexedType, executor);
+
+		Assert.assertNull(result);
+		Assert.assertEquals(3, statusesAtStart.size());
+		Assert.assertEquals(List.of(CronJobStatus.RUNNING, CronJobStatus.UNKNOWN, CronJobStatus.UNKNOWN), statusesAtStart.get(0));
+		Assert.assertEquals(List.of(CronJobStatus.FINISHED, CronJobStatus.RUNNING, CronJobStatus.UNKNOWN), statusesAtStart.get(1));
+		for (final SolrIndexPartitionModel partitionModel : partitionModels)
+		{
+			Assert.assertEquals(CronJobStatus.FINISHED, partitionModel.getStatus());
+			Assert.assertEquals(CronJobResult.SUCCESS, partitionModel.getResult());
+			Assert.assertNotNull(partitionModel.getStartTime());
+		}
+		verify(job).commit(facetSearchConfig, indexedType);
+	}
+
+	@Test
+	public void testAbortRequestStopsSubmittingPartitions() throws Exception
+	{
+		given(cronJob.getWorkerCount()).willReturn(Integer.valueOf(2));
+		// the abort is requested after the first partition has been submitted
+		given(cronJob.getRequestAbort()).willReturn(null, Boolean.TRUE);
+		executor = Executors.newFixedThreadPool(2);
+
+		final PerformResult result = job.indexType(cronJob, facetSearchConfig, facetSearchConfig, indexedType, executor);
+
+		Assert.assertEquals(CronJobStatus.ABORTED, result.getStatus());
+		verify(indexerService, never()).updateTypeIndex(any(FacetSearchConfig.class), eq(indexedType),
+				eq(List.of(PK.fromLong(3), PK.fromLong(4))));
+		verify(indexerService, never()).updateTypeIndex(any(FacetSearchConfig.class), eq(indexedType),
+				eq(List.of(PK.fromLong(5), PK.fromLong(6))));
+		Assert.assertEquals(CronJobStatus.ABORTED, partitionModels.get(0).getStatus());
+		for (final SolrIndexPartitionModel partitionModel : partitionModels.subList(1, 3))
+		{
+			Assert.assertEquals(CronJobStatus.ABORTED, partitionModel.getStatus());
+			Assert.assertNull(partitionModel.getStartTime());
+		}
+		verify(job, never()).commit(facetSearchConfig, indexedType);
+	}
+
+	@Test
+	public void testAbortRequestBetweenPartitionsMarksRemainingPartitionsAborted() throws Exception
+	{
+		given(cronJob.getWorkerCount()).willReturn(Integer.valueOf(1));
+		given(cronJob.getRequestAbort()).willReturn(null, Boolean.TRUE);
+		executor = Executors.newFixedThreadPool(1);
+
+		final PerformResult result = job.indexType(cronJob, facetSearchConfig, facetSearchConfig, indexedType, executor);
+
+		Assert.assertEquals(CronJobStatus.ABORTED, result.getStatus());
+		verify(indexerService, times(1)).updateTypeIndex(any(FacetSearchConfig.class), eq(indexedType), anyList());
+		Assert.assertEquals(CronJobStatus.FINISHED, partitionModels.get(0).getStatus());
+		Assert.assertEquals(CronJobStatus.ABORTED, partitionModels.get(1).getStatus());
+		Assert.assertEquals(CronJobStatus.ABORTED, partitionModels.get(2).getStatus());
+	}
+
+	@Test
+	public void testAbortWaitsForRunningPartitionsToStop() throws Exception
+	{
+		given(cronJob.getWorkerCount()).willReturn(Integer.valueOf(2));
+		executor = Executors.newFixedThreadPool(2);
+		final CountDownLatch started = new CountDownLatch(1);
+		final AtomicInteger stopped = new AtomicInteger();
+		// the first partition finishes at once, the second one runs until it is interrupted
+		doAnswer(invocation -> {
+			if (List.of(PK.fromLong(1), PK.fromLong(2)).equals(invocation.getArgument(2)))
+			{
+				return null;
+			}
+			started.countDown();
+			try
+			{
+				Thread.sleep(60000);
+			}
+			catch (final InterruptedException e)
+			{
+				stopped.incrementAndGet();
+			}
+			return null;
+		}).when(indexerService).updateTypeIndex(any(FacetSearchConfig.class), eq(indexedType), anyList());
+		// the abort is requested after the first partition has finished, while the second one is running
+		final AtomicInteger abortChecks = new AtomicInteger();
+		doAnswer(invocation -> {
+			if (abortChecks.incrementAndGet() < 3)
+			{
+				return null;
+			}
+			started.await();
+			return Boolean.TRUE;
+		}).when(cronJob).getRequestAbort();
+
+		final PerformResult result = job.indexType(cronJob, facetSearchConfig, facetSearchConfig, indexedType, executor);
+
+		Assert.assertEquals(CronJobStatus.ABORTED, result.getStatus());
+		Assert.assertTrue(executor.isTerminated());
+		Assert.assertEquals(1, stopped.get());
+	}
+
+	@Test
+	public void testPartitionSplitsSortedPkSpaceIntoContiguousRanges()
+	{
+		final List<PK> pks = new ArrayList<>();
+		for (long i = 10; i > 0; i--)
+		{
+			pks.add(PK.fromLong(i * 100));
+		}
+
+		final List<List<PK>> partitions = job.partition(pks, 3);
+
+		Assert.assertEquals(3, partitions.size());
+		Assert.assertEquals(4, partitions.get(0).size());
+		Assert.assertEquals(4, partitions.get(1).size());
+		Assert.assertEquals(2, partitions.get(2).size());
+		Assert.assertEquals(PK.fromLong(100), partitions.get(0).get(0));
+		Assert.assertEquals(PK.fromLong(400), partitions.get(0).get(3));
+		Assert.assertEquals(PK.fromLong(500), partitions.get(1).get(0));
+		Assert.assertEquals(PK.fromLong(1000), partitions.get(2).get(1));
+	}
+
+	@Test
+	public void testPartitionWithMorePartitionsThanItems()
+	{
+		final List<List<PK>> partitions = job.partition(List.of(PK.fromLong(2), PK.fromLong(1)), 8);
+
+		Assert.assertEquals(2, partitions.size());
+		Assert.assertEquals(PK.fromLong(1), partitions.get(0).get(0));
+	}
+
+	@Test
+	public void testPartitionWithoutItems()
+	{
+		Assert.assertTrue(job.partition(Collections.<PK> emptyList(), 4).isEmpty());
+	}
+
+	@Test
+	public void testPartitionConfigDoesNotCommitAndUsesSingleThread()
+	{
+		final IndexConfig indexConfig = new IndexConfig();
+		indexConfig.setCommitMode(CommitMode.AFTER_INDEX);
+		indexConfig.setNumberOfThreads(4);
+		indexConfig.setBatchSize(100);
+		final FacetSearchConfig facetSearchConfig = new FacetSearchConfig();
+		facetSearchConfig.setName("apparel-ukIndex");
+		facetSearchConfig.setIndexConfig(indexConfig);
+
+		final FacetSearchConfig partitionConfig = job.createPartitionConfig(facetSearchConfig);
+
+		Assert.assertEquals("apparel-ukIndex", partitionConfig.getName());
+		Assert.assertEquals(CommitMode.NEVER, partitionConfig.getIndexConfig().getCommitMode());
+		Assert.assertEquals(1, partitionConfig.getIndexConfig().getNumberOfThreads());
+		Assert.assertEquals(100, partitionConfig.getIndexConfig().getBatchSize());
+		Assert.assertEquals(CommitMode.AFTER_INDEX, indexConfig.getCommitMode());
+	}
+}
@@ -11,28 +11,41 @@ import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Executors;
 
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import de.hybris.bootstrap.annotations.UnitTest;
 import de.hybris.platform.commerceservices.enums.QuoteNotificationType;
 import de.hybris.platform.commerceservices.order.CommerceQuoteService;
 import de.hybris.platform.commerceservices.order.dao.CommerceQuoteDao;
+import de.hybris.platform.core.PK;
 import de.hybris.platform.core.enums.QuoteState;
 import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
 import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.servicelayer.cronjob.CronJobProgressTracker;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
 import de.hybris.platform.servicelayer.event.EventService;
 import de.hybris.platform.servicelayer.model.ModelService;
 import de.hybris.platform.servicelayer.search.SearchResult;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
 import de.hybris.platform.servicelayer.time.TimeService;
 
 
@@ -58,6 +71,9 @@ public class QuoteExpiredJobPerformableTest
 	@Mock
 	private CommerceQuoteService commerceQuoteService;
 
+	@Mock
+	private SessionService sessionService;
+
 	@Spy
 	@InjectMocks
 	private final QuoteExpiredJobPerformable job = new QuoteExpiredJobPerformable();
@@ -81,6 +97,7 @@ public class QuoteExpiredJobPerformableTest
 
 		// Mock cron job
 		final CronJobModel cronJob = mock(CronJobModel.class);
+		doReturn(mock(CronJobProgressTracker.class)).when(job).createProgressTracker(cronJob);
 
 		job.perform(cronJob);
 
@@ -92,6 +109,97 @@ public class QuoteExpiredJobPerformableTest
 		verify(eventService, times(2)).publishEvent(argThat(hasProperty("quote", notNullValue())));
 	}
 
+	@Test
+	public void testPerformInBulkCommitsEveryChunkInOneTransaction()
+	{
+		final List<QuoteModel> quotes = mockExpiredQuotes(5);
+		final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		job.setChunkSize(2);
+		job.setBulkTransition(true);
+		job.setTransactionTemplate(new TransactionTemplate(transactionManager));
+		final CronJobModel cronJob = mock(CronJobModel.class);
+		final CronJobProgressTracker progressTracker = mock(CronJobProgressTracker.class);
+		doReturn(progressTracker).when(job).createProgressTracker(cronJob);
+
+		final PerformResult result = job.perform(cronJob);
+
+		Assert.assertEquals(CronJobResult.SUCCESS, result.getResult());
+		verify(transactionManager, times(3)).commit(any());
+		quotes.forEach(quote -> verify(commerceQuoteService).createQuoteSnapshotWithState(quote, QuoteState.EXPIRED));
+		verify(eventService, times(5)).publishEvent(argThat(hasProperty("quote", notNullValue())));
+		verify(progressTracker).setProgress(Double.valueOf(40d));
+		verify(progressTracker).setProgress(Double.valueOf(100d));
+		verify(progressTracker).close();
+	}
+
+	@Test
+	public void testPerformStopsBetweenChunksWhenAborted()
+	{
+		final List<QuoteModel> quotes = mockExpiredQuotes(3);
+		job.setChunkSize(1);
+		final CronJobModel cronJob = mock(CronJobModel.class);
+		doReturn(mock(CronJobProgressTracker.class)).when(job).createProgressTracker(cronJob);
+		doReturn(Boolean.TRUE).when(cronJob).getRequestAbort();
+
+		final PerformResult result = job.perform(cronJob);
+
+		Assert.assertEquals(CronJobStatus.ABORTED, result.getStatus());
+		verify(commerceQuoteService).createQuoteSnapshotWithState(quotes.get(0), QuoteState.EXPIRED);
+		verify(commerceQuoteService, never()).createQuoteSnapshotWithState(quotes.get(1), QuoteState.EXPIRED);
+		verify(eventService, times(1)).publishEvent(any());
+	}
+
+	@Test
+	public void testPerformWithWorkersExpiresAllChunks()
+	{
+		final List<QuoteModel> quotes = mockExpiredQuotes(7);
+		// every worker loads its own copy of the quotes by PK
+		final List<QuoteModel> loadedQuotes = new ArrayList<>();
+		for (int i = 0; i < quotes.size(); i++)
+		{
+			final PK pk = PK.fromLong(i + 1);
+			final QuoteModel loadedQuote = mock(QuoteModel.class);
+			doReturn(pk).when(quotes.get(i)).getPk();
+			doReturn(loadedQuote).when(modelService).get(pk);
+			loadedQuotes.add(loadedQuote);
+		}
+		job.setChunkSize(2);
+		job.setWorkerCount(3);
+		final CronJobModel cronJob = mock(CronJobModel.class);
+		doReturn(mock(CronJobProgressTracker.class)).when(job).createProgressTracker(cronJob);
+		doReturn(Executors.defaultThreadFactory()).when(job).createThreadFactory(cronJob);
+		doAnswer(invocation -> ((SessionExecutionBody) invocation.getArgument(0)).execute()).when(sessionService)
+				.executeInLocalView(any(SessionExecutionBody.class));
+
+		final PerformResult result = job.perform(cronJob);
+
+		Assert.assertEquals(CronJobResult.SUCCESS, result.getResult());
+		Assert.assertEquals(CronJobStatus.FINISHED, result.getStatus());
+		verify(sessionService, times(4)).executeInLocalView(any(SessionExecutionBody.class));
+		loadedQuotes.forEach(quote -> verify(commerceQuoteService).createQuoteSnapshotWithState(quote, QuoteState.EXPIRED));
+		quotes.forEach(quote -> verify(commerceQuoteService, never()).createQuoteSnapshotWithState(quote, QuoteState.EXPIRED));
+		verify(eventService, times(7)).publishEvent(argThat(hasProperty("quote", notNullValue())));
+	}
+
+	private List<QuoteModel> mockExpiredQuotes(final int count)
+	{
+		final Date currentDate = new GregorianCalendar(2017, 1, 25, 18, 0, 0).getTime();
+		doReturn(currentDate).when(timeService).getCurrentTime();
+
+		final List<QuoteModel> quotes = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			quotes.add(buildQuoteModel(currentDate));
+		}
+		final SearchResult<QuoteModel> searchResult = mock(SearchResult.class);
+		doReturn(quotes).when(searchResult).getResult();
+		doReturn(searchResult).when(commerceQuoteDao).findQuotesExpired(eq(currentDate), any(QuoteNotificationType.class),
+				anySet());
+		doAnswer(invocation -> mock(QuoteModel.class)).when(commerceQuoteService)
+				.createQuoteSnapshotWithState(any(QuoteModel.class), eq(QuoteState.EXPIRED));
+		return quotes;
+	}
+
 	private QuoteModel buildQuoteModel(final Date expiryTime)
 	{
 		final QuoteModel quoteModel = mock(QuoteModel.class);
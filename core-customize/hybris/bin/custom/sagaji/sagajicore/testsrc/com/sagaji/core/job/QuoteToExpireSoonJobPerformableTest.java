@@ -33,6 +33,7 @@ import de.hybris.platform.core.enums.QuoteState;
 import de.hybris.platform.core.model.order.QuoteModel;
 import de.hybris.platform.cronjob.model.CronJobModel;
 import de.hybris.platform.servicelayer.config.ConfigurationService;
+import de.hybris.platform.servicelayer.cronjob.CronJobProgressTracker;
 import de.hybris.platform.servicelayer.event.EventService;
 import de.hybris.platform.servicelayer.model.ModelService;
 import de.hybris.platform.servicelayer.search.SearchResult;
@@ -90,6 +91,7 @@ public class QuoteToExpireSoonJobPerformableTest
 		Configuration configuration = mock(Configuration.class);
 		doReturn(configuration).when(configurationService).getConfiguration();
 		doReturn(Integer.valueOf(3)).when(configuration).getInt(DAYS_TO_EXPIRE, DEFAULT_DAYS_TO_EXPIRE);
+		doReturn(mock(CronJobProgressTracker.class)).when(job).createProgressTracker(cronJob);
 
 		job.perform(cronJob);
 
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.commerceservices.order.CommerceQuoteService;
+import de.hybris.platform.core.enums.QuoteState;
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.user.UserService;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+import com.sagaji.core.quote.QuoteHistoryEntry;
+import com.sagaji.core.quote.dao.QuoteHistoryDao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+
+@UnitTest
+public class DefaultQuoteVersioningServiceTest
+{
+	private final DefaultQuoteVersioningService service = new DefaultQuoteVersioningService();
+	private final UserModel user = new UserModel();
+	private CommerceQuoteService commerceQuoteService;
+	private ModelService modelService;
+	private QuoteHistoryDao quoteHistoryDao;
+	private QuoteModel quote;
+
+	@Before
+	public void setUp()
+	{
+		commerceQuoteService = mock(CommerceQuoteService.class);
+		modelService = mock(ModelService.class);
+		given(modelService.create(QuoteVersionRecordModel.class)).willAnswer(invocation -> new QuoteVersionRecordModel());
+		final UserService userService = mock(UserService.class);
+		given(userService.getCurrentUser()).willReturn(user);
+
+		final Map<QuoteState, Set<QuoteState>> stateOnlyTransitions = new HashMap<>();
+		stateOnlyTransitions.put(QuoteState.SELLER_SUBMITTED, Collections.singleton(QuoteState.SELLERAPPROVER_PENDING));
+		service.setCommerceQuoteService(commerceQuoteService);
+		service.setModelService(modelService);
+		service.setUserService(userService);
+		quoteHistoryDao = mock(QuoteHistoryDao.class);
+		service.setQuoteHistoryDao(quoteHistoryDao);
+		service.setStateOnlyTransitions(stateOnlyTransitions);
+		service.setStateOnlyVersioning(true);
+
+		quote = new QuoteModel();
+		quote.setCode("q1");
+		quote.setVersion(Integer.valueOf(3));
+		quote.setState(QuoteState.SELLER_SUBMITTED);
+	}
+
+	@Test
+	public void testStateOnlyTransitionKeepsQuoteAndRecordsReplacedVersion()
+	{
+		final QuoteModel result = service.createQuoteSnapshotWithState(quote, QuoteState.SELLERAPPROVER_PENDING);
+
+		Assert.assertSame(quote, result);
+		Assert.assertEquals(Integer.valueOf(4), quote.getVersion());
+		Assert.assertEquals(QuoteState.SELLERAPPROVER_PENDING, quote.getState());
+
+		final ArgumentCaptor<Object> saved = ArgumentCaptor.forClass(Object.class);
+		verify(modelService).saveAll(saved.capture());
+		final QuoteVersionRecordModel versionRecord = (QuoteVersionRecordModel) saved.getAllValues().get(0);
+		Assert.assertEquals("q1", versionRecord.getCode());
+		Assert.assertEquals(Integer.valueOf(3), versionRecord.getVersion());
+		Assert.assertEquals(QuoteState.SELLER_SUBMITTED, versionRecord.getState());
+		Assert.assertSame(quote, versionRecord.getSnapshot());
+		Assert.assertSame(user, versionRecord.getUser());
+		Assert.assertSame(quote, saved.getAllValues().get(1));
+		verify(commerceQuoteService, never()).createQuoteSnapshotWithState(any(), any());
+		Assert.assertEquals(1, service.getStateOnlyVersionCount());
+		Assert.assertEquals(0, service.getClonedVersionCount());
+	}
+
+	@Test
+	public void testOtherTransitionClonesQuote()
+	{
+		final QuoteModel snapshot = new QuoteModel();
+		given(commerceQuoteService.createQuoteSnapshotWithState(quote, QuoteState.SELLER_REQUEST)).willReturn(snapshot);
+
+		Assert.assertSame(snapshot, service.createQuoteSnapshotWithState(quote, QuoteState.SELLER_REQUEST));
+		Assert.assertEquals(Integer.valueOf(3), quote.getVersion());
+		verify(modelService, never()).create(QuoteVersionRecordModel.class);
+		Assert.assertEquals(1, service.getClonedVersionCount());
+	}
+
+	@Test
+	public void testHistoryMergesVersionRecordsAndQuotesByVersion()
+	{
+		final QuoteModel clonedVersion = new QuoteModel();
+		clonedVersion.setCode("q1");
+		clonedVersion.setVersion(Integer.valueOf(2));
+		clonedVersion.setState(QuoteState.BUYER_SUBMITTED);
+		service.createQuoteSnapshotWithState(quote, QuoteState.SELLERAPPROVER_PENDING);
+		final ArgumentCaptor<Object> saved = ArgumentCaptor.forClass(Object.class);
+		verify(modelService).saveAll(saved.capture());
+		final QuoteVersionRecordModel versionRecord = (QuoteVersionRecordModel) saved.getAllValues().get(0);
+		given(quoteHistoryDao.findVersionRecords("q1")).willReturn(Collections.singletonList(versionRecord));
+		given(quoteHistoryDao.findQuoteVersions("q1")).willReturn(Arrays.asList(clonedVersion, quote));
+
+		final List<QuoteHistoryEntry> history = service.getQuoteHistory("q1");
+
+		Assert.assertEquals(3, history.size());
+		Assert.assertEquals(Integer.valueOf(2), history.get(0).getVersion());
+		Assert.assertEquals(QuoteState.BUYER_SUBMITTED, history.get(0).getState());
+		Assert.assertSame(clonedVersion, history.get(0).getQuote());
+		Assert.assertFalse(history.get(0).isVersionRecord());
+		Assert.assertEquals(Integer.valueOf(3), history.get(1).getVersion());
+		Assert.assertEquals(QuoteState.SELLER_SUBMITTED, history.get(1).getState());
+		Assert.assertSame(quote, history.get(1).getQuote());
+		Assert.assertSame(user, history.get(1).getUser());
+		Assert.assertTrue(history.get(1).isVersionRecord());
+		Assert.assertEquals(Integer.valueOf(4), history.get(2).getVersion());
+		Assert.assertEquals(QuoteState.SELLERAPPROVER_PENDING, history.get(2).getState());
+		Assert.assertSame(quote, history.get(2).getQuote());
+		Assert.assertFalse(history.get(2).isVersionRecord());
+	}
+
+	@Test
+	public void testDisabledStateOnlyVersioningClonesQuote()
+	{
+		service.setStateOnlyVersioning(false);
+
+		service.createQuoteSnapshotWithState(quote, QuoteState.SELLERAPPROVER_PENDING);
+
+		verify(commerceQuoteService).createQuoteSnapshotWithState(quote, QuoteState.SELLERAPPROVER_PENDING);
+		Assert.assertEquals(0, service.getStateOnlyVersionCount());
+	}
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.quote.impl;
+
+import de.hybris.bootstrap.annotations.PerformanceTest;
+import de.hybris.platform.catalog.model.CatalogModel;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.commerceservices.order.CommerceQuoteService;
+import de.hybris.platform.core.enums.QuoteState;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.QuoteEntryModel;
+import de.hybris.platform.core.model.order.QuoteModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.core.model.product.UnitModel;
+import de.hybris.platform.servicelayer.ServicelayerTransactionalTest;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.user.UserService;
+import com.sagaji.core.model.QuoteVersionRecordModel;
+import com.sagaji.core.quote.QuoteVersioningService;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+import javax.annotation.Resource;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Compares the seller approval of a quote on the platform database with the {@link CommerceQuoteService}, which clones
+ * the quote with all of its entries for every version, and with the {@link QuoteVersioningService}, which stores the
+ * state-only transitions of the approval as version records.
+ */
+@PerformanceTest
+public class QuoteVersioningServiceBenchmarkTest extends ServicelayerTransactionalTest
+{
+	private static final Logger LOG = Logger.getLogger(QuoteVersioningServiceBenchmarkTest.class);
+
+	private static final int[] QUOTE_SIZES =
+	{ 10, 100, 1000 };
+
+	@Resource
+	private CommerceQuoteService commerceQuoteService;
+
+	@Resource
+	private QuoteVersioningService quoteVersioningService;
+
+	@Resource
+	private ModelService modelService;
+
+	@Resource
+	private UserService userService;
+
+	@Resource
+	private CommonI18NService commonI18NService;
+
+	@Resource
+	private FlexibleSearchService flexibleSearchService;
+
+	private CurrencyModel currency;
+	private ProductModel product;
+	private UnitModel unit;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		createCoreData();
+		currency = commonI18NService.getBaseCurrency();
+
+		final CatalogModel catalog = modelService.create(CatalogModel.class);
+		catalog.setId("quoteBenchmarkCatalog");
+		final CatalogVersionModel catalogVersion = modelService.create(CatalogVersionModel.class);
+		catalogVersion.setCatalog(catalog);
+		catalogVersion.setVersion("Staged");
+		unit = modelService.create(UnitModel.class);
+		unit.setCode("quoteBenchmarkPieces");
+		unit.setUnitType("pieces");
+		product = modelService.create(ProductModel.class);
+		product.setCode("quoteBenchmarkProduct");
+		product.setCatalogVersion(catalogVersion);
+		product.setUnit(unit);
+		modelService.saveAll(catalog, catalogVersion, unit, product);
+	}
+
+	@Test
+	public void compareClonedAndStateOnlyVersions()
+	{
+		for (final int quoteSize : QUOTE_SIZES)
+		{
+			final Approval cloned = approve(createQuote("cloned" + quoteSize, quoteSize),
+					commerceQuoteService::createQuoteSnapshotWithState);
+			final long stateOnlyVersions = quoteVersioningService.getStateOnlyVersionCount();
+			final Approval stateOnly = approve(createQuote("stateOnly" + quoteSize, quoteSize),
+					quoteVersioningService::createQuoteSnapshotWithState);
+
+			LOG.info(String.format(
+					"Seller approval of a quote with %d entries: cloned versions %d ms with %d new entries, state-only versions "
+							+ "%d ms with %d new entries and %d version records",
+					Integer.valueOf(quoteSize), Long.valueOf(cloned.millis), Integer.valueOf(cloned.newEntries),
+					Long.valueOf(stateOnly.millis), Integer.valueOf(stateOnly.newEntries),
+					Integer.valueOf(stateOnly.newVersionRecords)));
+
+			Assert.assertEquals(QuoteState.BUYER_OFFER, cloned.offer.getState());
+			Assert.assertEquals(QuoteState.BUYER_OFFER, stateOnly.offer.getState());
+			Assert.assertEquals(cloned.offer.getVersion(), stateOnly.offer.getVersion());
+			Assert.assertEquals(2 * quoteSize, cloned.newEntries);
+			Assert.assertEquals(0, stateOnly.newEntries);
+			Assert.assertEquals(2, stateOnly.newVersionRecords);
+			Assert.assertEquals(stateOnlyVersions + 2, quoteVersioningService.getStateOnlyVersionCount());
+			Assert.assertEquals(quoteSize, stateOnly.offer.getEntries().size());
+		}
+	}
+
+	/**
+	 * Runs the transitions of the seller approval process with the given snapshot function: the submitted quote is
+	 * waiting for the seller approver, who approves it, and the approved quote becomes the offer to the buyer.
+	 */
+	protected Approval approve(final QuoteModel quote, final BiFunction<QuoteModel, QuoteState, QuoteModel> snapshot)
+	{
+		final int entries = count(QuoteEntryModel._TYPECODE);
+		final int versionRecords = count(QuoteVersionRecordModel._TYPECODE);
+		final long start = System.nanoTime();
+
+		final QuoteModel pending = snapshot.apply(quote, QuoteState.SELLERAPPROVER_PENDING);
+		pending.setState(QuoteState.SELLERAPPROVER_APPROVED);
+		modelService.save(pending);
+		final QuoteModel offer = snapshot.apply(pending, QuoteState.BUYER_OFFER);
+
+		final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		return new Approval(offer, millis, count(QuoteEntryModel._TYPECODE) - entries,
+				count(QuoteVersionRecordModel._TYPECODE) - versionRecords);
+	}
+
+	protected int count(final String typeCode)
+	{
+		final FlexibleSearchQuery query = new FlexibleSearchQuery("SELECT COUNT({pk}) FROM {" + typeCode + "}");
+		query.setResultClassList(Collections.singletonList(Integer.class));
+		return flexibleSearchService.<Integer> search(query).getResult().get(0).intValue();
+	}
+
+	protected QuoteModel createQuote(final String code, final int quoteSize)
+	{
+		final QuoteModel quote = modelService.create(QuoteModel.class);
+		quote.setCode(code);
+		quote.setVersion(Integer.valueOf(1));
+		quote.setState(QuoteState.SELLER_SUBMITTED);
+		quote.setUser(userService.getAdminUser());
+		quote.setCurrency(currency);
+		quote.setDate(new Date());
+		final List<AbstractOrderEntryModel> entries = new ArrayList<>(quoteSize);
+		for (int i = 0; i < quoteSize; i++)
+		{
+			final QuoteEntryModel entry = modelService.create(QuoteEntryModel.class);
+			entry.setOrder(quote);
+			entry.setEntryNumber(Integer.valueOf(i));
+			entry.setProduct(product);
+			entry.setUnit(unit);
+			entry.setQuantity(Long.valueOf(1));
+			entries.add(entry);
+		}
+		quote.setEntries(entries);
+		modelService.save(quote);
+		modelService.saveAll(entries);
+		return quote;
+	}
+
+	/**
+	 * Offer of an approval with the time it took and the items it created.
+	 */
+	protected static class Approval
+	{
+		private final QuoteModel offer;
+		private final long millis;
+		private final int newEntries;
+		private final int newVersionRecords;
+
+		protected Approval(final QuoteModel offer, final long millis, final int newEntries, final int newVersionRecords)
+		{
+			this.offer = offer;
+			this.millis = millis;
+			this.newEntries = newEntries;
+			this.newVersionRecords = newVersionRecords;
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.core.model.type.ComposedTypeModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.exceptions.ModelLoadingException;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.type.TypeService;
+import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfig;
+import de.hybris.platform.solrfacetsearch.config.FacetSearchConfigService;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
+import de.hybris.platform.solrfacetsearch.config.IndexedType;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerService;
+import de.hybris.platform.variants.model.VariantProductModel;
+import com.sagaji.core.model.ApparelSizeVariantProductModel;
+import com.sagaji.core.model.ApparelStyleVariantProductModel;
+import com.sagaji.core.search.solrfacetsearch.delta.IndexChangeType;
+import com.sagaji.core.search.solrfacetsearch.delta.dao.ProductIndexChangeDao;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+
+@UnitTest
+public class DefaultProductIndexChangeCollectorTest
+{
+	private static final String FACET_SEARCH_CONFIG = "apparel-ukIndex";
+
+	private DefaultProductIndexChangeCollector collector;
+	private ModelService modelService;
+	private IndexerService indexerService;
+	private ProductIndexChangeDao productIndexChangeDao;
+	private FacetSearchConfig facetSearchConfig;
+	private IndexedType indexedType;
+	private CatalogVersionModel onlineCatalogVersion;
+	private CatalogVersionModel stagedCatalogVersion;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		onlineCatalogVersion = mock(CatalogVersionModel.class);
+		stagedCatalogVersion = mock(CatalogVersionModel.class);
+
+		final Map<String, IndexedProperty> indexedProperties = new HashMap<>();
+		for (final String name : Arrays.asList("priceValue", "volumePrices", "inStockFlag", "swatchColors", "name"))
+		{
+			final IndexedProperty indexedProperty = new IndexedProperty();
+			indexedProperty.setName(name);
+			indexedProperties.put(name, indexedProperty);
+		}
+		final ComposedTypeModel composedType = mock(ComposedTypeModel.class);
+		when(composedType.getCode()).thenReturn(ApparelSizeVariantProductModel._TYPECODE);
+		indexedType = new IndexedType();
+		indexedType.setIdentifier("ApparelProduct");
+		indexedType.setComposedType(composedType);
+		indexedType.setIndexedProperties(indexedProperties);
+
+		final IndexConfig indexConfig = new IndexConfig();
+		indexConfig.setIndexedTypes(Collections.singletonMap(indexedType.getIdentifier(), indexedType));
+		indexConfig.setCatalogVersions(Collections.singletonList(onlineCatalogVersion));
+		facetSearchConfig = new FacetSearchConfig();
+		facetSearchConfig.setName(FACET_SEARCH_CONFIG);
+		facetSearchConfig.setIndexConfig(indexConfig);
+
+		final FacetSearchConfigService facetSearchConfigService = mock(FacetSearchConfigService.class);
+		when(facetSearchConfigService.getConfiguration(FACET_SEARCH_CONFIG)).thenReturn(facetSearchConfig);
+
+		final SessionService sessionService = mock(SessionService.class);
+		when(sessionService.executeInLocalView(any(SessionExecutionBody.class), any(UserModel.class)))
+				.thenAnswer(invocation -> ((SessionExecutionBody) invocation.getArgument(0)).execute());
+		final UserService userService = mock(UserService.class);
+		when(userService.getAdminUser()).thenReturn(mock(UserModel.class));
+		final TypeService typeService = mock(TypeService.class);
+		when(Boolean.valueOf(typeService.isAssignableFrom(anyString(), anyString()))).thenReturn(Boolean.TRUE);
+
+		final Map<IndexChangeType, Set<String>> changeTypeProperties = new HashMap<>();
+		changeTypeProperties.put(IndexChangeType.PRICE, new HashSet<>(Arrays.asList("priceValue", "volumePrices")));
+		changeTypeProperties.put(IndexChangeType.STOCK, new HashSet<>(Arrays.asList("inStockFlag", "stockLevelStatus")));
+		changeTypeProperties.put(IndexChangeType.SWATCH_COLORS, Collections.singleton("swatchColors"));
+
+		modelService = mock(ModelService.class);
+		indexerService = mock(IndexerService.class);
+		productIndexChangeDao = mock(ProductIndexChangeDao.class);
+
+		collector = new DefaultProductIndexChangeCollector();
+		collector.setModelService(modelService);
+		collector.setSessionService(sessionService);
+		collector.setUserService(userService);
+		collector.setTypeService(typeService);
+		collector.setFacetSearchConfigService(facetSearchConfigService);
+		collector.setIndexerService(indexerService);
+		collector.setProductIndexChangeDao(productIndexChangeDao);
+		collector.setFacetSearchConfigs(Collections.singletonList(FACET_SEARCH_CONFIG));
+		collector.setIndexedProperties(changeTypeProperties);
+		collector.setMaxPendingChanges(Integer.MAX_VALUE);
+	}
+
+	@Test
+	public void testPriceRowChangesAreCoalescedPerProduct() throws Exception
+	{
+		final ProductModel product = createProduct(100, onlineCatalogVersion);
+		registerPriceRow(1, product);
+		registerPriceRow(2, product);
+
+		collector.registerItemChange(PK.fromLong(1));
+		collector.registerItemChange(PK.fromLong(1));
+		collector.registerItemChange(PK.fromLong(2));
+
+		Assert.assertEquals(2, collector.getPendingChangeCount());
+		Assert.assertEquals(1, collector.flush());
+		Assert.assertEquals(0, collector.getPendingChangeCount());
+
+		final ArgumentCaptor<Collection<IndexedProperty>> properties = ArgumentCaptor.forClass(Collection.class);
+		verify(indexerService, times(1)).updatePartialTypeIndex(eq(facetSearchConfig), eq(indexedType), properties.capture(),
+				eq(Collections.singletonList(product.getPk())));
+		Assert.assertEquals(new HashSet<>(Arrays.asList("priceValue", "volumePrices")), names(properties.getValue()));
+	}
+
+	@Test
+	public void testProductsOutsideIndexedCatalogVersionsAreSkipped() throws Exception
+	{
+		registerPriceRow(1, createProduct(100, stagedCatalogVersion));
+
+		collector.registerItemChange(PK.fromLong(1));
+
+		Assert.assertEquals(0, collector.flush());
+		verify(indexerService, never()).updatePartialTypeIndex(any(FacetSearchConfig.class), any(IndexedType.class),
+				anyCollection(), anyCollection());
+	}
+
+	@Test
+	public void testPriceRowWithProductIdOnlyIsResolvedByProductCode() throws Exception
+	{
+		final PriceRowModel priceRow = mock(PriceRowModel.class);
+		when(priceRow.getProductId()).thenReturn("300608");
+		when(modelService.get(PK.fromLong(1))).thenReturn(priceRow);
+		when(productIndexChangeDao.findProductPks(Collections.singleton("300608"), Collections.singletonList(onlineCatalogVersion)))
+				.thenReturn(Collections.singletonList(PK.fromLong(100)));
+
+		collector.registerItemChange(PK.fromLong(1));
+
+		Assert.assertEquals(1, collector.flush());
+		final ArgumentCaptor<Collection<IndexedProperty>> properties = ArgumentCaptor.forClass(Collection.class);
+		verify(indexerService).updatePartialTypeIndex(eq(facetSearchConfig), eq(indexedType), properties.capture(),
+				eq(Collections.singletonList(PK.fromLong(100))));
+		Assert.assertEquals(new HashSet<>(Arrays.asList("priceValue", "volumePrices")), names(properties.getValue()));
+	}
+
+	@Test
+	public void testStockLevelIsResolvedByProductCode() throws Exception
+	{
+		final StockLevelModel stockLevel = mock(StockLevelModel.class);
+		when(stockLevel.getProductCode()).thenReturn("300608");
+		when(modelService.get(PK.fromLong(1))).thenReturn(stockLevel);
+		when(productIndexChangeDao.findProductPks(Collections.singleton("300608"), Collections.singletonList(onlineCatalogVersion)))
+				.thenReturn(Collections.singletonList(PK.fromLong(100)));
+
+		collector.registerItemChange(PK.fromLong(1));
+
+		Assert.assertEquals(1, collector.flush());
+		final ArgumentCaptor<Collection<IndexedProperty>> properties = ArgumentCaptor.forClass(Collection.class);
+		verify(indexerService).updatePartialTypeIndex(eq(facetSearchConfig), eq(indexedType), properties.capture(),
+				eq(Collections.singletonList(PK.fromLong(100))));
+		Assert.assertEquals(Collections.singleton("inStockFlag"), names(properties.getValue()));
+	}
+
+	@Test
+	public void testStyleChangeUpdatesSwatchColorsOfStyleAndVariants() throws Exception
+	{
+		final ApparelSizeVariantProductModel size = mock(ApparelSizeVariantProductModel.class);
+		when(size.getPk()).thenReturn(PK.fromLong(201));
+		when(size.getCatalogVersion()).thenReturn(onlineCatalogVersion);
+		final ApparelStyleVariantProductModel style = mock(ApparelStyleVariantProductModel.class);
+		when(style.getPk()).thenReturn(PK.fromLong(200));
+		when(style.getCatalogVersion()).thenReturn(onlineCatalogVersion);
+		when(style.getVariants()).thenReturn(Collections.<VariantProductModel> singletonList(size));
+		when(modelService.get(PK.fromLong(200))).thenReturn(style);
+		when(modelService.get(PK.fromLong(201))).thenReturn(size);
+
+		collector.registerItemChange(PK.fromLong(200));
+		collector.registerItemChange(PK.fromLong(201));
+
+		Assert.assertEquals(2, collector.flush());
+		final ArgumentCaptor<List<PK>> pks = ArgumentCaptor.forClass(List.class);
+		final ArgumentCaptor<Collection<IndexedProperty>> properties = ArgumentCaptor.forClass(Collection.class);
+		verify(indexerService).updatePartialTypeIndex(eq(facetSearchConfig), eq(indexedType), properties.capture(),
+				pks.capture());
+		Assert.assertEquals(new HashSet<>(Arrays.asList(PK.fromLong(200), PK.fromLong(201))), new HashSet<>(pks.getValue()));
+		Assert.assertEquals(Collections.singleton("swatchColors"), names(properties.getValue()));
+	}
+
+	@Test
+	public void testReachingMaxPendingChangesSchedulesOneFlush()
+	{
+		final ScheduledExecutorService scheduler = mock(ScheduledExecutorService.class);
+		collector = spy(collector);
+		doReturn(scheduler).when(collector).createScheduler();
+		collector.setEnabled(true);
+		collector.setFlushInterval(60000);
+		collector.setMaxPendingChanges(2);
+		collector.afterPropertiesSet();
+
+		for (long pk = 1; pk <= 5; pk++)
+		{
+			collector.registerItemChange(PK.fromLong(pk));
+		}
+		final ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+		verify(scheduler, times(1)).execute(flush.capture());
+
+		flush.getValue().run();
+		Assert.assertEquals(0, collector.getPendingChangeCount());
+		collector.registerItemChange(PK.fromLong(6));
+		collector.registerItemChange(PK.fromLong(7));
+		verify(scheduler, times(2)).execute(any(Runnable.class));
+	}
+
+	@Test
+	public void testRemovedItemsAreIgnored() throws Exception
+	{
+		when(modelService.get(PK.fromLong(1))).thenThrow(new ModelLoadingException("removed"));
+
+		collector.registerItemChange(PK.fromLong(1));
+
+		Assert.assertEquals(0, collector.flush());
+		verify(indexerService, never()).updatePartialTypeIndex(any(FacetSearchConfig.class), any(IndexedType.class),
+				anyCollection(), anyCollection());
+	}
+
+	protected ProductModel createProduct(final long pk, final CatalogVersionModel catalogVersion)
+	{
+		final ProductModel product = mock(ProductModel.class);
+		when(product.getPk()).thenReturn(PK.fromLong(pk));
+		when(product.getCatalogVersion()).thenReturn(catalogVersion);
+		return product;
+	}
+
+	protected void registerPriceRow(final long pk, final ProductModel product)
+	{
+		final PriceRowModel priceRow = mock(PriceRowModel.class);
+		when(priceRow.getProduct()).thenReturn(product);
+		when(modelService.get(PK.fromLong(pk))).thenReturn(priceRow);
+	}
+
+	protected Set<String> names(final Collection<IndexedProperty> properties)
+	{
+		return properties.stream().map(IndexedProperty::getName).collect(Collectors.toSet());
+	}
+}
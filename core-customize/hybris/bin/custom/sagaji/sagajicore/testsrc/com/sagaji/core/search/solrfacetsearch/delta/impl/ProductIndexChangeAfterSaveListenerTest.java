@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.delta.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.servicelayer.interceptor.InterceptorContext;
+import de.hybris.platform.tx.AfterSaveEvent;
+import com.sagaji.core.search.solrfacetsearch.delta.ProductIndexChangeCollector;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class ProductIndexChangeAfterSaveListenerTest
+{
+	private static final PK ITEM_PK = PK.fromLong(1);
+
+	private ProductIndexChangeCollector collector;
+	private ProductIndexChangeAfterSaveListener listener;
+	private IndexedAttributesPrepareInterceptor interceptor;
+	private ItemModel item;
+	private InterceptorContext ctx;
+
+	@Before
+	public void setUp()
+	{
+		collector = mock(ProductIndexChangeCollector.class);
+		listener = new ProductIndexChangeAfterSaveListener()
+		{
+			@Override
+			protected int[] getTypeCodes()
+			{
+				return new int[]
+				{ ITEM_PK.getTypeCode() };
+			}
+		};
+		listener.setProductIndexChangeCollector(collector);
+		listener.setEnabled(true);
+
+		interceptor = new IndexedAttributesPrepareInterceptor();
+		interceptor.setProductIndexChangeAfterSaveListener(listener);
+		interceptor.setAttributes(new HashSet<>(Arrays.asList("swatchColors")));
+
+		item = mock(ItemModel.class);
+		given(item.getPk()).willReturn(ITEM_PK);
+		ctx = mock(InterceptorContext.class);
+	}
+
+	@Test
+	public void testCreatedItemIsForwarded()
+	{
+		listener.afterSave(Collections.singletonList(new AfterSaveEvent(ITEM_PK, AfterSaveEvent.CREATE)));
+
+		verify(collector).registerItemChange(ITEM_PK);
+	}
+
+	@Test
+	public void testUpdateOfIndexedAttributeIsForwardedOnce()
+	{
+		given(Boolean.valueOf(ctx.isModified(item, "swatchColors"))).willReturn(Boolean.TRUE);
+		interceptor.onPrepare(item, ctx);
+
+		listener.afterSave(Collections.singletonList(new AfterSaveEvent(ITEM_PK, AfterSaveEvent.UPDATE)));
+		listener.afterSave(Collections.singletonList(new AfterSaveEvent(ITEM_PK, AfterSaveEvent.UPDATE)));
+
+		verify(collector, times(1)).registerItemChange(ITEM_PK);
+	}
+
+	@Test
+	public void testUpdateOfOtherAttributesIsIgnored()
+	{
+		interceptor.onPrepare(item, ctx);
+
+		listener.afterSave(Collections.singletonList(new AfterSaveEvent(ITEM_PK, AfterSaveEvent.UPDATE)));
+
+		verify(collector, never()).registerItemChange(any(PK.class));
+	}
+}
@@ -0,0 +1,291 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.price.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.CatalogVersionService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.core.model.product.UnitModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.europe1.enums.ProductPriceGroup;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.jalo.order.price.PriceInformation;
+import de.hybris.platform.product.PriceService;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContext;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContextFactory;
+import de.hybris.platform.util.PriceValue;
+import com.sagaji.core.search.solrfacetsearch.price.dao.IndexerPriceRowDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class DefaultIndexerBatchPriceServiceTest
+{
+	private DefaultIndexerBatchPriceService indexerBatchPriceService;
+	private PriceService priceService;
+	private IndexerPriceRowDao indexerPriceRowDao;
+	private IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory;
+	private IndexerBatchContext batchContext;
+	private IndexConfig indexConfig;
+	private CurrencyModel eur;
+	private CurrencyModel usd;
+	private ProductModel product;
+
+	@Before
+	public void setUp()
+	{
+		eur = mock(CurrencyModel.class);
+		when(eur.getIsocode()).thenReturn("EUR");
+		usd = mock(CurrencyModel.class);
+		when(usd.getIsocode()).thenReturn("USD");
+		indexConfig = new IndexConfig();
+		indexConfig.setCurrencies(Arrays.asList(eur, usd));
+
+		product = mock(ProductModel.class);
+		when(product.getPk()).thenReturn(PK.fromLong(1));
+
+		priceService = mock(PriceService.class);
+		when(priceService.getPriceInformationsForProduct(product)).thenAnswer(
+				invocation -> Collections.singletonList(new PriceInformation(new PriceValue("EUR", 10.0, true))));
+
+		final SessionService sessionService = mock(SessionService.class);
+		when(sessionService.executeInLocalView(any(SessionExecutionBody.class), any(UserModel.class))).thenAnswer(
+				invocation -> ((SessionExecutionBody) invocation.getArgument(0)).execute());
+		final UserService userService = mock(UserService.class);
+		when(userService.getAnonymousUser()).thenReturn(mock(UserModel.class));
+		final CatalogVersionService catalogVersionService = mock(CatalogVersionService.class);
+		when(catalogVersionService.getSessionCatalogVersions()).thenReturn(Collections.emptyList());
+		final TimeService timeService = mock(TimeService.class);
+		when(timeService.getCurrentTime()).thenReturn(new Date());
+
+		indexerPriceRowDao = mock(IndexerPriceRowDao.class);
+		batchContext = mock(IndexerBatchContext.class);
+		when(batchContext.getAttributes()).thenReturn(new HashMap<>());
+		when(batchContext.getItems()).thenReturn(Collections.<ItemModel> singletonList(product));
+		indexerBatchContextFactory = mock(IndexerBatchContextFactory.class);
+		when(indexerBatchContextFactory.getContext()).thenReturn(batchContext);
+
+		indexerBatchPriceService = new DefaultIndexerBatchPriceService();
+		indexerBatchPriceService.setPriceService(priceService);
+		indexerBatchPriceService.setIndexerPriceRowDao(indexerPriceRowDao);
+		indexerBatchPriceService.setIndexerBatchContextFactory(indexerBatchContextFactory);
+		indexerBatchPriceService.setSessionService(sessionService);
+		indexerBatchPriceService.setUserService(userService);
+		indexerBatchPriceService.setCommonI18NService(mock(CommonI18NService.class));
+		indexerBatchPriceService.setCatalogVersionService(catalogVersionService);
+		indexerBatchPriceService.setTimeService(timeService);
+		indexerBatchPriceService.setModelService(mock(ModelService.class));
+	}
+
+	@Test
+	public void testPricesAreResolvedOncePerProductAndCurrencyWithinBatch()
+	{
+		// price value provider and volume prices provider asking for the same prices
+		for (int i = 0; i < 2; i++)
+		{
+			indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+			indexerBatchPriceService.getPriceInformations(indexConfig, product, usd);
+		}
+
+		verify(priceService, times(2)).getPriceInformationsForProduct(product);
+		Assert.assertEquals(2, indexerBatchPriceService.getContextHitCount());
+		Assert.assertEquals(2, indexerBatchPriceService.getContextMissCount());
+		Assert.assertEquals(2, indexerBatchPriceService.getPriceServiceCallCount());
+	}
+
+	@Test
+	public void testReturnedPricesCanBeModifiedWithoutAffectingContext()
+	{
+		final List<PriceInformation> first = indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+		first.clear();
+
+		final List<PriceInformation> second = indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		Assert.assertEquals(1, second.size());
+	}
+
+	@Test
+	public void testPricesAreNotSharedOutsideBatch()
+	{
+		when(indexerBatchContextFactory.getContext()).thenThrow(new IllegalStateException());
+
+		indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+		indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		verify(priceService, times(2)).getPriceInformationsForProduct(product);
+		Assert.assertEquals(0, indexerBatchPriceService.getContextHitCount());
+	}
+
+	@Test
+	public void testBatchLookupFallsBackToPriceServiceForMissingProducts()
+	{
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		final PriceRowModel priceRow = mock(PriceRowModel.class);
+		when(priceRow.getProduct()).thenReturn(product);
+		when(priceRow.getCurrency()).thenReturn(eur);
+		when(priceRow.getPrice()).thenReturn(Double.valueOf(8.0));
+		when(indexerPriceRowDao.findAnonymousPriceRows(anyCollection(), anyCollection(), anyCollection(), any(Date.class))).thenReturn(
+				Collections.singletonList(priceRow));
+
+		final List<PriceInformation> eurPrices = indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+		indexerBatchPriceService.getPriceInformations(indexConfig, product, usd);
+
+		Assert.assertEquals(8.0, eurPrices.get(0).getPriceValue().getValue(), 0.0);
+		verify(indexerPriceRowDao, times(1)).findAnonymousPriceRows(anyCollection(), anyCollection(), anyCollection(), any(Date.class));
+		verify(priceService, times(1)).getPriceInformationsForProduct(product);
+	}
+
+	@Test
+	public void testBatchLookupMatchesPriceRowsByProductCode()
+	{
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		when(product.getCode()).thenReturn("p1");
+		final PriceRowModel priceRow = createPriceRow(null, eur, 1L, 8.0);
+		when(priceRow.getProductId()).thenReturn("p1");
+		givenPriceRows(priceRow);
+
+		final List<PriceInformation> eurPrices = indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		Assert.assertEquals(8.0, eurPrices.get(0).getPriceValue().getValue(), 0.0);
+		verify(priceService, times(0)).getPriceInformationsForProduct(product);
+	}
+
+	@Test
+	public void testBatchLookupFallsBackToPriceServiceForPriceRowsOfAllProducts()
+	{
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		givenPriceRows(createPriceRow(product, eur, 1L, 8.0), createPriceRow(null, eur, 1L, 5.0));
+
+		final List<PriceInformation> eurPrices = indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		Assert.assertEquals(10.0, eurPrices.get(0).getPriceValue().getValue(), 0.0);
+		verify(priceService, times(1)).getPriceInformationsForProduct(product);
+	}
+
+	@Test
+	public void testBatchLookupFallsBackToPriceServiceForProductPriceGroups()
+	{
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		when(product.getEurope1PriceFactory_PPG()).thenReturn(ProductPriceGroup.valueOf("ppg"));
+		givenPriceRows(createPriceRow(product, eur, 1L, 8.0));
+
+		indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		verify(priceService, times(1)).getPriceInformationsForProduct(product);
+	}
+
+	@Test
+	public void testBatchLookupFallsBackToPriceServiceForCompetingPriceRows()
+	{
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		givenPriceRows(createPriceRow(product, eur, 1L, 8.0), createPriceRow(product, eur, 1L, 7.0));
+
+		final List<PriceInformation> eurPrices = indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		Assert.assertEquals(1, eurPrices.size());
+		verify(priceService, times(1)).getPriceInformationsForProduct(product);
+	}
+
+	@Test
+	public void testBatchLookupFallsBackToPriceServiceForPriceRowsInOtherUnits()
+	{
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		final PriceRowModel priceRow = createPriceRow(product, eur, 1L, 8.0);
+		when(priceRow.getUnit()).thenReturn(mock(UnitModel.class));
+		givenPriceRows(priceRow);
+
+		indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+
+		verify(priceService, times(1)).getPriceInformationsForProduct(product);
+	}
+
+	@Test
+	public void testConcurrentBatchesKeepSeparatePriceContexts() throws Exception
+	{
+		final int workers = 8;
+		final int lookupsPerWorker = 50;
+		final ThreadLocal<IndexerBatchContext> currentBatchContext = ThreadLocal.withInitial(() -> {
+			final IndexerBatchContext workerBatchContext = mock(IndexerBatchContext.class);
+			when(workerBatchContext.getAttributes()).thenReturn(new HashMap<>());
+			return workerBatchContext;
+		});
+		when(indexerBatchContextFactory.getContext()).thenAnswer(invocation -> currentBatchContext.get());
+
+		final ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try
+		{
+			final List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < workers; i++)
+			{
+				futures.add(executor.submit(() -> {
+					for (int j = 0; j < lookupsPerWorker; j++)
+					{
+						indexerBatchPriceService.getPriceInformations(indexConfig, product, eur);
+					}
+				}));
+			}
+			for (final Future<?> future : futures)
+			{
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		// every worker batch resolves the price once and answers the remaining lookups from its own context
+		Assert.assertEquals(workers, indexerBatchPriceService.getContextMissCount());
+		Assert.assertEquals(workers * (lookupsPerWorker - 1), indexerBatchPriceService.getContextHitCount());
+		verify(priceService, times(workers)).getPriceInformationsForProduct(product);
+	}
+
+	protected PriceRowModel createPriceRow(final ProductModel rowProduct, final CurrencyModel currency, final long minqtd,
+			final double price)
+	{
+		final PriceRowModel priceRow = mock(PriceRowModel.class);
+		when(priceRow.getProduct()).thenReturn(rowProduct);
+		when(priceRow.getCurrency()).thenReturn(currency);
+		when(priceRow.getMinqtd()).thenReturn(Long.valueOf(minqtd));
+		when(priceRow.getPrice()).thenReturn(Double.valueOf(price));
+		return priceRow;
+	}
+
+	protected void givenPriceRows(final PriceRowModel... priceRows)
+	{
+		when(indexerPriceRowDao.findAnonymousPriceRows(anyCollection(), anyCollection(), anyCollection(), any(Date.class)))
+				.thenReturn(Arrays.asList(priceRows));
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.provider.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.model.c2l.LanguageModel;
+import de.hybris.platform.enumeration.EnumerationService;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.i18n.I18NService;
+import de.hybris.platform.solrfacetsearch.search.SearchQuery;
+import com.sagaji.core.enums.SwatchColorEnum;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class ColorFacetDisplayNameProviderTest
+{
+	private static final String[] ENUMERATION_VALUE_TYPE_CODES =
+	{ "91" };
+
+	private ColorFacetDisplayNameProvider colorFacetDisplayNameProvider;
+	private EnumerationService enumerationService;
+	private SearchQuery englishQuery;
+	private SearchQuery germanQuery;
+
+	@Before
+	public void setUp()
+	{
+		enumerationService = mock(EnumerationService.class);
+		when(enumerationService.getEnumerationValues(SwatchColorEnum.class))
+				.thenReturn(Arrays.asList(SwatchColorEnum.BLACK, SwatchColorEnum.RED));
+		when(enumerationService.getEnumerationName(SwatchColorEnum.BLACK, Locale.ENGLISH)).thenReturn("Black");
+		when(enumerationService.getEnumerationName(SwatchColorEnum.RED, Locale.ENGLISH)).thenReturn("Red");
+		when(enumerationService.getEnumerationName(SwatchColorEnum.BLACK, Locale.GERMAN)).thenReturn("Schwarz");
+		when(enumerationService.getEnumerationName(SwatchColorEnum.RED, Locale.GERMAN)).thenReturn("");
+
+		final LanguageModel english = mock(LanguageModel.class);
+		final LanguageModel german = mock(LanguageModel.class);
+		final CommonI18NService commonI18NService = mock(CommonI18NService.class);
+		when(commonI18NService.getLanguage("en")).thenReturn(english);
+		when(commonI18NService.getLanguage("de")).thenReturn(german);
+		when(commonI18NService.getLocaleForLanguage(english)).thenReturn(Locale.ENGLISH);
+		when(commonI18NService.getLocaleForLanguage(german)).thenReturn(Locale.GERMAN);
+
+		englishQuery = mock(SearchQuery.class);
+		when(englishQuery.getLanguage()).thenReturn("en");
+		germanQuery = mock(SearchQuery.class);
+		when(germanQuery.getLanguage()).thenReturn("de");
+
+		colorFacetDisplayNameProvider = new ColorFacetDisplayNameProvider()
+		{
+			@Override
+			protected String[] getInvalidationTypeCodes()
+			{
+				return ENUMERATION_VALUE_TYPE_CODES;
+			}
+		};
+		colorFacetDisplayNameProvider.setEnumerationService(enumerationService);
+		colorFacetDisplayNameProvider.setI18nService(mock(I18NService.class));
+		colorFacetDisplayNameProvider.setCommonI18NService(commonI18NService);
+	}
+
+	@Test
+	public void testNamesAreLoadedOncePerLanguage()
+	{
+		for (int i = 0; i < 50; i++)
+		{
+			Assert.assertEquals("Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+			Assert.assertEquals("Red", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "RED"));
+			Assert.assertEquals("Schwarz", colorFacetDisplayNameProvider.getDisplayName(germanQuery, null, "BLACK"));
+		}
+
+		verify(enumerationService, times(2)).getEnumerationValues(SwatchColorEnum.class);
+		verify(enumerationService, times(1)).getEnumerationName(SwatchColorEnum.BLACK, Locale.ENGLISH);
+		Assert.assertEquals(2, colorFacetDisplayNameProvider.getCachedLocaleCount());
+	}
+
+	@Test
+	public void testMissingNamesFallBackToFacetValue()
+	{
+		Assert.assertEquals("RED", colorFacetDisplayNameProvider.getDisplayName(germanQuery, null, "RED"));
+		Assert.assertEquals("UNKNOWN", colorFacetDisplayNameProvider.getDisplayName(germanQuery, null, "UNKNOWN"));
+		Assert.assertEquals("", colorFacetDisplayNameProvider.getDisplayName(germanQuery, null, null));
+	}
+
+	@Test
+	public void testModificationOfEnumerationValueInvalidatesNames()
+	{
+		Assert.assertEquals("Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+
+		colorFacetDisplayNameProvider.keyInvalidated(new Object[]
+		{ "__HJMP__", "__ENTITY__", "1", "8796093055067" }, 0, null, null);
+		Assert.assertEquals("Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+		verify(enumerationService, times(1)).getEnumerationValues(SwatchColorEnum.class);
+
+		when(enumerationService.getEnumerationName(SwatchColorEnum.BLACK, Locale.ENGLISH)).thenReturn("Jet Black");
+		colorFacetDisplayNameProvider.keyInvalidated(new Object[]
+		{ "__HJMP__", "__ENTITY__", "91", "8796093055067" }, 0, null, null);
+
+		Assert.assertEquals(0, colorFacetDisplayNameProvider.getCachedLocaleCount());
+		Assert.assertEquals("Jet Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+		verify(enumerationService, times(2)).getEnumerationValues(SwatchColorEnum.class);
+	}
+
+	@Test
+	public void testNamesLoadedDuringInvalidationAreNotCached()
+	{
+		when(enumerationService.getEnumerationName(SwatchColorEnum.BLACK, Locale.ENGLISH)).thenAnswer(invocation -> {
+			colorFacetDisplayNameProvider.invalidate();
+			return "Black";
+		}).thenReturn("Jet Black");
+
+		Assert.assertEquals("Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+
+		Assert.assertEquals(0, colorFacetDisplayNameProvider.getCachedLocaleCount());
+		Assert.assertEquals("Jet Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+		Assert.assertEquals("Jet Black", colorFacetDisplayNameProvider.getDisplayName(englishQuery, null, "BLACK"));
+		verify(enumerationService, times(2)).getEnumerationValues(SwatchColorEnum.class);
+	}
+}
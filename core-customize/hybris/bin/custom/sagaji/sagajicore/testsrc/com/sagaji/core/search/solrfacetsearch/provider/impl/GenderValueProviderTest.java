@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.provider.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.enums.Gender;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContext;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContextFactory;
+import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
+import de.hybris.platform.solrfacetsearch.provider.FieldValue;
+import com.sagaji.core.model.ApparelProductModel;
+import com.sagaji.core.model.ApparelSizeVariantProductModel;
+import com.sagaji.core.model.ApparelStyleVariantProductModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class GenderValueProviderTest
+{
+	private static final int SIZES_PER_STYLE = 15;
+
+	private GenderValueProvider genderValueProvider;
+	private FieldNameProvider fieldNameProvider;
+	private IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory;
+	private IndexConfig indexConfig;
+	private IndexedProperty indexedProperty;
+	private ApparelProductModel baseProduct;
+	private List<ApparelSizeVariantProductModel> sizes;
+
+	@Before
+	public void setUp()
+	{
+		indexConfig = new IndexConfig();
+		indexedProperty = new IndexedProperty();
+		indexedProperty.setName("gender");
+
+		fieldNameProvider = mock(FieldNameProvider.class);
+		when(fieldNameProvider.getFieldNames(any(IndexedProperty.class), isNull()))
+				.thenReturn(Collections.singletonList("gender_string_mv"));
+
+		baseProduct = mock(ApparelProductModel.class);
+		when(baseProduct.getPk()).thenReturn(PK.fromLong(1));
+		when(baseProduct.getGenders()).thenReturn(Arrays.asList(Gender.MALE, Gender.FEMALE));
+
+		final ApparelStyleVariantProductModel style = mock(ApparelStyleVariantProductModel.class);
+		when(style.getBaseProduct()).thenReturn(baseProduct);
+		sizes = new ArrayList<>();
+		for (int i = 0; i < SIZES_PER_STYLE; i++)
+		{
+			final ApparelSizeVariantProductModel size = mock(ApparelSizeVariantProductModel.class);
+			when(size.getBaseProduct()).thenReturn(style);
+			sizes.add(size);
+		}
+
+		indexerBatchContextFactory = mock(IndexerBatchContextFactory.class);
+
+		genderValueProvider = new GenderValueProvider();
+		genderValueProvider.setFieldNameProvider(fieldNameProvider);
+		genderValueProvider.setIndexerBatchContextFactory(indexerBatchContextFactory);
+	}
+
+	@Test
+	public void testBaseProductIsEvaluatedOncePerBatch() throws Exception
+	{
+		final IndexerBatchContext batchContext = mock(IndexerBatchContext.class);
+		when(batchContext.getAttributes()).thenReturn(new HashMap<>());
+		when(indexerBatchContextFactory.getContext()).thenReturn(batchContext);
+
+		for (final ApparelSizeVariantProductModel size : sizes)
+		{
+			assertGenders(genderValueProvider.getFieldValues(indexConfig, indexedProperty, size));
+		}
+
+		verify(baseProduct, times(1)).getGenders();
+		verify(fieldNameProvider, times(1)).getFieldNames(indexedProperty, null);
+	}
+
+	@Test
+	public void testBatchCacheIsNotSharedBetweenBatches() throws Exception
+	{
+		final IndexerBatchContext firstBatch = mock(IndexerBatchContext.class);
+		when(firstBatch.getAttributes()).thenReturn(new HashMap<>());
+		final IndexerBatchContext secondBatch = mock(IndexerBatchContext.class);
+		when(secondBatch.getAttributes()).thenReturn(new HashMap<>());
+		when(indexerBatchContextFactory.getContext()).thenReturn(firstBatch, secondBatch);
+
+		assertGenders(genderValueProvider.getFieldValues(indexConfig, indexedProperty, sizes.get(0)));
+		assertGenders(genderValueProvider.getFieldValues(indexConfig, indexedProperty, sizes.get(1)));
+
+		verify(baseProduct, times(2)).getGenders();
+		verify(fieldNameProvider, times(1)).getFieldNames(indexedProperty, null);
+	}
+
+	@Test
+	public void testValuesAreComputedOutsideOfBatch() throws Exception
+	{
+		when(indexerBatchContextFactory.getContext()).thenThrow(new IllegalStateException("no batch"));
+
+		assertGenders(genderValueProvider.getFieldValues(indexConfig, indexedProperty, sizes.get(0)));
+		assertGenders(genderValueProvider.getFieldValues(indexConfig, indexedProperty, sizes.get(1)));
+
+		verify(baseProduct, times(2)).getGenders();
+	}
+
+	@Test
+	public void testReturnedValuesDoNotChangeCache() throws Exception
+	{
+		final IndexerBatchContext batchContext = mock(IndexerBatchContext.class);
+		when(batchContext.getAttributes()).thenReturn(new HashMap<>());
+		when(indexerBatchContextFactory.getContext()).thenReturn(batchContext);
+
+		genderValueProvider.getFieldValues(indexConfig, indexedProperty, sizes.get(0)).clear();
+
+		assertGenders(genderValueProvider.getFieldValues(indexConfig, indexedProperty, sizes.get(1)));
+	}
+
+	protected void assertGenders(final Collection<FieldValue> fieldValues)
+	{
+		Assert.assertEquals(2, fieldValues.size());
+		final List<Object> values = new ArrayList<>();
+		for (final FieldValue fieldValue : fieldValues)
+		{
+			Assert.assertEquals("gender_string_mv", fieldValue.getFieldName());
+			values.add(fieldValue.getValue());
+		}
+		Assert.assertEquals(Arrays.asList(Gender.MALE.getCode(), Gender.FEMALE.getCode()), values);
+	}
+}
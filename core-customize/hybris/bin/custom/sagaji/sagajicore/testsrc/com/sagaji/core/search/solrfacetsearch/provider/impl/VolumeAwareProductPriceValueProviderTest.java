@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.search.solrfacetsearch.provider.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.CatalogVersionService;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.europe1.jalo.PriceRow;
+import de.hybris.platform.europe1.model.PriceRowModel;
+import de.hybris.platform.jalo.order.price.PriceInformation;
+import de.hybris.platform.product.PriceService;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.solrfacetsearch.config.IndexConfig;
+import de.hybris.platform.solrfacetsearch.config.IndexedProperty;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContext;
+import de.hybris.platform.solrfacetsearch.indexer.IndexerBatchContextFactory;
+import de.hybris.platform.solrfacetsearch.provider.FieldNameProvider;
+import de.hybris.platform.solrfacetsearch.provider.FieldValue;
+import de.hybris.platform.util.PriceValue;
+import com.sagaji.core.comparators.VolumeAwarePriceInformationComparator;
+import com.sagaji.core.search.solrfacetsearch.price.dao.IndexerPriceRowDao;
+import com.sagaji.core.search.solrfacetsearch.price.impl.DefaultIndexerBatchPriceService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class VolumeAwareProductPriceValueProviderTest
+{
+	private static final int PRODUCT_COUNT = 50;
+	private static final int BATCH_SIZE = 10;
+
+	private final List<ProductModel> products = new ArrayList<>();
+	private final Map<ProductModel, List<PriceRowModel>> priceRows = new HashMap<>();
+	private final Map<String, Object> batchAttributes = new HashMap<>();
+
+	private VolumeAwareProductPriceValueProvider provider;
+	private DefaultIndexerBatchPriceService indexerBatchPriceService;
+	private PriceService priceService;
+	private IndexerPriceRowDao indexerPriceRowDao;
+	private IndexerBatchContext batchContext;
+	private IndexConfig indexConfig;
+	private IndexedProperty indexedProperty;
+	private CurrencyModel currentCurrency;
+
+	@Before
+	public void setUp()
+	{
+		final CurrencyModel eur = createCurrency("EUR");
+		final CurrencyModel usd = createCurrency("USD");
+		indexConfig = new IndexConfig();
+		indexConfig.setCurrencies(Arrays.asList(eur, usd));
+		indexedProperty = new IndexedProperty();
+		indexedProperty.setName("priceValue");
+		indexedProperty.setValueRangeSets(Collections.emptyMap());
+
+		for (int i = 0; i < PRODUCT_COUNT; i++)
+		{
+			final ProductModel product = mock(ProductModel.class);
+			when(product.getPk()).thenReturn(PK.fromLong(i + 1));
+			products.add(product);
+			priceRows.put(product,
+					Arrays.asList(createPriceRow(product, eur, 1L, 10.0 + i), createPriceRow(product, eur, 10L, 9.0 + i),
+							createPriceRow(product, usd, 1L, 12.0 + i)));
+		}
+
+		priceService = mock(PriceService.class);
+		when(priceService.getPriceInformationsForProduct(any(ProductModel.class))).thenAnswer(invocation -> {
+			final List<PriceInformation> result = new ArrayList<>();
+			for (final PriceRowModel priceRow : priceRows.get(invocation.getArgument(0)))
+			{
+				if (priceRow.getCurrency() == currentCurrency)
+				{
+					result.add(createPriceInformation(priceRow));
+				}
+			}
+			return result;
+		});
+
+		final CommonI18NService commonI18NService = mock(CommonI18NService.class);
+		doAnswer(invocation -> {
+			currentCurrency = invocation.getArgument(0);
+			return null;
+		}).when(commonI18NService).setCurrentCurrency(any(CurrencyModel.class));
+
+		final SessionService sessionService = mock(SessionService.class);
+		when(sessionService.executeInLocalView(any(SessionExecutionBody.class), any(UserModel.class))).thenAnswer(
+				invocation -> ((SessionExecutionBody) invocation.getArgument(0)).execute());
+
+		final UserService userService = mock(UserService.class);
+		when(userService.getAnonymousUser()).thenReturn(mock(UserModel.class));
+
+		final CatalogVersionService catalogVersionService = mock(CatalogVersionService.class);
+		when(catalogVersionService.getSessionCatalogVersions()).thenReturn(Collections.emptyList());
+
+		final FieldNameProvider fieldNameProvider = mock(FieldNameProvider.class);
+		when(fieldNameProvider.getFieldNames(any(IndexedProperty.class), any())).thenAnswer(
+				invocation -> Collections.singletonList("priceValue_" + invocation.getArgument(1) + "_double"));
+
+		indexerPriceRowDao = mock(IndexerPriceRowDao.class);
+		when(indexerPriceRowDao.findAnonymousPriceRows(anyCollection(), anyCollection(), anyCollection(),
+				any(Date.class))).thenAnswer(
+				invocation -> {
+					final List<PriceRowModel> result = new ArrayList<>();
+					for (final Object product : (Collection<?>) invocation.getArgument(0))
+					{
+						result.addAll(priceRows.get(product));
+					}
+					return result;
+				});
+
+		final TimeService timeService = mock(TimeService.class);
+		when(timeService.getCurrentTime()).thenReturn(new Date());
+
+		batchContext = mock(IndexerBatchContext.class);
+		when(batchContext.getAttributes()).thenReturn(batchAttributes);
+		final IndexerBatchContextFactory<IndexerBatchContext> indexerBatchContextFactory = mock(IndexerBatchContextFactory.class);
+		when(indexerBatchContextFactory.getContext()).thenAnswer(invocation -> batchContext);
+
+		indexerBatchPriceService = new DefaultIndexerBatchPriceService();
+		indexerBatchPriceService.setIndexerPriceRowDao(indexerPriceRowDao);
+		indexerBatchPriceService.setIndexerBatchContextFactory(indexerBatchContextFactory);
+		indexerBatchPriceService.setPriceService(priceService);
+		indexerBatchPriceService.setCommonI18NService(commonI18NService);
+		indexerBatchPriceService.setSessionService(sessionService);
+		indexerBatchPriceService.setUserService(userService);
+		indexerBatchPriceService.setCatalogVersionService(catalogVersionService);
+		indexerBatchPriceService.setTimeService(timeService);
+		indexerBatchPriceService.setModelService(mock(ModelService.class));
+
+		provider = new VolumeAwareProductPriceValueProvider();
+		provider.setFieldNameProvider(fieldNameProvider);
+		provider.setPriceComparator(new VolumeAwarePriceInformationComparator());
+		provider.setIndexerBatchPriceService(indexerBatchPriceService);
+	}
+
+	@Test
+	public void testBatchPriceLookupQueriesOncePerIndexerBatch() throws Exception
+	{
+		indexerBatchPriceService.setBatchPriceLookup(false);
+		final List<FieldValue> perProduct = indexAllProducts();
+		verify(priceService, times(PRODUCT_COUNT * indexConfig.getCurrencies().size()))
+				.getPriceInformationsForProduct(any(ProductModel.class));
+
+		indexerBatchPriceService.setBatchPriceLookup(true);
+		final List<FieldValue> batch = indexAllProducts();
+		verify(indexerPriceRowDao, times(PRODUCT_COUNT / BATCH_SIZE)).findAnonymousPriceRows(anyCollection(), anyCollection(),
+				anyCollection(), any(Date.class));
+		// no further price queries per product
+		verify(priceService, times(PRODUCT_COUNT * indexConfig.getCurrencies().size()))
+				.getPriceInformationsForProduct(any(ProductModel.class));
+
+		Assert.assertEquals(toStrings(perProduct), toStrings(batch));
+	}
+
+	protected List<FieldValue> indexAllProducts() throws Exception
+	{
+		final List<FieldValue> fieldValues = new ArrayList<>();
+		for (int start = 0; start < products.size(); start += BATCH_SIZE)
+		{
+			final List<ItemModel> batchItems = new ArrayList<>(products.subList(start, Math.min(start + BATCH_SIZE, products.size())));
+			batchAttributes.clear();
+			when(batchContext.getItems()).thenReturn(batchItems);
+			for (final ItemModel product : batchItems)
+			{
+				fieldValues.addAll(provider.getFieldValues(indexConfig, indexedProperty, product));
+			}
+		}
+		return fieldValues;
+	}
+
+	protected List<String> toStrings(final List<FieldValue> fieldValues)
+	{
+		final List<String> result = new ArrayList<>(fieldValues.size());
+		for (final FieldValue fieldValue : fieldValues)
+		{
+			result.add(fieldValue.getFieldName() + "=" + fieldValue.getValue());
+		}
+		return result;
+	}
+
+	protected CurrencyModel createCurrency(final String isocode)
+	{
+		final CurrencyModel currency = mock(CurrencyModel.class);
+		when(currency.getIsocode()).thenReturn(isocode);
+		return currency;
+	}
+
+	protected PriceRowModel createPriceRow(final ProductModel product, final CurrencyModel currency, final long minqtd,
+			final double price)
+	{
+		final PriceRowModel priceRow = mock(PriceRowModel.class);
+		when(priceRow.getProduct()).thenReturn(product);
+		when(priceRow.getCurrency()).thenReturn(currency);
+		when(priceRow.getMinqtd()).thenReturn(Long.valueOf(minqtd));
+		when(priceRow.getPrice()).thenReturn(Double.valueOf(price));
+		when(priceRow.getNet()).thenReturn(Boolean.TRUE);
+		return priceRow;
+	}
+
+	protected PriceInformation createPriceInformation(final PriceRowModel priceRow)
+	{
+		final Map<String, Object> qualifiers = new HashMap<>();
+		qualifiers.put(PriceRow.MINQTD, priceRow.getMinqtd());
+		return new PriceInformation(qualifiers,
+				new PriceValue(priceRow.getCurrency().getIsocode(), priceRow.getPrice().doubleValue(), true));
+	}
+}
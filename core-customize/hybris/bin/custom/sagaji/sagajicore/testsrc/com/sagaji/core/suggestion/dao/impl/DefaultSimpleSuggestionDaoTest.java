@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.dao.impl;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.search.impl.SearchResultImpl;
+import com.sagaji.core.suggestion.ProductReferenceIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+
+@UnitTest
+public class DefaultSimpleSuggestionDaoTest
+{
+	private final DefaultSimpleSuggestionDao simpleSuggestionDao = new DefaultSimpleSuggestionDao();
+	private final UserModel user = new UserModel();
+	private ProductReferenceIndex productReferenceIndex;
+	private FlexibleSearchService flexibleSearchService;
+	private ModelService modelService;
+	private ProductModel source;
+
+	@Before
+	public void setUp()
+	{
+		productReferenceIndex = mock(ProductReferenceIndex.class);
+		given(Boolean.valueOf(productReferenceIndex.isLoaded())).willReturn(Boolean.TRUE);
+		flexibleSearchService = mock(FlexibleSearchService.class);
+		given(flexibleSearchService.search(any(FlexibleSearchQuery.class))).willAnswer(invocation -> {
+			// every candidate with an even pk was bought by the user, the query returns the others in reverse order
+			final FlexibleSearchQuery query = invocation.getArgument(0);
+			final List<ProductModel> products = new ArrayList<>();
+			final Collection<?> candidates = (Collection<?>) query.getQueryParameters().get("candidates");
+			for (final Object candidate : candidates == null ? Collections.emptyList() : candidates)
+			{
+				if (!query.getQuery().contains("NOT EXISTS") || ((PK) candidate).getLongValue() % 2 != 0)
+				{
+					products.add(0, product(((PK) candidate).getLongValue()));
+				}
+			}
+			return new SearchResultImpl<>(products, products.size(), 0, 0);
+		});
+		modelService = mock(ModelService.class);
+
+		simpleSuggestionDao.setFlexibleSearchService(flexibleSearchService);
+		simpleSuggestionDao.setModelService(modelService);
+		simpleSuggestionDao.setProductReferenceIndex(productReferenceIndex);
+		simpleSuggestionDao.setCandidateChunkSize(3);
+		source = product(1000);
+	}
+
+	@Test
+	public void testCandidatesAreReadInChunksUntilLimit()
+	{
+		given(productReferenceIndex.getReferencedProducts(anyCollection(), isNull())).willReturn(pks(1, 2, 3, 4, 5, 6, 7, 8, 9));
+
+		final List<ProductModel> result = simpleSuggestionDao.findProductsRelatedToProducts(Collections.singletonList(source),
+				null, user, true, Integer.valueOf(3));
+
+		Assert.assertEquals(pks(1, 3, 5), pksOf(result));
+		final ArgumentCaptor<FlexibleSearchQuery> queries = ArgumentCaptor.forClass(FlexibleSearchQuery.class);
+		verify(flexibleSearchService, times(2)).search(queries.capture());
+		Assert.assertEquals(pks(1, 2, 3), queries.getAllValues().get(0).getQueryParameters().get("candidates"));
+		Assert.assertEquals(pks(4, 5, 6), queries.getAllValues().get(1).getQueryParameters().get("candidates"));
+		verify(modelService, never()).get(any(PK.class));
+	}
+
+	@Test
+	public void testPurchasedProductsAreKeptIfNotExcluded()
+	{
+		given(productReferenceIndex.getReferencedProducts(anyCollection(), isNull())).willReturn(pks(4, 2, 1));
+
+		final List<ProductModel> result = simpleSuggestionDao.findProductsRelatedToProducts(Collections.singletonList(source),
+				null, user, false, null);
+
+		Assert.assertEquals(pks(4, 2, 1), pksOf(result));
+	}
+
+	@Test
+	public void testUnloadedIndexIsNotUsed()
+	{
+		given(Boolean.valueOf(productReferenceIndex.isLoaded())).willReturn(Boolean.FALSE);
+
+		simpleSuggestionDao.findProductsRelatedToProducts(Collections.singletonList(source), null, user, false, null);
+
+		verify(productReferenceIndex, never()).getReferencedProducts(anyCollection(), any());
+		final ArgumentCaptor<FlexibleSearchQuery> query = ArgumentCaptor.forClass(FlexibleSearchQuery.class);
+		verify(flexibleSearchService).search(query.capture());
+		Assert.assertTrue(query.getValue().getQuery().contains("ProductReference"));
+	}
+
+	protected ProductModel product(final long pk)
+	{
+		final ProductModel product = mock(ProductModel.class);
+		given(product.getPk()).willReturn(PK.fromLong(pk));
+		return product;
+	}
+
+	protected List<PK> pks(final long... pks)
+	{
+		final List<PK> result = new ArrayList<>(pks.length);
+		for (final long pk : pks)
+		{
+			result.add(PK.fromLong(pk));
+		}
+		return result;
+	}
+
+	protected List<PK> pksOf(final List<ProductModel> products)
+	{
+		final List<PK> result = new ArrayList<>(products.size());
+		for (final ProductModel product : products)
+		{
+			result.add(product.getPk());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.impl;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
+import de.hybris.platform.core.PK;
+import com.sagaji.core.suggestion.dao.ProductReferenceIndexDao;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class DefaultProductReferenceIndexTest
+{
+	private static final PK CAMERA = PK.fromLong(1);
+	private static final PK TRIPOD = PK.fromLong(2);
+	private static final PK BATTERY = PK.fromLong(10);
+	private static final PK ADAPTER = PK.fromLong(11);
+	private static final PK LENS = PK.fromLong(12);
+
+	private DefaultProductReferenceIndex productReferenceIndex;
+	private ProductReferenceIndexDao productReferenceIndexDao;
+
+	@Before
+	public void setUp()
+	{
+		productReferenceIndexDao = mock(ProductReferenceIndexDao.class);
+		when(productReferenceIndexDao.findReferences(isNull(), anyInt())).thenReturn(Arrays.asList(
+				row(100, CAMERA, BATTERY, ProductReferenceTypeEnum.ACCESSORIES),
+				row(101, CAMERA, ADAPTER, ProductReferenceTypeEnum.ACCESSORIES),
+				row(102, CAMERA, TRIPOD, ProductReferenceTypeEnum.SIMILAR),
+				row(103, TRIPOD, ADAPTER, ProductReferenceTypeEnum.ACCESSORIES)));
+		when(productReferenceIndexDao.findReferences(PK.fromLong(103), 4)).thenReturn(Collections.emptyList());
+
+		productReferenceIndex = new DefaultProductReferenceIndex();
+		productReferenceIndex.setProductReferenceIndexDao(productReferenceIndexDao);
+		productReferenceIndex.setPageSize(4);
+		productReferenceIndex.load();
+	}
+
+	@Test
+	public void testIndexAnswersNothingUntilLoaded()
+	{
+		final DefaultProductReferenceIndex unloadedIndex = new DefaultProductReferenceIndex();
+		unloadedIndex.setProductReferenceIndexDao(productReferenceIndexDao);
+		unloadedIndex.setPageSize(4);
+
+		Assert.assertFalse(unloadedIndex.isLoaded());
+		Assert.assertTrue(unloadedIndex.getReferencedProducts(Collections.singletonList(CAMERA), null).isEmpty());
+
+		unloadedIndex.load();
+
+		Assert.assertTrue(unloadedIndex.isLoaded());
+		Assert.assertEquals(3, unloadedIndex.getReferencedProducts(Collections.singletonList(CAMERA), null).size());
+	}
+
+	@Test
+	public void testInvalidatedIndexIsNotUsed()
+	{
+		productReferenceIndex.invalidate();
+
+		Assert.assertFalse(productReferenceIndex.isLoaded());
+		Assert.assertTrue(productReferenceIndex.getReferencedProducts(Collections.singletonList(CAMERA), null).isEmpty());
+	}
+
+	@Test
+	public void testTargetsAreRankedByReferenceCount()
+	{
+		final List<PK> result = productReferenceIndex.getReferencedProducts(Arrays.asList(CAMERA, TRIPOD), null);
+
+		Assert.assertEquals(Arrays.asList(ADAPTER, BATTERY), result);
+	}
+
+	@Test
+	public void testReferenceTypesAreFiltered()
+	{
+		Assert.assertEquals(Collections.singletonList(TRIPOD), productReferenceIndex
+				.getReferencedProducts(Collections.singletonList(CAMERA), Collections.singletonList(ProductReferenceTypeEnum.SIMILAR)));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(BATTERY, ADAPTER)),
+				new HashSet<>(productReferenceIndex.getReferencedProducts(Collections.singletonList(CAMERA),
+						Collections.singletonList(ProductReferenceTypeEnum.ACCESSORIES))));
+	}
+
+	@Test
+	public void testIndexIsLoadedOnce()
+	{
+		for (int i = 0; i < 10; i++)
+		{
+			productReferenceIndex.getReferencedProducts(Collections.singletonList(CAMERA), null);
+		}
+
+		verify(productReferenceIndexDao, times(1)).findReferences(null, 4);
+		verify(productReferenceIndexDao, times(1)).findReferences(PK.fromLong(103), 4);
+	}
+
+	@Test
+	public void testChangedReferencesReloadOnlyTheirSource()
+	{
+		productReferenceIndex.getReferencedProducts(Collections.singletonList(TRIPOD), null);
+
+		// reference 103 was removed, reference 104 was created for the tripod
+		when(productReferenceIndexDao.findSourcesOfReferences(Collections.singletonList(PK.fromLong(104))))
+				.thenReturn(Collections.singletonList(TRIPOD));
+		when(productReferenceIndexDao.findReferencesForSources(Collections.singleton(TRIPOD)))
+				.thenReturn(new ArrayList<>(Collections.singletonList(row(104, TRIPOD, LENS, ProductReferenceTypeEnum.ACCESSORIES))));
+		productReferenceIndex.invalidateReference(PK.fromLong(103));
+		productReferenceIndex.invalidateReference(PK.fromLong(104));
+
+		Assert.assertEquals(Collections.singletonList(LENS),
+				productReferenceIndex.getReferencedProducts(Collections.singletonList(TRIPOD), null));
+		Assert.assertEquals(3, productReferenceIndex.getReferencedProducts(Collections.singletonList(CAMERA), null).size());
+		verify(productReferenceIndexDao, times(1)).findReferences(null, 4);
+	}
+
+	@Test
+	public void testRemovingAllReferencesOfSource()
+	{
+		productReferenceIndex.getReferencedProducts(Collections.singletonList(TRIPOD), null);
+
+		when(productReferenceIndexDao.findReferencesForSources(Collections.singleton(TRIPOD))).thenReturn(Collections.emptyList());
+		productReferenceIndex.invalidateReference(PK.fromLong(103));
+
+		Assert.assertTrue(productReferenceIndex.getReferencedProducts(Collections.singletonList(TRIPOD), null).isEmpty());
+	}
+
+	protected List<Object> row(final long referencePk, final PK source, final PK target,
+			final ProductReferenceTypeEnum referenceType)
+	{
+		return Arrays.<Object> asList(PK.fromLong(referencePk), source, target, referenceType.getCode());
+	}
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.core.suggestion.impl;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.core.suggestion.PurchasedProducts;
+import com.sagaji.core.suggestion.dao.PurchasedProductsDao;
+
+import java.util.Collections;
+import java.util.Date;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class DefaultPurchasedProductsIndexTest
+{
+	private static final long MAX_AGE = 60000L;
+
+	private DefaultPurchasedProductsIndex purchasedProductsIndex;
+	private PurchasedProductsDao purchasedProductsDao;
+	private TimeService timeService;
+	private UserModel user;
+
+	@Before
+	public void setUp()
+	{
+		user = createUser(1);
+		purchasedProductsDao = mock(PurchasedProductsDao.class);
+		when(purchasedProductsDao.findPurchasedProductPks(user)).thenReturn(new long[]
+		{ 30L, 10L, 20L, 10L });
+		timeService = mock(TimeService.class);
+		when(timeService.getCurrentTime()).thenReturn(new Date(1000000L));
+
+		purchasedProductsIndex = new DefaultPurchasedProductsIndex();
+		purchasedProductsIndex.setPurchasedProductsDao(purchasedProductsDao);
+		purchasedProductsIndex.setTimeService(timeService);
+		purchasedProductsIndex.setMaxUsers(2);
+		purchasedProductsIndex.setMaxAge(MAX_AGE);
+	}
+
+	@Test
+	public void testPurchasedProductsAreLoadedOnce()
+	{
+		for (int i = 0; i < 10; i++)
+		{
+			final PurchasedProducts purchasedProducts = purchasedProductsIndex.getPurchasedProducts(user);
+			Assert.assertEquals(3, purchasedProducts.size());
+			Assert.assertTrue(purchasedProducts.contains(PK.fromLong(20)));
+			Assert.assertFalse(purchasedProducts.contains(PK.fromLong(40)));
+		}
+		verify(purchasedProductsDao, times(1)).findPurchasedProductPks(user);
+	}
+
+	@Test
+	public void testPlacedOrderIsAddedToLoadedProducts()
+	{
+		purchasedProductsIndex.getPurchasedProducts(user);
+
+		purchasedProductsIndex.addPurchasedProducts(createOrder(user, 40L));
+
+		Assert.assertTrue(purchasedProductsIndex.getPurchasedProducts(user).contains(PK.fromLong(40)));
+		Assert.assertEquals(4, purchasedProductsIndex.getPurchasedProducts(user).size());
+		verify(purchasedProductsDao, times(1)).findPurchasedProductPks(user);
+	}
+
+	@Test
+	public void testPlacedOrderDoesNotLoadProducts()
+	{
+		purchasedProductsIndex.addPurchasedProducts(createOrder(user, 40L));
+
+		verify(purchasedProductsDao, never()).findPurchasedProductPks(user);
+		Assert.assertEquals(0, purchasedProductsIndex.getLoadedUserCount());
+	}
+
+	@Test
+	public void testOrderPlacedWhileLoadingIsKept()
+	{
+		final UserModel concurrentUser = createUser(1);
+		when(purchasedProductsDao.findPurchasedProductPks(concurrentUser)).thenAnswer(invocation -> {
+			// another request loads the products and places an order before this load is put into the index
+			purchasedProductsIndex.getPurchasedProducts(user);
+			purchasedProductsIndex.addPurchasedProducts(createOrder(user, 40L));
+			return new long[]
+			{ 30L, 10L, 20L };
+		});
+
+		Assert.assertTrue(purchasedProductsIndex.getPurchasedProducts(concurrentUser).contains(PK.fromLong(40)));
+		Assert.assertTrue(purchasedProductsIndex.getPurchasedProducts(user).contains(PK.fromLong(40)));
+		Assert.assertEquals(1, purchasedProductsIndex.getLoadedUserCount());
+	}
+
+	@Test
+	public void testExpiredProductsAreReloaded()
+	{
+		purchasedProductsIndex.getPurchasedProducts(user);
+		when(timeService.getCurrentTime()).thenReturn(new Date(1000000L + MAX_AGE + 1));
+
+		purchasedProductsIndex.getPurchasedProducts(user);
+
+		verify(purchasedProductsDao, times(2)).findPurchasedProductPks(user);
+	}
+
+	@Test
+	public void testLeastRecentlyUsedUserIsEvicted()
+	{
+		final UserModel secondUser = createUser(2);
+		final UserModel thirdUser = createUser(3);
+		when(purchasedProductsDao.findPurchasedProductPks(secondUser)).thenReturn(new long[0]);
+		when(purchasedProductsDao.findPurchasedProductPks(thirdUser)).thenReturn(new long[0]);
+
+		purchasedProductsIndex.getPurchasedProducts(user);
+		purchasedProductsIndex.getPurchasedProducts(secondUser);
+		purchasedProductsIndex.getPurchasedProducts(user);
+		purchasedProductsIndex.getPurchasedProducts(thirdUser);
+		purchasedProductsIndex.getPurchasedProducts(user);
+		purchasedProductsIndex.getPurchasedProducts(secondUser);
+
+		Assert.assertEquals(2, purchasedProductsIndex.getLoadedUserCount());
+		verify(purchasedProductsDao, times(1)).findPurchasedProductPks(user);
+		verify(purchasedProductsDao, times(2)).findPurchasedProductPks(secondUser);
+	}
+
+	protected UserModel createUser(final long pk)
+	{
+		final UserModel userModel = mock(UserModel.class);
+		when(userModel.getPk()).thenReturn(PK.fromLong(pk));
+		return userModel;
+	}
+
+	protected OrderModel createOrder(final UserModel orderUser, final long productPk)
+	{
+		final ProductModel product = mock(ProductModel.class);
+		when(product.getPk()).thenReturn(PK.fromLong(productPk));
+		final AbstractOrderEntryModel entry = mock(AbstractOrderEntryModel.class);
+		when(entry.getProduct()).thenReturn(product);
+		final OrderModel order = mock(OrderModel.class);
+		when(order.getUser()).thenReturn(orderUser);
+		when(order.getEntries()).thenReturn(Collections.singletonList(entry));
+		return order;
+	}
+}
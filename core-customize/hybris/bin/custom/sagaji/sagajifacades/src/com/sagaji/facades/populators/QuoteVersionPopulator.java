@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.facades.populators;
+
+import de.hybris.platform.converters.Populator;
+import com.sagaji.core.quote.QuoteHistoryEntry;
+import com.sagaji.facades.quote.data.QuoteVersionData;
+
+
+/**
+ * Populates {@link QuoteVersionData} with the version, state and changing user of a {@link QuoteHistoryEntry}.
+ */
+public class QuoteVersionPopulator implements Populator<QuoteHistoryEntry, QuoteVersionData>
+{
+	@Override
+	public void populate(final QuoteHistoryEntry source, final QuoteVersionData target)
+	{
+		target.setVersion(source.getVersion());
+		target.setState(source.getState());
+		if (source.getUser() != null)
+		{
+			target.setChangedBy(source.getUser().getName());
+		}
+	}
+}
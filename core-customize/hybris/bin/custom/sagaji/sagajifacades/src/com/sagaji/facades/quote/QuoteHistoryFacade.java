@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.facades.quote;
+
+import com.sagaji.facades.quote.data.QuoteVersionData;
+
+import java.util.List;
+
+
+/**
+ * Facade to list the versions of a quote.
+ */
+public interface QuoteHistoryFacade
+{
+	/**
+	 * Returns all versions of the quote, including the versions of state-only transitions that are not stored as
+	 * quotes of their own.
+	 *
+	 * @param quoteCode
+	 *           the quote code
+	 * @return the versions of the quote ordered by version
+	 * @throws de.hybris.platform.servicelayer.exceptions.ModelNotFoundException
+	 *            if the current quote user cannot access the quote
+	 */
+	List<QuoteVersionData> getQuoteHistory(String quoteCode);
+}
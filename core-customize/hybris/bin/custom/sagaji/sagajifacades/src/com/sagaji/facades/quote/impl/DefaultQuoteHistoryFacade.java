@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.facades.quote.impl;
+
+import static de.hybris.platform.servicelayer.util.ServicesUtil.validateParameterNotNullStandardMessage;
+
+import de.hybris.platform.commerceservices.order.CommerceQuoteService;
+import de.hybris.platform.commerceservices.order.strategies.QuoteUserIdentificationStrategy;
+import de.hybris.platform.converters.Converters;
+import de.hybris.platform.servicelayer.dto.converter.Converter;
+import de.hybris.platform.store.services.BaseStoreService;
+import com.sagaji.core.quote.QuoteHistoryEntry;
+import com.sagaji.core.quote.QuoteVersioningService;
+import com.sagaji.facades.quote.QuoteHistoryFacade;
+import com.sagaji.facades.quote.data.QuoteVersionData;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link QuoteHistoryFacade}. The quote is looked up for the current quote user first, so
+ * only users who can view the quote see its history.
+ */
+public class DefaultQuoteHistoryFacade implements QuoteHistoryFacade
+{
+	private QuoteVersioningService quoteVersioningService;
+	private CommerceQuoteService commerceQuoteService;
+	private QuoteUserIdentificationStrategy quoteUserIdentificationStrategy;
+	private BaseStoreService baseStoreService;
+	private Converter<QuoteHistoryEntry, QuoteVersionData> quoteVersionConverter;
+
+	@Override
+	public List<QuoteVersionData> getQuoteHistory(final String quoteCode)
+	{
+		validateParameterNotNullStandardMessage("quoteCode", quoteCode);
+
+		getCommerceQuoteService().getQuoteByCodeAndUserAndStore(getQuoteUserIdentificationStrategy().getCurrentQuoteUser(),
+				quoteCode, getBaseStoreService().getCurrentBaseStore());
+		return Converters.convertAll(getQuoteVersioningService().getQuoteHistory(quoteCode), getQuoteVersionConverter());
+	}
+
+	protected QuoteVersioningService getQuoteVersioningService()
+	{
+		return quoteVersioningService;
+	}
+
+	@Required
+	public void setQuoteVersioningService(final QuoteVersioningService quoteVersioningService)
+	{
+		this.quoteVersioningService = quoteVersioningService;
+	}
+
+	protected CommerceQuoteService getCommerceQuoteService()
+	{
+		return commerceQuoteService;
+	}
+
+	@Required
+	public void setCommerceQuoteService(final CommerceQuoteService commerceQuoteService)
+	{
+		this.commerceQuoteService = commerceQuoteService;
+	}
+
+	protected QuoteUserIdentificationStrategy getQuoteUserIdentificationStrategy()
+	{
+		return quoteUserIdentificationStrategy;
+	}
+
+	@Required
+	public void setQuoteUserIdentificationStrategy(final QuoteUserIdentificationStrategy quoteUserIdentificationStrategy)
+	{
+		this.quoteUserIdentificationStrategy = quoteUserIdentificationStrategy;
+	}
+
+	protected BaseStoreService getBaseStoreService()
+	{
+		return baseStoreService;
+	}
+
+	@Required
+	public void setBaseStoreService(final BaseStoreService baseStoreService)
+	{
+		this.baseStoreService = baseStoreService;
+	}
+
+	protected Converter<QuoteHistoryEntry, QuoteVersionData> getQuoteVersionConverter()
+	{
+		return quoteVersionConverter;
+	}
+
+	@Required
+	public void setQuoteVersionConverter(final Converter<QuoteHistoryEntry, QuoteVersionData> quoteVersionConverter)
+	{
+		this.quoteVersionConverter = quoteVersionConverter;
+	}
+}
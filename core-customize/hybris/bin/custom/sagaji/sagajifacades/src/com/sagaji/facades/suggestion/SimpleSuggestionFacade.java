@@ -8,6 +8,7 @@ import de.hybris.platform.commercefacades.product.data.ProductData;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -79,4 +80,20 @@ public interface SimpleSuggestionFacade
 	List<ProductData> getSuggestionsForProductsInCart(List<ProductReferenceTypeEnum> referenceTypes, boolean excludePurchased,
 			Integer limit);
 
+	/**
+	 * Asynchronous variant of {@link #getSuggestionsForProductsInCart(List, boolean, Integer)}. The suggestions are
+	 * computed on a background thread in a new session that gets the user, base site, currency, language, catalog
+	 * versions and price relevant attributes of the caller's session, so the caller can continue rendering.
+	 *
+	 * @param referenceTypes
+	 *           referenceType, can be empty
+	 * @param excludePurchased
+	 *           if true, only retrieve products that were not yet bought by the user
+	 * @param limit
+	 *           if not null: limit the amount of returned products to the given number
+	 * @return the future suggestions
+	 */
+	CompletableFuture<List<ProductData>> getSuggestionsForProductsInCartAsync(List<ProductReferenceTypeEnum> referenceTypes,
+			boolean excludePurchased, Integer limit);
+
 }
@@ -3,35 +3,65 @@
  */
 package com.sagaji.facades.suggestion.impl;
 
+import de.hybris.platform.catalog.CatalogVersionService;
 import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
 import de.hybris.platform.category.CategoryService;
 import de.hybris.platform.category.model.CategoryModel;
 import de.hybris.platform.commercefacades.product.data.ProductData;
 import de.hybris.platform.converters.Converters;
+import de.hybris.platform.basecommerce.model.site.BaseSiteModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.ItemModel;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.c2l.LanguageModel;
 import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.CartModel;
 import de.hybris.platform.core.model.product.ProductModel;
 import de.hybris.platform.core.model.user.UserModel;
 import de.hybris.platform.order.CartService;
 import de.hybris.platform.product.ProductService;
 import de.hybris.platform.servicelayer.dto.converter.Converter;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
 import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.site.BaseSiteService;
 import de.hybris.platform.variants.model.VariantProductModel;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
 import com.sagaji.core.suggestion.SimpleSuggestionService;
 import com.sagaji.facades.suggestion.SimpleSuggestionFacade;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Required;
 
 
 /**
  * Default implementation of {@link SimpleSuggestionFacade}.
+ * <p>
+ * Cart suggestions are cached in the optional {@link SimpleSuggestionCache}. Asynchronous cart suggestions are answered
+ * from the cache right away; otherwise they are computed by a pool of {@link #setAsyncPoolSize(int) async pool size}
+ * threads. The caller's session is not shared with them: every task opens a new session with the user, base site,
+ * currency, language and session catalog versions of the caller, copies the {@link #setSessionAttributes(List) session
+ * attributes} that select prices and discounts, such as the user price group, and loads the cart products by pk. The
+ * base store is derived from the base site, so suggestions computed on the pool are the same as those of the caller's
+ * session and can share the cache entries.
  */
-public class DefaultSimpleSuggestionFacade implements SimpleSuggestionFacade
+public class DefaultSimpleSuggestionFacade implements SimpleSuggestionFacade, InitializingBean, DisposableBean
 {
 	private UserService userService;
 	private CategoryService categoryService;
@@ -39,6 +69,35 @@ public class DefaultSimpleSuggestionFacade implements SimpleSuggestionFacade
 	private Converter<ProductModel, ProductData> productConverter;
 	private SimpleSuggestionService simpleSuggestionService;
 	private CartService cartService;
+	private SessionService sessionService;
+	private CommonI18NService commonI18NService;
+	private ModelService modelService;
+	private CatalogVersionService catalogVersionService;
+	private SimpleSuggestionCache simpleSuggestionCache;
+	private BaseSiteService baseSiteService;
+	private List<String> sessionAttributes = Collections.emptyList();
+	private int asyncPoolSize;
+
+	private ExecutorService asyncExecutor;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (asyncPoolSize > 0)
+		{
+			asyncExecutor = Executors.newFixedThreadPool(asyncPoolSize,
+					new TenantAwareThreadFactory("SimpleSuggestion", getSessionService()));
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (asyncExecutor != null)
+		{
+			asyncExecutor.shutdownNow();
+		}
+	}
 
 	@Override
 	public List<ProductData> getReferencesForPurchasedInCategory(final String categoryCode,
@@ -78,18 +137,182 @@ public class DefaultSimpleSuggestionFacade implements SimpleSuggestionFacade
 	{
 		if (getCartService().hasSessionCart())
 		{
-			final Set<ProductModel> products = new HashSet<ProductModel>();
-			for (final AbstractOrderEntryModel entry : getCartService().getSessionCart().getEntries())
+			final CartModel cart = getCartService().getSessionCart();
+			final Set<ProductModel> products = getCartBaseProducts(cart);
+			final SimpleSuggestionCache.Key cacheKey = createCacheKey(products, referenceTypes, excludePurchased, limit);
+			if (cacheKey != null)
 			{
-				products.addAll(getAllBaseProducts(entry.getProduct()));
+				final List<ProductData> cached = getSimpleSuggestionCache().get(cacheKey, getCartVersion(cart));
+				if (cached != null)
+				{
+					return cached;
+				}
 			}
-			return Converters
-					.convertAll(getSimpleSuggestionService().getReferencesForProducts(new LinkedList<ProductModel>(products),
-							referenceTypes, getUserService().getCurrentUser(), excludePurchased, limit), getProductConverter());
+
+			return getSuggestionsForProducts(products, referenceTypes, getUserService().getCurrentUser(), excludePurchased,
+					limit, cacheKey, getCartVersion(cart));
 		}
 		return Collections.emptyList();
 	}
 
+	protected List<ProductData> getSuggestionsForProducts(final Collection<ProductModel> products,
+			final List<ProductReferenceTypeEnum> referenceTypes, final UserModel user, final boolean excludePurchased,
+			final Integer limit, final SimpleSuggestionCache.Key cacheKey, final long cartVersion)
+	{
+		final List<ProductData> suggestions = Converters.convertAll(getSimpleSuggestionService()
+				.getReferencesForProducts(new LinkedList<ProductModel>(products), referenceTypes, user, excludePurchased, limit),
+				getProductConverter());
+		if (cacheKey != null)
+		{
+			getSimpleSuggestionCache().put(cacheKey, cartVersion, suggestions);
+		}
+		return suggestions;
+	}
+
+	@Override
+	public CompletableFuture<List<ProductData>> getSuggestionsForProductsInCartAsync(
+			final List<ProductReferenceTypeEnum> referenceTypes, final boolean excludePurchased, final Integer limit)
+	{
+		if (!getCartService().hasSessionCart())
+		{
+			return CompletableFuture.completedFuture(Collections.<ProductData> emptyList());
+		}
+
+		final CartModel cart = getCartService().getSessionCart();
+		final Set<ProductModel> products = getCartBaseProducts(cart);
+		final SimpleSuggestionCache.Key cacheKey = createCacheKey(products, referenceTypes, excludePurchased, limit);
+		if (cacheKey != null)
+		{
+			final List<ProductData> cached = getSimpleSuggestionCache().get(cacheKey, getCartVersion(cart));
+			if (cached != null)
+			{
+				return CompletableFuture.completedFuture(cached);
+			}
+		}
+
+		if (asyncExecutor == null)
+		{
+			return CompletableFuture.completedFuture(getSuggestionsForProductsInCart(referenceTypes, excludePurchased, limit));
+		}
+
+		final SuggestionContext context = createSuggestionContext(products);
+		final long cartVersion = getCartVersion(cart);
+		return CompletableFuture.supplyAsync(() -> getSuggestionsInNewSession(context, referenceTypes, excludePurchased, limit,
+				cacheKey, cartVersion), asyncExecutor);
+	}
+
+	protected SuggestionContext createSuggestionContext(final Collection<ProductModel> products)
+	{
+		final List<PK> catalogVersionPks = new ArrayList<PK>();
+		for (final CatalogVersionModel catalogVersion : getCatalogVersionService().getSessionCatalogVersions())
+		{
+			catalogVersionPks.add(catalogVersion.getPk());
+		}
+		final List<PK> productPks = new ArrayList<PK>(products.size());
+		for (final ProductModel product : products)
+		{
+			productPks.add(product.getPk());
+		}
+		final Map<String, Object> attributes = new HashMap<String, Object>();
+		for (final String name : getSessionAttributes())
+		{
+			final Object value = getSessionService().getAttribute(name);
+			if (value != null)
+			{
+				attributes.put(name, value instanceof ItemModel ? ((ItemModel) value).getPk() : value);
+			}
+		}
+		final BaseSiteModel baseSite = getBaseSiteService().getCurrentBaseSite();
+		final CurrencyModel currency = getCommonI18NService().getCurrentCurrency();
+		final LanguageModel language = getCommonI18NService().getCurrentLanguage();
+		return new SuggestionContext(getUserService().getCurrentUser().getPk(), baseSite == null ? null : baseSite.getPk(),
+				currency == null ? null : currency.getPk(), language == null ? null : language.getPk(), catalogVersionPks,
+				attributes, productPks);
+	}
+
+	/**
+	 * Computes the suggestions on a pool thread in a new session that is set up from the given context and closed
+	 * afterwards.
+	 */
+	protected List<ProductData> getSuggestionsInNewSession(final SuggestionContext context,
+			final List<ProductReferenceTypeEnum> referenceTypes, final boolean excludePurchased, final Integer limit,
+			final SimpleSuggestionCache.Key cacheKey, final long cartVersion)
+	{
+		getSessionService().createNewSession();
+		try
+		{
+			final UserModel user = getModelService().get(context.userPk);
+			getUserService().setCurrentUser(user);
+			if (context.baseSitePk != null)
+			{
+				// the catalog versions of the caller are set below, they may differ from the ones of the site
+				getBaseSiteService().setCurrentBaseSite((BaseSiteModel) getModelService().get(context.baseSitePk), false);
+			}
+			if (context.currencyPk != null)
+			{
+				getCommonI18NService().setCurrentCurrency(getModelService().get(context.currencyPk));
+			}
+			if (context.languagePk != null)
+			{
+				getCommonI18NService().setCurrentLanguage(getModelService().get(context.languagePk));
+			}
+			final List<CatalogVersionModel> catalogVersions = new ArrayList<CatalogVersionModel>();
+			for (final PK catalogVersionPk : context.catalogVersionPks)
+			{
+				catalogVersions.add(getModelService().get(catalogVersionPk));
+			}
+			getCatalogVersionService().setSessionCatalogVersions(catalogVersions);
+			context.sessionAttributes.forEach((name, value) -> getSessionService().setAttribute(name,
+					value instanceof PK ? getModelService().get((PK) value) : value));
+
+			final List<ProductModel> products = new ArrayList<ProductModel>(context.productPks.size());
+			for (final PK productPk : context.productPks)
+			{
+				products.add(getModelService().get(productPk));
+			}
+			return getSuggestionsForProducts(products, referenceTypes, user, excludePurchased, limit, cacheKey, cartVersion);
+		}
+		finally
+		{
+			getSessionService().closeCurrentSession();
+		}
+	}
+
+	protected Set<ProductModel> getCartBaseProducts(final CartModel cart)
+	{
+		final Set<ProductModel> products = new HashSet<ProductModel>();
+		for (final AbstractOrderEntryModel entry : cart.getEntries())
+		{
+			products.addAll(getAllBaseProducts(entry.getProduct()));
+		}
+		return products;
+	}
+
+	protected SimpleSuggestionCache.Key createCacheKey(final Set<ProductModel> products,
+			final List<ProductReferenceTypeEnum> referenceTypes, final boolean excludePurchased, final Integer limit)
+	{
+		if (getSimpleSuggestionCache() == null)
+		{
+			return null;
+		}
+
+		final List<String> productPks = new ArrayList<String>(products.size());
+		for (final ProductModel product : products)
+		{
+			productPks.add(product.getPk().toString());
+		}
+		final LanguageModel language = getCommonI18NService().getCurrentLanguage();
+		final CurrencyModel currency = getCommonI18NService().getCurrentCurrency();
+		return SimpleSuggestionCache.key(getUserService().getCurrentUser().getUid(),
+				language == null ? null : language.getIsocode(), currency == null ? null : currency.getIsocode(), productPks,
+				referenceTypes, excludePurchased, limit);
+	}
+
+	protected long getCartVersion(final CartModel cart)
+	{
+		return cart.getModifiedtime() == null ? 0L : cart.getModifiedtime().getTime();
+	}
+
 	protected Set<ProductModel> getAllBaseProducts(final ProductModel productModel)
 	{
 		final Set<ProductModel> allBaseProducts = new HashSet<ProductModel>();
@@ -191,4 +414,111 @@ public class DefaultSimpleSuggestionFacade implements SimpleSuggestionFacade
 	{
 		this.cartService = cartService;
 	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected CommonI18NService getCommonI18NService()
+	{
+		return commonI18NService;
+	}
+
+	public void setCommonI18NService(final CommonI18NService commonI18NService)
+	{
+		this.commonI18NService = commonI18NService;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected CatalogVersionService getCatalogVersionService()
+	{
+		return catalogVersionService;
+	}
+
+	public void setCatalogVersionService(final CatalogVersionService catalogVersionService)
+	{
+		this.catalogVersionService = catalogVersionService;
+	}
+
+	protected SimpleSuggestionCache getSimpleSuggestionCache()
+	{
+		return simpleSuggestionCache;
+	}
+
+	public void setSimpleSuggestionCache(final SimpleSuggestionCache simpleSuggestionCache)
+	{
+		this.simpleSuggestionCache = simpleSuggestionCache;
+	}
+
+	protected BaseSiteService getBaseSiteService()
+	{
+		return baseSiteService;
+	}
+
+	@Required
+	public void setBaseSiteService(final BaseSiteService baseSiteService)
+	{
+		this.baseSiteService = baseSiteService;
+	}
+
+	protected List<String> getSessionAttributes()
+	{
+		return sessionAttributes;
+	}
+
+	/**
+	 * @param sessionAttributes
+	 *           names of the session attributes that are copied into the session of an asynchronous suggestion
+	 */
+	public void setSessionAttributes(final List<String> sessionAttributes)
+	{
+		this.sessionAttributes = sessionAttributes;
+	}
+
+	public void setAsyncPoolSize(final int asyncPoolSize)
+	{
+		this.asyncPoolSize = asyncPoolSize;
+	}
+
+	/**
+	 * The session attributes of the caller of an asynchronous suggestion, kept as pks so the pool thread loads its own
+	 * models.
+	 */
+	protected static final class SuggestionContext
+	{
+		private final PK userPk;
+		private final PK baseSitePk;
+		private final PK currencyPk;
+		private final PK languagePk;
+		private final List<PK> catalogVersionPks;
+		private final Map<String, Object> sessionAttributes;
+		private final List<PK> productPks;
+
+		protected SuggestionContext(final PK userPk, final PK baseSitePk, final PK currencyPk, final PK languagePk,
+				final List<PK> catalogVersionPks, final Map<String, Object> sessionAttributes, final List<PK> productPks)
+		{
+			this.userPk = userPk;
+			this.baseSitePk = baseSitePk;
+			this.currencyPk = currencyPk;
+			this.languagePk = languagePk;
+			this.catalogVersionPks = catalogVersionPks;
+			this.sessionAttributes = sessionAttributes;
+			this.productPks = productPks;
+		}
+	}
 }
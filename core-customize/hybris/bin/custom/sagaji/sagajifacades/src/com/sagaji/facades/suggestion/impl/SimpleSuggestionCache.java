@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.facades.suggestion.impl;
+
+import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
+import de.hybris.platform.commercefacades.product.data.ProductData;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.collections.CollectionUtils;
+
+
+/**
+ * Cache of converted cart suggestions used by {@link DefaultSimpleSuggestionFacade}.
+ * <p>
+ * Entries are keyed by the user, the session language and currency, the sorted base products of the cart, the
+ * reference types and the limit. An entry expires after {@link #setTimeToLive(long) time to live} milliseconds and is
+ * ignored as soon as the cart it was computed for has been modified.
+ */
+public class SimpleSuggestionCache
+{
+	private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+
+	private long timeToLive;
+	private int maxEntries;
+
+	/**
+	 * Returns the cached suggestions for the given key.
+	 *
+	 * @param key
+	 *           the cache key
+	 * @param cartVersion
+	 *           the modification time of the cart
+	 * @return a copy of the cached suggestions or <code>null</code> if nothing valid is cached
+	 */
+	public List<ProductData> get(final Key key, final long cartVersion)
+	{
+		final Entry entry = entries.get(key);
+		if (entry == null)
+		{
+			return null;
+		}
+		if (entry.cartVersion != cartVersion || currentTime() - entry.creationTime > timeToLive)
+		{
+			entries.remove(key, entry);
+			return null;
+		}
+		return new ArrayList<>(entry.suggestions);
+	}
+
+	/**
+	 * Caches the suggestions computed for the given key.
+	 *
+	 * @param key
+	 *           the cache key
+	 * @param cartVersion
+	 *           the modification time of the cart the suggestions were computed for
+	 * @param suggestions
+	 *           the suggestions
+	 */
+	public void put(final Key key, final long cartVersion, final List<ProductData> suggestions)
+	{
+		if (entries.size() >= maxEntries)
+		{
+			evictExpired();
+			if (entries.size() >= maxEntries)
+			{
+				entries.clear();
+			}
+		}
+		entries.put(key, new Entry(Collections.unmodifiableList(new ArrayList<>(suggestions)), cartVersion, currentTime()));
+	}
+
+	public void invalidateAll()
+	{
+		entries.clear();
+	}
+
+	public int size()
+	{
+		return entries.size();
+	}
+
+	protected void evictExpired()
+	{
+		final long now = currentTime();
+		entries.values().removeIf(entry -> now - entry.creationTime > timeToLive);
+	}
+
+	protected long currentTime()
+	{
+		return System.currentTimeMillis();
+	}
+
+	public void setTimeToLive(final long timeToLive)
+	{
+		this.timeToLive = timeToLive;
+	}
+
+	public void setMaxEntries(final int maxEntries)
+	{
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Creates the cache key of a cart suggestion request.
+	 *
+	 * @param userUid
+	 *           the uid of the current user
+	 * @param languageIsocode
+	 *           the session language
+	 * @param currencyIsocode
+	 *           the session currency
+	 * @param baseProductPks
+	 *           the pks of the cart products and their base products
+	 * @param referenceTypes
+	 *           the reference types
+	 * @param excludePurchased
+	 *           whether purchased products are excluded
+	 * @param limit
+	 *           the limit
+	 * @return the key
+	 */
+	public static Key key(final String userUid, final String languageIsocode, final String currencyIsocode,
+			final Collection<String> baseProductPks, final List<ProductReferenceTypeEnum> referenceTypes,
+			final boolean excludePurchased, final Integer limit)
+	{
+		final List<String> sortedProductPks = new ArrayList<>(baseProductPks);
+		Collections.sort(sortedProductPks);
+		final List<String> sortedReferenceTypes = new ArrayList<>();
+		if (CollectionUtils.isNotEmpty(referenceTypes))
+		{
+			for (final ProductReferenceTypeEnum referenceType : referenceTypes)
+			{
+				sortedReferenceTypes.add(referenceType.getCode());
+			}
+			Collections.sort(sortedReferenceTypes);
+		}
+		return new Key(userUid, languageIsocode, currencyIsocode, sortedProductPks, sortedReferenceTypes, excludePurchased,
+				limit);
+	}
+
+	public static final class Key
+	{
+		private final String userUid;
+		private final String languageIsocode;
+		private final String currencyIsocode;
+		private final List<String> productPks;
+		private final List<String> referenceTypes;
+		private final boolean excludePurchased;
+		private final Integer limit;
+		private final int hashCode;
+
+		private Key(final String userUid, final String languageIsocode, final String currencyIsocode,
+				final List<String> productPks, final List<String> referenceTypes, final boolean excludePurchased,
+				final Integer limit)
+		{
+			this.userUid = userUid;
+			this.languageIsocode = languageIsocode;
+			this.currencyIsocode = currencyIsocode;
+			this.productPks = productPks;
+			this.referenceTypes = referenceTypes;
+			this.excludePurchased = excludePurchased;
+			this.limit = limit;
+			this.hashCode = Objects.hash(userUid, languageIsocode, currencyIsocode, productPks, referenceTypes,
+					Boolean.valueOf(excludePurchased), limit);
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (!(obj instanceof Key))
+			{
+				return false;
+			}
+			final Key other = (Key) obj;
+			return excludePurchased == other.excludePurchased && Objects.equals(userUid, other.userUid)
+					&& Objects.equals(languageIsocode, other.languageIsocode) && Objects.equals(currencyIsocode, other.currencyIsocode)
+					&& Objects.equals(productPks, other.productPks) && Objects.equals(referenceTypes, other.referenceTypes)
+					&& Objects.equals(limit, other.limit);
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return hashCode;
+		}
+	}
+
+	private static final class Entry
+	{
+		private final List<ProductData> suggestions;
+		private final long cartVersion;
+		private final long creationTime;
+
+		private Entry(final List<ProductData> suggestions, final long cartVersion, final long creationTime)
+		{
+			this.suggestions = suggestions;
+			this.cartVersion = cartVersion;
+			this.creationTime = creationTime;
+		}
+	}
+}
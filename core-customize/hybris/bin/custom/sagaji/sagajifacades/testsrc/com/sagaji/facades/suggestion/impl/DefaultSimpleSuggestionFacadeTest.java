@@ -3,11 +3,20 @@
  */
 package com.sagaji.facades.suggestion.impl;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.model.site.BaseSiteModel;
+import de.hybris.platform.catalog.CatalogVersionService;
 import de.hybris.platform.catalog.enums.ProductReferenceTypeEnum;
+import de.hybris.platform.catalog.model.CatalogVersionModel;
 import de.hybris.platform.category.CategoryService;
 import de.hybris.platform.category.model.CategoryModel;
 import de.hybris.platform.commercefacades.product.converters.populator.ProductBasicPopulator;
@@ -18,13 +27,25 @@ import de.hybris.platform.commercefacades.product.data.ProductData;
 import de.hybris.platform.commerceservices.url.impl.DefaultProductModelUrlResolver;
 import de.hybris.platform.converters.Populator;
 import de.hybris.platform.converters.impl.AbstractPopulatingConverter;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.c2l.LanguageModel;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.CartModel;
 import de.hybris.platform.core.model.product.ProductModel;
 import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.order.CartService;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
 import de.hybris.platform.servicelayer.user.UserService;
+import de.hybris.platform.site.BaseSiteService;
 import com.sagaji.core.suggestion.SimpleSuggestionService;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import junit.framework.Assert;
@@ -32,6 +53,7 @@ import junit.framework.Assert;
 import org.apache.commons.lang.math.NumberUtils;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -62,6 +84,18 @@ public class DefaultSimpleSuggestionFacadeTest
 	private ProductBasicPopulator productBasicPopulator;
 	@Mock
 	private ProductPrimaryImagePopulator productPrimaryImagePopulator;
+	@Mock
+	private CartService cartService;
+	@Mock
+	private CommonI18NService commonI18NService;
+	@Mock
+	private SessionService sessionService;
+	@Mock
+	private ModelService modelService;
+	@Mock
+	private CatalogVersionService catalogVersionService;
+	@Mock
+	private BaseSiteService baseSiteService;
 
 	private DefaultSimpleSuggestionFacade defaultSimpleSuggestionFacade;
 
@@ -108,4 +142,123 @@ public class DefaultSimpleSuggestionFacadeTest
 				excludeBoughtProducts, limit);
 		Assert.assertTrue(result.contains(productData));
 	}
+
+	@Test
+	public void testCartSuggestionsAreCachedUntilCartIsModified() throws Exception
+	{
+		final UserModel user = mock(UserModel.class);
+		given(user.getUid()).willReturn("dejol");
+		given(userService.getCurrentUser()).willReturn(user);
+		final LanguageModel language = mock(LanguageModel.class);
+		given(language.getIsocode()).willReturn("en");
+		given(commonI18NService.getCurrentLanguage()).willReturn(language);
+		final CurrencyModel currency = mock(CurrencyModel.class);
+		given(currency.getIsocode()).willReturn("USD");
+		given(commonI18NService.getCurrentCurrency()).willReturn(currency);
+
+		given(productModel.getPk()).willReturn(PK.fromLong(1));
+		final AbstractOrderEntryModel entry = mock(AbstractOrderEntryModel.class);
+		given(entry.getProduct()).willReturn(productModel);
+		final CartModel cart = mock(CartModel.class);
+		given(cart.getEntries()).willReturn(Collections.singletonList(entry));
+		given(cart.getModifiedtime()).willReturn(new Date(1000L));
+		given(Boolean.valueOf(cartService.hasSessionCart())).willReturn(Boolean.TRUE);
+		given(cartService.getSessionCart()).willReturn(cart);
+
+		final ProductModel suggestion = mock(ProductModel.class);
+		final List<ProductReferenceTypeEnum> referenceTypes = Collections.singletonList(ProductReferenceTypeEnum.ACCESSORIES);
+		given(simpleSuggestionService.getReferencesForProducts(Collections.singletonList(productModel), referenceTypes, user,
+				true, Integer.valueOf(5))).willReturn(Collections.singletonList(suggestion));
+		given(abstractPopulatingConverter.convert(suggestion)).willReturn(productData);
+
+		final SimpleSuggestionCache simpleSuggestionCache = new SimpleSuggestionCache();
+		simpleSuggestionCache.setTimeToLive(60000L);
+		simpleSuggestionCache.setMaxEntries(10);
+		defaultSimpleSuggestionFacade.setCartService(cartService);
+		defaultSimpleSuggestionFacade.setCommonI18NService(commonI18NService);
+		defaultSimpleSuggestionFacade.setSimpleSuggestionCache(simpleSuggestionCache);
+
+		for (int i = 0; i < 3; i++)
+		{
+			Assert.assertEquals(Collections.singletonList(productData),
+					defaultSimpleSuggestionFacade.getSuggestionsForProductsInCart(referenceTypes, true, Integer.valueOf(5)));
+		}
+		Assert.assertEquals(Collections.singletonList(productData), defaultSimpleSuggestionFacade
+				.getSuggestionsForProductsInCartAsync(referenceTypes, true, Integer.valueOf(5)).get());
+		verify(simpleSuggestionService, times(1)).getReferencesForProducts(Collections.singletonList(productModel),
+				referenceTypes, user, true, Integer.valueOf(5));
+
+		given(cart.getModifiedtime()).willReturn(new Date(2000L));
+		defaultSimpleSuggestionFacade.getSuggestionsForProductsInCart(referenceTypes, true, Integer.valueOf(5));
+		verify(simpleSuggestionService, times(2)).getReferencesForProducts(Collections.singletonList(productModel),
+				referenceTypes, user, true, Integer.valueOf(5));
+	}
+
+	@Test
+	public void testAsyncSuggestionsRunInNewSessionWithCallerContext()
+	{
+		final UserModel user = mock(UserModel.class);
+		given(user.getPk()).willReturn(PK.fromLong(10));
+		given(userService.getCurrentUser()).willReturn(user);
+		final CurrencyModel currency = mock(CurrencyModel.class);
+		given(currency.getPk()).willReturn(PK.fromLong(20));
+		given(commonI18NService.getCurrentCurrency()).willReturn(currency);
+		final LanguageModel language = mock(LanguageModel.class);
+		given(language.getPk()).willReturn(PK.fromLong(30));
+		given(commonI18NService.getCurrentLanguage()).willReturn(language);
+		final CatalogVersionModel catalogVersion = mock(CatalogVersionModel.class);
+		given(catalogVersion.getPk()).willReturn(PK.fromLong(40));
+		given(catalogVersionService.getSessionCatalogVersions()).willReturn(Collections.singletonList(catalogVersion));
+		final BaseSiteModel baseSite = mock(BaseSiteModel.class);
+		given(baseSite.getPk()).willReturn(PK.fromLong(50));
+		given(baseSiteService.getCurrentBaseSite()).willReturn(baseSite);
+		given(sessionService.getAttribute("Europe1PriceFactory_UPG")).willReturn("B2B_PRICES");
+		given(productModel.getPk()).willReturn(PK.fromLong(1));
+
+		defaultSimpleSuggestionFacade.setBaseSiteService(baseSiteService);
+		defaultSimpleSuggestionFacade.setSessionAttributes(Arrays.asList("Europe1PriceFactory_UPG", "Europe1PriceFactory_UDG"));
+		defaultSimpleSuggestionFacade.setCommonI18NService(commonI18NService);
+		defaultSimpleSuggestionFacade.setSessionService(sessionService);
+		defaultSimpleSuggestionFacade.setModelService(modelService);
+		defaultSimpleSuggestionFacade.setCatalogVersionService(catalogVersionService);
+		final DefaultSimpleSuggestionFacade.SuggestionContext context = defaultSimpleSuggestionFacade
+				.createSuggestionContext(Collections.singleton(productModel));
+
+		// the pool thread loads its own models by pk
+		final UserModel loadedUser = mock(UserModel.class);
+		final CurrencyModel loadedCurrency = mock(CurrencyModel.class);
+		final LanguageModel loadedLanguage = mock(LanguageModel.class);
+		final CatalogVersionModel loadedCatalogVersion = mock(CatalogVersionModel.class);
+		final ProductModel loadedProduct = mock(ProductModel.class);
+		final BaseSiteModel loadedBaseSite = mock(BaseSiteModel.class);
+		given(modelService.get(PK.fromLong(50))).willReturn(loadedBaseSite);
+		given(modelService.get(PK.fromLong(10))).willReturn(loadedUser);
+		given(modelService.get(PK.fromLong(20))).willReturn(loadedCurrency);
+		given(modelService.get(PK.fromLong(30))).willReturn(loadedLanguage);
+		given(modelService.get(PK.fromLong(40))).willReturn(loadedCatalogVersion);
+		given(modelService.get(PK.fromLong(1))).willReturn(loadedProduct);
+		final List<ProductReferenceTypeEnum> referenceTypes = Collections.singletonList(ProductReferenceTypeEnum.ACCESSORIES);
+		given(simpleSuggestionService.getReferencesForProducts(Collections.singletonList(loadedProduct), referenceTypes,
+				loadedUser, true, Integer.valueOf(5))).willReturn(Collections.singletonList(productModel));
+		given(abstractPopulatingConverter.convert(productModel)).willReturn(productData);
+
+		final List<ProductData> result = defaultSimpleSuggestionFacade.getSuggestionsInNewSession(context, referenceTypes, true,
+				Integer.valueOf(5), null, 0L);
+
+		Assert.assertEquals(Collections.singletonList(productData), result);
+		final InOrder session = inOrder(sessionService, userService, baseSiteService, commonI18NService, catalogVersionService,
+				simpleSuggestionService);
+		session.verify(sessionService).createNewSession();
+		session.verify(userService).setCurrentUser(loadedUser);
+		session.verify(baseSiteService).setCurrentBaseSite(loadedBaseSite, false);
+		session.verify(commonI18NService).setCurrentCurrency(loadedCurrency);
+		session.verify(commonI18NService).setCurrentLanguage(loadedLanguage);
+		session.verify(catalogVersionService).setSessionCatalogVersions(Collections.singletonList(loadedCatalogVersion));
+		session.verify(sessionService).setAttribute("Europe1PriceFactory_UPG", "B2B_PRICES");
+		session.verify(simpleSuggestionService).getReferencesForProducts(Collections.singletonList(loadedProduct),
+				referenceTypes, loadedUser, true, Integer.valueOf(5));
+		session.verify(sessionService).closeCurrentSession();
+		verify(sessionService, never()).getRawSession(any());
+		verify(sessionService, never()).setAttribute(eq("Europe1PriceFactory_UDG"), any());
+	}
 }
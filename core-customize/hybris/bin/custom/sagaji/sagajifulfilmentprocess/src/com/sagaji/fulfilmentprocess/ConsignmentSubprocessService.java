@@ -0,0 +1,30 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess;
+
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+
+import java.util.List;
+
+
+/**
+ * Used by SplitOrderAction, this service starts the consignment subprocesses of an order process.
+ */
+public interface ConsignmentSubprocessService
+{
+	/**
+	 * Creates one consignment subprocess per consignment, saves them together and starts them. The subprocess codes
+	 * continue the numbering of subprocesses already started for the order process, so splitting an order again does not
+	 * reuse a code.
+	 *
+	 * @param parentProcess
+	 *           the order process waiting for the subprocesses
+	 * @param consignments
+	 *           the consignments to fulfil
+	 * @return the started subprocesses
+	 */
+	List<ConsignmentProcessModel> startSubprocesses(OrderProcessModel parentProcess, List<ConsignmentModel> consignments);
+}
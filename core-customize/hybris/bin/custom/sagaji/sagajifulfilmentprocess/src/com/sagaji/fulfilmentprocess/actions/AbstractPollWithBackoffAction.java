@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions;
+
+import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
+import de.hybris.platform.processengine.model.BusinessProcessModel;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.task.RetryLaterException;
+
+import java.util.Date;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Base class for actions that poll a resource until it is ready. Instead of returning to itself through a
+ * <code>NOK</code> transition, which hands the process straight back to the task engine, a process whose resource is not
+ * ready is rescheduled with a {@link RetryLaterException}. The delay doubles with every attempt from
+ * <code>initialDelay</code> up to <code>maxDelay</code> and is shortened by a random part of up to
+ * <code>jitter</code> percent, so processes polling the same resource do not wake up together.
+ * <p>
+ * The action returns <code>OK</code> once {@link #isReady(BusinessProcessModel)} holds and <code>NOK</code> when the
+ * resource is still not ready after <code>maxAttempts</code> polls. The attempts are kept on the process, so they survive
+ * a node restart; the retry does not roll them back. A process that is ready on the first poll is not saved.
+ */
+public abstract class AbstractPollWithBackoffAction<T extends BusinessProcessModel> extends AbstractSimpleDecisionAction<T>
+{
+	private static final Logger LOG = Logger.getLogger(AbstractPollWithBackoffAction.class);
+
+	private TimeService timeService;
+	private long initialDelay;
+	private long maxDelay;
+	private int jitter;
+	private int maxAttempts;
+
+	private final AtomicLong rescheduledCount = new AtomicLong();
+	private final AtomicLong readyCount = new AtomicLong();
+	private final AtomicLong exhaustedCount = new AtomicLong();
+	private final AtomicLong totalWaitMillis = new AtomicLong();
+
+	/**
+	 * Checks whether the polled resource is ready for the process.
+	 */
+	protected abstract boolean isReady(T process) throws Exception;
+
+	@Override
+	public Transition executeAction(final T process) throws RetryLaterException, Exception
+	{
+		final Date now = getTimeService().getCurrentTime();
+		final Date start = process.getPollStartTime() == null ? now : process.getPollStartTime();
+		final int attempt = process.getPollAttempts();
+
+		if (isReady(process))
+		{
+			final long waited = now.getTime() - start.getTime();
+			readyCount.incrementAndGet();
+			totalWaitMillis.addAndGet(waited);
+			if (LOG.isDebugEnabled())
+			{
+				LOG.debug("Process: " + process.getCode() + " ready after " + attempt + " attempts and " + waited + " ms");
+			}
+			resetPolling(process);
+			return Transition.OK;
+		}
+
+		if (attempt + 1 >= getMaxAttempts())
+		{
+			exhaustedCount.incrementAndGet();
+			LOG.warn("Process: " + process.getCode() + " still not ready after " + (attempt + 1) + " attempts, giving up");
+			resetPolling(process);
+			return Transition.NOK;
+		}
+
+		process.setPollAttempts(attempt + 1);
+		process.setPollStartTime(start);
+		save(process);
+		rescheduledCount.incrementAndGet();
+
+		final RetryLaterException retry = new RetryLaterException(
+				"Process: " + process.getCode() + " not ready, attempt " + (attempt + 1) + " of " + getMaxAttempts());
+		retry.setDelay(getDelay(attempt));
+		retry.setRollBack(false);
+		throw retry;
+	}
+
+	/**
+	 * Calculates the delay in milliseconds before the given attempt is repeated.
+	 */
+	protected long getDelay(final int attempt)
+	{
+		final long delay = Math.min(getMaxDelay(), getInitialDelay() << Math.min(attempt, 30));
+		if (delay <= 0 || getJitter() <= 0)
+		{
+			return Math.max(delay, 0);
+		}
+		final long maxJitter = delay * getJitter() / 100;
+		return delay - ThreadLocalRandom.current().nextLong(maxJitter + 1);
+	}
+
+	protected void resetPolling(final T process)
+	{
+		if (process.getPollAttempts() != 0 || process.getPollStartTime() != null)
+		{
+			process.setPollAttempts(0);
+			process.setPollStartTime(null);
+			save(process);
+		}
+	}
+
+	/**
+	 * @return number of polls that rescheduled the process
+	 */
+	public long getRescheduledCount()
+	{
+		return rescheduledCount.get();
+	}
+
+	/**
+	 * @return number of processes whose resource became ready
+	 */
+	public long getReadyCount()
+	{
+		return readyCount.get();
+	}
+
+	/**
+	 * @return number of processes that gave up after <code>maxAttempts</code> polls
+	 */
+	public long getExhaustedCount()
+	{
+		return exhaustedCount.get();
+	}
+
+	/**
+	 * @return average time in milliseconds between the first poll and the resource being ready
+	 */
+	public long getAverageWaitMillis()
+	{
+		final long ready = readyCount.get();
+		return ready == 0 ? 0 : totalWaitMillis.get() / ready;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	protected long getInitialDelay()
+	{
+		return initialDelay;
+	}
+
+	@Required
+	public void setInitialDelay(final long initialDelay)
+	{
+		this.initialDelay = initialDelay;
+	}
+
+	protected long getMaxDelay()
+	{
+		return maxDelay;
+	}
+
+	@Required
+	public void setMaxDelay(final long maxDelay)
+	{
+		this.maxDelay = maxDelay;
+	}
+
+	protected int getJitter()
+	{
+		return jitter;
+	}
+
+	/**
+	 * @param jitter
+	 *           percentage of the delay, between 0 and 100, that is randomly cut off
+	 */
+	@Required
+	public void setJitter(final int jitter)
+	{
+		this.jitter = jitter;
+	}
+
+	protected int getMaxAttempts()
+	{
+		return maxAttempts;
+	}
+
+	@Required
+	public void setMaxAttempts(final int maxAttempts)
+	{
+		this.maxAttempts = maxAttempts;
+	}
+}
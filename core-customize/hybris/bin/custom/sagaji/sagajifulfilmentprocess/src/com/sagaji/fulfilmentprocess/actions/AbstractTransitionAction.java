@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions;
+
+import de.hybris.platform.processengine.action.AbstractAction;
+import de.hybris.platform.processengine.model.BusinessProcessModel;
+import de.hybris.platform.task.RetryLaterException;
+
+import java.util.Set;
+
+
+/**
+ * Base class for actions whose transitions are the constants of an enum. The transition names are computed once per
+ * enum, and every execution is counted and timed in the {@link ProcessActionStatistics} of the action, which
+ * {@link ProcessActionStatisticsExporter} publishes over JMX.
+ */
+public abstract class AbstractTransitionAction<T extends BusinessProcessModel, E extends Enum<E>> extends AbstractAction<T>
+{
+	private final Set<String> transitions;
+	private final ProcessActionStatistics statistics;
+
+	protected AbstractTransitionAction(final Class<E> transitionType)
+	{
+		this.transitions = ProcessActionTransitions.of(transitionType);
+		this.statistics = new ProcessActionStatistics(transitionType);
+	}
+
+	/**
+	 * Executes the business logic of the action.
+	 *
+	 * @return the transition to follow
+	 */
+	protected abstract E executeAction(T process) throws RetryLaterException, Exception;
+
+	@Override
+	public final String execute(final T process) throws RetryLaterException, Exception
+	{
+		final long start = System.nanoTime();
+		final E transition;
+		try
+		{
+			transition = executeAction(process);
+		}
+		catch (final Exception | Error e)
+		{
+			statistics.recordFailure(System.nanoTime() - start);
+			throw e;
+		}
+		statistics.recordExecution(transition, System.nanoTime() - start);
+		return transition.name();
+	}
+
+	@Override
+	public final Set<String> getTransitions()
+	{
+		return transitions;
+	}
+
+	public ProcessActionStatistics getStatistics()
+	{
+		return statistics;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Counters of a process action with a typed transition. Recording an execution does not allocate, the transitions are
+ * counted by their ordinal.
+ */
+public class ProcessActionStatistics implements ProcessActionStatisticsMXBean
+{
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private final Enum<?>[] transitions;
+	private final AtomicLongArray transitionCounts;
+	private final LongAdder executionCount = new LongAdder();
+	private final LongAdder failureCount = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	public ProcessActionStatistics(final Class<? extends Enum<?>> transitionType)
+	{
+		this.transitions = transitionType.getEnumConstants();
+		this.transitionCounts = new AtomicLongArray(transitions.length);
+	}
+
+	public void recordExecution(final Enum<?> transition, final long nanos)
+	{
+		record(nanos);
+		transitionCounts.incrementAndGet(transition.ordinal());
+	}
+
+	public void recordFailure(final long nanos)
+	{
+		record(nanos);
+		failureCount.increment();
+	}
+
+	protected void record(final long nanos)
+	{
+		executionCount.increment();
+		totalNanos.add(nanos);
+		maxNanos.accumulateAndGet(nanos, Math::max);
+	}
+
+	@Override
+	public long getExecutionCount()
+	{
+		return executionCount.sum();
+	}
+
+	@Override
+	public long getFailureCount()
+	{
+		return failureCount.sum();
+	}
+
+	@Override
+	public double getAverageExecutionMillis()
+	{
+		final long count = executionCount.sum();
+		return count == 0 ? 0 : totalNanos.sum() / NANOS_PER_MILLI / count;
+	}
+
+	@Override
+	public double getMaxExecutionMillis()
+	{
+		return maxNanos.get() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public Map<String, Long> getTransitionCounts()
+	{
+		final Map<String, Long> counts = new LinkedHashMap<String, Long>();
+		for (final Enum<?> transition : transitions)
+		{
+			counts.put(transition.name(), Long.valueOf(transitionCounts.get(transition.ordinal())));
+		}
+		return counts;
+	}
+
+	@Override
+	public void reset()
+	{
+		executionCount.reset();
+		failureCount.reset();
+		totalNanos.reset();
+		maxNanos.set(0);
+		for (int i = 0; i < transitionCounts.length(); i++)
+		{
+			transitionCounts.set(i, 0);
+		}
+	}
+}
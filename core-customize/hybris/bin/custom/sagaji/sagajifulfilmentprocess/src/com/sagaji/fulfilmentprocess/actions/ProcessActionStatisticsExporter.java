@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions;
+
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.core.Tenant;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationContextAware;
+
+
+/**
+ * Registers the {@link ProcessActionStatistics} of every {@link AbstractTransitionAction} of the application context in
+ * the platform MBean server as <code>com.sagaji.fulfilmentprocess:type=ProcessAction,tenant=&lt;tenant&gt;,name=&lt;bean
+ * name&gt;</code>.
+ */
+public class ProcessActionStatisticsExporter implements ApplicationContextAware, SmartInitializingSingleton, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(ProcessActionStatisticsExporter.class);
+
+	private static final String OBJECT_NAME_DOMAIN = "com.sagaji.fulfilmentprocess";
+
+	private ApplicationContext applicationContext;
+	private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+
+	@Override
+	public void setApplicationContext(final ApplicationContext applicationContext)
+	{
+		this.applicationContext = applicationContext;
+	}
+
+	@Override
+	public void afterSingletonsInstantiated()
+	{
+		final Tenant tenant = Registry.getCurrentTenantNoFallback();
+		final String tenantId = tenant == null ? "none" : tenant.getTenantID();
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+		for (final Map.Entry<String, AbstractTransitionAction> action : applicationContext
+				.getBeansOfType(AbstractTransitionAction.class).entrySet())
+		{
+			try
+			{
+				final ObjectName name = new ObjectName(OBJECT_NAME_DOMAIN + ":type=ProcessAction,tenant=" + tenantId + ",name="
+						+ ObjectName.quote(action.getKey()));
+				if (server.isRegistered(name))
+				{
+					server.unregisterMBean(name);
+				}
+				server.registerMBean(action.getValue().getStatistics(), name);
+				registeredNames.add(name);
+			}
+			catch (final JMException e)
+			{
+				LOG.warn("Could not register the statistics of action [" + action.getKey() + "]", e);
+			}
+		}
+		LOG.info("Registered the statistics of " + registeredNames.size() + " process actions");
+	}
+
+	@Override
+	public void destroy()
+	{
+		final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		for (final ObjectName name : registeredNames)
+		{
+			try
+			{
+				server.unregisterMBean(name);
+			}
+			catch (final JMException e)
+			{
+				LOG.debug("Could not unregister " + name, e);
+			}
+		}
+		registeredNames.clear();
+	}
+}
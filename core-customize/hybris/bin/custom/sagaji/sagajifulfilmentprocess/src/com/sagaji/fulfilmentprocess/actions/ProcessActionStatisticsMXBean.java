@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions;
+
+import java.util.Map;
+
+
+/**
+ * Execution statistics of one process action, registered in the platform MBean server by
+ * {@link ProcessActionStatisticsExporter}.
+ */
+public interface ProcessActionStatisticsMXBean
+{
+	/**
+	 * @return number of executions, including failed ones
+	 */
+	long getExecutionCount();
+
+	/**
+	 * @return number of executions that ended with an exception, including rescheduled ones
+	 */
+	long getFailureCount();
+
+	/**
+	 * @return average execution time in milliseconds
+	 */
+	double getAverageExecutionMillis();
+
+	/**
+	 * @return longest execution time in milliseconds
+	 */
+	double getMaxExecutionMillis();
+
+	/**
+	 * @return number of executions per returned transition
+	 */
+	Map<String, Long> getTransitionCounts();
+
+	/**
+	 * Resets all counters.
+	 */
+	void reset();
+}
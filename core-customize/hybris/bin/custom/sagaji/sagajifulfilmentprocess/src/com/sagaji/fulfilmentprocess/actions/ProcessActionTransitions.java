@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+
+/**
+ * Holds the transition names of every transition enum, so process actions do not build a new set whenever the process
+ * engine asks for their transitions.
+ */
+public final class ProcessActionTransitions
+{
+	private static final ClassValue<Set<String>> TRANSITIONS = new ClassValue<Set<String>>()
+	{
+		@Override
+		protected Set<String> computeValue(final Class<?> type)
+		{
+			final Set<String> names = new LinkedHashSet<String>();
+			for (final Object transition : type.getEnumConstants())
+			{
+				names.add(((Enum<?>) transition).name());
+			}
+			return Collections.unmodifiableSet(names);
+		}
+	};
+
+	private ProcessActionTransitions()
+	{
+		// no instances
+	}
+
+	/**
+	 * @return the unmodifiable names of all constants of the transition enum
+	 */
+	public static <E extends Enum<E>> Set<String> of(final Class<E> transitionType)
+	{
+		return TRANSITIONS.get(transitionType);
+	}
+}
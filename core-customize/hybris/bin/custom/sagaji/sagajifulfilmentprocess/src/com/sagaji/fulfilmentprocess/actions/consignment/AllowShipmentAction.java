@@ -7,17 +7,17 @@ import de.hybris.platform.commerceservices.model.PickUpDeliveryModeModel;
 import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.ordersplitting.model.ConsignmentModel;
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
-import de.hybris.platform.processengine.action.AbstractAction;
 import de.hybris.platform.warehouse.Process2WarehouseAdapter;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
 
-import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
 
-public class AllowShipmentAction extends AbstractAction<ConsignmentProcessModel>
+public class AllowShipmentAction extends AbstractTransitionAction<ConsignmentProcessModel, AllowShipmentAction.Transition>
 {
 	private static final Logger LOG = Logger.getLogger(AllowShipmentAction.class);
 
@@ -29,18 +29,17 @@ public class AllowShipmentAction extends AbstractAction<ConsignmentProcessModel>
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-
-			for (final Transition transition : Transition.values())
-			{
-				res.add(transition.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
+	public AllowShipmentAction()
+	{
+		super(Transition.class);
+	}
+
 	@Override
-	public String execute(final ConsignmentProcessModel process)
+	protected Transition executeAction(final ConsignmentProcessModel process)
 	{
 		final ConsignmentModel consignment = process.getConsignment();
 		if (consignment != null)
@@ -51,7 +50,7 @@ public class AllowShipmentAction extends AbstractAction<ConsignmentProcessModel>
 				if (OrderStatus.CANCELLED.equals(consignment.getOrder().getStatus())
 						|| OrderStatus.CANCELLING.equals(consignment.getOrder().getStatus()))
 				{
-					return Transition.CANCEL.toString();
+					return Transition.CANCEL;
 				}
 				else
 				{
@@ -65,20 +64,20 @@ public class AllowShipmentAction extends AbstractAction<ConsignmentProcessModel>
 				{
 					LOG.debug(e);
 				}
-				return Transition.ERROR.toString();
+				return Transition.ERROR;
 			}
 		}
-		return Transition.ERROR.toString();
+		return Transition.ERROR;
 	}
 
-	protected String getTransitionForConsignment(final ConsignmentModel consignment) {
+	protected Transition getTransitionForConsignment(final ConsignmentModel consignment) {
 		if (consignment.getDeliveryMode() instanceof PickUpDeliveryModeModel)
 		{
-			return Transition.PICKUP.toString();
+			return Transition.PICKUP;
 		}
 		else
 		{
-			return Transition.DELIVERY.toString();
+			return Transition.DELIVERY;
 		}
 	}
 
@@ -92,10 +91,4 @@ public class AllowShipmentAction extends AbstractAction<ConsignmentProcessModel>
 	{
 		this.process2WarehouseAdapter = process2WarehouseAdapter;
 	}
-
-	@Override
-	public Set<String> getTransitions()
-	{
-		return Transition.getStringValues();
-	}
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.actions.consignment;
+
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
+
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Runs when waiting for the warehouse status of a consignment times out. A status that was received without the wait
+ * being woken up is processed with <code>RECEIVED</code>. Otherwise the delivery of the status is considered lost and
+ * the consignment is handed over again with <code>RESEND</code>, at most <code>maxResends</code> times; after that the
+ * process ends with <code>ERROR</code>.
+ * <p>
+ * The resends are counted in the poll attempts of the process, which the transmission poll has reset before the
+ * consignment was sent.
+ */
+public class CheckConsignmentStatusAction
+		extends AbstractTransitionAction<ConsignmentProcessModel, CheckConsignmentStatusAction.Transition>
+{
+	private static final Logger LOG = Logger.getLogger(CheckConsignmentStatusAction.class);
+
+	private int maxResends;
+
+	public enum Transition
+	{
+		RECEIVED, RESEND, ERROR;
+
+		public static Set<String> getStringValues()
+		{
+			return ProcessActionTransitions.of(Transition.class);
+		}
+	}
+
+	public CheckConsignmentStatusAction()
+	{
+		super(Transition.class);
+	}
+
+	@Override
+	protected Transition executeAction(final ConsignmentProcessModel process)
+	{
+		if (process.getWarehouseConsignmentState() != null)
+		{
+			LOG.info("Process: " + process.getCode() + " warehouse status " + process.getWarehouseConsignmentState()
+					+ " was received while waiting");
+			resetResends(process);
+			return Transition.RECEIVED;
+		}
+
+		final int resends = process.getPollAttempts();
+		if (resends >= getMaxResends())
+		{
+			LOG.error("Process: " + process.getCode() + " received no warehouse status after " + resends + " resends");
+			resetResends(process);
+			return Transition.ERROR;
+		}
+
+		LOG.warn("Process: " + process.getCode() + " received no warehouse status, handing the consignment over again");
+		process.setPollAttempts(resends + 1);
+		getModelService().save(process);
+		return Transition.RESEND;
+	}
+
+	protected void resetResends(final ConsignmentProcessModel process)
+	{
+		if (process.getPollAttempts() != 0)
+		{
+			process.setPollAttempts(0);
+			getModelService().save(process);
+		}
+	}
+
+	protected int getMaxResends()
+	{
+		return maxResends;
+	}
+
+	@Required
+	public void setMaxResends(final int maxResends)
+	{
+		this.maxResends = maxResends;
+	}
+}
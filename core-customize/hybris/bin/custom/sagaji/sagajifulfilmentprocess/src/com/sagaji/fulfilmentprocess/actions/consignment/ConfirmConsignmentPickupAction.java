@@ -7,15 +7,16 @@ package com.sagaji.fulfilmentprocess.actions.consignment;
 import de.hybris.platform.basecommerce.enums.ConsignmentStatus;
 import de.hybris.platform.ordersplitting.model.ConsignmentModel;
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
-import de.hybris.platform.processengine.action.AbstractAction;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
 
-import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 
-public class ConfirmConsignmentPickupAction extends AbstractAction<ConsignmentProcessModel>
+public class ConfirmConsignmentPickupAction
+		extends AbstractTransitionAction<ConsignmentProcessModel, ConfirmConsignmentPickupAction.Transition>
 {
 	private static final Logger LOG = Logger.getLogger(ConfirmConsignmentPickupAction.class);
 
@@ -25,33 +26,26 @@ public class ConfirmConsignmentPickupAction extends AbstractAction<ConsignmentPr
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-
-			for (final Transition transition : Transition.values())
-			{
-				res.add(transition.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
+	public ConfirmConsignmentPickupAction()
+	{
+		super(Transition.class);
+	}
+
 	@Override
-	public String execute(final ConsignmentProcessModel process)
+	protected Transition executeAction(final ConsignmentProcessModel process)
 	{
 		final ConsignmentModel consignment = process.getConsignment();
 		if (consignment != null)
 		{
 			consignment.setStatus(ConsignmentStatus.PICKUP_COMPLETE);
 			getModelService().save(consignment);
-			return Transition.OK.toString();
+			return Transition.OK;
 		}
 		LOG.error("Process has no consignment");
-		return Transition.ERROR.toString();
-	}
-
-	@Override
-	public Set<String> getTransitions()
-	{
-		return Transition.getStringValues();
+		return Transition.ERROR;
 	}
 }
@@ -5,15 +5,16 @@ package com.sagaji.fulfilmentprocess.actions.consignment;
 
 
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
-import de.hybris.platform.processengine.action.AbstractAction;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
 
-import java.util.HashSet;
 import java.util.Set;
 
 import org.apache.log4j.Logger;
 
 
-public class ReceiveConsignmentStatusAction extends AbstractAction<ConsignmentProcessModel>
+public class ReceiveConsignmentStatusAction
+		extends AbstractTransitionAction<ConsignmentProcessModel, ReceiveConsignmentStatusAction.Transition>
 {
 	private static final Logger LOG = Logger.getLogger(ReceiveConsignmentStatusAction.class);
 
@@ -23,18 +24,17 @@ public class ReceiveConsignmentStatusAction extends AbstractAction<ConsignmentPr
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-
-			for (final Transition transition : Transition.values())
-			{
-				res.add(transition.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
+	public ReceiveConsignmentStatusAction()
+	{
+		super(Transition.class);
+	}
+
 	@Override
-	public String execute(final ConsignmentProcessModel process)
+	protected Transition executeAction(final ConsignmentProcessModel process)
 	{
 		Transition result = null;
 		if (process.getWarehouseConsignmentState() == null)
@@ -59,12 +59,6 @@ public class ReceiveConsignmentStatusAction extends AbstractAction<ConsignmentPr
 		}
 		process.setWaitingForConsignment(false);
 		getModelService().save(process);
-		return result.toString();
-	}
-
-	@Override
-	public Set<String> getTransitions()
-	{
-		return Transition.getStringValues();
+		return result;
 	}
 }
@@ -5,22 +5,38 @@ package com.sagaji.fulfilmentprocess.actions.consignment;
 
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
 import de.hybris.platform.processengine.action.AbstractProceduralAction;
+import de.hybris.platform.task.RetryLaterException;
 import de.hybris.platform.warehouse.Process2WarehouseAdapter;
+import com.sagaji.fulfilmentprocess.exceptions.WarehouseCapacityExceededException;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
 
+/**
+ * Hands the consignment over to the warehouse. If the warehouse does not accept more consignments the action is
+ * repeated by the task engine after <code>busyRetryDelay</code> milliseconds.
+ */
 public class SendConsignmentToWarehouseAction extends AbstractProceduralAction<ConsignmentProcessModel>
 {
 	private static final Logger LOG = Logger.getLogger(SendConsignmentToWarehouseAction.class);
 
 	private Process2WarehouseAdapter process2WarehouseAdapter;
+	private long busyRetryDelay;
 
 	@Override
-	public void executeAction(final ConsignmentProcessModel process)
+	public void executeAction(final ConsignmentProcessModel process) throws RetryLaterException
 	{
-		getProcess2WarehouseAdapter().prepareConsignment(process.getConsignment());
+		try
+		{
+			getProcess2WarehouseAdapter().prepareConsignment(process.getConsignment());
+		}
+		catch (final WarehouseCapacityExceededException e)
+		{
+			final RetryLaterException retry = new RetryLaterException("Process: " + process.getCode() + " " + e.getMessage(), e);
+			retry.setDelay(getBusyRetryDelay());
+			throw retry;
+		}
 		process.setWaitingForConsignment(true);
 		getModelService().save(process);
 		LOG.info("Setting waitForConsignment to true");
@@ -36,4 +52,15 @@ public class SendConsignmentToWarehouseAction extends AbstractProceduralAction<C
 	{
 		return process2WarehouseAdapter;
 	}
+
+	protected long getBusyRetryDelay()
+	{
+		return busyRetryDelay;
+	}
+
+	@Required
+	public void setBusyRetryDelay(final long busyRetryDelay)
+	{
+		this.busyRetryDelay = busyRetryDelay;
+	}
 }
@@ -3,6 +3,7 @@
  */
 package com.sagaji.fulfilmentprocess.actions.consignment;
 
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
 import de.hybris.platform.processengine.BusinessProcessService;
 import de.hybris.platform.processengine.action.AbstractProceduralAction;
@@ -10,13 +11,15 @@ import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
-
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 /**
- *
+ * Marks the consignment subprocess as done and counts it on the parent order process. The parent is woken up once all
+ * of its {@link OrderProcessModel#getConsignmentSubprocessCount()} subprocesses have ended, and again by every
+ * subprocess that ends or is repeated after that, so a lost event or a miscounted subprocess cannot leave the parent
+ * waiting. Parents started before the counter existed have no subprocess count and are woken up by every subprocess as
+ * before.
  */
 public class SubprocessEndAction extends AbstractProceduralAction<ConsignmentProcessModel>
 {
@@ -24,11 +27,8 @@ public class SubprocessEndAction extends AbstractProceduralAction<ConsignmentPro
 
 	private static final String PROCESS_MSG = "Process: ";
 
-	private static final String RANDOM_ALGORITHM = "SHA1PRNG";
-
-	private static final int THREAD_SLEEP_TIME = 2000;
-
 	private BusinessProcessService businessProcessService;
+	private TransactionTemplate transactionTemplate;
 
 	protected BusinessProcessService getBusinessProcessService()
 	{
@@ -41,32 +41,62 @@ public class SubprocessEndAction extends AbstractProceduralAction<ConsignmentPro
 		this.businessProcessService = businessProcessService;
 	}
 
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	@Required
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
+	}
+
 	@Override
 	public void executeAction(final ConsignmentProcessModel process)
 	{
 		LOG.info(PROCESS_MSG + process.getCode() + " in step " + getClass());
 
-		try
+		final OrderProcessModel parentProcess = (OrderProcessModel) process.getParentProcess();
+		final boolean lastSubprocess = getTransactionTemplate().execute(status -> Boolean.valueOf(markDone(process, parentProcess)))
+				.booleanValue();
+		LOG.info(PROCESS_MSG + process.getCode() + " wrote DONE marker");
+
+		if (lastSubprocess)
 		{
-			// simulate different ending times
-			SecureRandom sRnd = SecureRandom.getInstance(RANDOM_ALGORITHM);
-			Thread.sleep((long) (sRnd.nextDouble() * THREAD_SLEEP_TIME));
+			getBusinessProcessService().triggerEvent(
+					parentProcess.getCode() + "_" + SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_END_EVENT_NAME);
+			LOG.info(PROCESS_MSG + process.getCode() + " fired event "
+					+ SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_END_EVENT_NAME);
 		}
-		catch (final InterruptedException | NoSuchAlgorithmException e)
+	}
+
+	/**
+	 * Marks the subprocess as done and increments the completed subprocess counter of the locked parent process. A
+	 * subprocess that has already been marked as done is not counted again, but still wakes up the parent if all
+	 * subprocesses have completed, in case the event of its first run was lost.
+	 *
+	 * @return whether the parent process has to be woken up
+	 */
+	protected boolean markDone(final ConsignmentProcessModel process, final OrderProcessModel parentProcess)
+	{
+		getModelService().lock(parentProcess.getPk());
+		getModelService().refresh(parentProcess);
+
+		final int expected = parentProcess.getConsignmentSubprocessCount();
+		if (process.isDone())
 		{
-			LOG.error(e.getMessage(), e);
-			Thread.currentThread().interrupt();
+			return expected <= 0 || parentProcess.getCompletedConsignmentSubprocessCount() >= expected;
 		}
-		
-		process.setDone(true);
 
+		process.setDone(true);
 		save(process);
-		LOG.info(PROCESS_MSG + process.getCode() + " wrote DONE marker");
 
-		getBusinessProcessService().triggerEvent(
-				process.getParentProcess().getCode() + "_"
-						+ SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_END_EVENT_NAME);
-		LOG.info(PROCESS_MSG + process.getCode() + " fired event "
-				+ SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_END_EVENT_NAME);
+		final int completed = parentProcess.getCompletedConsignmentSubprocessCount() + 1;
+		parentProcess.setCompletedConsignmentSubprocessCount(completed);
+		save(parentProcess);
+		LOG.info(PROCESS_MSG + parentProcess.getCode() + " has " + completed + " of " + expected + " subprocesses completed");
+
+		return expected <= 0 || completed >= expected;
 	}
 }
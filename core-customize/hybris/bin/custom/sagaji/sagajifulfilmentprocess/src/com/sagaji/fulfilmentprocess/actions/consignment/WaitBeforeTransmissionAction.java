@@ -4,16 +4,19 @@
 package com.sagaji.fulfilmentprocess.actions.consignment;
 
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
-import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
+import com.sagaji.fulfilmentprocess.actions.AbstractPollWithBackoffAction;
 
 
-public class WaitBeforeTransmissionAction extends AbstractSimpleDecisionAction<ConsignmentProcessModel>
+/**
+ * Waits until the consignment can be transmitted to the warehouse. A consignment that is not ready is polled again with
+ * an increasing delay and cancelled once the configured attempts are used up.
+ */
+public class WaitBeforeTransmissionAction extends AbstractPollWithBackoffAction<ConsignmentProcessModel>
 {
 	@Override
-	public Transition executeAction(final ConsignmentProcessModel process)
+	protected boolean isReady(final ConsignmentProcessModel process)
 	{
-		// If you return NOK this action will be called again.
-		// You might want to do this when you want to poll a resource to be ready.
-		return Transition.OK;
+		// Override this to check that a resource needed for the transmission is ready.
+		return true;
 	}
 }
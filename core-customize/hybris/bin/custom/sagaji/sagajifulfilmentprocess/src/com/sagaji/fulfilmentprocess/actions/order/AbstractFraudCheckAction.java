@@ -4,6 +4,8 @@
 package com.sagaji.fulfilmentprocess.actions.order;
 
 import de.hybris.platform.basecommerce.enums.FraudStatus;
+import de.hybris.platform.core.enums.OrderStatus;
+import de.hybris.platform.core.model.ItemModel;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.fraud.impl.FraudServiceResponse;
 import de.hybris.platform.fraud.impl.FraudSymptom;
@@ -12,40 +14,62 @@ import de.hybris.platform.fraud.model.FraudSymptomScoringModel;
 import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringResult;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholds;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholdsProvider;
 
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
 
 
 /**
  * Abstract action for fraud check action which define 3 possible transitions (OK,POTENTIAL,FRAUD) and some
  * supplementary methods
  */
-public abstract class AbstractFraudCheckAction<T extends OrderProcessModel> extends AbstractOrderAction<T>
+public abstract class AbstractFraudCheckAction<T extends OrderProcessModel>
+		extends AbstractOrderAction<T, AbstractFraudCheckAction.Transition>
 {
+	private static final Logger LOG = Logger.getLogger(AbstractFraudCheckAction.class);
+
+	private FraudThresholdsProvider fraudThresholdsProvider;
+
 	public enum Transition
 	{
 		OK, POTENTIAL, FRAUD;
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-			for (final Transition transitions : Transition.values())
-			{
-				res.add(transitions.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
+	protected AbstractFraudCheckAction()
+	{
+		super(Transition.class);
+	}
+
 	/**
 	 * @param response
 	 * @param order
 	 */
 	protected FraudReportModel createFraudReport(final String providerName, final FraudServiceResponse response,
 			final OrderModel order, final FraudStatus status)
+	{
+		return createFraudReport(providerName, response.getSymptoms(), order, status);
+	}
+
+	/**
+	 * Creates the fraud report of the order with one symptom scoring per symptom.
+	 */
+	protected FraudReportModel createFraudReport(final String providerName, final List<FraudSymptom> fraudSymptoms,
+			final OrderModel order, final FraudStatus status)
 	{
 		final FraudReportModel fraudReport = modelService.create(FraudReportModel.class);
 		fraudReport.setOrder(order);
@@ -59,7 +83,7 @@ public abstract class AbstractFraudCheckAction<T extends OrderProcessModel> exte
 		}
 		fraudReport.setCode(order.getCode() + "_FR" + reportNumber);
 		List<FraudSymptomScoringModel> symptoms = null;
-		for (final FraudSymptom symptom : response.getSymptoms())
+		for (final FraudSymptom symptom : fraudSymptoms)
 		{
 			if (symptoms == null)
 			{
@@ -76,6 +100,62 @@ public abstract class AbstractFraudCheckAction<T extends OrderProcessModel> exte
 		return fraudReport;
 	}
 
+	/**
+	 * Recognizes the fraud symptoms of the order, marks the order according to the thresholds and saves the order together
+	 * with the fraud report, its symptoms and the history entry in one unit.
+	 *
+	 * @param order
+	 *           the order to check
+	 * @param providerName
+	 *           the name of the fraud provider
+	 * @param thresholds
+	 *           the thresholds to apply to the score
+	 * @param recognition
+	 *           asks the fraud provider or the scoring pipeline for the symptoms of the order
+	 * @return the transition matching the fraud status
+	 */
+	protected Transition checkOrder(final OrderModel order, final String providerName, final FraudThresholds thresholds,
+			final Supplier<FraudScoringResult> recognition)
+	{
+		final long start = System.nanoTime();
+		final FraudScoringResult result = recognition.get();
+		final long recognized = System.nanoTime();
+
+		final FraudStatus status = result.getStatus(thresholds);
+		final FraudReportModel fraudReport = createFraudReport(providerName, result.getSymptoms(), order, status);
+		final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, status,
+				FraudStatus.OK.equals(status) ? null : fraudReport.getCode());
+		order.setFraudulent(Boolean.valueOf(FraudStatus.FRAUD.equals(status)));
+		order.setPotentiallyFraudulent(Boolean.valueOf(FraudStatus.CHECK.equals(status)));
+		order.setStatus(OrderStatus.FRAUD_CHECKED);
+		final long evaluated = System.nanoTime();
+
+		final List<ItemModel> models = new ArrayList<ItemModel>();
+		models.add(fraudReport);
+		if (fraudReport.getFraudSymptomScorings() != null)
+		{
+			models.addAll(fraudReport.getFraudSymptomScorings());
+		}
+		models.add(historyEntry);
+		models.add(order);
+		modelService.saveAll(models);
+		final long saved = System.nanoTime();
+
+		if (LOG.isInfoEnabled())
+		{
+			LOG.info("Fraud check [" + providerName + "] of order " + order.getCode() + ": " + status + " (score "
+					+ result.getScore() + "), recognition " + TimeUnit.NANOSECONDS.toMillis(recognized - start)
+					+ " ms, evaluation " + TimeUnit.NANOSECONDS.toMillis(evaluated - recognized) + " ms, saving "
+					+ models.size() + " items " + TimeUnit.NANOSECONDS.toMillis(saved - evaluated) + " ms");
+		}
+
+		if (FraudStatus.OK.equals(status))
+		{
+			return Transition.OK;
+		}
+		return FraudStatus.CHECK.equals(status) ? Transition.POTENTIAL : Transition.FRAUD;
+	}
+
 	protected OrderHistoryEntryModel createHistoryLog(final String providerName, final OrderModel order, final FraudStatus status,
 			final String code)
 	{
@@ -91,18 +171,6 @@ public abstract class AbstractFraudCheckAction<T extends OrderProcessModel> exte
 		return createHistoryLog(description, order);
 	}
 
-	@Override
-	public Set<String> getTransitions()
-	{
-		return Transition.getStringValues();
-	}
-
-	@Override
-	public final String execute(final T process) throws RetryLaterException, Exception
-	{
-		return executeAction(process).toString();
-	}
-
 	/**
 	 * Executes this <code>Action</code>'s business logic working on the given {@link de.hybris.platform.processengine.model.BusinessProcessModel}.
 	 *
@@ -112,5 +180,17 @@ public abstract class AbstractFraudCheckAction<T extends OrderProcessModel> exte
 	 * @throws RetryLaterException
 	 * @throws Exception
 	 */
+	@Override
 	public abstract Transition executeAction(T process) throws RetryLaterException, Exception;
+
+	protected FraudThresholdsProvider getFraudThresholdsProvider()
+	{
+		return fraudThresholdsProvider;
+	}
+
+	@Required
+	public void setFraudThresholdsProvider(final FraudThresholdsProvider fraudThresholdsProvider)
+	{
+		this.fraudThresholdsProvider = fraudThresholdsProvider;
+	}
 }
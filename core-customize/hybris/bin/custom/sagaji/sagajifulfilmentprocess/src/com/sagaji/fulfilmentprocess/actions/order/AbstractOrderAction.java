@@ -6,19 +6,25 @@ package com.sagaji.fulfilmentprocess.actions.order;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
-import de.hybris.platform.processengine.action.AbstractAction;
 import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
 
 import org.springframework.beans.factory.annotation.Required;
 
 
 /**
- *
+ * Base class for order process actions with a typed transition, offering order history helpers.
  */
-public abstract class AbstractOrderAction<T extends OrderProcessModel> extends AbstractAction<T>
+public abstract class AbstractOrderAction<T extends OrderProcessModel, E extends Enum<E>>
+		extends AbstractTransitionAction<T, E>
 {
 	protected TimeService timeService;
 
+	protected AbstractOrderAction(final Class<E> transitionType)
+	{
+		super(transitionType);
+	}
+
 	/**
 	 * Prepares order history entry {@link OrderHistoryEntryModel} for the given order and description and with the
 	 * current timestamp. The {@link OrderHistoryEntryModel} is not saved!.
@@ -10,25 +10,28 @@ import de.hybris.platform.payment.dto.TransactionStatus;
 import de.hybris.platform.payment.enums.PaymentTransactionType;
 import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
 import de.hybris.platform.payment.model.PaymentTransactionModel;
-import de.hybris.platform.processengine.action.AbstractAction;
-import de.hybris.platform.task.RetryLaterException;
 import de.hybris.platform.ticket.enums.CsTicketCategory;
 import de.hybris.platform.ticket.enums.CsTicketPriority;
 import de.hybris.platform.ticket.events.model.CsCustomerEventModel;
 import de.hybris.platform.ticket.model.CsTicketModel;
 import de.hybris.platform.ticket.service.TicketBusinessService;
 import de.hybris.platform.util.localization.Localization;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
+import com.sagaji.fulfilmentprocess.enums.PaymentReviewStatus;
 import org.springframework.beans.factory.annotation.Required;
 
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
 
 /**
- * This action check if authorization has review status
+ * This action check if authorization has review status. The status is read from the payment review status of the order,
+ * which is maintained when payment transaction entries are created. Orders placed before the status was maintained are
+ * checked by scanning their transaction entries.
  */
-public class CheckTransactionReviewStatusAction extends AbstractAction<OrderProcessModel>
+public class CheckTransactionReviewStatusAction
+		extends AbstractTransitionAction<OrderProcessModel, CheckTransactionReviewStatusAction.Transition>
 {
 	private TicketBusinessService ticketBusinessService;
 
@@ -38,41 +41,67 @@ public class CheckTransactionReviewStatusAction extends AbstractAction<OrderProc
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-			for (final Transition transitions : Transition.values())
-			{
-				res.add(transitions.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
-	@Override
-	public Set<String> getTransitions()
+	public CheckTransactionReviewStatusAction()
 	{
-		return Transition.getStringValues();
+		super(Transition.class);
 	}
 
 	@Override
-	public final String execute(final OrderProcessModel process) throws RetryLaterException, Exception
+	protected Transition executeAction(final OrderProcessModel process)
+	{
+		final OrderModel order = process.getOrder();
+		if (order == null)
+		{
+			return Transition.OK;
+		}
+		if (order.getPaymentReviewStatus() == null)
+		{
+			return checkPaymentTransactions(order);
+		}
+
+		switch (order.getPaymentReviewStatus())
+		{
+			case ACCEPTED:
+				updateOrderStatus(order, OrderStatus.PAYMENT_AUTHORIZED);
+				return Transition.OK;
+			case REJECTED:
+				updateOrderStatus(order, OrderStatus.PAYMENT_NOT_AUTHORIZED);
+				return Transition.NOK;
+			case REVIEW:
+				if (!OrderStatus.SUSPENDED.equals(order.getStatus()))
+				{
+					createReviewTicket(order);
+					updateOrderStatus(order, OrderStatus.SUSPENDED);
+				}
+				return Transition.WAIT;
+			default:
+				return Transition.OK;
+		}
+	}
+
+	protected void updateOrderStatus(final OrderModel order, final OrderStatus status)
 	{
-		return executeAction(process).toString();
+		if (!status.equals(order.getStatus()))
+		{
+			order.setStatus(status);
+			getModelService().save(order);
+		}
 	}
 
-	protected Transition executeAction(final OrderProcessModel process)
+	protected Transition checkPaymentTransactions(final OrderModel order)
 	{
 		Transition result;
 
-		final OrderModel order = process.getOrder();
-		if (order != null)
+		for (final PaymentTransactionModel transaction : order.getPaymentTransactions())
 		{
-			for (final PaymentTransactionModel transaction : order.getPaymentTransactions())
+			result = checkPaymentTransaction(transaction, order);
+			if (!Transition.OK.equals(result))
 			{
-				result = checkPaymentTransaction(transaction, order);
-				if (!Transition.OK.equals(result))
-				{
-					return result;
-				}
+				return result;
 			}
 		}
 
@@ -105,10 +134,7 @@ public class CheckTransactionReviewStatusAction extends AbstractAction<OrderProc
 			{
 				if (isAuthorizationInReview(entry))
 				{
-					final String ticketTitle = Localization.getLocalizedString("message.ticket.orderinreview.title");
-					final String ticketMessage = Localization.getLocalizedString("message.ticket.orderinreview.content",
-							new Object[] { orderModel.getCode() });
-					createTicket(ticketTitle, ticketMessage, orderModel, CsTicketCategory.FRAUD, CsTicketPriority.HIGH);
+					createReviewTicket(orderModel);
 
 					orderModel.setStatus(OrderStatus.SUSPENDED);
 					getModelService().save(orderModel);
@@ -125,6 +151,14 @@ public class CheckTransactionReviewStatusAction extends AbstractAction<OrderProc
 		return Transition.OK;
 	}
 
+	protected CsTicketModel createReviewTicket(final OrderModel order)
+	{
+		final String ticketTitle = Localization.getLocalizedString("message.ticket.orderinreview.title");
+		final String ticketMessage = Localization.getLocalizedString("message.ticket.orderinreview.content",
+				new Object[] { order.getCode() });
+		return createTicket(ticketTitle, ticketMessage, order, CsTicketCategory.FRAUD, CsTicketPriority.HIGH);
+	}
+
 	protected CsTicketModel createTicket(final String subject, final String description, final OrderModel order,
 			final CsTicketCategory category, final CsTicketPriority priority)
 	{
@@ -3,17 +3,13 @@
  */
 package com.sagaji.fulfilmentprocess.actions.order;
 
-import de.hybris.platform.basecommerce.enums.FraudStatus;
-import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.fraud.FraudService;
-import de.hybris.platform.fraud.impl.FraudServiceResponse;
-import de.hybris.platform.fraud.model.FraudReportModel;
-import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.servicelayer.util.ServicesUtil;
-import de.hybris.platform.util.Config;
 import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringResult;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholds;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
@@ -26,6 +22,11 @@ public class FraudCheckOrderAction extends AbstractFraudCheckAction<OrderProcess
 {
 	private static final Logger LOG = Logger.getLogger(FraudCheckOrderAction.class);
 
+	private static final String SCORE_LIMIT_PARAMETER = SagajiFulfilmentProcessConstants.EXTENSIONNAME
+			+ ".fraud.scoreLimitExternal";
+	private static final String SCORE_TOLERANCE_PARAMETER = SagajiFulfilmentProcessConstants.EXTENSIONNAME
+			+ ".fraud.scoreToleranceExternal";
+
 	private FraudService fraudService;
 	private String providerName;
 
@@ -58,49 +59,10 @@ public class FraudCheckOrderAction extends AbstractFraudCheckAction<OrderProcess
 		ServicesUtil.validateParameterNotNull(process, "Process can not be null");
 		ServicesUtil.validateParameterNotNull(process.getOrder(), "Order can not be null");
 
-		final double scoreLimit = Double.parseDouble(Config.getParameter(SagajiFulfilmentProcessConstants.EXTENSIONNAME + ".fraud.scoreLimitExternal"));
-		final double scoreTolerance = Double.parseDouble(Config.getParameter(SagajiFulfilmentProcessConstants.EXTENSIONNAME + ".fraud.scoreToleranceExternal"));
-
 		final OrderModel order = process.getOrder();
-		final FraudServiceResponse response = getFraudService().recognizeOrderSymptoms(getProviderName(), order);
-		final double score = response.getScore();
-		if (score < scoreLimit)
-		{
-			final FraudReportModel fraudReport = createFraudReport(providerName, response, order, FraudStatus.OK);
-			final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, FraudStatus.OK, null);
-			order.setFraudulent(Boolean.FALSE);
-			order.setPotentiallyFraudulent(Boolean.FALSE);
-			order.setStatus(OrderStatus.FRAUD_CHECKED);
-			modelService.save(fraudReport);
-			modelService.save(historyEntry);
-			modelService.save(order);
-			return Transition.OK;
-		}
-		else if (score < scoreLimit + scoreTolerance)
-		{
-			final FraudReportModel fraudReport = createFraudReport(providerName, response, order, FraudStatus.CHECK);
-			final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, FraudStatus.CHECK,
-					fraudReport.getCode());
-			order.setFraudulent(Boolean.FALSE);
-			order.setPotentiallyFraudulent(Boolean.TRUE);
-			order.setStatus(OrderStatus.FRAUD_CHECKED);
-			modelService.save(fraudReport);
-			modelService.save(historyEntry);
-			modelService.save(order);
-			return Transition.POTENTIAL;
-		}
-		else
-		{
-			final FraudReportModel fraudReport = createFraudReport(providerName, response, order, FraudStatus.FRAUD);
-			final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, FraudStatus.FRAUD,
-					fraudReport.getCode());
-			order.setFraudulent(Boolean.TRUE);
-			order.setPotentiallyFraudulent(Boolean.FALSE);
-			order.setStatus(OrderStatus.FRAUD_CHECKED);
-			modelService.save(fraudReport);
-			modelService.save(historyEntry);
-			modelService.save(order);
-			return Transition.FRAUD;
-		}
+		final FraudThresholds thresholds = getFraudThresholdsProvider().getThresholds(SCORE_LIMIT_PARAMETER,
+				SCORE_TOLERANCE_PARAMETER);
+		return checkOrder(order, getProviderName(), thresholds,
+				() -> FraudScoringResult.of(getFraudService().recognizeOrderSymptoms(getProviderName(), order)));
 	}
 }
@@ -3,25 +3,28 @@
  */
 package com.sagaji.fulfilmentprocess.actions.order;
 
-import de.hybris.platform.basecommerce.enums.FraudStatus;
-import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.fraud.FraudService;
-import de.hybris.platform.fraud.impl.FraudServiceResponse;
-import de.hybris.platform.fraud.model.FraudReportModel;
-import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.servicelayer.util.ServicesUtil;
-import de.hybris.platform.util.Config;
 import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringPipeline;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringResult;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholds;
 
 import org.springframework.beans.factory.annotation.Required;
 
 
 public class FraudCheckOrderInternalAction extends AbstractFraudCheckAction<OrderProcessModel>
 {
+	private static final String SCORE_LIMIT_PARAMETER = SagajiFulfilmentProcessConstants.EXTENSIONNAME
+			+ ".fraud.scoreLimit";
+	private static final String SCORE_TOLERANCE_PARAMETER = SagajiFulfilmentProcessConstants.EXTENSIONNAME
+			+ ".fraud.scoreTolerance";
+
 	private FraudService fraudService;
 	private String providerName;
+	private FraudScoringPipeline fraudScoringPipeline;
 
 	protected FraudService getFraudService()
 	{
@@ -44,57 +47,34 @@ public class FraudCheckOrderInternalAction extends AbstractFraudCheckAction<Orde
 		this.providerName = providerName;
 	}
 
+	protected FraudScoringPipeline getFraudScoringPipeline()
+	{
+		return fraudScoringPipeline;
+	}
+
+	/**
+	 * @param fraudScoringPipeline
+	 *           evaluates all fraud detectors concurrently, if not set only the provider is asked
+	 */
+	public void setFraudScoringPipeline(final FraudScoringPipeline fraudScoringPipeline)
+	{
+		this.fraudScoringPipeline = fraudScoringPipeline;
+	}
+
 	@Override
 	public Transition executeAction(final OrderProcessModel process)
 	{
 		ServicesUtil.validateParameterNotNull(process, "Process can not be null");
 		ServicesUtil.validateParameterNotNull(process.getOrder(), "Order can not be null");
 
-		//get the fraud-detection configuration
-		final double scoreLimit = Double.parseDouble(Config.getParameter(SagajiFulfilmentProcessConstants.EXTENSIONNAME + ".fraud.scoreLimit"));
-		final double scoreTolerance = Double.parseDouble(Config.getParameter(SagajiFulfilmentProcessConstants.EXTENSIONNAME + ".fraud.scoreTolerance"));
-
 		final OrderModel order = process.getOrder();
-		final FraudServiceResponse response = getFraudService().recognizeOrderSymptoms(getProviderName(), order);
-
-		final double score = response.getScore();
-		if (score < scoreLimit)
-		{
-			final FraudReportModel fraudReport = createFraudReport(providerName, response, order, FraudStatus.OK);
-			final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, FraudStatus.OK, null);
-			order.setFraudulent(Boolean.FALSE);
-			order.setPotentiallyFraudulent(Boolean.FALSE);
-			order.setStatus(OrderStatus.FRAUD_CHECKED);
-			modelService.save(fraudReport);
-			modelService.save(historyEntry);
-			modelService.save(order);
-			return Transition.OK;
-		}
-		else if (score < scoreLimit + scoreTolerance)
-		{
-			final FraudReportModel fraudReport = createFraudReport(providerName, response, order, FraudStatus.CHECK);
-			final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, FraudStatus.CHECK,
-					fraudReport.getCode());
-			order.setFraudulent(Boolean.FALSE);
-			order.setPotentiallyFraudulent(Boolean.TRUE);
-			order.setStatus(OrderStatus.FRAUD_CHECKED);
-			modelService.save(fraudReport);
-			modelService.save(historyEntry);
-			modelService.save(order);
-			return Transition.POTENTIAL;
-		}
-		else
+		final FraudThresholds thresholds = getFraudThresholdsProvider().getThresholds(SCORE_LIMIT_PARAMETER,
+				SCORE_TOLERANCE_PARAMETER);
+		if (getFraudScoringPipeline() != null)
 		{
-			final FraudReportModel fraudReport = createFraudReport(providerName, response, order, FraudStatus.FRAUD);
-			final OrderHistoryEntryModel historyEntry = createHistoryLog(providerName, order, FraudStatus.FRAUD,
-					fraudReport.getCode());
-			order.setFraudulent(Boolean.TRUE);
-			order.setPotentiallyFraudulent(Boolean.FALSE);
-			order.setStatus(OrderStatus.FRAUD_CHECKED);
-			modelService.save(fraudReport);
-			modelService.save(historyEntry);
-			modelService.save(order);
-			return Transition.FRAUD;
+			return checkOrder(order, getProviderName(), thresholds, () -> getFraudScoringPipeline().score(order));
 		}
+		return checkOrder(order, getProviderName(), thresholds,
+				() -> FraudScoringResult.of(getFraudService().recognizeOrderSymptoms(getProviderName(), order)));
 	}
 }
@@ -8,13 +8,12 @@ import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.servicelayer.util.ServicesUtil;
-import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
 
-import java.util.HashSet;
 import java.util.Set;
 
 
-public class OrderManualCheckedAction extends AbstractOrderAction<OrderProcessModel>
+public class OrderManualCheckedAction extends AbstractOrderAction<OrderProcessModel, OrderManualCheckedAction.Transition>
 {
 	public enum Transition
 	{
@@ -22,27 +21,16 @@ public class OrderManualCheckedAction extends AbstractOrderAction<OrderProcessMo
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-			for (final Transition transitions : Transition.values())
-			{
-				res.add(transitions.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
-	@Override
-	public Set<String> getTransitions()
+	public OrderManualCheckedAction()
 	{
-		return Transition.getStringValues();
+		super(Transition.class);
 	}
 
 	@Override
-	public final String execute(final OrderProcessModel process) throws RetryLaterException, Exception
-	{
-		return executeAction(process).toString();
-	}
-
 	protected Transition executeAction(final OrderProcessModel process)
 	{
 		ServicesUtil.validateParameterNotNull(process, "Process cannot be null");
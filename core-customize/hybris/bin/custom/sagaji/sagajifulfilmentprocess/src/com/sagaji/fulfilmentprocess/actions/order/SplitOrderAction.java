@@ -8,10 +8,8 @@ import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.ordersplitting.OrderSplittingService;
 import de.hybris.platform.ordersplitting.model.ConsignmentModel;
-import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
-import de.hybris.platform.processengine.BusinessProcessService;
 import de.hybris.platform.processengine.action.AbstractProceduralAction;
-import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.ConsignmentSubprocessService;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,7 +23,7 @@ public class SplitOrderAction extends AbstractProceduralAction<OrderProcessModel
 	private static final Logger LOG = Logger.getLogger(SplitOrderAction.class);
 
 	private OrderSplittingService orderSplittingService;
-	private BusinessProcessService businessProcessService;
+	private ConsignmentSubprocessService consignmentSubprocessService;
 
 	@Override
 	public void executeAction(final OrderProcessModel process) throws Exception
@@ -53,20 +51,7 @@ public class SplitOrderAction extends AbstractProceduralAction<OrderProcessModel
 			LOG.debug("Splitting order into " + consignments.size() + " consignments.");
 		}
 
-		int index = 0;
-		for (final ConsignmentModel consignment : consignments)
-		{
-			final ConsignmentProcessModel subProcess = getBusinessProcessService().<ConsignmentProcessModel> createProcess(
-
-					process.getCode() + "_" + (++index), SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_NAME);
-
-			subProcess.setParentProcess(process);
-			subProcess.setConsignment(consignment);
-			save(subProcess);
-
-			getBusinessProcessService().startProcess(subProcess);
-
-		}
+		getConsignmentSubprocessService().startSubprocesses(process, consignments);
 		setOrderStatus(process.getOrder(), OrderStatus.ORDER_SPLIT);
 	}
 
@@ -81,14 +66,14 @@ public class SplitOrderAction extends AbstractProceduralAction<OrderProcessModel
 		this.orderSplittingService = orderSplittingService;
 	}
 
-	protected BusinessProcessService getBusinessProcessService()
+	protected ConsignmentSubprocessService getConsignmentSubprocessService()
 	{
-		return businessProcessService;
+		return consignmentSubprocessService;
 	}
 
 	@Required
-	public void setBusinessProcessService(final BusinessProcessService businessProcessService)
+	public void setConsignmentSubprocessService(final ConsignmentSubprocessService consignmentSubprocessService)
 	{
-		this.businessProcessService = businessProcessService;
+		this.consignmentSubprocessService = consignmentSubprocessService;
 	}
 }
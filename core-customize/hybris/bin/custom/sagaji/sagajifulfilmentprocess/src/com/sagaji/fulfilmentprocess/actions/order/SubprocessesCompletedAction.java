@@ -8,15 +8,12 @@ import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
 import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
 import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.log4j.Logger;
 
-import java.util.Collection;
-import java.util.Optional;
-
 
 /**
- *
+ * Decides whether all consignment subprocesses of the order have ended. The decision is taken from the subprocess
+ * counters of the order process, only order processes without subprocess count look at their subprocesses.
  */
 public class SubprocessesCompletedAction extends AbstractSimpleDecisionAction<OrderProcessModel>
 {
@@ -28,39 +25,35 @@ public class SubprocessesCompletedAction extends AbstractSimpleDecisionAction<Or
 	public Transition executeAction(final OrderProcessModel process)
 	{
 		LOG.info(PROCESS_MSG + process.getCode() + " in step " + getClass());
-		LOG.info(PROCESS_MSG + process.getCode() + " is checking for  " + process.getConsignmentProcesses().size()
-				+ " subprocess results");
 
-		final OrderModel order = process.getOrder();
-		final Collection<ConsignmentProcessModel> consignmentProcesses = process.getConsignmentProcesses();
+		final int expected = process.getConsignmentSubprocessCount();
+		final int completed = expected > 0 ? process.getCompletedConsignmentSubprocessCount() : countCompletedSubprocesses(process);
+		final int total = expected > 0 ? expected : process.getConsignmentProcesses().size();
+		LOG.info(PROCESS_MSG + process.getCode() + " found " + completed + " of " + total + " subprocesses complete");
 
-		if (CollectionUtils.isNotEmpty(consignmentProcesses))
+		final OrderModel order = process.getOrder();
+		if (completed < total)
 		{
-			final Optional<ConsignmentProcessModel> atleastOneConsProcessNotDone = consignmentProcesses.stream()
-					.filter(consProcess -> !consProcess.isDone())
-					.findFirst();
-			final boolean allConsProcessNotDone = consignmentProcesses.stream().allMatch(consProcess -> !consProcess.isDone());
-
-			if (allConsProcessNotDone)
-			{
-				LOG.info(PROCESS_MSG + process.getCode() + " found all subprocesses incomplete");
-				order.setDeliveryStatus(DeliveryStatus.NOTSHIPPED);
-				save(order);
-				return Transition.NOK;
-			}
-			else if (atleastOneConsProcessNotDone.isPresent())
-			{
-				LOG.info(PROCESS_MSG + process.getCode() + " found subprocess " + atleastOneConsProcessNotDone.get().getCode()
-						+ " incomplete -> wait again!");
-				order.setDeliveryStatus(DeliveryStatus.PARTSHIPPED);
-				save(order);
-				return Transition.NOK;
-			}
+			order.setDeliveryStatus(completed == 0 ? DeliveryStatus.NOTSHIPPED : DeliveryStatus.PARTSHIPPED);
+			save(order);
+			return Transition.NOK;
 		}
 
-		LOG.info(PROCESS_MSG + process.getCode() + " found all subprocesses complete");
 		order.setDeliveryStatus(DeliveryStatus.SHIPPED);
 		save(order);
 		return Transition.OK;
 	}
+
+	protected int countCompletedSubprocesses(final OrderProcessModel process)
+	{
+		int completed = 0;
+		for (final ConsignmentProcessModel consignmentProcess : process.getConsignmentProcesses())
+		{
+			if (consignmentProcess.isDone())
+			{
+				completed++;
+			}
+		}
+		return completed;
+	}
 }
@@ -5,65 +5,112 @@ package com.sagaji.fulfilmentprocess.actions.order;
 
 import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.core.model.order.OrderModel;
-import de.hybris.platform.core.model.order.payment.CreditCardPaymentInfoModel;
 import de.hybris.platform.orderprocessing.model.OrderProcessModel;
-import de.hybris.platform.payment.PaymentService;
-import de.hybris.platform.payment.dto.TransactionStatus;
-import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
-import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
+import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureOrchestrator;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureResult;
 
 import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
 
 /**
- * The TakePayment step captures the payment transaction.
+ * The TakePayment step captures the payment transactions. All transactions of the order are captured at once by the
+ * {@link PaymentCaptureOrchestrator}, the order status is set once from the outcome of all captures. If a capture did
+ * not answer in time, its outcome is unknown and the step is repeated after <code>timeoutRetryDelay</code> milliseconds,
+ * also when another capture was rejected, which captures only the transactions not captured in the meantime. The step
+ * decides <code>NOK</code> only once the outcome of every capture is known, or when captures still time out after
+ * <code>maxTimeoutRetries</code> retries. The retries are counted in the poll attempts of the process, which the retry
+ * does not roll back.
  */
 public class TakePaymentAction extends AbstractSimpleDecisionAction<OrderProcessModel>
 {
 	private static final Logger LOG = Logger.getLogger(TakePaymentAction.class);
 
-	private PaymentService paymentService;
+	private PaymentCaptureOrchestrator paymentCaptureOrchestrator;
+	private long timeoutRetryDelay;
+	private int maxTimeoutRetries;
 
 	@Override
-	public Transition executeAction(final OrderProcessModel process)
+	public Transition executeAction(final OrderProcessModel process) throws RetryLaterException
 	{
 		final OrderModel order = process.getOrder();
 
-		for (final PaymentTransactionModel txn : order.getPaymentTransactions())
+		final PaymentCaptureResult result = getPaymentCaptureOrchestrator().capture(order);
+		final int retries = process.getPollAttempts();
+		if (!result.getTimedOutTransactionCodes().isEmpty())
 		{
-			if (txn.getInfo() instanceof CreditCardPaymentInfoModel)
+			if (retries < getMaxTimeoutRetries())
 			{
-				final PaymentTransactionEntryModel txnEntry = getPaymentService().capture(txn);
-
-				if (TransactionStatus.ACCEPTED.name().equals(txnEntry.getTransactionStatus()))
-				{
-					if (LOG.isDebugEnabled())
-					{
-						LOG.debug("The payment transaction has been captured. Order: " + order.getCode() + ". Txn: " + txn.getCode());
-					}
-					setOrderStatus(order, OrderStatus.PAYMENT_CAPTURED);
-				}
-				else
-				{
-					LOG.error("The payment transaction capture has failed. Order: " + order.getCode() + ". Txn: " + txn.getCode());
-					setOrderStatus(order, OrderStatus.PAYMENT_NOT_CAPTURED);
-					return Transition.NOK;
-				}
+				process.setPollAttempts(retries + 1);
+				save(process);
+				final RetryLaterException retry = new RetryLaterException("Process: " + process.getCode()
+						+ " payment capture did not answer in time, retry " + (retries + 1) + " of " + getMaxTimeoutRetries()
+						+ ". Order: " + order.getCode() + ". Timed out: " + result.getTimedOutTransactionCodes() + ". Rejected: "
+						+ result.getRejectedTransactionCodes());
+				retry.setDelay(getTimeoutRetryDelay());
+				retry.setRollBack(false);
+				throw retry;
 			}
+			LOG.error("The payment capture did not answer after " + retries + " retries. Order: " + order.getCode()
+					+ ". Timed out: " + result.getTimedOutTransactionCodes() + ". Rejected: " + result.getRejectedTransactionCodes());
+		}
+		resetRetries(process);
+
+		if (!result.getRejectedTransactionCodes().isEmpty() || !result.getTimedOutTransactionCodes().isEmpty())
+		{
+			LOG.error("The payment capture has failed. Order: " + order.getCode() + ". Rejected: "
+					+ result.getRejectedTransactionCodes() + ". Timed out: " + result.getTimedOutTransactionCodes());
+			setOrderStatus(order, OrderStatus.PAYMENT_NOT_CAPTURED);
+			return Transition.NOK;
+		}
+		if (!result.getCapturedTransactionCodes().isEmpty())
+		{
+			setOrderStatus(order, OrderStatus.PAYMENT_CAPTURED);
 		}
 		return Transition.OK;
 	}
 
-	protected PaymentService getPaymentService()
+	protected void resetRetries(final OrderProcessModel process)
+	{
+		if (process.getPollAttempts() != 0)
+		{
+			process.setPollAttempts(0);
+			save(process);
+		}
+	}
+
+	protected PaymentCaptureOrchestrator getPaymentCaptureOrchestrator()
+	{
+		return paymentCaptureOrchestrator;
+	}
+
+	@Required
+	public void setPaymentCaptureOrchestrator(final PaymentCaptureOrchestrator paymentCaptureOrchestrator)
+	{
+		this.paymentCaptureOrchestrator = paymentCaptureOrchestrator;
+	}
+
+	protected long getTimeoutRetryDelay()
+	{
+		return timeoutRetryDelay;
+	}
+
+	@Required
+	public void setTimeoutRetryDelay(final long timeoutRetryDelay)
+	{
+		this.timeoutRetryDelay = timeoutRetryDelay;
+	}
+
+	protected int getMaxTimeoutRetries()
 	{
-		return paymentService;
+		return maxTimeoutRetries;
 	}
 
 	@Required
-	public void setPaymentService(final PaymentService paymentService)
+	public void setMaxTimeoutRetries(final int maxTimeoutRetries)
 	{
-		this.paymentService = paymentService;
+		this.maxTimeoutRetries = maxTimeoutRetries;
 	}
 }
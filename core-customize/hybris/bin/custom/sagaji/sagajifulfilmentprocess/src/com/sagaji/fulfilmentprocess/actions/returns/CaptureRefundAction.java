@@ -4,36 +4,132 @@
 package com.sagaji.fulfilmentprocess.actions.returns;
 
 import de.hybris.platform.basecommerce.enums.ReturnStatus;
-import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
 import de.hybris.platform.returns.model.ReturnProcessModel;
 import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 /**
- * Mock implementation for refunding the money to the customer for the ReturnRequest
+ * Mock implementation for refunding the money to the customer for the ReturnRequest.
+ * <p>
+ * The return is locked while its status is checked and written, so it cannot be refunded here and by a run of the
+ * batch return service at the same time. A return claimed by a batch run is retried when the claim expires; a return
+ * the batch run completed leaves the process through <code>BATCH_PROCESSED</code>, and a return whose refund the batch
+ * run already captured goes on to the tax reversal without a second refund.
  */
-public class CaptureRefundAction extends AbstractSimpleDecisionAction<ReturnProcessModel>
+public class CaptureRefundAction extends AbstractTransitionAction<ReturnProcessModel, CaptureRefundAction.Transition>
 {
 	private static final Logger LOG = Logger.getLogger(CaptureRefundAction.class);
 
+	private TimeService timeService;
+	private TransactionTemplate transactionTemplate;
+
+	public enum Transition
+	{
+		OK, NOK, BATCH_PROCESSED;
+
+		public static Set<String> getStringValues()
+		{
+			return ProcessActionTransitions.of(Transition.class);
+		}
+	}
+
+	public CaptureRefundAction()
+	{
+		super(Transition.class);
+	}
+
 	@Override
-	public Transition executeAction(final ReturnProcessModel process)
+	protected Transition executeAction(final ReturnProcessModel process) throws RetryLaterException
 	{
 		LOG.info("Process: " + process.getCode() + " in step " + getClass().getSimpleName());
 
 		final ReturnRequestModel returnRequest = process.getReturnRequest();
+		final Date claimedUntil = getTransactionTemplate().execute(status -> refund(returnRequest));
+		if (claimedUntil != null)
+		{
+			final RetryLaterException retry = new RetryLaterException("Process: " + process.getCode() + " return "
+					+ returnRequest.getCode() + " is claimed by a batch run until " + claimedUntil);
+			retry.setDelay(Math.max(0, claimedUntil.getTime() - getTimeService().getCurrentTime().getTime()));
+			throw retry;
+		}
+
+		if (ReturnStatus.COMPLETED.equals(returnRequest.getStatus()))
+		{
+			LOG.info("Process: " + process.getCode() + " return " + returnRequest.getCode() + " was completed by a batch run");
+			return Transition.BATCH_PROCESSED;
+		}
+		return Transition.OK;
+	}
+
+	/**
+	 * Locks the return and refunds it, unless a batch run claimed, refunded or completed it. Must be called in a
+	 * transaction.
+	 *
+	 * @return the end of the batch claim of the return, or <code>null</code> if it is not claimed
+	 */
+	protected Date refund(final ReturnRequestModel returnRequest)
+	{
+		getModelService().lock(returnRequest.getPk());
+		getModelService().refresh(returnRequest);
+		final Date now = getTimeService().getCurrentTime();
+		if (returnRequest.getBatchClaimId() != null && returnRequest.getBatchClaimedUntil() != null
+				&& returnRequest.getBatchClaimedUntil().after(now))
+		{
+			return returnRequest.getBatchClaimedUntil();
+		}
+		if (ReturnStatus.COMPLETED.equals(returnRequest.getStatus())
+				|| ReturnStatus.TAX_REVERSAL_FAILED.equals(returnRequest.getStatus()))
+		{
+			// the batch run captured the refund already
+			return null;
+		}
 
 		// Implement the logic to refund the money to the customer
 
 		final ReturnStatus returnStatus = ReturnStatus.PAYMENT_REVERSED;
 		returnRequest.setStatus(returnStatus);
+		final List<Object> modified = new ArrayList<Object>();
+		modified.add(returnRequest);
 		returnRequest.getReturnEntries().stream().forEach(entry -> {
 			entry.setStatus(returnStatus);
-			getModelService().save(entry);
+			modified.add(entry);
 		});
-		getModelService().save(returnRequest);
+		getModelService().saveAll(modified);
+		return null;
+	}
 
-		return Transition.OK;
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	@Required
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
 	}
 }
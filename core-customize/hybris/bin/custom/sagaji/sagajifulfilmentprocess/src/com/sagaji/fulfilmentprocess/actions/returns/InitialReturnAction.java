@@ -4,19 +4,19 @@
 package com.sagaji.fulfilmentprocess.actions.returns;
 
 import de.hybris.platform.basecommerce.enums.ReturnAction;
-import de.hybris.platform.processengine.action.AbstractAction;
 import de.hybris.platform.returns.model.ReturnProcessModel;
 import de.hybris.platform.returns.model.ReturnRequestModel;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionTransitions;
 import org.apache.log4j.Logger;
 
-import java.util.HashSet;
 import java.util.Set;
 
 
 /**
  * Check whether the return request is an instore or an online request and redirects it to the appropriate step.
  */
-public class InitialReturnAction extends AbstractAction<ReturnProcessModel>
+public class InitialReturnAction extends AbstractTransitionAction<ReturnProcessModel, InitialReturnAction.Transition>
 {
 	private static final Logger LOG = Logger.getLogger(InitialReturnAction.class);
 
@@ -26,35 +26,27 @@ public class InitialReturnAction extends AbstractAction<ReturnProcessModel>
 
 		public static Set<String> getStringValues()
 		{
-			final Set<String> res = new HashSet<String>();
-
-			for (final Transition transition : Transition.values())
-			{
-				res.add(transition.toString());
-			}
-			return res;
+			return ProcessActionTransitions.of(Transition.class);
 		}
 	}
 
+	public InitialReturnAction()
+	{
+		super(Transition.class);
+	}
+
 	@Override
-	public String execute(final ReturnProcessModel process)
+	protected Transition executeAction(final ReturnProcessModel process)
 	{
 		LOG.info("Process: " + process.getCode() + " in step " + getClass().getSimpleName());
 
 		final ReturnRequestModel returnRequest = process.getReturnRequest();
 
-		final String transition = returnRequest.getReturnEntries().stream().allMatch(entry -> entry.getAction().equals(
-				ReturnAction.IMMEDIATE)) ? Transition.INSTORE.toString() : Transition.ONLINE.toString();
+		final Transition transition = returnRequest.getReturnEntries().stream().allMatch(entry -> entry.getAction().equals(
+				ReturnAction.IMMEDIATE)) ? Transition.INSTORE : Transition.ONLINE;
 
 		LOG.debug("Process: " + process.getCode() + " transitions to " + transition);
 
 		return transition;
 	}
-
-	@Override
-	public Set<String> getTransitions()
-	{
-		return Transition.getStringValues();
-	}
-
 }
@@ -7,29 +7,65 @@ import de.hybris.platform.basecommerce.enums.ReturnStatus;
 import de.hybris.platform.processengine.action.AbstractProceduralAction;
 import de.hybris.platform.returns.model.ReturnProcessModel;
 import de.hybris.platform.returns.model.ReturnRequestModel;
+import com.sagaji.fulfilmentprocess.returns.StockReplenishmentService;
+
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.support.TransactionTemplate;
 
 
 /**
- * Mock implementation for updating he inventory for the ReturnRequest
+ * Completes the ReturnRequest and adds the returned goods to the stock of the return warehouse, in one transaction
  */
 public class InventoryUpdateAction extends AbstractProceduralAction<ReturnProcessModel>
 {
 	private static final Logger LOG = Logger.getLogger(InventoryUpdateAction.class);
 
+	private StockReplenishmentService stockReplenishmentService;
+	private TransactionTemplate transactionTemplate;
+
 	@Override
 	public void executeAction(final ReturnProcessModel process)
 	{
 		LOG.info("Process: " + process.getCode() + " in step " + getClass().getSimpleName());
 
-		// Implement the update inventory behavior that you want to apply after a successful return
-
 		final ReturnRequestModel returnRequest = process.getReturnRequest();
 		returnRequest.setStatus(ReturnStatus.COMPLETED);
+		final List<Object> modified = new ArrayList<Object>();
+		modified.add(returnRequest);
 		returnRequest.getReturnEntries().stream().forEach(entry -> {
 			entry.setStatus(ReturnStatus.COMPLETED);
-			getModelService().save(entry);
+			modified.add(entry);
+		});
+		getTransactionTemplate().execute(status -> {
+			getModelService().saveAll(modified);
+			getStockReplenishmentService().replenish(returnRequest);
+			return null;
 		});
-		getModelService().save(returnRequest);
+	}
+
+	protected StockReplenishmentService getStockReplenishmentService()
+	{
+		return stockReplenishmentService;
+	}
+
+	@Required
+	public void setStockReplenishmentService(final StockReplenishmentService stockReplenishmentService)
+	{
+		this.stockReplenishmentService = stockReplenishmentService;
+	}
+
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	@Required
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
 	}
 }
@@ -15,4 +15,9 @@ public final class SagajiFulfilmentProcessConstants extends GeneratedSagajiFulfi
 	public static final String PARENT_PROCESS = "PARENT_PROCESS";
 	public static final String CUSTOMER = "CUSTOMER";
 	public static final String BASE_STORE = "BASE_STORE";
+	public static final String APPROVE_OR_CANCEL_GOODS_EVENT_NAME = "ApproveOrCancelGoodsEvent";
+	public static final String BATCH_PROCESSED_CHOICE = "batchProcessed";
+	public static final String BATCH_REFUND_FAILED_CHOICE = "batchRefundFailed";
+	public static final String BATCH_TAX_REVERSAL_FAILED_CHOICE = "batchTaxReversalFailed";
+	public static final String WAIT_FOR_GOODS_ACTION = "waitForGoodsAction";
 }
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao;
+
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Dao to resolve the processes of many consignments at once for bulk warehouse status updates.
+ */
+public interface ConsignmentProcessDao extends Dao
+{
+	/**
+	 * Returns the processes of all consignments with the given codes.
+	 *
+	 * @param consignmentCodes
+	 *           the codes of the consignments
+	 * @return the consignment processes, in no particular order
+	 */
+	List<ConsignmentProcessModel> findConsignmentProcesses(Collection<String> consignmentCodes);
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao;
+
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Dao to resolve the return processes of many returns with one query.
+ */
+public interface ReturnProcessDao extends Dao
+{
+	/**
+	 * Returns the return processes of the given returns that are waiting in the given action.
+	 *
+	 * @param returnRequests
+	 *           the returns
+	 * @param action
+	 *           the action the processes are waiting in
+	 * @return the return processes, in no particular order
+	 */
+	List<ReturnProcessModel> findReturnProcesses(Collection<ReturnRequestModel> returnRequests, String action);
+}
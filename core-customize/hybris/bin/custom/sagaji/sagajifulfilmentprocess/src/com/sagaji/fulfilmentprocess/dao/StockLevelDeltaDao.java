@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+import com.sagaji.fulfilmentprocess.model.StockLevelDeltaModel;
+
+import java.util.List;
+
+
+/**
+ * Dao for the returned quantities waiting to be added to the stock levels.
+ */
+public interface StockLevelDeltaDao extends Dao
+{
+	/**
+	 * Returns the next page of stock levels with waiting quantities, ordered by PK.
+	 *
+	 * @param lastProcessedPk
+	 *           the PK after which the page starts
+	 * @param count
+	 *           the size of the page
+	 * @return the stock levels
+	 */
+	List<StockLevelModel> findStockLevelsWithDeltas(long lastProcessedPk, int count);
+
+	/**
+	 * Returns the waiting quantities of the given stock level.
+	 *
+	 * @param stockLevel
+	 *           the stock level
+	 * @return the quantities, in no particular order
+	 */
+	List<StockLevelDeltaModel> findDeltas(StockLevelModel stockLevel);
+}
@@ -0,0 +1,29 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.servicelayer.internal.dao.Dao;
+
+import java.util.Collection;
+import java.util.List;
+
+
+/**
+ * Dao to read the stock levels of many products in many warehouses at once for the warehouse splitting.
+ */
+public interface WarehouseStockLevelDao extends Dao
+{
+	/**
+	 * Returns all stock levels of the given products in the given warehouses.
+	 *
+	 * @param productCodes
+	 *           the codes of the products
+	 * @param warehouses
+	 *           the warehouses to look in
+	 * @return the stock levels, in no particular order
+	 */
+	List<StockLevelModel> findStockLevels(Collection<String> productCodes, Collection<WarehouseModel> warehouses);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao.impl;
+
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import com.sagaji.fulfilmentprocess.dao.ConsignmentProcessDao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+
+/**
+ * Default implementation of {@link ConsignmentProcessDao}. The caller is expected to pass the codes in chunks small
+ * enough for the IN clause of the database.
+ */
+public class DefaultConsignmentProcessDao extends AbstractItemDao implements ConsignmentProcessDao
+{
+	private static final String QUERY_PARAM_CONSIGNMENT_CODES = "consignmentCodes";
+
+	private static final String CONSIGNMENT_PROCESSES_QUERY = "SELECT {cp." + ConsignmentProcessModel.PK + "} FROM {"
+			+ ConsignmentProcessModel._TYPECODE + " AS cp JOIN " + ConsignmentModel._TYPECODE + " AS c ON {cp."
+			+ ConsignmentProcessModel.CONSIGNMENT + "} = {c." + ConsignmentModel.PK + "}} WHERE {c." + ConsignmentModel.CODE
+			+ "} IN (?" + QUERY_PARAM_CONSIGNMENT_CODES + ")";
+
+	@Override
+	public List<ConsignmentProcessModel> findConsignmentProcesses(final Collection<String> consignmentCodes)
+	{
+		Assert.notNull(consignmentCodes);
+
+		if (consignmentCodes.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(CONSIGNMENT_PROCESSES_QUERY);
+		query.addQueryParameter(QUERY_PARAM_CONSIGNMENT_CODES, consignmentCodes);
+		query.setNeedTotal(false);
+		return getFlexibleSearchService().<ConsignmentProcessModel> search(query).getResult();
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao.impl;
+
+import de.hybris.platform.processengine.model.ProcessTaskModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import com.sagaji.fulfilmentprocess.dao.ReturnProcessDao;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+
+/**
+ * Default implementation of {@link ReturnProcessDao}. The caller is expected to pass the returns in batches small enough
+ * for the IN clause of the database.
+ */
+public class DefaultReturnProcessDao extends AbstractItemDao implements ReturnProcessDao
+{
+	private static final String QUERY_PARAM_RETURN_REQUESTS = "returnRequests";
+	private static final String QUERY_PARAM_ACTION = "action";
+
+	private static final String RETURN_PROCESSES_QUERY = "SELECT {rp." + ReturnProcessModel.PK + "} FROM {"
+			+ ReturnProcessModel._TYPECODE + " AS rp JOIN " + ProcessTaskModel._TYPECODE + " AS pt ON {pt."
+			+ ProcessTaskModel.PROCESS + "} = {rp." + ReturnProcessModel.PK + "}} WHERE {rp." + ReturnProcessModel.RETURNREQUEST
+			+ "} IN (?" + QUERY_PARAM_RETURN_REQUESTS + ") AND {pt." + ProcessTaskModel.ACTION + "} = ?" + QUERY_PARAM_ACTION;
+
+	@Override
+	public List<ReturnProcessModel> findReturnProcesses(final Collection<ReturnRequestModel> returnRequests,
+			final String action)
+	{
+		Assert.notNull(returnRequests);
+		Assert.notNull(action);
+
+		if (returnRequests.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(RETURN_PROCESSES_QUERY);
+		query.addQueryParameter(QUERY_PARAM_RETURN_REQUESTS, returnRequests);
+		query.addQueryParameter(QUERY_PARAM_ACTION, action);
+		query.setNeedTotal(false);
+		return getFlexibleSearchService().<ReturnProcessModel> search(query).getResult();
+	}
+}
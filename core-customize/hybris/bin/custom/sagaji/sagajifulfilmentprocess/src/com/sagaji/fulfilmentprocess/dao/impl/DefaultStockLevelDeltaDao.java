@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao.impl;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import com.sagaji.fulfilmentprocess.dao.StockLevelDeltaDao;
+import com.sagaji.fulfilmentprocess.model.StockLevelDeltaModel;
+
+import java.util.List;
+
+import org.springframework.util.Assert;
+
+
+/**
+ * Default implementation of {@link StockLevelDeltaDao}.
+ */
+public class DefaultStockLevelDeltaDao extends AbstractItemDao implements StockLevelDeltaDao
+{
+	private static final String QUERY_PARAM_LAST_PROCESSED_PK = "lastProcessedPk";
+	private static final String QUERY_PARAM_STOCK_LEVEL = "stockLevel";
+
+	private static final String STOCK_LEVELS_WITH_DELTAS_QUERY = "SELECT {s." + StockLevelModel.PK + "} FROM {"
+			+ StockLevelModel._TYPECODE + " AS s} WHERE EXISTS ({{ SELECT {d." + StockLevelDeltaModel.PK + "} FROM {"
+			+ StockLevelDeltaModel._TYPECODE + " AS d} WHERE {d." + StockLevelDeltaModel.STOCKLEVEL + "} = {s."
+			+ StockLevelModel.PK + "} }}) AND {s." + StockLevelModel.PK + "} > ?" + QUERY_PARAM_LAST_PROCESSED_PK
+			+ " ORDER BY {s." + StockLevelModel.PK + "}";
+
+	private static final String DELTAS_QUERY = "SELECT {" + StockLevelDeltaModel.PK + "} FROM {" + StockLevelDeltaModel._TYPECODE
+			+ "} WHERE {" + StockLevelDeltaModel.STOCKLEVEL + "} = ?" + QUERY_PARAM_STOCK_LEVEL;
+
+	@Override
+	public List<StockLevelModel> findStockLevelsWithDeltas(final long lastProcessedPk, final int count)
+	{
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(STOCK_LEVELS_WITH_DELTAS_QUERY);
+		query.addQueryParameter(QUERY_PARAM_LAST_PROCESSED_PK, Long.valueOf(lastProcessedPk));
+		query.setCount(count);
+		query.setNeedTotal(false);
+		return getFlexibleSearchService().<StockLevelModel> search(query).getResult();
+	}
+
+	@Override
+	public List<StockLevelDeltaModel> findDeltas(final StockLevelModel stockLevel)
+	{
+		Assert.notNull(stockLevel);
+
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(DELTAS_QUERY);
+		query.addQueryParameter(QUERY_PARAM_STOCK_LEVEL, stockLevel);
+		query.setNeedTotal(false);
+		return getFlexibleSearchService().<StockLevelDeltaModel> search(query).getResult();
+	}
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.dao.impl;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.servicelayer.internal.dao.AbstractItemDao;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.util.Assert;
+
+
+/**
+ * Default implementation of {@link WarehouseStockLevelDao}. The product codes are passed in chunks of
+ * {@link #setBatchSize(int) batchSize} so that the IN clause stays within the limits of the database, an order with
+ * less products is read with a single query.
+ */
+public class DefaultWarehouseStockLevelDao extends AbstractItemDao implements WarehouseStockLevelDao
+{
+	private static final String QUERY_PARAM_PRODUCT_CODES = "productCodes";
+	private static final String QUERY_PARAM_WAREHOUSES = "warehouses";
+
+	private static final String STOCK_LEVELS_QUERY = "SELECT {" + StockLevelModel.PK + "} FROM {" + StockLevelModel._TYPECODE
+			+ "} WHERE {" + StockLevelModel.PRODUCTCODE + "} IN (?" + QUERY_PARAM_PRODUCT_CODES + ") AND {"
+			+ StockLevelModel.WAREHOUSE + "} IN (?" + QUERY_PARAM_WAREHOUSES + ")";
+
+	private int batchSize;
+
+	@Override
+	public List<StockLevelModel> findStockLevels(final Collection<String> productCodes,
+			final Collection<WarehouseModel> warehouses)
+	{
+		Assert.notNull(productCodes);
+		Assert.notNull(warehouses);
+
+		if (productCodes.isEmpty() || warehouses.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+
+		final List<String> codes = new ArrayList<String>(productCodes);
+		final List<StockLevelModel> result = new ArrayList<StockLevelModel>();
+		for (int start = 0; start < codes.size(); start += getBatchSize())
+		{
+			final FlexibleSearchQuery query = new FlexibleSearchQuery(STOCK_LEVELS_QUERY);
+			query.addQueryParameter(QUERY_PARAM_PRODUCT_CODES, codes.subList(start, Math.min(codes.size(), start + getBatchSize())));
+			query.addQueryParameter(QUERY_PARAM_WAREHOUSES, warehouses);
+			query.setNeedTotal(false);
+			result.addAll(getFlexibleSearchService().<StockLevelModel> search(query).getResult());
+		}
+		return result;
+	}
+
+	protected int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	@Required
+	public void setBatchSize(final int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+}
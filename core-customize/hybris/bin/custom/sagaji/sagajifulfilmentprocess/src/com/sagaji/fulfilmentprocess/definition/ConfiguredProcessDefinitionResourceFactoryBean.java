@@ -0,0 +1,87 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.definition;
+
+import de.hybris.platform.servicelayer.config.ConfigurationService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.util.PropertyPlaceholderHelper;
+
+
+/**
+ * Provides a process definition whose <code>${key}</code> placeholders are replaced with the values of the platform
+ * configuration, for settings the process definition format cannot read from properties, such as the delay of a
+ * timeout. Placeholders without a configured value are left as they are, so the <code>${process.code}</code>
+ * expressions of the wait events still reach the process engine.
+ */
+public class ConfiguredProcessDefinitionResourceFactoryBean implements FactoryBean<Resource>
+{
+	private static final PropertyPlaceholderHelper PLACEHOLDER_HELPER = new PropertyPlaceholderHelper("${", "}", null, true);
+
+	private Resource resource;
+	private ConfigurationService configurationService;
+
+	@Override
+	public Resource getObject() throws IOException
+	{
+		final String definition;
+		try (InputStream input = getResource().getInputStream())
+		{
+			definition = IOUtils.toString(input, StandardCharsets.UTF_8);
+		}
+		final String configured = PLACEHOLDER_HELPER.replacePlaceholders(definition,
+				key -> getConfigurationService().getConfiguration().getString(key, null));
+		final String filename = getResource().getFilename();
+		return new ByteArrayResource(configured.getBytes(StandardCharsets.UTF_8), getResource().getDescription())
+		{
+			@Override
+			public String getFilename()
+			{
+				return filename;
+			}
+		};
+	}
+
+	@Override
+	public Class<?> getObjectType()
+	{
+		return Resource.class;
+	}
+
+	@Override
+	public boolean isSingleton()
+	{
+		return true;
+	}
+
+	protected Resource getResource()
+	{
+		return resource;
+	}
+
+	@Required
+	public void setResource(final Resource resource)
+	{
+		this.resource = resource;
+	}
+
+	protected ConfigurationService getConfigurationService()
+	{
+		return configurationService;
+	}
+
+	@Required
+	public void setConfigurationService(final ConfigurationService configurationService)
+	{
+		this.configurationService = configurationService;
+	}
+}
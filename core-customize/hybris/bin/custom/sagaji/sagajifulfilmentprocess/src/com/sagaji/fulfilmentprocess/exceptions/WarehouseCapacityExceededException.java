@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.exceptions;
+
+/**
+ * Thrown when a consignment is handed over to the warehouse while it is already processing as many consignments as it
+ * accepts. The consignment is left untouched and can be handed over again later.
+ */
+public class WarehouseCapacityExceededException extends RuntimeException
+{
+	/**
+	 * @param message
+	 *           the detail message
+	 */
+	public WarehouseCapacityExceededException(final String message)
+	{
+		super(message);
+	}
+}
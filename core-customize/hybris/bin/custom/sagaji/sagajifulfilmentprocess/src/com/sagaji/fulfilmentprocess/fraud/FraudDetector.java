@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+
+import java.util.List;
+
+
+/**
+ * A single fraud detector evaluated by the {@link FraudScoringPipeline}. Detectors are called concurrently, so they must
+ * not modify the order. A detector that does not answer within its timeout is interrupted and has to stop.
+ */
+public interface FraudDetector
+{
+	/**
+	 * @return the name of the detector, used in log messages and for unavailable detectors
+	 */
+	String getName();
+
+	/**
+	 * @return the time in milliseconds the pipeline waits for this detector, 0 for the default timeout of the pipeline
+	 */
+	long getTimeout();
+
+	/**
+	 * Recognizes the fraud symptoms of the order.
+	 *
+	 * @param order
+	 *           the order to check
+	 * @return the symptoms found, empty if the order looks fine
+	 */
+	List<FraudSymptom> detect(OrderModel order);
+}
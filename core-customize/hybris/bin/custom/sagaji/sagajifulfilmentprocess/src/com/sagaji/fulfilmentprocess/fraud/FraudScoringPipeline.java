@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud;
+
+import de.hybris.platform.core.model.order.OrderModel;
+
+
+/**
+ * Evaluates all registered {@link FraudDetector}s for an order and merges their symptoms.
+ */
+public interface FraudScoringPipeline
+{
+	/**
+	 * Scores the order with all detectors.
+	 *
+	 * @param order
+	 *           the order to check
+	 * @return the merged symptoms and the detectors that did not answer in time
+	 */
+	FraudScoringResult score(OrderModel order);
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud;
+
+import de.hybris.platform.basecommerce.enums.FraudStatus;
+import de.hybris.platform.fraud.impl.FraudServiceResponse;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Merged outcome of a fraud check. When detectors did not answer the status is at least the fallback status.
+ */
+public final class FraudScoringResult
+{
+	private final List<FraudSymptom> symptoms;
+	private final double score;
+	private final Set<String> unavailableDetectors;
+	private final FraudStatus fallbackStatus;
+
+	public FraudScoringResult(final List<FraudSymptom> symptoms, final Set<String> unavailableDetectors,
+			final FraudStatus fallbackStatus)
+	{
+		this(symptoms, sumScores(symptoms), unavailableDetectors, fallbackStatus);
+	}
+
+	private FraudScoringResult(final List<FraudSymptom> symptoms, final double score, final Set<String> unavailableDetectors,
+			final FraudStatus fallbackStatus)
+	{
+		this.symptoms = Collections.unmodifiableList(new ArrayList<FraudSymptom>(symptoms));
+		this.score = score;
+		this.unavailableDetectors = Collections.unmodifiableSet(new LinkedHashSet<String>(unavailableDetectors));
+		this.fallbackStatus = fallbackStatus;
+	}
+
+	/**
+	 * Wraps the response of a single fraud service provider, keeping the score computed by the provider.
+	 */
+	public static FraudScoringResult of(final FraudServiceResponse response)
+	{
+		final List<FraudSymptom> symptoms = response.getSymptoms() == null ? Collections.<FraudSymptom> emptyList()
+				: response.getSymptoms();
+		return new FraudScoringResult(symptoms, response.getScore(), Collections.<String> emptySet(), null);
+	}
+
+	private static double sumScores(final List<FraudSymptom> symptoms)
+	{
+		double sum = 0;
+		for (final FraudSymptom symptom : symptoms)
+		{
+			sum += symptom.getScore();
+		}
+		return sum;
+	}
+
+	/**
+	 * Applies the thresholds to the score and raises the result to the fallback status if detectors were unavailable.
+	 */
+	public FraudStatus getStatus(final FraudThresholds thresholds)
+	{
+		final FraudStatus status = thresholds.getStatus(score);
+		if (unavailableDetectors.isEmpty() || fallbackStatus == null || severity(fallbackStatus) <= severity(status))
+		{
+			return status;
+		}
+		return fallbackStatus;
+	}
+
+	private static int severity(final FraudStatus status)
+	{
+		if (FraudStatus.FRAUD.equals(status))
+		{
+			return 2;
+		}
+		return FraudStatus.CHECK.equals(status) ? 1 : 0;
+	}
+
+	public List<FraudSymptom> getSymptoms()
+	{
+		return symptoms;
+	}
+
+	public double getScore()
+	{
+		return score;
+	}
+
+	public Set<String> getUnavailableDetectors()
+	{
+		return unavailableDetectors;
+	}
+}
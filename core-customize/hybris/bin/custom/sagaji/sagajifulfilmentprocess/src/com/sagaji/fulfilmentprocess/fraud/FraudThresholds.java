@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud;
+
+import de.hybris.platform.basecommerce.enums.FraudStatus;
+
+
+/**
+ * Score limits of a fraud check. Scores below the limit are OK, scores below limit plus tolerance have to be checked and
+ * all other scores are fraud.
+ */
+public final class FraudThresholds
+{
+	private final double scoreLimit;
+	private final double scoreTolerance;
+
+	public FraudThresholds(final double scoreLimit, final double scoreTolerance)
+	{
+		this.scoreLimit = scoreLimit;
+		this.scoreTolerance = scoreTolerance;
+	}
+
+	public FraudStatus getStatus(final double score)
+	{
+		if (score < scoreLimit)
+		{
+			return FraudStatus.OK;
+		}
+		return score < scoreLimit + scoreTolerance ? FraudStatus.CHECK : FraudStatus.FRAUD;
+	}
+
+	public double getScoreLimit()
+	{
+		return scoreLimit;
+	}
+
+	public double getScoreTolerance()
+	{
+		return scoreTolerance;
+	}
+}
@@ -0,0 +1,21 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud;
+
+/**
+ * Provides the configured {@link FraudThresholds} of the fraud check actions.
+ */
+public interface FraudThresholdsProvider
+{
+	/**
+	 * Returns the thresholds configured by the given properties.
+	 *
+	 * @param scoreLimitParameter
+	 *           the name of the score limit property
+	 * @param scoreToleranceParameter
+	 *           the name of the score tolerance property
+	 * @return the thresholds
+	 */
+	FraudThresholds getThresholds(String scoreLimitParameter, String scoreToleranceParameter);
+}
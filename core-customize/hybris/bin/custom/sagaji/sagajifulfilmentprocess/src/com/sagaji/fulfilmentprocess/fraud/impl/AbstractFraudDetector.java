@@ -0,0 +1,52 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import com.sagaji.fulfilmentprocess.fraud.FraudDetector;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Base class of the fraud detectors with the name, the timeout and the score of the reported symptom.
+ */
+public abstract class AbstractFraudDetector implements FraudDetector
+{
+	private String name;
+	private long timeout;
+	private double score;
+
+	@Override
+	public String getName()
+	{
+		return name;
+	}
+
+	@Required
+	public void setName(final String name)
+	{
+		this.name = name;
+	}
+
+	@Override
+	public long getTimeout()
+	{
+		return timeout;
+	}
+
+	public void setTimeout(final long timeout)
+	{
+		this.timeout = timeout;
+	}
+
+	protected double getScore()
+	{
+		return score;
+	}
+
+	public void setScore(final double score)
+	{
+		this.score = score;
+	}
+}
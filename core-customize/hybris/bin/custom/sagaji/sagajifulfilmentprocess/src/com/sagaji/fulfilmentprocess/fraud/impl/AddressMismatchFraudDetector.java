@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.user.AddressModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Reports orders delivered to another country than the country of the payment address.
+ */
+public class AddressMismatchFraudDetector extends AbstractFraudDetector
+{
+	@Override
+	public List<FraudSymptom> detect(final OrderModel order)
+	{
+		final AddressModel deliveryAddress = order.getDeliveryAddress();
+		final AddressModel paymentAddress = order.getPaymentAddress();
+		if (deliveryAddress == null || paymentAddress == null
+				|| Objects.equals(deliveryAddress.getCountry(), paymentAddress.getCountry()))
+		{
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(new FraudSymptom(getName(), getScore(),
+				"Delivery country differs from payment country"));
+	}
+}
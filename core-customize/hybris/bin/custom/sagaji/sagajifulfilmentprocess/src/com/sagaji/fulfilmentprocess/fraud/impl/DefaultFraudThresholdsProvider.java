@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.util.Config;
+import de.hybris.platform.util.config.ConfigIntf;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholds;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholdsProvider;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Parses the thresholds from the platform configuration once and keeps them until a property starting with
+ * {@link #setParameterPrefix(String) parameterPrefix} is changed.
+ */
+public class DefaultFraudThresholdsProvider
+		implements FraudThresholdsProvider, ConfigIntf.ConfigChangeListener, InitializingBean, DisposableBean
+{
+	private final Map<String, FraudThresholds> thresholds = new ConcurrentHashMap<String, FraudThresholds>();
+	private String parameterPrefix;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (Registry.hasCurrentTenant())
+		{
+			Registry.getCurrentTenant().getConfig().registerConfigChangeListener(this);
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (Registry.hasCurrentTenant())
+		{
+			Registry.getCurrentTenant().getConfig().unregisterConfigChangeListener(this);
+		}
+	}
+
+	@Override
+	public FraudThresholds getThresholds(final String scoreLimitParameter, final String scoreToleranceParameter)
+	{
+		return thresholds.computeIfAbsent(scoreLimitParameter + ',' + scoreToleranceParameter,
+				key -> new FraudThresholds(Double.parseDouble(getParameter(scoreLimitParameter)),
+						Double.parseDouble(getParameter(scoreToleranceParameter))));
+	}
+
+	@Override
+	public void configChanged(final String key, final String newValue)
+	{
+		if (key != null && key.startsWith(getParameterPrefix()))
+		{
+			thresholds.clear();
+		}
+	}
+
+	protected String getParameter(final String name)
+	{
+		return Config.getParameter(name);
+	}
+
+	protected String getParameterPrefix()
+	{
+		return parameterPrefix;
+	}
+
+	@Required
+	public void setParameterPrefix(final String parameterPrefix)
+	{
+		this.parameterPrefix = parameterPrefix;
+	}
+}
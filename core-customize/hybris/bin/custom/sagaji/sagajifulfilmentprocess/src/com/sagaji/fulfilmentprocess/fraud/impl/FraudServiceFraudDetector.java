@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.FraudService;
+import de.hybris.platform.fraud.impl.FraudServiceResponse;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Adds the symptoms of a provider registered at the {@link FraudService} to the pipeline.
+ */
+public class FraudServiceFraudDetector extends AbstractFraudDetector
+{
+	private FraudService fraudService;
+	private String providerName;
+
+	@Override
+	public List<FraudSymptom> detect(final OrderModel order)
+	{
+		final FraudServiceResponse response = getFraudService().recognizeOrderSymptoms(getProviderName(), order);
+		return response.getSymptoms() == null ? Collections.<FraudSymptom> emptyList() : response.getSymptoms();
+	}
+
+	protected FraudService getFraudService()
+	{
+		return fraudService;
+	}
+
+	@Required
+	public void setFraudService(final FraudService fraudService)
+	{
+		this.fraudService = fraudService;
+	}
+
+	protected String getProviderName()
+	{
+		return providerName;
+	}
+
+	@Required
+	public void setProviderName(final String providerName)
+	{
+		this.providerName = providerName;
+	}
+}
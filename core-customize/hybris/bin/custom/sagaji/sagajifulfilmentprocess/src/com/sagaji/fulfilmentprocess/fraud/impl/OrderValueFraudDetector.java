@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Reports orders with a total price above the limit.
+ */
+public class OrderValueFraudDetector extends AbstractFraudDetector
+{
+	private double limit;
+
+	@Override
+	public List<FraudSymptom> detect(final OrderModel order)
+	{
+		if (order.getTotalPrice() == null || order.getTotalPrice().doubleValue() <= limit)
+		{
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(new FraudSymptom(getName(), getScore(),
+				"Order total " + order.getTotalPrice() + " exceeds " + limit));
+	}
+
+	@Required
+	public void setLimit(final double limit)
+	{
+		this.limit = limit;
+	}
+}
@@ -0,0 +1,402 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.basecommerce.enums.FraudStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.user.UserService;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.fulfilmentprocess.fraud.FraudDetector;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringPipeline;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringResult;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Runs all detectors concurrently and waits for each of them at most its timeout, counted from the start of the
+ * evaluation, so a fraud check takes as long as its slowest detector. Detectors that time out or fail are reported as
+ * symptoms without score and raise the verdict to {@link #setTimeoutStatus(FraudStatus) timeoutStatus}.
+ * <p>
+ * The detectors do not share the session or the order model of the caller: every detector loads the order by its pk in
+ * a local view of the session of its pool thread. Timed out detectors are interrupted, and the evaluation waits until
+ * they have stopped, at most {@link #setStopTimeout(long) stopTimeout} after the timeout of the slowest detector, so
+ * normally none of them is running while the caller saves the result. A detector that ignores the interrupt is logged
+ * and abandoned: the order is scored without it, and it keeps its pool thread until it returns. The pool is only
+ * created if the pipeline is {@link #setEnabled(boolean) enabled}; otherwise the detectors run one after the other on
+ * the calling thread.
+ */
+public class ParallelFraudScoringPipeline implements FraudScoringPipeline, InitializingBean, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(ParallelFraudScoringPipeline.class);
+
+	protected static final String UNAVAILABLE_SYMPTOM_PREFIX = "Unavailable: ";
+
+	private List<FraudDetector> fraudDetectors;
+	private SessionService sessionService;
+	private ModelService modelService;
+	private UserService userService;
+	private boolean enabled;
+	private int poolSize;
+	private long defaultTimeout;
+	private long stopTimeout;
+	private FraudStatus timeoutStatus;
+
+	private ExecutorService executor;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (enabled)
+		{
+			executor = Executors.newFixedThreadPool(poolSize, new TenantAwareThreadFactory("FraudScoring", getSessionService()));
+		}
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public FraudScoringResult score(final OrderModel order)
+	{
+		if (executor == null)
+		{
+			return scoreSequentially(order);
+		}
+
+		final PK orderPk = order.getPk();
+		final long start = System.nanoTime();
+
+		final Set<String> unavailableDetectors = new LinkedHashSet<String>();
+		final Map<FraudDetector, DetectorTask> tasks = new LinkedHashMap<FraudDetector, DetectorTask>();
+		for (final FraudDetector detector : getFraudDetectors())
+		{
+			final DetectorTask task = new DetectorTask(detector, orderPk);
+			try
+			{
+				task.future = executor.submit(task);
+				tasks.put(detector, task);
+			}
+			catch (final RejectedExecutionException e)
+			{
+				LOG.warn("Fraud detector [" + detector.getName() + "] rejected for order " + order.getCode(), e);
+				unavailableDetectors.add(detector.getName());
+			}
+		}
+
+		final List<FraudSymptom> symptoms = new ArrayList<FraudSymptom>();
+		long maxTimeout = 0;
+		for (final DetectorTask task : tasks.values())
+		{
+			final String name = task.detector.getName();
+			final long timeout = getTimeout(task.detector);
+			maxTimeout = Math.max(maxTimeout, timeout);
+			final long remaining = timeout - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+			try
+			{
+				symptoms.addAll(task.future.get(Math.max(0, remaining), TimeUnit.MILLISECONDS));
+			}
+			catch (final TimeoutException e)
+			{
+				LOG.warn("Fraud detector [" + name + "] did not answer within " + timeout + " ms for order " + order.getCode());
+				task.cancel();
+				unavailableDetectors.add(name);
+			}
+			catch (final ExecutionException e)
+			{
+				LOG.error("Fraud detector [" + name + "] failed for order " + order.getCode(), e.getCause());
+				unavailableDetectors.add(name);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				task.cancel();
+				unavailableDetectors.add(name);
+			}
+		}
+
+		awaitStopped(tasks.values(), order, start + TimeUnit.MILLISECONDS.toNanos(maxTimeout + getStopTimeout()));
+		return createResult(order, symptoms, unavailableDetectors, tasks.size(), start);
+	}
+
+	protected long getTimeout(final FraudDetector detector)
+	{
+		return detector.getTimeout() > 0 ? detector.getTimeout() : getDefaultTimeout();
+	}
+
+	/**
+	 * Waits until no detector task is running any more, but not beyond the given deadline. Cancelling a future only
+	 * interrupts its task, a detector that timed out may still be running until it notices the interrupt. Detectors
+	 * that have not stopped by the deadline are abandoned; their symptoms are not used as their futures are cancelled.
+	 *
+	 * @param deadline
+	 *           the {@link System#nanoTime()} until which the detectors may take to stop
+	 */
+	protected void awaitStopped(final Collection<DetectorTask> tasks, final OrderModel order, final long deadline)
+	{
+		boolean interrupted = false;
+		final List<String> abandonedDetectors = new ArrayList<String>();
+		for (final DetectorTask task : tasks)
+		{
+			while (true)
+			{
+				try
+				{
+					if (!task.stopped.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS))
+					{
+						abandonedDetectors.add(task.detector.getName());
+					}
+					break;
+				}
+				catch (final InterruptedException e)
+				{
+					interrupted = true;
+					tasks.forEach(DetectorTask::cancel);
+				}
+			}
+		}
+		if (!abandonedDetectors.isEmpty())
+		{
+			LOG.error("Fraud detectors " + abandonedDetectors + " did not stop within " + getStopTimeout()
+					+ " ms after their timeout, scoring order " + order.getCode() + " without them");
+		}
+		if (interrupted)
+		{
+			LOG.warn("Interrupted while scoring order " + order.getCode() + ", all fraud detectors were cancelled");
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	protected FraudScoringResult scoreSequentially(final OrderModel order)
+	{
+		final long start = System.nanoTime();
+		final Set<String> unavailableDetectors = new LinkedHashSet<String>();
+		final List<FraudSymptom> symptoms = new ArrayList<FraudSymptom>();
+		for (final FraudDetector detector : getFraudDetectors())
+		{
+			try
+			{
+				symptoms.addAll(detector.detect(order));
+			}
+			catch (final RuntimeException e)
+			{
+				LOG.error("Fraud detector [" + detector.getName() + "] failed for order " + order.getCode(), e);
+				unavailableDetectors.add(detector.getName());
+			}
+		}
+		return createResult(order, symptoms, unavailableDetectors, getFraudDetectors().size(), start);
+	}
+
+	protected FraudScoringResult createResult(final OrderModel order, final List<FraudSymptom> symptoms,
+			final Set<String> unavailableDetectors, final int detectorCount, final long start)
+	{
+		for (final String name : unavailableDetectors)
+		{
+			symptoms.add(new FraudSymptom(UNAVAILABLE_SYMPTOM_PREFIX + name, 0, "Fallback verdict " + getTimeoutStatus()));
+		}
+
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug("Scored order " + order.getCode() + " with " + detectorCount + " fraud detectors in "
+					+ TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) + " ms, unavailable: " + unavailableDetectors);
+		}
+		return new FraudScoringResult(symptoms, unavailableDetectors, getTimeoutStatus());
+	}
+
+	/**
+	 * Runs the detector on a pool thread with its own copy of the order, loaded in a local view of the session of the
+	 * thread.
+	 */
+	protected List<FraudSymptom> detectInLocalView(final FraudDetector detector, final PK orderPk)
+	{
+		return getSessionService().executeInLocalView(new SessionExecutionBody()
+		{
+			@Override
+			public Object execute()
+			{
+				final OrderModel order = getModelService().get(orderPk);
+				return detector.detect(order);
+			}
+		}, getUserService().getAdminUser());
+	}
+
+	protected List<FraudDetector> getFraudDetectors()
+	{
+		return fraudDetectors;
+	}
+
+	@Required
+	public void setFraudDetectors(final List<FraudDetector> fraudDetectors)
+	{
+		this.fraudDetectors = fraudDetectors;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected UserService getUserService()
+	{
+		return userService;
+	}
+
+	@Required
+	public void setUserService(final UserService userService)
+	{
+		this.userService = userService;
+	}
+
+	/**
+	 * @param enabled
+	 *           whether the detectors are evaluated concurrently on a pool of <code>poolSize</code> threads
+	 */
+	public void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	@Required
+	public void setPoolSize(final int poolSize)
+	{
+		this.poolSize = poolSize;
+	}
+
+	protected long getDefaultTimeout()
+	{
+		return defaultTimeout;
+	}
+
+	@Required
+	public void setDefaultTimeout(final long defaultTimeout)
+	{
+		this.defaultTimeout = defaultTimeout;
+	}
+
+	protected long getStopTimeout()
+	{
+		return stopTimeout;
+	}
+
+	/**
+	 * @param stopTimeout
+	 *           the time in milliseconds the evaluation waits for interrupted detectors to stop, counted from the timeout
+	 *           of the slowest detector
+	 */
+	@Required
+	public void setStopTimeout(final long stopTimeout)
+	{
+		this.stopTimeout = stopTimeout;
+	}
+
+	protected FraudStatus getTimeoutStatus()
+	{
+		return timeoutStatus;
+	}
+
+	/**
+	 * @param timeoutStatus
+	 *           the lowest verdict of an order for which a detector did not answer
+	 */
+	@Required
+	public void setTimeoutStatus(final FraudStatus timeoutStatus)
+	{
+		this.timeoutStatus = timeoutStatus;
+	}
+
+	/**
+	 * The evaluation of one detector on the pool. A task that is cancelled before it has started never runs the detector,
+	 * so {@link #stopped} is released either by the task or by the cancellation.
+	 */
+	protected class DetectorTask implements Callable<List<FraudSymptom>>
+	{
+		private final FraudDetector detector;
+		private final PK orderPk;
+		private final AtomicBoolean claimed = new AtomicBoolean();
+		private final CountDownLatch stopped = new CountDownLatch(1);
+		private Future<List<FraudSymptom>> future;
+
+		protected DetectorTask(final FraudDetector detector, final PK orderPk)
+		{
+			this.detector = detector;
+			this.orderPk = orderPk;
+		}
+
+		@Override
+		public List<FraudSymptom> call()
+		{
+			if (!claimed.compareAndSet(false, true))
+			{
+				return Collections.emptyList();
+			}
+			try
+			{
+				return detectInLocalView(detector, orderPk);
+			}
+			finally
+			{
+				stopped.countDown();
+			}
+		}
+
+		protected void cancel()
+		{
+			if (claimed.compareAndSet(false, true))
+			{
+				stopped.countDown();
+			}
+			future.cancel(true);
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Local stand-in for an external scoring service. Answers after the configured latency and reports a symptom if a score
+ * is configured.
+ */
+public class SimulatedExternalFraudDetector extends AbstractFraudDetector
+{
+	private long latency;
+
+	@Override
+	public List<FraudSymptom> detect(final OrderModel order)
+	{
+		try
+		{
+			Thread.sleep(latency);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for the external score of order " + order.getCode(), e);
+		}
+		if (getScore() <= 0)
+		{
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(new FraudSymptom(getName(), getScore(), "External score"));
+	}
+
+	public void setLatency(final long latency)
+	{
+		this.latency = latency;
+	}
+}
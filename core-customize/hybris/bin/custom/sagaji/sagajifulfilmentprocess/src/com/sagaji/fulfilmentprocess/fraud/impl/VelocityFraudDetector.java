@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.fraud.impl;
+
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import de.hybris.platform.servicelayer.search.FlexibleSearchService;
+import de.hybris.platform.servicelayer.time.TimeService;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Reports customers who placed more than maxOrders orders within the last period minutes.
+ */
+public class VelocityFraudDetector extends AbstractFraudDetector
+{
+	private static final String RECENT_ORDER_COUNT_QUERY = "SELECT COUNT({o:pk}) FROM {Order AS o} WHERE {o:user} = ?user"
+			+ " AND {o:date} >= ?since AND {o:versionID} IS NULL";
+
+	private FlexibleSearchService flexibleSearchService;
+	private TimeService timeService;
+	private int maxOrders;
+	private long periodMinutes;
+
+	@Override
+	public List<FraudSymptom> detect(final OrderModel order)
+	{
+		if (order.getUser() == null)
+		{
+			return Collections.emptyList();
+		}
+
+		final Date since = new Date(getTimeService().getCurrentTime().getTime() - TimeUnit.MINUTES.toMillis(periodMinutes));
+		final FlexibleSearchQuery query = new FlexibleSearchQuery(RECENT_ORDER_COUNT_QUERY);
+		query.addQueryParameter("user", order.getUser());
+		query.addQueryParameter("since", since);
+		query.setResultClassList(Collections.singletonList(Integer.class));
+		final List<Integer> result = getFlexibleSearchService().<Integer> search(query).getResult();
+		final int orderCount = result.isEmpty() || result.get(0) == null ? 0 : result.get(0).intValue();
+
+		if (orderCount <= maxOrders)
+		{
+			return Collections.emptyList();
+		}
+		return Collections.singletonList(new FraudSymptom(getName(), getScore(),
+				orderCount + " orders within " + periodMinutes + " minutes"));
+	}
+
+	protected FlexibleSearchService getFlexibleSearchService()
+	{
+		return flexibleSearchService;
+	}
+
+	@Required
+	public void setFlexibleSearchService(final FlexibleSearchService flexibleSearchService)
+	{
+		this.flexibleSearchService = flexibleSearchService;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	@Required
+	public void setMaxOrders(final int maxOrders)
+	{
+		this.maxOrders = maxOrders;
+	}
+
+	@Required
+	public void setPeriodMinutes(final long periodMinutes)
+	{
+		this.periodMinutes = periodMinutes;
+	}
+}
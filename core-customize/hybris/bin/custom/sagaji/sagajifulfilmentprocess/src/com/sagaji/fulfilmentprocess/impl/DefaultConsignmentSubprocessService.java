@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.impl;
+
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import com.sagaji.fulfilmentprocess.ConsignmentSubprocessService;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Default implementation of {@link ConsignmentSubprocessService}. The subprocesses are created by the
+ * {@link BusinessProcessService} and saved together with the updated subprocess count of the locked parent process in
+ * one <code>saveAll</code> call, which still writes every item with its own statement. All subprocesses are started in
+ * the same transaction, so the task engine picks up their first tasks together once it commits.
+ */
+public class DefaultConsignmentSubprocessService implements ConsignmentSubprocessService
+{
+	private static final Logger LOG = Logger.getLogger(DefaultConsignmentSubprocessService.class);
+
+	private ModelService modelService;
+	private BusinessProcessService businessProcessService;
+	private TransactionTemplate transactionTemplate;
+
+	@Override
+	public List<ConsignmentProcessModel> startSubprocesses(final OrderProcessModel parentProcess,
+			final List<ConsignmentModel> consignments)
+	{
+		if (consignments.isEmpty())
+		{
+			return Collections.emptyList();
+		}
+		final List<ConsignmentProcessModel> subprocesses = getTransactionTemplate().execute(status -> {
+			final List<ConsignmentProcessModel> created = createSubprocesses(parentProcess, consignments);
+			for (final ConsignmentProcessModel subprocess : created)
+			{
+				getBusinessProcessService().startProcess(subprocess);
+			}
+			return created;
+		});
+		if (LOG.isDebugEnabled())
+		{
+			LOG.debug("Process: " + parentProcess.getCode() + " started " + subprocesses.size() + " consignment subprocesses");
+		}
+		return subprocesses;
+	}
+
+	protected List<ConsignmentProcessModel> createSubprocesses(final OrderProcessModel parentProcess,
+			final List<ConsignmentModel> consignments)
+	{
+		getModelService().lock(parentProcess.getPk());
+		getModelService().refresh(parentProcess);
+
+		// the subprocesses count themselves on the order process when they end
+		final int offset = parentProcess.getConsignmentSubprocessCount();
+		final List<Object> toSave = new ArrayList<Object>(consignments.size() + 1);
+		final List<ConsignmentProcessModel> subprocesses = new ArrayList<ConsignmentProcessModel>(consignments.size());
+		for (int i = 0; i < consignments.size(); i++)
+		{
+			final ConsignmentProcessModel subprocess = getBusinessProcessService().createProcess(
+					parentProcess.getCode() + "_" + (offset + i + 1), SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_NAME);
+			subprocess.setParentProcess(parentProcess);
+			subprocess.setConsignment(consignments.get(i));
+			subprocesses.add(subprocess);
+			toSave.add(subprocess);
+		}
+		parentProcess.setConsignmentSubprocessCount(offset + consignments.size());
+		toSave.add(parentProcess);
+		getModelService().saveAll(toSave);
+		return subprocesses;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected BusinessProcessService getBusinessProcessService()
+	{
+		return businessProcessService;
+	}
+
+	@Required
+	public void setBusinessProcessService(final BusinessProcessService businessProcessService)
+	{
+		this.businessProcessService = businessProcessService;
+	}
+
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	@Required
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.interceptors;
+
+import de.hybris.platform.core.model.order.AbstractOrderModel;
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.interceptor.InterceptorContext;
+import de.hybris.platform.servicelayer.interceptor.PersistenceOperation;
+import de.hybris.platform.servicelayer.interceptor.PrepareInterceptor;
+import com.sagaji.fulfilmentprocess.enums.PaymentReviewStatus;
+
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * Keeps the review status of the payment transaction and the order up to date whenever an authorization or review
+ * decision entry is created, so the order process can read it without loading the transaction entries.
+ */
+public class PaymentReviewStatusPrepareInterceptor implements PrepareInterceptor<PaymentTransactionEntryModel>
+{
+	/**
+	 * Review statuses from the least to the most restrictive one, the order takes the most restrictive status of its
+	 * transactions.
+	 */
+	protected static final List<PaymentReviewStatus> PRECEDENCE = Arrays.asList(PaymentReviewStatus.AUTHORIZED,
+			PaymentReviewStatus.ACCEPTED, PaymentReviewStatus.REVIEW, PaymentReviewStatus.REJECTED);
+
+	@Override
+	public void onPrepare(final PaymentTransactionEntryModel entry, final InterceptorContext ctx)
+	{
+		final PaymentTransactionModel transaction = entry.getPaymentTransaction();
+		if (!ctx.isNew(entry) || transaction == null)
+		{
+			return;
+		}
+
+		final PaymentReviewStatus reviewStatus = getReviewStatus(entry);
+		if (reviewStatus == null || reviewStatus.equals(transaction.getReviewStatus()))
+		{
+			return;
+		}
+		transaction.setReviewStatus(reviewStatus);
+		ctx.registerElementFor(transaction, PersistenceOperation.SAVE);
+
+		final AbstractOrderModel order = transaction.getOrder();
+		if (order != null)
+		{
+			order.setPaymentReviewStatus(summarize(order, transaction));
+			ctx.registerElementFor(order, PersistenceOperation.SAVE);
+		}
+	}
+
+	protected PaymentReviewStatus getReviewStatus(final PaymentTransactionEntryModel entry)
+	{
+		if (PaymentTransactionType.REVIEW_DECISION.equals(entry.getType()))
+		{
+			return TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus()) ? PaymentReviewStatus.ACCEPTED
+					: PaymentReviewStatus.REJECTED;
+		}
+		if (PaymentTransactionType.AUTHORIZATION.equals(entry.getType()))
+		{
+			return TransactionStatus.REVIEW.name().equals(entry.getTransactionStatus()) ? PaymentReviewStatus.REVIEW
+					: PaymentReviewStatus.AUTHORIZED;
+		}
+		return null;
+	}
+
+	protected PaymentReviewStatus summarize(final AbstractOrderModel order, final PaymentTransactionModel changedTransaction)
+	{
+		PaymentReviewStatus summary = changedTransaction.getReviewStatus();
+		if (order.getPaymentTransactions() != null)
+		{
+			for (final PaymentTransactionModel transaction : order.getPaymentTransactions())
+			{
+				if (transaction != changedTransaction && transaction.getReviewStatus() != null
+						&& PRECEDENCE.indexOf(transaction.getReviewStatus()) > PRECEDENCE.indexOf(summary))
+				{
+					summary = transaction.getReviewStatus();
+				}
+			}
+		}
+		return summary;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.jobs;
+
+import de.hybris.platform.basecommerce.enums.ReturnStatus;
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.processengine.model.ProcessTaskModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.returns.BatchReturnResult;
+import com.sagaji.fulfilmentprocess.returns.BatchReturnService;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * CronJob that completes received returns with the {@link BatchReturnService}. Only returns whose <b>return-process</b>
+ * is waiting in <b>waitForGoodsAction</b> are read, in pages of ascending PKs; handled returns change their status, so
+ * a later run only picks up new returns and the ones still received.
+ * <p>
+ * Returns are set to <code>RECEIVED</code> by the goods receipt of the return warehouse, which is not part of this
+ * extension. Returns whose goods are accepted through the <code>acceptGoods</code> choice instead run the single
+ * return steps of the process.
+ */
+public class BatchReturnJob extends AbstractJobPerformable<CronJobModel>
+{
+	private static final Logger LOG = Logger.getLogger(BatchReturnJob.class);
+
+	private static final String RECEIVED_RETURN_PAGE_QUERY = "SELECT {rr." + ReturnRequestModel.PK + "} FROM {"
+			+ ReturnRequestModel._TYPECODE + " AS rr JOIN " + ReturnProcessModel._TYPECODE + " AS rp ON {rp."
+			+ ReturnProcessModel.RETURNREQUEST + "} = {rr." + ReturnRequestModel.PK + "} JOIN " + ProcessTaskModel._TYPECODE
+			+ " AS pt ON {pt." + ProcessTaskModel.PROCESS + "} = {rp." + ReturnProcessModel.PK + "}} WHERE {rr."
+			+ ReturnRequestModel.STATUS + "} = ?status AND {pt." + ProcessTaskModel.ACTION + "} = ?action AND {rr."
+			+ ReturnRequestModel.PK + "} > ?lastProcessedPk ORDER BY {rr." + ReturnRequestModel.PK + "}";
+
+	private BatchReturnService batchReturnService;
+	private int pageSize;
+
+	@Override
+	public boolean isAbortable()
+	{
+		return true;
+	}
+
+	@Override
+	public PerformResult perform(final CronJobModel cronJob)
+	{
+		long lastProcessedPk = 0;
+		int received = 0;
+		int completed = 0;
+
+		List<ReturnRequestModel> page = findReceivedReturns(lastProcessedPk);
+		while (!page.isEmpty())
+		{
+			final BatchReturnResult result = getBatchReturnService().processReturns(page);
+			received += result.getReceivedCount();
+			completed += result.getCompletedCount();
+			lastProcessedPk = page.get(page.size() - 1).getPk().getLongValue();
+
+			if (page.size() < pageSize)
+			{
+				break;
+			}
+			if (clearAbortRequestedIfNeeded(cronJob))
+			{
+				LOG.info("Batch return run aborted after " + received + " returns, " + completed + " completed");
+				return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+			}
+			page = findReceivedReturns(lastProcessedPk);
+		}
+
+		LOG.info("Batch return run processed " + received + " returns, " + completed + " completed");
+		return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+	}
+
+	/**
+	 * Reads the next page of received returns ordered by PK.
+	 */
+	protected List<ReturnRequestModel> findReceivedReturns(final long lastProcessedPk)
+	{
+		final FlexibleSearchQuery searchQuery = new FlexibleSearchQuery(RECEIVED_RETURN_PAGE_QUERY);
+		searchQuery.addQueryParameter("status", ReturnStatus.RECEIVED);
+		searchQuery.addQueryParameter("action", SagajiFulfilmentProcessConstants.WAIT_FOR_GOODS_ACTION);
+		searchQuery.addQueryParameter("lastProcessedPk", Long.valueOf(lastProcessedPk));
+		searchQuery.setCount(pageSize);
+		searchQuery.setNeedTotal(false);
+		return flexibleSearchService.<ReturnRequestModel> search(searchQuery).getResult();
+	}
+
+	protected BatchReturnService getBatchReturnService()
+	{
+		return batchReturnService;
+	}
+
+	@Required
+	public void setBatchReturnService(final BatchReturnService batchReturnService)
+	{
+		this.batchReturnService = batchReturnService;
+	}
+
+	@Required
+	public void setPageSize(final int pageSize)
+	{
+		this.pageSize = pageSize;
+	}
+}
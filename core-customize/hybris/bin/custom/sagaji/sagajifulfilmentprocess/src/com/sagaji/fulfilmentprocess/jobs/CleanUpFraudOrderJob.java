@@ -3,6 +3,7 @@
  */
 package com.sagaji.fulfilmentprocess.jobs;
 
+import de.hybris.platform.core.PK;
 import de.hybris.platform.cronjob.enums.CronJobResult;
 import de.hybris.platform.cronjob.enums.CronJobStatus;
 import de.hybris.platform.cronjob.model.CronJobModel;
@@ -13,17 +14,44 @@ import de.hybris.platform.servicelayer.cronjob.PerformResult;
 import de.hybris.platform.servicelayer.search.FlexibleSearchQuery;
 import de.hybris.platform.servicelayer.search.SearchResult;
 import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.model.CleanUpFraudOrderCronJobModel;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import org.apache.log4j.Logger;
 import org.springframework.beans.factory.annotation.Required;
 
 /**
  * CronJob periodically send CleanUpEvent for <b>order-process</b> processes which are in action <b>waitForCleanUp</b>
+ * <p>
+ * The waiting processes are read in pages of ascending PKs. After every page the job waits until the task engine has
+ * picked up most of the triggered events. A {@link CleanUpFraudOrderCronJobModel} remembers the last process of every
+ * page, so an aborted run continues where it stopped.
  */
 public class CleanUpFraudOrderJob extends AbstractJobPerformable<CronJobModel>
 {
+	private static final Logger LOG = Logger.getLogger(CleanUpFraudOrderJob.class);
+
+	private static final String PROCESS_CURRENT_ACTION = "waitForCleanUp";
+	private static final String EVENT_NAME_SUFFIX = "_CleanUpEvent";
+
+	private static final String WAITING_PROCESS_PAGE_QUERY = "SELECT {bp.pk}, {bp.code} "
+			+ "FROM {ProcessTask AS pt JOIN BusinessProcess AS bp ON {pt.process} = {bp.pk} } "
+			+ "WHERE {pt.action} = ?processCurrentAction AND {bp.processDefinitionName} = ?processDefinitionName "
+			+ "AND {pt.process} > ?lastProcessedPk ORDER BY {pt.process}";
+
+	private static final String PENDING_EVENT_COUNT_QUERY = "SELECT COUNT({pt.pk}) "
+			+ "FROM {ProcessTask AS pt JOIN BusinessProcess AS bp ON {pt.process} = {bp.pk} } "
+			+ "WHERE {pt.action} = ?processCurrentAction AND {bp.processDefinitionName} = ?processDefinitionName "
+			+ "AND {pt.process} > ?firstPk AND {pt.process} <= ?lastProcessedPk";
+
 	private BusinessProcessService businessProcessService;
+	private int pageSize;
+	private int maxPendingEvents;
+	private long backpressureInterval;
+	private long maxBackpressureWait;
 
 	protected BusinessProcessService getBusinessProcessService()
 	{
@@ -36,24 +64,144 @@ public class CleanUpFraudOrderJob extends AbstractJobPerformable<CronJobModel>
 		this.businessProcessService = businessProcessService;
 	}
 
+	@Override
+	public boolean isAbortable()
+	{
+		return true;
+	}
+
 	@Override
 	public PerformResult perform(final CronJobModel cronJob)
 	{
 		final String processDefinitionName = SagajiFulfilmentProcessConstants.ORDER_PROCESS_NAME;
-		final String processCurrentAction = "waitForCleanUp";
-		final List<BusinessProcessModel> processes = getAllProcessByDefinitionAndCurrentAction(processDefinitionName,
-				processCurrentAction);
+		final long firstPk = getLastProcessedPk(cronJob);
+		long lastProcessedPk = firstPk;
+		int triggered = 0;
+		boolean aborted = false;
 
-		final String eventNameSuffix = "_CleanUpEvent";
-		for (final BusinessProcessModel bpm : processes)
+		List<List<Object>> page = findWaitingProcesses(processDefinitionName, PROCESS_CURRENT_ACTION, lastProcessedPk);
+		while (!page.isEmpty())
 		{
-			//${process.code}_CleanUpEvent
-			final String eventName = bpm.getCode() + eventNameSuffix;
-			businessProcessService.triggerEvent(eventName);
+			for (final List<Object> row : page)
+			{
+				//${process.code}_CleanUpEvent
+				getBusinessProcessService().triggerEvent(row.get(1) + EVENT_NAME_SUFFIX);
+			}
+			triggered += page.size();
+			lastProcessedPk = ((PK) page.get(page.size() - 1).get(0)).getLongValue();
+			setLastProcessedPk(cronJob, Long.valueOf(lastProcessedPk));
+
+			if (page.size() < pageSize)
+			{
+				break;
+			}
+			if (!awaitTaskEngine(cronJob, processDefinitionName, firstPk, lastProcessedPk) || clearAbortRequestedIfNeeded(cronJob))
+			{
+				aborted = true;
+				break;
+			}
+			page = findWaitingProcesses(processDefinitionName, PROCESS_CURRENT_ACTION, lastProcessedPk);
 		}
+
+		if (aborted)
+		{
+			LOG.info("Clean up aborted after " + triggered + " events, next run resumes after process " + lastProcessedPk);
+			return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+		}
+
+		setLastProcessedPk(cronJob, null);
+		LOG.info("Sent clean up event to " + triggered + " processes");
 		return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
 	}
 
+	/**
+	 * Reads the next page of waiting processes ordered by PK.
+	 *
+	 * @return rows of process PK and process code
+	 */
+	protected List<List<Object>> findWaitingProcesses(final String processDefinitionName, final String processCurrentAction,
+			final long lastProcessedPk)
+	{
+		final FlexibleSearchQuery searchQuery = new FlexibleSearchQuery(WAITING_PROCESS_PAGE_QUERY);
+		searchQuery.addQueryParameter("processDefinitionName", processDefinitionName);
+		searchQuery.addQueryParameter("processCurrentAction", processCurrentAction);
+		searchQuery.addQueryParameter("lastProcessedPk", Long.valueOf(lastProcessedPk));
+		searchQuery.setResultClassList(Arrays.asList(PK.class, String.class));
+		searchQuery.setCount(pageSize);
+		final SearchResult<List<Object>> result = flexibleSearchService.search(searchQuery);
+		return result.getResult();
+	}
+
+	/**
+	 * Waits while more than maxPendingEvents triggered processes are still waiting for the task engine.
+	 *
+	 * @return false if the job was aborted meanwhile
+	 */
+	protected boolean awaitTaskEngine(final CronJobModel cronJob, final String processDefinitionName, final long firstPk,
+			final long lastProcessedPk)
+	{
+		final long deadline = System.currentTimeMillis() + maxBackpressureWait;
+		int pending = countPendingEvents(processDefinitionName, firstPk, lastProcessedPk);
+		while (pending > maxPendingEvents)
+		{
+			if (System.currentTimeMillis() >= deadline)
+			{
+				LOG.warn(pending + " clean up events still pending after " + maxBackpressureWait + " ms, continuing");
+				return true;
+			}
+			try
+			{
+				Thread.sleep(backpressureInterval);
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				return false;
+			}
+			if (clearAbortRequestedIfNeeded(cronJob))
+			{
+				return false;
+			}
+			pending = countPendingEvents(processDefinitionName, firstPk, lastProcessedPk);
+		}
+		return true;
+	}
+
+	protected int countPendingEvents(final String processDefinitionName, final long firstPk, final long lastProcessedPk)
+	{
+		final FlexibleSearchQuery searchQuery = new FlexibleSearchQuery(PENDING_EVENT_COUNT_QUERY);
+		searchQuery.addQueryParameter("processDefinitionName", processDefinitionName);
+		searchQuery.addQueryParameter("processCurrentAction", PROCESS_CURRENT_ACTION);
+		searchQuery.addQueryParameter("firstPk", Long.valueOf(firstPk));
+		searchQuery.addQueryParameter("lastProcessedPk", Long.valueOf(lastProcessedPk));
+		searchQuery.setResultClassList(Collections.singletonList(Integer.class));
+		final List<Integer> result = flexibleSearchService.<Integer> search(searchQuery).getResult();
+		return result.isEmpty() || result.get(0) == null ? 0 : result.get(0).intValue();
+	}
+
+	protected long getLastProcessedPk(final CronJobModel cronJob)
+	{
+		if (cronJob instanceof CleanUpFraudOrderCronJobModel
+				&& ((CleanUpFraudOrderCronJobModel) cronJob).getLastProcessedPk() != null)
+		{
+			return ((CleanUpFraudOrderCronJobModel) cronJob).getLastProcessedPk().longValue();
+		}
+		return 0;
+	}
+
+	protected void setLastProcessedPk(final CronJobModel cronJob, final Long lastProcessedPk)
+	{
+		if (cronJob instanceof CleanUpFraudOrderCronJobModel)
+		{
+			((CleanUpFraudOrderCronJobModel) cronJob).setLastProcessedPk(lastProcessedPk);
+			modelService.save(cronJob);
+		}
+	}
+
+	/**
+	 * @deprecated loads all waiting processes at once, use {@link #findWaitingProcesses(String, String, long)}
+	 */
+	@Deprecated
 	protected List<BusinessProcessModel> getAllProcessByDefinitionAndCurrentAction(final String processDefinitionName,
 			final String processCurrentAction)
 	{
@@ -66,4 +214,28 @@ public class CleanUpFraudOrderJob extends AbstractJobPerformable<CronJobModel>
 		final SearchResult<BusinessProcessModel> processes = flexibleSearchService.search(searchQuery);
 		return processes.getResult();
 	}
+
+	@Required
+	public void setPageSize(final int pageSize)
+	{
+		this.pageSize = pageSize;
+	}
+
+	@Required
+	public void setMaxPendingEvents(final int maxPendingEvents)
+	{
+		this.maxPendingEvents = maxPendingEvents;
+	}
+
+	@Required
+	public void setBackpressureInterval(final long backpressureInterval)
+	{
+		this.backpressureInterval = backpressureInterval;
+	}
+
+	@Required
+	public void setMaxBackpressureWait(final long maxBackpressureWait)
+	{
+		this.maxBackpressureWait = maxBackpressureWait;
+	}
 }
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.jobs;
+
+import de.hybris.platform.cronjob.enums.CronJobResult;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
+import de.hybris.platform.cronjob.model.CronJobModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.servicelayer.cronjob.AbstractJobPerformable;
+import de.hybris.platform.servicelayer.cronjob.PerformResult;
+import com.sagaji.fulfilmentprocess.dao.StockLevelDeltaDao;
+import com.sagaji.fulfilmentprocess.returns.StockReplenishmentService;
+
+import java.util.List;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * CronJob that adds the pending quantities of completed returns to the stock levels with the
+ * {@link StockReplenishmentService}. The stock levels with pending quantities are read in pages of ascending PKs, and
+ * every stock level is written once for all returns since the last run.
+ */
+public class StockReplenishmentJob extends AbstractJobPerformable<CronJobModel>
+{
+	private static final Logger LOG = Logger.getLogger(StockReplenishmentJob.class);
+
+	private StockLevelDeltaDao stockLevelDeltaDao;
+	private StockReplenishmentService stockReplenishmentService;
+	private int pageSize;
+
+	@Override
+	public boolean isAbortable()
+	{
+		return true;
+	}
+
+	@Override
+	public PerformResult perform(final CronJobModel cronJob)
+	{
+		long lastProcessedPk = 0;
+		int stockLevelCount = 0;
+		long quantity = 0;
+
+		List<StockLevelModel> page = getStockLevelDeltaDao().findStockLevelsWithDeltas(lastProcessedPk, pageSize);
+		while (!page.isEmpty())
+		{
+			for (final StockLevelModel stockLevel : page)
+			{
+				quantity += getStockReplenishmentService().applyPendingQuantities(stockLevel);
+			}
+			stockLevelCount += page.size();
+			lastProcessedPk = page.get(page.size() - 1).getPk().getLongValue();
+
+			if (page.size() < pageSize)
+			{
+				break;
+			}
+			if (clearAbortRequestedIfNeeded(cronJob))
+			{
+				LOG.info("Stock replenishment aborted after " + stockLevelCount + " stock levels, " + quantity + " pieces added");
+				return new PerformResult(CronJobResult.UNKNOWN, CronJobStatus.ABORTED);
+			}
+			page = getStockLevelDeltaDao().findStockLevelsWithDeltas(lastProcessedPk, pageSize);
+		}
+
+		LOG.info("Stock replenishment updated " + stockLevelCount + " stock levels, " + quantity + " pieces added");
+		return new PerformResult(CronJobResult.SUCCESS, CronJobStatus.FINISHED);
+	}
+
+	protected StockLevelDeltaDao getStockLevelDeltaDao()
+	{
+		return stockLevelDeltaDao;
+	}
+
+	@Required
+	public void setStockLevelDeltaDao(final StockLevelDeltaDao stockLevelDeltaDao)
+	{
+		this.stockLevelDeltaDao = stockLevelDeltaDao;
+	}
+
+	protected StockReplenishmentService getStockReplenishmentService()
+	{
+		return stockReplenishmentService;
+	}
+
+	@Required
+	public void setStockReplenishmentService(final StockReplenishmentService stockReplenishmentService)
+	{
+		this.stockReplenishmentService = stockReplenishmentService;
+	}
+
+	@Required
+	public void setPageSize(final int pageSize)
+	{
+		this.pageSize = pageSize;
+	}
+}
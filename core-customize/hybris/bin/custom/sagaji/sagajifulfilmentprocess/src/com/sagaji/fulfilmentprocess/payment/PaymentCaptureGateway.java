@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.payment;
+
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+
+
+/**
+ * Client of the payment provider used by the {@link PaymentCaptureOrchestrator}. The transactions of an order are
+ * captured concurrently, so implementations must be thread safe.
+ */
+public interface PaymentCaptureGateway
+{
+	/**
+	 * Captures the authorized amount of the transaction. Implementations that can pass the idempotency key to the
+	 * provider must do so, so that a capture repeated after a timeout does not charge the customer again.
+	 *
+	 * @param transaction
+	 *           the authorized transaction
+	 * @param idempotencyKey
+	 *           key identifying this capture of the transaction
+	 * @return the capture entry of the transaction
+	 */
+	PaymentTransactionEntryModel capture(PaymentTransactionModel transaction, String idempotencyKey);
+}
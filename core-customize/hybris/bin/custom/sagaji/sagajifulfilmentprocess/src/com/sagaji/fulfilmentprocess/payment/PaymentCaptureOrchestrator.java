@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.payment;
+
+import de.hybris.platform.core.model.order.OrderModel;
+
+
+/**
+ * Captures all credit card transactions of an order at once.
+ */
+public interface PaymentCaptureOrchestrator
+{
+	/**
+	 * Captures the credit card transactions of the order that are not captured yet. The order itself is not changed.
+	 *
+	 * @param order
+	 *           the order to capture
+	 * @return the outcome of the captures
+	 */
+	PaymentCaptureResult capture(OrderModel order);
+}
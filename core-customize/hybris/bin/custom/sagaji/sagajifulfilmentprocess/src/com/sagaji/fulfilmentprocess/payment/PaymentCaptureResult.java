@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.payment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of capturing the transactions of an order.
+ */
+public class PaymentCaptureResult
+{
+	private final List<String> capturedTransactionCodes = new ArrayList<String>();
+	private final List<String> rejectedTransactionCodes = new ArrayList<String>();
+	private final List<String> timedOutTransactionCodes = new ArrayList<String>();
+
+	public void addCaptured(final String transactionCode)
+	{
+		capturedTransactionCodes.add(transactionCode);
+	}
+
+	public void addRejected(final String transactionCode)
+	{
+		rejectedTransactionCodes.add(transactionCode);
+	}
+
+	public void addTimedOut(final String transactionCode)
+	{
+		timedOutTransactionCodes.add(transactionCode);
+	}
+
+	/**
+	 * @return true if no capture was rejected or timed out
+	 */
+	public boolean isCaptured()
+	{
+		return rejectedTransactionCodes.isEmpty() && timedOutTransactionCodes.isEmpty();
+	}
+
+	/**
+	 * @return the codes of the transactions that are captured, including those captured by an earlier attempt
+	 */
+	public List<String> getCapturedTransactionCodes()
+	{
+		return Collections.unmodifiableList(capturedTransactionCodes);
+	}
+
+	/**
+	 * @return the codes of the transactions whose capture was rejected or failed
+	 */
+	public List<String> getRejectedTransactionCodes()
+	{
+		return Collections.unmodifiableList(rejectedTransactionCodes);
+	}
+
+	/**
+	 * @return the codes of the transactions whose capture did not answer in time
+	 */
+	public List<String> getTimedOutTransactionCodes()
+	{
+		return Collections.unmodifiableList(timedOutTransactionCodes);
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.payment.impl;
+
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.order.payment.CreditCardPaymentInfoModel;
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureGateway;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureOrchestrator;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureResult;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link PaymentCaptureOrchestrator}. The credit card transactions of an order are captured
+ * concurrently on <code>poolSize</code> tenant aware threads, so the capture of a split tender order takes as long as
+ * its slowest transaction. Every thread loads its transaction by PK in its own session. All captures share a deadline
+ * of <code>timeout</code> milliseconds; a capture not answering in time is reported as timed out, its outcome is
+ * unknown. It is not cancelled, so a late answer of the provider is still stored as a capture entry of the transaction.
+ * <p>
+ * Transactions that already have an accepted capture entry are not sent again, so capturing the order again after a
+ * timeout only sends the captures that did not succeed in the meantime. Every capture is sent with the idempotency key
+ * <code>&lt;order code&gt;-&lt;transaction code&gt;-capture</code>; whether a repeated capture can still charge twice
+ * depends on the {@link PaymentCaptureGateway} passing the key to the provider. An order with a single transaction, or
+ * a pool size of 1, is captured on the calling thread without timeout.
+ */
+public class DefaultPaymentCaptureOrchestrator implements PaymentCaptureOrchestrator, InitializingBean, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(DefaultPaymentCaptureOrchestrator.class);
+
+	private PaymentCaptureGateway paymentCaptureGateway;
+	private ModelService modelService;
+	private SessionService sessionService;
+	private int poolSize;
+	private long timeout;
+
+	private ExecutorService executor;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (poolSize <= 1)
+		{
+			return;
+		}
+		executor = Executors.newFixedThreadPool(poolSize,
+				new TenantAwareThreadFactory("PaymentCapture", getSessionService()));
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public PaymentCaptureResult capture(final OrderModel order)
+	{
+		final PaymentCaptureResult result = new PaymentCaptureResult();
+		final List<PaymentTransactionModel> transactions = new ArrayList<PaymentTransactionModel>();
+		for (final PaymentTransactionModel transaction : order.getPaymentTransactions())
+		{
+			if (!(transaction.getInfo() instanceof CreditCardPaymentInfoModel))
+			{
+				continue;
+			}
+			if (isCaptured(transaction))
+			{
+				result.addCaptured(transaction.getCode());
+			}
+			else
+			{
+				transactions.add(transaction);
+			}
+		}
+
+		if (executor == null || transactions.size() <= 1)
+		{
+			for (final PaymentTransactionModel transaction : transactions)
+			{
+				final String idempotencyKey = getIdempotencyKey(order, transaction);
+				addCapture(result, order, transaction, getPaymentCaptureGateway().capture(transaction, idempotencyKey));
+			}
+			return result;
+		}
+
+		final Map<PaymentTransactionModel, Future<PaymentTransactionEntryModel>> captures =
+				new LinkedHashMap<PaymentTransactionModel, Future<PaymentTransactionEntryModel>>();
+		for (final PaymentTransactionModel transaction : transactions)
+		{
+			final String idempotencyKey = getIdempotencyKey(order, transaction);
+			final PK transactionPk = transaction.getPk();
+			captures.put(transaction, executor.submit(() -> captureInSession(transactionPk, idempotencyKey)));
+		}
+
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+		for (final Map.Entry<PaymentTransactionModel, Future<PaymentTransactionEntryModel>> capture : captures.entrySet())
+		{
+			final PaymentTransactionModel transaction = capture.getKey();
+			try
+			{
+				addCapture(result, order, transaction, capture.getValue().get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS));
+			}
+			catch (final TimeoutException e)
+			{
+				LOG.warn("The payment transaction capture did not answer within " + timeout + " ms. Order: " + order.getCode()
+						+ ". Txn: " + transaction.getCode());
+				result.addTimedOut(transaction.getCode());
+			}
+			catch (final ExecutionException e)
+			{
+				LOG.error("The payment transaction capture has failed. Order: " + order.getCode() + ". Txn: "
+						+ transaction.getCode(), e.getCause());
+				result.addRejected(transaction.getCode());
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while capturing order " + order.getCode(), e);
+			}
+		}
+		return result;
+	}
+
+	protected void addCapture(final PaymentCaptureResult result, final OrderModel order,
+			final PaymentTransactionModel transaction, final PaymentTransactionEntryModel entry)
+	{
+		if (entry != null && TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus()))
+		{
+			if (LOG.isDebugEnabled())
+			{
+				LOG.debug("The payment transaction has been captured. Order: " + order.getCode() + ". Txn: " + transaction.getCode());
+			}
+			result.addCaptured(transaction.getCode());
+		}
+		else
+		{
+			LOG.error("The payment transaction capture has failed. Order: " + order.getCode() + ". Txn: " + transaction.getCode());
+			result.addRejected(transaction.getCode());
+		}
+	}
+
+	protected PaymentTransactionEntryModel captureInSession(final PK transactionPk, final String idempotencyKey)
+	{
+		try
+		{
+			final PaymentTransactionModel transaction = getModelService().get(transactionPk);
+			return getPaymentCaptureGateway().capture(transaction, idempotencyKey);
+		}
+		finally
+		{
+			getSessionService().closeCurrentSession();
+		}
+	}
+
+	protected boolean isCaptured(final PaymentTransactionModel transaction)
+	{
+		if (transaction.getEntries() == null)
+		{
+			return false;
+		}
+		for (final PaymentTransactionEntryModel entry : transaction.getEntries())
+		{
+			if (PaymentTransactionType.CAPTURE.equals(entry.getType())
+					&& TransactionStatus.ACCEPTED.name().equals(entry.getTransactionStatus()))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	protected String getIdempotencyKey(final OrderModel order, final PaymentTransactionModel transaction)
+	{
+		return order.getCode() + "-" + transaction.getCode() + "-capture";
+	}
+
+	protected PaymentCaptureGateway getPaymentCaptureGateway()
+	{
+		return paymentCaptureGateway;
+	}
+
+	@Required
+	public void setPaymentCaptureGateway(final PaymentCaptureGateway paymentCaptureGateway)
+	{
+		this.paymentCaptureGateway = paymentCaptureGateway;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	/**
+	 * @param poolSize
+	 *           number of threads capturing transactions, 1 captures them on the calling thread
+	 */
+	@Required
+	public void setPoolSize(final int poolSize)
+	{
+		this.poolSize = poolSize;
+	}
+
+	/**
+	 * @param timeout
+	 *           milliseconds to wait for all captures of an order
+	 */
+	@Required
+	public void setTimeout(final long timeout)
+	{
+		this.timeout = timeout;
+	}
+}
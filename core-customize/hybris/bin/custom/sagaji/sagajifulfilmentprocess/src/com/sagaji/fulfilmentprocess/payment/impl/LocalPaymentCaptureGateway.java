@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.payment.impl;
+
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.dto.TransactionStatusDetails;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureGateway;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Local stand-in for the payment provider for load tests. Every capture answers after <code>latency</code> milliseconds
+ * and is rejected with a probability of <code>failureRate</code> percent. Captures are remembered by idempotency key,
+ * so a repeated capture returns the first answer without charging again.
+ */
+public class LocalPaymentCaptureGateway implements PaymentCaptureGateway
+{
+	private ModelService modelService;
+	private long latency;
+	private int failureRate;
+
+	private final ConcurrentMap<String, FutureTask<PaymentTransactionEntryModel>> captures =
+			new ConcurrentHashMap<String, FutureTask<PaymentTransactionEntryModel>>();
+	private final AtomicLong chargeCount = new AtomicLong();
+
+	@Override
+	public PaymentTransactionEntryModel capture(final PaymentTransactionModel transaction, final String idempotencyKey)
+	{
+		final FutureTask<PaymentTransactionEntryModel> charge = new FutureTask<PaymentTransactionEntryModel>(
+				() -> charge(transaction, idempotencyKey));
+		final FutureTask<PaymentTransactionEntryModel> previous = captures.putIfAbsent(idempotencyKey, charge);
+		if (previous == null)
+		{
+			charge.run();
+		}
+		try
+		{
+			return (previous == null ? charge : previous).get();
+		}
+		catch (final ExecutionException e)
+		{
+			captures.remove(idempotencyKey, charge);
+			throw new IllegalStateException("Capture " + idempotencyKey + " failed", e.getCause());
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while capturing " + idempotencyKey, e);
+		}
+	}
+
+	protected PaymentTransactionEntryModel charge(final PaymentTransactionModel transaction, final String idempotencyKey)
+	{
+		try
+		{
+			Thread.sleep(latency);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while capturing " + idempotencyKey, e);
+		}
+		chargeCount.incrementAndGet();
+
+		final boolean accepted = ThreadLocalRandom.current().nextInt(100) >= failureRate;
+		final PaymentTransactionEntryModel entry = getModelService().create(PaymentTransactionEntryModel.class);
+		entry.setCode(idempotencyKey);
+		entry.setType(PaymentTransactionType.CAPTURE);
+		entry.setPaymentTransaction(transaction);
+		entry.setAmount(transaction.getPlannedAmount());
+		entry.setCurrency(transaction.getCurrency());
+		entry.setRequestId(idempotencyKey);
+		entry.setTime(new Date());
+		entry.setTransactionStatus(accepted ? TransactionStatus.ACCEPTED.name() : TransactionStatus.REJECTED.name());
+		entry.setTransactionStatusDetails(
+				accepted ? TransactionStatusDetails.SUCCESFULL.name() : TransactionStatusDetails.GENERAL_SYSTEM_ERROR.name());
+		getModelService().save(entry);
+		return entry;
+	}
+
+	/**
+	 * @return number of captures that reached the stand-in, without repeated idempotency keys
+	 */
+	public long getChargeCount()
+	{
+		return chargeCount.get();
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	public void setLatency(final long latency)
+	{
+		this.latency = latency;
+	}
+
+	/**
+	 * @param failureRate
+	 *           percentage of captures, between 0 and 100, that are rejected
+	 */
+	public void setFailureRate(final int failureRate)
+	{
+		this.failureRate = failureRate;
+	}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.payment.impl;
+
+import de.hybris.platform.payment.PaymentService;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureGateway;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Captures through the {@link PaymentService} of the platform. The payment service does not pass an idempotency key to
+ * the provider, so a capture repeated while the provider still processes the first one can charge twice. The
+ * orchestrator only skips transactions that already have an accepted capture entry; the delay before a timed out
+ * capture is repeated must therefore be longer than the provider takes to answer.
+ */
+public class PaymentServiceCaptureGateway implements PaymentCaptureGateway
+{
+	private PaymentService paymentService;
+
+	@Override
+	public PaymentTransactionEntryModel capture(final PaymentTransactionModel transaction, final String idempotencyKey)
+	{
+		return getPaymentService().capture(transaction);
+	}
+
+	protected PaymentService getPaymentService()
+	{
+		return paymentService;
+	}
+
+	@Required
+	public void setPaymentService(final PaymentService paymentService)
+	{
+		this.paymentService = paymentService;
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of a batch return run.
+ */
+public class BatchReturnResult
+{
+	private int receivedCount;
+	private int completedCount;
+	private int skippedCount;
+	private int batchCount;
+	private int restockedEntryCount;
+	private int triggeredEventCount;
+	private long durationMillis;
+	private final List<String> refundFailedCodes = new ArrayList<String>();
+	private final List<String> taxReversalFailedCodes = new ArrayList<String>();
+	private final List<String> failedProcessCodes = new ArrayList<String>();
+
+	public void addReceived(final int count)
+	{
+		receivedCount += count;
+	}
+
+	public void addCompleted(final int count)
+	{
+		completedCount += count;
+	}
+
+	public void addSkipped(final int count)
+	{
+		skippedCount += count;
+	}
+
+	public void addBatch()
+	{
+		batchCount++;
+	}
+
+	public void addRestockedEntries(final int count)
+	{
+		restockedEntryCount += count;
+	}
+
+	public void addTriggeredEvents(final int count)
+	{
+		triggeredEventCount += count;
+	}
+
+	public void addRefundFailed(final String returnCode)
+	{
+		refundFailedCodes.add(returnCode);
+	}
+
+	public void addTaxReversalFailed(final String returnCode)
+	{
+		taxReversalFailedCodes.add(returnCode);
+	}
+
+	public void addFailedProcess(final String processCode)
+	{
+		failedProcessCodes.add(processCode);
+	}
+
+	/**
+	 * @return the number of returns passed in
+	 */
+	public int getReceivedCount()
+	{
+		return receivedCount;
+	}
+
+	/**
+	 * @return the number of returns that were refunded, tax reversed and restocked
+	 */
+	public int getCompletedCount()
+	{
+		return completedCount;
+	}
+
+	/**
+	 * @return the number of returns that were left to another run because it had claimed them
+	 */
+	public int getSkippedCount()
+	{
+		return skippedCount;
+	}
+
+	/**
+	 * @return the number of batches the returns were split into
+	 */
+	public int getBatchCount()
+	{
+		return batchCount;
+	}
+
+	/**
+	 * @return the number of return entries whose quantity was added to a stock level
+	 */
+	public int getRestockedEntryCount()
+	{
+		return restockedEntryCount;
+	}
+
+	/**
+	 * @return the number of return processes released from waiting for the goods
+	 */
+	public int getTriggeredEventCount()
+	{
+		return triggeredEventCount;
+	}
+
+	public long getDurationMillis()
+	{
+		return durationMillis;
+	}
+
+	public void setDurationMillis(final long durationMillis)
+	{
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * @return the codes of the returns whose refund failed
+	 */
+	public List<String> getRefundFailedCodes()
+	{
+		return Collections.unmodifiableList(refundFailedCodes);
+	}
+
+	/**
+	 * @return the codes of the returns whose tax reversal failed
+	 */
+	public List<String> getTaxReversalFailedCodes()
+	{
+		return Collections.unmodifiableList(taxReversalFailedCodes);
+	}
+
+	/**
+	 * @return the codes of the processes whose event could not be triggered
+	 */
+	public List<String> getFailedProcessCodes()
+	{
+		return Collections.unmodifiableList(failedProcessCodes);
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns;
+
+import de.hybris.platform.returns.model.ReturnRequestModel;
+
+import java.util.List;
+
+
+/**
+ * Completes received returns in batches instead of running the refund, tax and inventory steps of the
+ * <b>return-process</b> for every return on its own.
+ */
+public interface BatchReturnService
+{
+	/**
+	 * Captures the refunds, reverses the taxes and restocks the goods of the given returns. Every handled return releases
+	 * its <b>return-process</b> from <b>waitForGoodsAction</b>: returns that complete successfully end the process,
+	 * returns whose refund or tax reversal fails move it to the wait of the failed capture or tax reversal.
+	 *
+	 * @param returnRequests
+	 *           the received returns
+	 * @return the outcome of the run
+	 */
+	BatchReturnResult processReturns(List<ReturnRequestModel> returnRequests);
+}
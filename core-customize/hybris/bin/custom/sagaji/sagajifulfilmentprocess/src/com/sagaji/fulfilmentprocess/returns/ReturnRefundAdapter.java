@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns;
+
+import de.hybris.platform.returns.model.ReturnRequestModel;
+
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Refunds the money of a batch of returns with the payment provider. Implementations must not modify the returns.
+ * <p>
+ * A batch may be sent again when its results could not be committed. Implementations pass the
+ * <code>refundIdempotencyKey</code> of every return to the provider, which refunds a return with a known key only once.
+ */
+public interface ReturnRefundAdapter
+{
+	/**
+	 * Captures the refunds of the given returns.
+	 *
+	 * @param returnRequests
+	 *           the returns to refund
+	 * @return the codes of the returns whose refund failed, empty if all succeeded
+	 */
+	Set<String> captureRefunds(List<ReturnRequestModel> returnRequests);
+}
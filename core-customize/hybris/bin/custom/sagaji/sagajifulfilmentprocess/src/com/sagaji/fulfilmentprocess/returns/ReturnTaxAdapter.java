@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns;
+
+import de.hybris.platform.returns.model.ReturnRequestModel;
+
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * Reverses the taxes of a batch of refunded returns with the tax provider. Implementations must not modify the returns.
+ * <p>
+ * A batch may be sent again when its results could not be committed. Implementations pass the
+ * <code>refundIdempotencyKey</code> of every return to the provider, which reverses the taxes of a return only once.
+ */
+public interface ReturnTaxAdapter
+{
+	/**
+	 * Reverses the taxes of the given returns.
+	 *
+	 * @param returnRequests
+	 *           the refunded returns
+	 * @return the codes of the returns whose tax reversal failed, empty if all succeeded
+	 */
+	Set<String> reverseTaxes(List<ReturnRequestModel> returnRequests);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+
+import java.util.Collection;
+
+
+/**
+ * Adds the goods of completed returns back to the stock of the return warehouse. The returned quantities are first
+ * stored as pending quantities of the stock levels, so completing a return never waits for the lock of a stock level;
+ * they are added to the available amounts with {@link #applyPendingQuantities(StockLevelModel)}, which writes a stock
+ * level once for all returns since it was last applied.
+ */
+public interface StockReplenishmentService
+{
+	/**
+	 * Stores the returned quantities of all entries as pending quantities of the stock levels of the return warehouse, in
+	 * the current transaction, if there is one.
+	 *
+	 * @param returnRequest
+	 *           the completed return
+	 */
+	void replenish(ReturnRequestModel returnRequest);
+
+	/**
+	 * Stores the returned quantities of all given returns as pending quantities of the stock levels of their return
+	 * warehouses, one per stock level, in the current transaction, if there is one.
+	 *
+	 * @param returnRequests
+	 *           the completed returns
+	 */
+	void replenish(Collection<ReturnRequestModel> returnRequests);
+
+	/**
+	 * Adds the pending quantities of the given stock level to its available amount and removes them, in a transaction
+	 * that locks the stock level.
+	 *
+	 * @param stockLevel
+	 *           the stock level
+	 * @return the added quantity
+	 */
+	int applyPendingQuantities(StockLevelModel stockLevel);
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns.impl;
+
+import de.hybris.platform.basecommerce.enums.ReturnStatus;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.processengine.model.BusinessProcessEvent;
+import de.hybris.platform.returns.model.ReturnEntryModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.dao.ReturnProcessDao;
+import com.sagaji.fulfilmentprocess.returns.BatchReturnResult;
+import com.sagaji.fulfilmentprocess.returns.BatchReturnService;
+import com.sagaji.fulfilmentprocess.returns.ReturnRefundAdapter;
+import com.sagaji.fulfilmentprocess.returns.ReturnTaxAdapter;
+import com.sagaji.fulfilmentprocess.returns.StockReplenishmentService;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Default implementation of {@link BatchReturnService}. The returns are handled in batches of <code>batchSize</code>:
+ * <ol>
+ * <li>the returns of the batch are claimed in one transaction that locks every return and only takes the ones that are
+ * still received and not claimed by another run, whose claim lasts <code>claimTimeout</code> milliseconds;</li>
+ * <li>the refunds of the claimed returns are captured with one call of the {@link ReturnRefundAdapter} and the taxes of
+ * the refunded returns are reversed with one call of the {@link ReturnTaxAdapter}, outside of any transaction;</li>
+ * <li>the statuses of the returns and entries are saved with one <code>saveAll</code> and the goods of the completed
+ * returns are added to the stock by the {@link StockReplenishmentService}, in one transaction that only writes the
+ * returns still claimed by this run;</li>
+ * <li>the processes of the returns leave <b>waitForGoodsAction</b>: completed returns through the
+ * <code>batchProcessed</code> choice to the end of the process, returns whose refund or tax reversal failed through the
+ * <code>batchRefundFailed</code> and <code>batchTaxReversalFailed</code> choices to the waits of the failed capture and
+ * tax reversal, where they are handled like the failures of a single return.</li>
+ * </ol>
+ * Every return keeps the <code>refundIdempotencyKey</code> it got on its first claim. If the last transaction fails, the
+ * claim expires and a later run sends the refund and tax reversal again with the same key, which the providers do not
+ * execute twice.
+ */
+public class DefaultBatchReturnService implements BatchReturnService
+{
+	private static final Logger LOG = Logger.getLogger(DefaultBatchReturnService.class);
+
+	private ReturnRefundAdapter returnRefundAdapter;
+	private ReturnTaxAdapter returnTaxAdapter;
+	private StockReplenishmentService stockReplenishmentService;
+	private ReturnProcessDao returnProcessDao;
+	private ModelService modelService;
+	private BusinessProcessService businessProcessService;
+	private TimeService timeService;
+	private TransactionTemplate transactionTemplate;
+	private int batchSize;
+	private long claimTimeout;
+
+	@Override
+	public BatchReturnResult processReturns(final List<ReturnRequestModel> returnRequests)
+	{
+		final long start = System.nanoTime();
+		final BatchReturnResult result = new BatchReturnResult();
+		for (int from = 0; from < returnRequests.size(); from += getBatchSize())
+		{
+			processBatch(returnRequests.subList(from, Math.min(returnRequests.size(), from + getBatchSize())), result);
+		}
+
+		result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		LOG.info("Processed " + result.getReceivedCount() + " returns in " + result.getBatchCount() + " batches and "
+				+ result.getDurationMillis() + " ms: " + result.getCompletedCount() + " completed, " + result.getSkippedCount()
+				+ " claimed by another run, " + result.getRefundFailedCodes().size() + " refunds failed, "
+				+ result.getTaxReversalFailedCodes().size() + " tax reversals failed, " + result.getRestockedEntryCount()
+				+ " entries restocked");
+		return result;
+	}
+
+	protected void processBatch(final List<ReturnRequestModel> batch, final BatchReturnResult result)
+	{
+		result.addBatch();
+		result.addReceived(batch.size());
+
+		final String claimId = UUID.randomUUID().toString();
+		final List<ReturnRequestModel> claimed = getTransactionTemplate().execute(status -> claim(batch, claimId));
+		result.addSkipped(batch.size() - claimed.size());
+		if (claimed.isEmpty())
+		{
+			return;
+		}
+
+		final Set<String> refundFailed = getReturnRefundAdapter().captureRefunds(claimed);
+		final List<ReturnRequestModel> refunded = new ArrayList<ReturnRequestModel>();
+		for (final ReturnRequestModel returnRequest : claimed)
+		{
+			if (!refundFailed.contains(returnRequest.getCode()))
+			{
+				refunded.add(returnRequest);
+			}
+		}
+		final Set<String> taxFailed = refunded.isEmpty() ? new HashSet<String>() : getReturnTaxAdapter().reverseTaxes(refunded);
+
+		final Map<ReturnRequestModel, String> choices = getTransactionTemplate()
+				.execute(status -> complete(claimed, claimId, refundFailed, taxFailed, result));
+		releaseProcesses(choices, result);
+	}
+
+	/**
+	 * Claims the returns that are still received and not claimed by another run, and gives every claimed return an
+	 * idempotency key unless it already has one. Must be called in a transaction.
+	 *
+	 * @return the claimed returns
+	 */
+	protected List<ReturnRequestModel> claim(final List<ReturnRequestModel> batch, final String claimId)
+	{
+		final Date now = getTimeService().getCurrentTime();
+		final List<ReturnRequestModel> claimed = new ArrayList<ReturnRequestModel>(batch.size());
+		for (final ReturnRequestModel returnRequest : batch)
+		{
+			getModelService().lock(returnRequest.getPk());
+			getModelService().refresh(returnRequest);
+			if (ReturnStatus.RECEIVED.equals(returnRequest.getStatus())
+					&& (returnRequest.getBatchClaimedUntil() == null || returnRequest.getBatchClaimedUntil().before(now)))
+			{
+				if (returnRequest.getRefundIdempotencyKey() == null)
+				{
+					returnRequest.setRefundIdempotencyKey(UUID.randomUUID().toString());
+				}
+				returnRequest.setBatchClaimId(claimId);
+				returnRequest.setBatchClaimedUntil(new Date(now.getTime() + getClaimTimeout()));
+				claimed.add(returnRequest);
+			}
+		}
+		getModelService().saveAll(claimed);
+		return claimed;
+	}
+
+	/**
+	 * Sets the outcome of the refund and tax reversal on the returns still claimed by this run, releases their claim and
+	 * restocks the completed returns. Must be called in a transaction.
+	 *
+	 * @return the choice the process of every written return takes to leave <b>waitForGoodsAction</b>
+	 */
+	protected Map<ReturnRequestModel, String> complete(final List<ReturnRequestModel> claimed, final String claimId,
+			final Set<String> refundFailed, final Set<String> taxFailed, final BatchReturnResult result)
+	{
+		final List<Object> modified = new ArrayList<Object>();
+		final Map<ReturnRequestModel, String> choices = new LinkedHashMap<ReturnRequestModel, String>();
+		final List<ReturnRequestModel> completed = new ArrayList<ReturnRequestModel>();
+		final List<String> refundFailedCodes = new ArrayList<String>();
+		final List<String> taxFailedCodes = new ArrayList<String>();
+		int lostClaims = 0;
+		for (final ReturnRequestModel returnRequest : claimed)
+		{
+			getModelService().lock(returnRequest.getPk());
+			getModelService().refresh(returnRequest);
+			if (!claimId.equals(returnRequest.getBatchClaimId()))
+			{
+				LOG.warn("Claim of return [" + returnRequest.getCode() + "] expired, it is completed by another run");
+				lostClaims++;
+				continue;
+			}
+			returnRequest.setBatchClaimId(null);
+			returnRequest.setBatchClaimedUntil(null);
+			if (refundFailed.contains(returnRequest.getCode()))
+			{
+				setStatus(returnRequest, ReturnStatus.PAYMENT_REVERSAL_FAILED, modified);
+				refundFailedCodes.add(returnRequest.getCode());
+				choices.put(returnRequest, SagajiFulfilmentProcessConstants.BATCH_REFUND_FAILED_CHOICE);
+			}
+			else if (taxFailed.contains(returnRequest.getCode()))
+			{
+				setStatus(returnRequest, ReturnStatus.TAX_REVERSAL_FAILED, modified);
+				taxFailedCodes.add(returnRequest.getCode());
+				choices.put(returnRequest, SagajiFulfilmentProcessConstants.BATCH_TAX_REVERSAL_FAILED_CHOICE);
+			}
+			else
+			{
+				setStatus(returnRequest, ReturnStatus.COMPLETED, modified);
+				completed.add(returnRequest);
+				choices.put(returnRequest, SagajiFulfilmentProcessConstants.BATCH_PROCESSED_CHOICE);
+			}
+		}
+
+		getModelService().saveAll(modified);
+		final int restockedEntries = restock(completed);
+
+		result.addSkipped(lostClaims);
+		refundFailedCodes.forEach(result::addRefundFailed);
+		taxFailedCodes.forEach(result::addTaxReversalFailed);
+		result.addCompleted(completed.size());
+		result.addRestockedEntries(restockedEntries);
+		return choices;
+	}
+
+	/**
+	 * Adds the goods of the given returns to the stock of their return warehouses.
+	 *
+	 * @return the number of restocked return entries
+	 */
+	protected int restock(final List<ReturnRequestModel> returnRequests)
+	{
+		if (returnRequests.isEmpty())
+		{
+			return 0;
+		}
+		getStockReplenishmentService().replenish(returnRequests);
+		int entryCount = 0;
+		for (final ReturnRequestModel returnRequest : returnRequests)
+		{
+			if (returnRequest.getReturnWarehouse() != null)
+			{
+				entryCount += returnRequest.getReturnEntries().size();
+			}
+		}
+		return entryCount;
+	}
+
+	/**
+	 * Triggers the given choice for the processes of the returns that still wait in <b>waitForGoodsAction</b>.
+	 */
+	protected void releaseProcesses(final Map<ReturnRequestModel, String> choices, final BatchReturnResult result)
+	{
+		if (choices.isEmpty())
+		{
+			return;
+		}
+		for (final ReturnProcessModel process : getReturnProcessDao().findReturnProcesses(choices.keySet(),
+				SagajiFulfilmentProcessConstants.WAIT_FOR_GOODS_ACTION))
+		{
+			final String choice = choices.get(process.getReturnRequest());
+			if (choice == null)
+			{
+				continue;
+			}
+			try
+			{
+				getBusinessProcessService().triggerEvent(BusinessProcessEvent
+						.builder(process.getCode() + "_" + SagajiFulfilmentProcessConstants.APPROVE_OR_CANCEL_GOODS_EVENT_NAME)
+						.withChoice(choice).build());
+				result.addTriggeredEvents(1);
+			}
+			catch (final RuntimeException e)
+			{
+				LOG.error("Could not release return process [" + process.getCode() + "]", e);
+				result.addFailedProcess(process.getCode());
+			}
+		}
+	}
+
+	protected void setStatus(final ReturnRequestModel returnRequest, final ReturnStatus status, final List<Object> modified)
+	{
+		returnRequest.setStatus(status);
+		modified.add(returnRequest);
+		for (final ReturnEntryModel entry : returnRequest.getReturnEntries())
+		{
+			entry.setStatus(status);
+			modified.add(entry);
+		}
+	}
+
+	protected ReturnRefundAdapter getReturnRefundAdapter()
+	{
+		return returnRefundAdapter;
+	}
+
+	@Required
+	public void setReturnRefundAdapter(final ReturnRefundAdapter returnRefundAdapter)
+	{
+		this.returnRefundAdapter = returnRefundAdapter;
+	}
+
+	protected ReturnTaxAdapter getReturnTaxAdapter()
+	{
+		return returnTaxAdapter;
+	}
+
+	@Required
+	public void setReturnTaxAdapter(final ReturnTaxAdapter returnTaxAdapter)
+	{
+		this.returnTaxAdapter = returnTaxAdapter;
+	}
+
+	protected StockReplenishmentService getStockReplenishmentService()
+	{
+		return stockReplenishmentService;
+	}
+
+	@Required
+	public void setStockReplenishmentService(final StockReplenishmentService stockReplenishmentService)
+	{
+		this.stockReplenishmentService = stockReplenishmentService;
+	}
+
+	protected ReturnProcessDao getReturnProcessDao()
+	{
+		return returnProcessDao;
+	}
+
+	@Required
+	public void setReturnProcessDao(final ReturnProcessDao returnProcessDao)
+	{
+		this.returnProcessDao = returnProcessDao;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected BusinessProcessService getBusinessProcessService()
+	{
+		return businessProcessService;
+	}
+
+	@Required
+	public void setBusinessProcessService(final BusinessProcessService businessProcessService)
+	{
+		this.businessProcessService = businessProcessService;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	@Required
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	protected int getBatchSize()
+	{
+		return batchSize;
+	}
+
+	@Required
+	public void setBatchSize(final int batchSize)
+	{
+		this.batchSize = batchSize;
+	}
+
+	protected long getClaimTimeout()
+	{
+		return claimTimeout;
+	}
+
+	/**
+	 * @param claimTimeout
+	 *           milliseconds after which a return claimed by a run that did not complete it can be claimed again
+	 */
+	@Required
+	public void setClaimTimeout(final long claimTimeout)
+	{
+		this.claimTimeout = claimTimeout;
+	}
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns.impl;
+
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.returns.model.ReturnEntryModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import com.sagaji.fulfilmentprocess.dao.StockLevelDeltaDao;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+import com.sagaji.fulfilmentprocess.model.StockLevelDeltaModel;
+import com.sagaji.fulfilmentprocess.returns.StockReplenishmentService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.annotation.Required;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Default implementation of {@link StockReplenishmentService}. The returned quantities of one call are summed per product
+ * and warehouse and inserted as one {@link StockLevelDeltaModel} per stock level in the transaction of the caller, so
+ * the returned goods are stored together with the status of the returns without locking the stock levels.
+ * <p>
+ * The deltas are applied by the <code>stockReplenishmentJob</code>: the stock level is locked, read again, written once
+ * with the sum of its deltas and the deltas are removed in the same transaction, so no concurrent change of the stock
+ * level is lost and no delta is added twice. Saving the available amount marks the product for the partial update of
+ * the product index.
+ */
+public class DefaultStockReplenishmentService implements StockReplenishmentService
+{
+	private static final Logger LOG = Logger.getLogger(DefaultStockReplenishmentService.class);
+
+	private WarehouseStockLevelDao warehouseStockLevelDao;
+	private StockLevelDeltaDao stockLevelDeltaDao;
+	private ModelService modelService;
+	private TransactionTemplate transactionTemplate;
+
+	private final AtomicLong writeCount = new AtomicLong();
+
+	@Override
+	public void replenish(final ReturnRequestModel returnRequest)
+	{
+		replenish(Collections.singletonList(returnRequest));
+	}
+
+	@Override
+	public void replenish(final Collection<ReturnRequestModel> returnRequests)
+	{
+		final Map<StockKey, Long> quantities = new HashMap<StockKey, Long>();
+		for (final ReturnRequestModel returnRequest : returnRequests)
+		{
+			addReturnedQuantities(returnRequest, quantities);
+		}
+		if (quantities.isEmpty())
+		{
+			return;
+		}
+		addDeltas(quantities);
+	}
+
+	@Override
+	public int applyPendingQuantities(final StockLevelModel stockLevel)
+	{
+		return getTransactionTemplate().execute(status -> Integer.valueOf(applyDeltas(stockLevel))).intValue();
+	}
+
+	protected void addReturnedQuantities(final ReturnRequestModel returnRequest, final Map<StockKey, Long> quantities)
+	{
+		final WarehouseModel warehouse = returnRequest.getReturnWarehouse();
+		if (warehouse == null)
+		{
+			LOG.warn("Return [" + returnRequest.getCode() + "] has no return warehouse, its goods are not restocked");
+			return;
+		}
+		for (final ReturnEntryModel entry : returnRequest.getReturnEntries())
+		{
+			final long quantity = getReturnedQuantity(entry);
+			if (quantity > 0 && entry.getOrderEntry() != null && entry.getOrderEntry().getProduct() != null)
+			{
+				quantities.merge(new StockKey(entry.getOrderEntry().getProduct().getCode(), warehouse), Long.valueOf(quantity),
+						Long::sum);
+			}
+		}
+	}
+
+	/**
+	 * Inserts the quantities as deltas of the stock levels of the given products and warehouses.
+	 */
+	protected void addDeltas(final Map<StockKey, Long> quantities)
+	{
+		final Set<String> productCodes = new HashSet<String>();
+		final Set<WarehouseModel> warehouses = new HashSet<WarehouseModel>();
+		for (final StockKey key : quantities.keySet())
+		{
+			productCodes.add(key.getProductCode());
+			warehouses.add(key.getWarehouse());
+		}
+		final Map<StockKey, Long> remaining = new HashMap<StockKey, Long>(quantities);
+		final List<StockLevelDeltaModel> deltas = new ArrayList<StockLevelDeltaModel>();
+		for (final StockLevelModel stockLevel : getWarehouseStockLevelDao().findStockLevels(productCodes, warehouses))
+		{
+			final Long quantity = remaining.remove(new StockKey(stockLevel.getProductCode(), stockLevel.getWarehouse()));
+			if (quantity != null)
+			{
+				final StockLevelDeltaModel delta = getModelService().create(StockLevelDeltaModel.class);
+				delta.setStockLevel(stockLevel);
+				delta.setQuantity(quantity.intValue());
+				deltas.add(delta);
+			}
+		}
+		for (final StockKey missing : remaining.keySet())
+		{
+			LOG.warn("No stock level for returned product [" + missing.getProductCode() + "] in warehouse ["
+					+ missing.getWarehouseCode() + "]");
+		}
+
+		if (!deltas.isEmpty())
+		{
+			getModelService().saveAll(deltas);
+		}
+	}
+
+	/**
+	 * Locks the stock level, adds its deltas to the available amount and removes them. Must be called in a transaction,
+	 * which holds the lock until it ends. Deltas inserted while the stock level is written are left for the next call.
+	 *
+	 * @return the added quantity
+	 */
+	protected int applyDeltas(final StockLevelModel stockLevel)
+	{
+		getModelService().lock(stockLevel.getPk());
+		final List<StockLevelDeltaModel> deltas = getStockLevelDeltaDao().findDeltas(stockLevel);
+		if (deltas.isEmpty())
+		{
+			return 0;
+		}
+		int quantity = 0;
+		for (final StockLevelDeltaModel delta : deltas)
+		{
+			quantity += delta.getQuantity();
+		}
+		getModelService().refresh(stockLevel);
+		stockLevel.setAvailable(stockLevel.getAvailable() + quantity);
+		getModelService().save(stockLevel);
+		getModelService().removeAll(deltas);
+		writeCount.incrementAndGet();
+		return quantity;
+	}
+
+	protected long getReturnedQuantity(final ReturnEntryModel entry)
+	{
+		if (entry.getReceivedQuantity() != null && entry.getReceivedQuantity().longValue() > 0)
+		{
+			return entry.getReceivedQuantity().longValue();
+		}
+		return entry.getExpectedQuantity() == null ? 0 : entry.getExpectedQuantity().longValue();
+	}
+
+	/**
+	 * @return number of stock level writes
+	 */
+	public long getWriteCount()
+	{
+		return writeCount.get();
+	}
+
+	protected WarehouseStockLevelDao getWarehouseStockLevelDao()
+	{
+		return warehouseStockLevelDao;
+	}
+
+	@Required
+	public void setWarehouseStockLevelDao(final WarehouseStockLevelDao warehouseStockLevelDao)
+	{
+		this.warehouseStockLevelDao = warehouseStockLevelDao;
+	}
+
+	protected StockLevelDeltaDao getStockLevelDeltaDao()
+	{
+		return stockLevelDeltaDao;
+	}
+
+	@Required
+	public void setStockLevelDeltaDao(final StockLevelDeltaDao stockLevelDeltaDao)
+	{
+		this.stockLevelDeltaDao = stockLevelDeltaDao;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected TransactionTemplate getTransactionTemplate()
+	{
+		return transactionTemplate;
+	}
+
+	@Required
+	public void setTransactionTemplate(final TransactionTemplate transactionTemplate)
+	{
+		this.transactionTemplate = transactionTemplate;
+	}
+
+	/**
+	 * Product and warehouse of a stock level, equal for the same product and warehouse code.
+	 */
+	protected static final class StockKey
+	{
+		private final String productCode;
+		private final WarehouseModel warehouse;
+
+		protected StockKey(final String productCode, final WarehouseModel warehouse)
+		{
+			this.productCode = productCode;
+			this.warehouse = warehouse;
+		}
+
+		public String getProductCode()
+		{
+			return productCode;
+		}
+
+		public WarehouseModel getWarehouse()
+		{
+			return warehouse;
+		}
+
+		public String getWarehouseCode()
+		{
+			return warehouse.getCode();
+		}
+
+		@Override
+		public boolean equals(final Object obj)
+		{
+			if (this == obj)
+			{
+				return true;
+			}
+			if (!(obj instanceof StockKey))
+			{
+				return false;
+			}
+			final StockKey other = (StockKey) obj;
+			return productCode.equals(other.productCode) && Objects.equals(getWarehouseCode(), other.getWarehouseCode());
+		}
+
+		@Override
+		public int hashCode()
+		{
+			return Objects.hash(productCode, getWarehouseCode());
+		}
+	}
+}
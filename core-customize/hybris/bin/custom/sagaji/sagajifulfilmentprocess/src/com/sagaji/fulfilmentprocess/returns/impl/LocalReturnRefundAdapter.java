@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns.impl;
+
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import com.sagaji.fulfilmentprocess.returns.ReturnRefundAdapter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Local stand-in for the payment provider. Answers every batch after the configured latency and refunds all returns,
+ * each idempotency key only once.
+ */
+public class LocalReturnRefundAdapter implements ReturnRefundAdapter
+{
+	private final Set<String> refundedKeys = ConcurrentHashMap.newKeySet();
+	private long latency;
+
+	@Override
+	public Set<String> captureRefunds(final List<ReturnRequestModel> returnRequests)
+	{
+		try
+		{
+			Thread.sleep(latency);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while refunding " + returnRequests.size() + " returns", e);
+		}
+		for (final ReturnRequestModel returnRequest : returnRequests)
+		{
+			refundedKeys.add(returnRequest.getRefundIdempotencyKey());
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * @return number of returns refunded, repeated keys counted once
+	 */
+	public int getRefundCount()
+	{
+		return refundedKeys.size();
+	}
+
+	public void setLatency(final long latency)
+	{
+		this.latency = latency;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.returns.impl;
+
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import com.sagaji.fulfilmentprocess.returns.ReturnTaxAdapter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+
+/**
+ * Local stand-in for the tax provider. Answers every batch after the configured latency and reverses all taxes, each
+ * idempotency key only once.
+ */
+public class LocalReturnTaxAdapter implements ReturnTaxAdapter
+{
+	private final Set<String> reversedKeys = ConcurrentHashMap.newKeySet();
+	private long latency;
+
+	@Override
+	public Set<String> reverseTaxes(final List<ReturnRequestModel> returnRequests)
+	{
+		try
+		{
+			Thread.sleep(latency);
+		}
+		catch (final InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while reversing the taxes of " + returnRequests.size() + " returns", e);
+		}
+		for (final ReturnRequestModel returnRequest : returnRequests)
+		{
+			reversedKeys.add(returnRequest.getRefundIdempotencyKey());
+		}
+		return Collections.emptySet();
+	}
+
+	/**
+	 * @return number of returns whose taxes were reversed, repeated keys counted once
+	 */
+	public int getReversalCount()
+	{
+		return reversedKeys.size();
+	}
+
+	public void setLatency(final long latency)
+	{
+		this.latency = latency;
+	}
+}
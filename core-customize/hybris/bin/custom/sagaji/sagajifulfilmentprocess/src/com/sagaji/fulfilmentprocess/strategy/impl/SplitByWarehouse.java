@@ -25,7 +25,7 @@ import org.springframework.beans.factory.annotation.Required;
 public class SplitByWarehouse implements SplittingStrategy
 {
 	private static final Logger LOG = LoggerFactory.getLogger(SplitByWarehouse.class);
-	private static final String WAREHOUSE_LIST_NAME = "WAREHOUSE_LIST";
+	protected static final String WAREHOUSE_LIST_NAME = "WAREHOUSE_LIST";
 	private static final String RANDOM_ALGORITHM = "SHA1PRNG";
 	private StockService stockService;
 	private CommerceAvailabilityCalculationStrategy commerceAvailabilityCalculationStrategy;
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.strategy.impl;
+
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.ordersplitting.strategy.impl.OrderEntryGroup;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Splits by warehouse like {@link SplitByWarehouse}, but reads the stock levels of all entries with one query and
+ * computes the consignments deterministically. Every warehouse is represented by a bitset of the entries it can ship,
+ * the consignments are a smallest set of warehouses shipping all entries (see {@link WarehouseCover}).
+ */
+public class SplitByWarehouseCover extends SplitByWarehouse
+{
+	private WarehouseStockLevelDao warehouseStockLevelDao;
+	private int exactSearchLimit;
+
+	@Override
+	protected List<OrderEntryGroup> splitForWarehouses(final OrderEntryGroup orderEntryList)
+	{
+		final OrderEntryGroup workingOrderEntryList = sortOrderEntryBeforeWarehouseSplitting(orderEntryList);
+		final int entryCount = workingOrderEntryList.size();
+
+		// collect the candidate warehouses of every entry, ordered by code so that the result does not depend on load order
+		final List<Collection<WarehouseModel>> candidateWarehouses = new ArrayList<Collection<WarehouseModel>>(entryCount);
+		final Map<String, WarehouseModel> warehousesByCode = new TreeMap<String, WarehouseModel>();
+		final Set<String> productCodes = new LinkedHashSet<String>();
+		for (final AbstractOrderEntryModel orderEntry : workingOrderEntryList)
+		{
+			final Collection<WarehouseModel> candidates = getCandidateWarehouses(orderEntry);
+			candidateWarehouses.add(candidates);
+			for (final WarehouseModel warehouse : candidates)
+			{
+				warehousesByCode.put(warehouse.getCode(), warehouse);
+			}
+			if (!candidates.isEmpty())
+			{
+				productCodes.add(orderEntry.getProduct().getCode());
+			}
+		}
+
+		final List<WarehouseModel> warehouses = new ArrayList<WarehouseModel>(warehousesByCode.values());
+		final Map<WarehouseModel, Integer> warehouseIndexes = new HashMap<WarehouseModel, Integer>();
+		for (int i = 0; i < warehouses.size(); i++)
+		{
+			warehouseIndexes.put(warehouses.get(i), Integer.valueOf(i));
+		}
+
+		final Map<String, BitSet> productAvailability = getProductAvailability(productCodes, warehouses, warehouseIndexes);
+
+		final BitSet[] warehouseEntries = new BitSet[warehouses.size()];
+		for (int i = 0; i < warehouseEntries.length; i++)
+		{
+			warehouseEntries[i] = new BitSet(entryCount);
+		}
+		for (int entry = 0; entry < entryCount; entry++)
+		{
+			final BitSet available = productAvailability.get(workingOrderEntryList.get(entry).getProduct().getCode());
+			for (final WarehouseModel warehouse : candidateWarehouses.get(entry))
+			{
+				final int index = warehouseIndexes.get(warehouse).intValue();
+				if (available != null && available.get(index))
+				{
+					warehouseEntries[index].set(entry);
+				}
+			}
+		}
+
+		final int[] cover = WarehouseCover.computeCover(warehouseEntries, getExactSearchLimit());
+		final int[] assignment = WarehouseCover.assign(cover, warehouseEntries, entryCount);
+
+		final List<OrderEntryGroup> result = new ArrayList<OrderEntryGroup>(cover.length + 1);
+		for (final int warehouse : cover)
+		{
+			final OrderEntryGroup group = orderEntryList.getEmpty();
+			for (int entry = 0; entry < entryCount; entry++)
+			{
+				if (assignment[entry] == warehouse)
+				{
+					group.add(workingOrderEntryList.get(entry));
+				}
+			}
+			group.setParameter(WAREHOUSE_LIST_NAME, Collections.singletonList(warehouses.get(warehouse)));
+			result.add(group);
+		}
+
+		//entries for which warehouse can't be chosen
+		final OrderEntryGroup emptyOrderEntryList = orderEntryList.getEmpty();
+		for (int entry = 0; entry < entryCount; entry++)
+		{
+			if (assignment[entry] < 0)
+			{
+				emptyOrderEntryList.add(workingOrderEntryList.get(entry));
+			}
+		}
+		if (!emptyOrderEntryList.isEmpty())
+		{
+			result.add(emptyOrderEntryList);
+		}
+
+		return result;
+	}
+
+	protected Collection<WarehouseModel> getCandidateWarehouses(final AbstractOrderEntryModel orderEntry)
+	{
+		if (orderEntry.getOrder().getStore() == null)
+		{
+			return Collections.emptyList();
+		}
+		return orderEntry.getDeliveryPointOfService() == null ? orderEntry.getOrder().getStore().getWarehouses()
+				: orderEntry.getDeliveryPointOfService().getWarehouses();
+	}
+
+	/**
+	 * Reads the stock levels of all products in all warehouses at once.
+	 *
+	 * @return per product code the indexes of the warehouses having the product in stock
+	 */
+	protected Map<String, BitSet> getProductAvailability(final Collection<String> productCodes,
+			final List<WarehouseModel> warehouses, final Map<WarehouseModel, Integer> warehouseIndexes)
+	{
+		final Map<String, Map<Integer, List<StockLevelModel>>> stockLevelsByProduct = new HashMap<String, Map<Integer, List<StockLevelModel>>>();
+		for (final StockLevelModel stockLevel : getWarehouseStockLevelDao().findStockLevels(productCodes, warehouses))
+		{
+			final Integer index = warehouseIndexes.get(stockLevel.getWarehouse());
+			if (index != null)
+			{
+				stockLevelsByProduct.computeIfAbsent(stockLevel.getProductCode(), code -> new HashMap<Integer, List<StockLevelModel>>())
+						.computeIfAbsent(index, i -> new ArrayList<StockLevelModel>()).add(stockLevel);
+			}
+		}
+
+		final Map<String, BitSet> result = new HashMap<String, BitSet>();
+		for (final Map.Entry<String, Map<Integer, List<StockLevelModel>>> product : stockLevelsByProduct.entrySet())
+		{
+			final BitSet available = new BitSet(warehouses.size());
+			for (final Map.Entry<Integer, List<StockLevelModel>> warehouse : product.getValue().entrySet())
+			{
+				final Long availableCount = getCommerceAvailabilityCalculationStrategy().calculateAvailability(warehouse.getValue());
+				if (availableCount == null || availableCount.longValue() > 0)
+				{
+					available.set(warehouse.getKey().intValue());
+				}
+			}
+			result.put(product.getKey(), available);
+		}
+		return result;
+	}
+
+	/**
+	 * The groups carry exactly the warehouse chosen for them.
+	 */
+	@Override
+	protected WarehouseModel chooseBestWarehouse(final OrderEntryGroup orderEntries)
+	{
+		final List<WarehouseModel> warehouses = (List<WarehouseModel>) orderEntries.getParameter(WAREHOUSE_LIST_NAME);
+		return warehouses == null || warehouses.isEmpty() ? null : warehouses.get(0);
+	}
+
+	protected WarehouseStockLevelDao getWarehouseStockLevelDao()
+	{
+		return warehouseStockLevelDao;
+	}
+
+	@Required
+	public void setWarehouseStockLevelDao(final WarehouseStockLevelDao warehouseStockLevelDao)
+	{
+		this.warehouseStockLevelDao = warehouseStockLevelDao;
+	}
+
+	protected int getExactSearchLimit()
+	{
+		return exactSearchLimit;
+	}
+
+	/**
+	 * @param exactSearchLimit
+	 *           up to this number of relevant warehouses the smallest cover is searched exhaustively, above the greedy
+	 *           cover is used
+	 */
+	@Required
+	public void setExactSearchLimit(final int exactSearchLimit)
+	{
+		this.exactSearchLimit = exactSearchLimit;
+	}
+}
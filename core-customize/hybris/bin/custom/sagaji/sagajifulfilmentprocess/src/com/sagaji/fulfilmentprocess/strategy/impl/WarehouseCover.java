@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.strategy.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+
+/**
+ * Computes which warehouses ship which order entries. Warehouse <code>i</code> is described by the bitset
+ * <code>warehouseEntries[i]</code> holding the indexes of the entries it is able to ship. The result only depends on
+ * these bitsets, so the same input always leads to the same consignments.
+ */
+final class WarehouseCover
+{
+	private WarehouseCover()
+	{
+		// static helper
+	}
+
+	/**
+	 * Computes a smallest set of warehouses that together ship every entry any warehouse is able to ship. Up to
+	 * <code>exactSearchLimit</code> relevant warehouses all combinations are tried by increasing size, above that the greedy
+	 * cover is used.
+	 *
+	 * @param warehouseEntries
+	 *           the entries each warehouse can ship
+	 * @param exactSearchLimit
+	 *           the maximal number of relevant warehouses for the exhaustive search
+	 * @return the indexes of the chosen warehouses, the warehouse able to ship most entries first
+	 */
+	static int[] computeCover(final BitSet[] warehouseEntries, final int exactSearchLimit)
+	{
+		final BitSet target = new BitSet();
+		for (final BitSet entries : warehouseEntries)
+		{
+			target.or(entries);
+		}
+		if (target.isEmpty())
+		{
+			return new int[0];
+		}
+
+		final int[] candidates = getUndominatedWarehouses(warehouseEntries);
+		int[] cover = computeGreedyCover(warehouseEntries, candidates, target);
+		if (cover.length > 1 && candidates.length <= exactSearchLimit)
+		{
+			// warehouses being the only one for some entry are part of every cover, only the others are combined
+			final List<Integer> required = new ArrayList<Integer>();
+			final List<Integer> optional = new ArrayList<Integer>();
+			final BitSet covered = new BitSet();
+			for (final int candidate : candidates)
+			{
+				if (isRequired(warehouseEntries, candidates, candidate))
+				{
+					required.add(Integer.valueOf(candidate));
+					covered.or(warehouseEntries[candidate]);
+				}
+				else
+				{
+					optional.add(Integer.valueOf(candidate));
+				}
+			}
+
+			final int[] optionalCandidates = toArray(optional);
+			for (int size = 0; required.size() + size < cover.length; size++)
+			{
+				final int[] combination = new int[size];
+				if (findCover(warehouseEntries, optionalCandidates, target, combination, 0, 0, covered))
+				{
+					final List<Integer> smallest = new ArrayList<Integer>(required);
+					for (final int warehouse : combination)
+					{
+						smallest.add(Integer.valueOf(warehouse));
+					}
+					cover = toArray(smallest);
+					break;
+				}
+			}
+		}
+		return sortByShippableEntries(warehouseEntries, cover);
+	}
+
+	/**
+	 * Assigns every entry to the first warehouse of the cover able to ship it.
+	 *
+	 * @param cover
+	 *           the warehouses as returned by {@link #computeCover(BitSet[], int)}
+	 * @param warehouseEntries
+	 *           the entries each warehouse can ship
+	 * @param entryCount
+	 *           the number of entries
+	 * @return the warehouse index per entry, -1 for entries no warehouse is able to ship
+	 */
+	static int[] assign(final int[] cover, final BitSet[] warehouseEntries, final int entryCount)
+	{
+		final int[] assignment = new int[entryCount];
+		Arrays.fill(assignment, -1);
+		for (final int warehouse : cover)
+		{
+			final BitSet entries = warehouseEntries[warehouse];
+			for (int entry = entries.nextSetBit(0); entry >= 0 && entry < entryCount; entry = entries.nextSetBit(entry + 1))
+			{
+				if (assignment[entry] < 0)
+				{
+					assignment[entry] = warehouse;
+				}
+			}
+		}
+		return assignment;
+	}
+
+	/**
+	 * Drops warehouses without entries and warehouses whose entries are also shipped by another warehouse, a smallest
+	 * cover never needs them.
+	 */
+	private static int[] getUndominatedWarehouses(final BitSet[] warehouseEntries)
+	{
+		final List<Integer> candidates = new ArrayList<Integer>();
+		for (int i = 0; i < warehouseEntries.length; i++)
+		{
+			if (!warehouseEntries[i].isEmpty() && !isDominated(warehouseEntries, i))
+			{
+				candidates.add(Integer.valueOf(i));
+			}
+		}
+
+		return toArray(candidates);
+	}
+
+	private static boolean isRequired(final BitSet[] warehouseEntries, final int[] candidates, final int warehouse)
+	{
+		final BitSet exclusive = (BitSet) warehouseEntries[warehouse].clone();
+		for (final int other : candidates)
+		{
+			if (other != warehouse)
+			{
+				exclusive.andNot(warehouseEntries[other]);
+			}
+		}
+		return !exclusive.isEmpty();
+	}
+
+	private static boolean isDominated(final BitSet[] warehouseEntries, final int warehouse)
+	{
+		final BitSet entries = warehouseEntries[warehouse];
+		for (int other = 0; other < warehouseEntries.length; other++)
+		{
+			if (other != warehouse)
+			{
+				final BitSet remaining = (BitSet) entries.clone();
+				remaining.andNot(warehouseEntries[other]);
+				// equal sets keep the warehouse with the lower index
+				if (remaining.isEmpty() && (other < warehouse || !entries.equals(warehouseEntries[other])))
+				{
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static int[] computeGreedyCover(final BitSet[] warehouseEntries, final int[] candidates, final BitSet target)
+	{
+		final List<Integer> cover = new ArrayList<Integer>();
+		final BitSet uncovered = (BitSet) target.clone();
+		while (!uncovered.isEmpty())
+		{
+			int best = -1;
+			int bestCount = 0;
+			for (final int candidate : candidates)
+			{
+				final BitSet shippable = (BitSet) warehouseEntries[candidate].clone();
+				shippable.and(uncovered);
+				if (shippable.cardinality() > bestCount)
+				{
+					best = candidate;
+					bestCount = shippable.cardinality();
+				}
+			}
+			cover.add(Integer.valueOf(best));
+			uncovered.andNot(warehouseEntries[best]);
+		}
+		return toArray(cover);
+	}
+
+	private static boolean findCover(final BitSet[] warehouseEntries, final int[] candidates, final BitSet target,
+			final int[] combination, final int position, final int start, final BitSet covered)
+	{
+		if (position == combination.length)
+		{
+			return covered.equals(target);
+		}
+
+		for (int i = start; i <= candidates.length - (combination.length - position); i++)
+		{
+			final BitSet next = (BitSet) covered.clone();
+			next.or(warehouseEntries[candidates[i]]);
+			combination[position] = candidates[i];
+			if (findCover(warehouseEntries, candidates, target, combination, position + 1, i + 1, next))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] sortByShippableEntries(final BitSet[] warehouseEntries, final int[] cover)
+	{
+		final Integer[] sorted = new Integer[cover.length];
+		for (int i = 0; i < cover.length; i++)
+		{
+			sorted[i] = Integer.valueOf(cover[i]);
+		}
+		Arrays.sort(sorted, (first, second) -> {
+			final int result = Integer.compare(warehouseEntries[second.intValue()].cardinality(),
+					warehouseEntries[first.intValue()].cardinality());
+			return result != 0 ? result : first.compareTo(second);
+		});
+
+		final int[] result = new int[sorted.length];
+		for (int i = 0; i < result.length; i++)
+		{
+			result[i] = sorted[i].intValue();
+		}
+		return result;
+	}
+
+	private static int[] toArray(final List<Integer> values)
+	{
+		final int[] result = new int[values.size()];
+		for (int i = 0; i < result.length; i++)
+		{
+			result[i] = values.get(i).intValue();
+		}
+		return result;
+	}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import de.hybris.platform.basecommerce.enums.ConsignmentStatus;
+import de.hybris.platform.commerceservices.model.PickUpDeliveryModeModel;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.ordersplitting.model.ConsignmentEntryModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.warehouse.Process2WarehouseAdapter;
+import de.hybris.platform.warehouse.Warehouse2ProcessAdapter;
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.fulfilmentprocess.exceptions.WarehouseCapacityExceededException;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Hands prepared consignments over to the {@link WarehouseConnector} on a bounded pool of tenant aware worker threads and
+ * returns immediately, so the process engine thread is not blocked while the warehouse works. The status reported by
+ * the warehouse is delivered to the {@link Warehouse2ProcessAdapter} once the processing time of the consignment has
+ * passed.
+ * <p>
+ * When <code>maxInFlight</code> consignments are pending a further consignment is rejected with a
+ * {@link WarehouseCapacityExceededException} before it is modified, so the caller can hand it over again later. The
+ * pending deliveries are only kept in memory: a delivery that is lost on a restart or fails is not repeated here, the
+ * consignment process checks the status when waiting for it times out and hands the consignment over again if none
+ * was received.
+ */
+public class AsyncProcess2WarehouseAdapter implements Process2WarehouseAdapter, InitializingBean, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(AsyncProcess2WarehouseAdapter.class);
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger peakInFlight = new AtomicInteger();
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+
+	private ModelService modelService;
+	private SessionService sessionService;
+	private Warehouse2ProcessAdapter warehouse2ProcessAdapter;
+	private WarehouseConnector warehouseConnector;
+	private TimeService timeService;
+	private int poolSize;
+	private int maxInFlight;
+
+	private ScheduledExecutorService executor;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		executor = createExecutor();
+	}
+
+	protected ScheduledExecutorService createExecutor()
+	{
+		return Executors.newScheduledThreadPool(poolSize, new TenantAwareThreadFactory("Process2Warehouse", getSessionService()));
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public void prepareConsignment(final ConsignmentModel consignment)
+	{
+		reserveInFlight(consignment);
+		try
+		{
+			prepareAndSchedule(consignment);
+		}
+		catch (final RuntimeException e)
+		{
+			inFlight.decrementAndGet();
+			throw e;
+		}
+	}
+
+	protected void reserveInFlight(final ConsignmentModel consignment)
+	{
+		int pending;
+		do
+		{
+			pending = inFlight.get();
+			if (pending >= getMaxInFlight())
+			{
+				throw new WarehouseCapacityExceededException(
+						getMaxInFlight() + " consignments in flight, consignment [" + consignment.getCode() + "] is rejected");
+			}
+		}
+		while (!inFlight.compareAndSet(pending, pending + 1));
+		peakInFlight.accumulateAndGet(pending + 1, Math::max);
+	}
+
+	protected void prepareAndSchedule(final ConsignmentModel consignment)
+	{
+		for (final ConsignmentEntryModel consignmentEntries : consignment.getConsignmentEntries())
+		{
+			consignmentEntries.setShippedQuantity(consignmentEntries.getQuantity());
+		}
+		consignment.setStatus(ConsignmentStatus.READY);
+		getModelService().save(consignment);
+
+		final PK consignmentPk = consignment.getPk();
+		executor.schedule(() -> deliverStatusInSession(consignmentPk), getWarehouseConnector().getProcessingTime(consignment),
+				TimeUnit.MILLISECONDS);
+	}
+
+	protected void deliverStatusInSession(final PK consignmentPk)
+	{
+		try
+		{
+			deliverStatus(consignmentPk);
+		}
+		finally
+		{
+			getSessionService().closeCurrentSession();
+		}
+	}
+
+	protected void deliverStatus(final PK consignmentPk)
+	{
+		try
+		{
+			final ConsignmentModel consignment = getModelService().get(consignmentPk);
+			final WarehouseConsignmentStatus status = getWarehouseConnector().process(consignment);
+			getWarehouse2ProcessAdapter().receiveConsignmentStatus(consignment, status);
+			completed.incrementAndGet();
+		}
+		catch (final RuntimeException e)
+		{
+			failed.incrementAndGet();
+			LOG.error("Failed to deliver warehouse status of consignment [" + consignmentPk
+					+ "], it is handed over again when its process stops waiting", e);
+		}
+		finally
+		{
+			inFlight.decrementAndGet();
+		}
+	}
+
+	@Override
+	public void shipConsignment(final ConsignmentModel consignment)
+	{
+		if (consignment == null)
+		{
+			LOG.error("No consignment to ship");
+		}
+		else
+		{
+			if (consignment.getDeliveryMode() instanceof PickUpDeliveryModeModel)
+			{
+				consignment.setStatus(ConsignmentStatus.READY_FOR_PICKUP);
+			}
+			else
+			{
+				consignment.setStatus(ConsignmentStatus.SHIPPED);
+			}
+			consignment.setShippingDate(getTimeService().getCurrentTime());
+			for (final ConsignmentEntryModel entry : consignment.getConsignmentEntries())
+			{
+				entry.setShippedQuantity(entry.getOrderEntry().getQuantity());
+				getModelService().save(entry);
+			}
+			getModelService().save(consignment);
+			if (LOG.isInfoEnabled())
+			{
+				LOG.info("Consignment [" + consignment.getCode() + "] shipped");
+			}
+		}
+	}
+
+	/**
+	 * @return the number of consignments handed over whose status has not been delivered yet
+	 */
+	public int getInFlightCount()
+	{
+		return inFlight.get();
+	}
+
+	/**
+	 * @return the highest number of consignments in flight at the same time
+	 */
+	public int getPeakInFlightCount()
+	{
+		return peakInFlight.get();
+	}
+
+	/**
+	 * @return the number of consignments whose status has been delivered
+	 */
+	public long getCompletedCount()
+	{
+		return completed.get();
+	}
+
+	/**
+	 * @return the number of consignments whose status could not be delivered
+	 */
+	public long getFailedCount()
+	{
+		return failed.get();
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected Warehouse2ProcessAdapter getWarehouse2ProcessAdapter()
+	{
+		return warehouse2ProcessAdapter;
+	}
+
+	@Required
+	public void setWarehouse2ProcessAdapter(final Warehouse2ProcessAdapter warehouse2ProcessAdapter)
+	{
+		this.warehouse2ProcessAdapter = warehouse2ProcessAdapter;
+	}
+
+	protected WarehouseConnector getWarehouseConnector()
+	{
+		return warehouseConnector;
+	}
+
+	@Required
+	public void setWarehouseConnector(final WarehouseConnector warehouseConnector)
+	{
+		this.warehouseConnector = warehouseConnector;
+	}
+
+	protected TimeService getTimeService()
+	{
+		return timeService;
+	}
+
+	@Required
+	public void setTimeService(final TimeService timeService)
+	{
+		this.timeService = timeService;
+	}
+
+	protected int getMaxInFlight()
+	{
+		return maxInFlight;
+	}
+
+	@Required
+	public void setMaxInFlight(final int maxInFlight)
+	{
+		this.maxInFlight = maxInFlight;
+	}
+
+	@Required
+	public void setPoolSize(final int poolSize)
+	{
+		this.poolSize = poolSize;
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * Outcome of a bulk consignment status update.
+ */
+public class BulkConsignmentStatusResult
+{
+	private int receivedCount;
+	private int updatedCount;
+	private int triggeredEventCount;
+	private long durationMillis;
+	private final List<String> unknownConsignmentCodes = new ArrayList<String>();
+	private final List<String> rejectedConsignmentCodes = new ArrayList<String>();
+	private final List<String> failedProcessCodes = new ArrayList<String>();
+
+	public void addReceived(final int count)
+	{
+		receivedCount += count;
+	}
+
+	public void addUpdated(final int count)
+	{
+		updatedCount += count;
+	}
+
+	public void addTriggeredEvents(final int count)
+	{
+		triggeredEventCount += count;
+	}
+
+	public void addUnknownConsignment(final String consignmentCode)
+	{
+		unknownConsignmentCodes.add(consignmentCode);
+	}
+
+	public void addRejectedConsignment(final String consignmentCode)
+	{
+		rejectedConsignmentCodes.add(consignmentCode);
+	}
+
+	public void addFailedProcess(final String processCode)
+	{
+		failedProcessCodes.add(processCode);
+	}
+
+	/**
+	 * @return the number of status records read
+	 */
+	public int getReceivedCount()
+	{
+		return receivedCount;
+	}
+
+	/**
+	 * @return the number of consignments whose processes got the new warehouse state
+	 */
+	public int getUpdatedCount()
+	{
+		return updatedCount;
+	}
+
+	public int getTriggeredEventCount()
+	{
+		return triggeredEventCount;
+	}
+
+	public long getDurationMillis()
+	{
+		return durationMillis;
+	}
+
+	public void setDurationMillis(final long durationMillis)
+	{
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * @return the codes of records without a consignment process
+	 */
+	public List<String> getUnknownConsignmentCodes()
+	{
+		return Collections.unmodifiableList(unknownConsignmentCodes);
+	}
+
+	/**
+	 * @return the codes of records with a status that has no warehouse consignment state
+	 */
+	public List<String> getRejectedConsignmentCodes()
+	{
+		return Collections.unmodifiableList(rejectedConsignmentCodes);
+	}
+
+	/**
+	 * @return the codes of processes whose event could not be triggered
+	 */
+	public List<String> getFailedProcessCodes()
+	{
+		return Collections.unmodifiableList(failedProcessCodes);
+	}
+}
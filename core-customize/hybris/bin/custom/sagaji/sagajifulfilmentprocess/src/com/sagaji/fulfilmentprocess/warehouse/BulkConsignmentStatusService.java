@@ -0,0 +1,25 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import java.util.stream.Stream;
+
+
+/**
+ * Applies consignment status updates reported by the warehouse in bulk, e.g. from the status files of a logistics
+ * provider.
+ */
+public interface BulkConsignmentStatusService
+{
+	/**
+	 * Sets the warehouse consignment state of the processes of all reported consignments and triggers their
+	 * waitForWarehouse events. The updates are consumed as they are read, so the stream may be backed by a large file.
+	 * When a consignment is reported more than once within a chunk the last status wins.
+	 *
+	 * @param updates
+	 *           the status records
+	 * @return counts and the records that could not be applied
+	 */
+	BulkConsignmentStatusResult updateStatuses(Stream<ConsignmentStatusUpdate> updates);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+
+
+/**
+ * Status of one consignment reported by the warehouse.
+ */
+public final class ConsignmentStatusUpdate
+{
+	private final String consignmentCode;
+	private final WarehouseConsignmentStatus status;
+
+	/**
+	 * @param consignmentCode
+	 *           the code of the consignment
+	 * @param status
+	 *           the reported status, <code>null</code> if the warehouse sent a status that could not be read
+	 */
+	public ConsignmentStatusUpdate(final String consignmentCode, final WarehouseConsignmentStatus status)
+	{
+		this.consignmentCode = consignmentCode;
+		this.status = status;
+	}
+
+	public String getConsignmentCode()
+	{
+		return consignmentCode;
+	}
+
+	public WarehouseConsignmentStatus getStatus()
+	{
+		return status;
+	}
+}
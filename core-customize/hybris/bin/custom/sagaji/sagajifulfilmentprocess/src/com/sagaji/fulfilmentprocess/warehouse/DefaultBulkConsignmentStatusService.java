@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import de.hybris.platform.commerceservices.enums.WarehouseConsignmentState;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.dao.ConsignmentProcessDao;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.apache.log4j.Logger;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * Default implementation of {@link BulkConsignmentStatusService}. The updates are read in chunks of
+ * <code>chunkSize</code> consignments; the processes of a chunk are resolved with one query and saved with one
+ * <code>saveAll</code>, then their events are triggered on <code>eventPoolSize</code> tenant aware threads. The next
+ * chunk is read once all events of the previous one are triggered, which bounds the memory used for large files.
+ */
+public class DefaultBulkConsignmentStatusService implements BulkConsignmentStatusService, InitializingBean, DisposableBean
+{
+	private static final Logger LOG = Logger.getLogger(DefaultBulkConsignmentStatusService.class);
+
+	private Map<WarehouseConsignmentStatus, WarehouseConsignmentState> statusMap;
+	private ConsignmentProcessDao consignmentProcessDao;
+	private ModelService modelService;
+	private BusinessProcessService businessProcessService;
+	private SessionService sessionService;
+	private int chunkSize;
+	private int eventPoolSize;
+
+	private ExecutorService executor;
+
+	@Override
+	public void afterPropertiesSet()
+	{
+		if (eventPoolSize <= 1)
+		{
+			return;
+		}
+		executor = Executors.newFixedThreadPool(eventPoolSize,
+				new TenantAwareThreadFactory("BulkConsignmentStatus", getSessionService()));
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	@Override
+	public BulkConsignmentStatusResult updateStatuses(final Stream<ConsignmentStatusUpdate> updates)
+	{
+		final long start = System.nanoTime();
+		final BulkConsignmentStatusResult result = new BulkConsignmentStatusResult();
+		final Map<String, WarehouseConsignmentState> chunk = new LinkedHashMap<String, WarehouseConsignmentState>();
+
+		final Iterator<ConsignmentStatusUpdate> iterator = updates.iterator();
+		while (iterator.hasNext())
+		{
+			final ConsignmentStatusUpdate update = iterator.next();
+			result.addReceived(1);
+			final WarehouseConsignmentState state = update.getStatus() == null ? null : getStatusMap().get(update.getStatus());
+			if (state == null)
+			{
+				LOG.warn("No mapping for status [" + update.getStatus() + "] of consignment [" + update.getConsignmentCode() + "]");
+				result.addRejectedConsignment(update.getConsignmentCode());
+				continue;
+			}
+
+			chunk.put(update.getConsignmentCode(), state);
+			if (chunk.size() >= getChunkSize())
+			{
+				applyChunk(chunk, result);
+				chunk.clear();
+			}
+		}
+		if (!chunk.isEmpty())
+		{
+			applyChunk(chunk, result);
+		}
+
+		result.setDurationMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		LOG.info("Applied " + result.getReceivedCount() + " consignment status records in " + result.getDurationMillis()
+				+ " ms: " + result.getUpdatedCount() + " consignments updated, " + result.getTriggeredEventCount()
+				+ " events triggered, " + result.getUnknownConsignmentCodes().size() + " unknown, "
+				+ result.getRejectedConsignmentCodes().size() + " rejected");
+		return result;
+	}
+
+	protected void applyChunk(final Map<String, WarehouseConsignmentState> chunk, final BulkConsignmentStatusResult result)
+	{
+		final List<ConsignmentProcessModel> processes = getConsignmentProcessDao().findConsignmentProcesses(chunk.keySet());
+		final Set<String> foundCodes = new HashSet<String>();
+		for (final ConsignmentProcessModel process : processes)
+		{
+			final String consignmentCode = process.getConsignment().getCode();
+			foundCodes.add(consignmentCode);
+			process.setWarehouseConsignmentState(chunk.get(consignmentCode));
+		}
+		getModelService().saveAll(processes);
+		triggerEvents(processes, result);
+
+		for (final String consignmentCode : chunk.keySet())
+		{
+			if (!foundCodes.contains(consignmentCode))
+			{
+				result.addUnknownConsignment(consignmentCode);
+			}
+		}
+		result.addUpdated(foundCodes.size());
+	}
+
+	protected void triggerEvents(final List<ConsignmentProcessModel> processes, final BulkConsignmentStatusResult result)
+	{
+		if (executor == null)
+		{
+			for (final ConsignmentProcessModel process : processes)
+			{
+				getBusinessProcessService().triggerEvent(getEventName(process));
+			}
+			result.addTriggeredEvents(processes.size());
+			return;
+		}
+
+		final Map<String, Future<?>> events = new LinkedHashMap<String, Future<?>>();
+		for (final ConsignmentProcessModel process : processes)
+		{
+			final String eventName = getEventName(process);
+			events.put(process.getCode(), executor.submit(() -> triggerEventInSession(eventName)));
+		}
+		for (final Map.Entry<String, Future<?>> event : events.entrySet())
+		{
+			try
+			{
+				event.getValue().get();
+				result.addTriggeredEvents(1);
+			}
+			catch (final ExecutionException e)
+			{
+				LOG.error("Could not trigger the warehouse event of process [" + event.getKey() + "]", e.getCause());
+				result.addFailedProcess(event.getKey());
+			}
+			catch (final InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while triggering warehouse events", e);
+			}
+		}
+	}
+
+	protected void triggerEventInSession(final String eventName)
+	{
+		try
+		{
+			getBusinessProcessService().triggerEvent(eventName);
+		}
+		finally
+		{
+			getSessionService().closeCurrentSession();
+		}
+	}
+
+	protected String getEventName(final ConsignmentProcessModel process)
+	{
+		return process.getCode() + "_" + SagajiFulfilmentProcessConstants.WAIT_FOR_WAREHOUSE;
+	}
+
+	protected Map<WarehouseConsignmentStatus, WarehouseConsignmentState> getStatusMap()
+	{
+		return statusMap;
+	}
+
+	@Required
+	public void setStatusMap(final Map<WarehouseConsignmentStatus, WarehouseConsignmentState> statusMap)
+	{
+		this.statusMap = statusMap;
+	}
+
+	protected ConsignmentProcessDao getConsignmentProcessDao()
+	{
+		return consignmentProcessDao;
+	}
+
+	@Required
+	public void setConsignmentProcessDao(final ConsignmentProcessDao consignmentProcessDao)
+	{
+		this.consignmentProcessDao = consignmentProcessDao;
+	}
+
+	protected ModelService getModelService()
+	{
+		return modelService;
+	}
+
+	@Required
+	public void setModelService(final ModelService modelService)
+	{
+		this.modelService = modelService;
+	}
+
+	protected BusinessProcessService getBusinessProcessService()
+	{
+		return businessProcessService;
+	}
+
+	@Required
+	public void setBusinessProcessService(final BusinessProcessService businessProcessService)
+	{
+		this.businessProcessService = businessProcessService;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected int getChunkSize()
+	{
+		return chunkSize;
+	}
+
+	@Required
+	public void setChunkSize(final int chunkSize)
+	{
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @param eventPoolSize
+	 *           number of threads triggering process events, 1 triggers them on the calling thread
+	 */
+	@Required
+	public void setEventPoolSize(final int eventPoolSize)
+	{
+		this.eventPoolSize = eventPoolSize;
+	}
+}
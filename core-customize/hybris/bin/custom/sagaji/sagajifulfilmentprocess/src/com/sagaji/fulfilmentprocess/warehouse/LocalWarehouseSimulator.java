@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+
+import org.springframework.beans.factory.annotation.Required;
+
+
+/**
+ * In-process warehouse that reports every consignment with the same status after a fixed processing time.
+ */
+public class LocalWarehouseSimulator implements WarehouseConnector
+{
+	private long processingTime;
+	private WarehouseConsignmentStatus status = WarehouseConsignmentStatus.COMPLETE;
+
+	@Override
+	public long getProcessingTime(final ConsignmentModel consignment)
+	{
+		return processingTime;
+	}
+
+	@Override
+	public WarehouseConsignmentStatus process(final ConsignmentModel consignment)
+	{
+		return status;
+	}
+
+	@Required
+	public void setProcessingTime(final long processingTime)
+	{
+		this.processingTime = processingTime;
+	}
+
+	public void setStatus(final WarehouseConsignmentStatus status)
+	{
+		this.status = status;
+	}
+}
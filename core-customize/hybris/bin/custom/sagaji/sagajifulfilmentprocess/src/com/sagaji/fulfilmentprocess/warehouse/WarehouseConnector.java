@@ -0,0 +1,33 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.warehouse;
+
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+
+
+/**
+ * Hands consignments over to the warehouse for the {@link AsyncProcess2WarehouseAdapter}. Both methods are called on a
+ * worker thread of the adapter, never on the process engine thread.
+ */
+public interface WarehouseConnector
+{
+	/**
+	 * Returns how long the adapter waits before asking for the status of the consignment.
+	 *
+	 * @param consignment
+	 *           the consignment that has been prepared
+	 * @return the delay in milliseconds
+	 */
+	long getProcessingTime(ConsignmentModel consignment);
+
+	/**
+	 * Processes the consignment in the warehouse.
+	 *
+	 * @param consignment
+	 *           the consignment to process
+	 * @return the status reported by the warehouse
+	 */
+	WarehouseConsignmentStatus process(ConsignmentModel consignment);
+}
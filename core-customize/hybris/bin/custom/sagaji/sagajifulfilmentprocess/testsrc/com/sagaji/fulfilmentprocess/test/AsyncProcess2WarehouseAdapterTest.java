@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.enums.ConsignmentStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.task.RetryLaterException;
+import de.hybris.platform.warehouse.Warehouse2ProcessAdapter;
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+import com.sagaji.fulfilmentprocess.actions.consignment.SendConsignmentToWarehouseAction;
+import com.sagaji.fulfilmentprocess.exceptions.WarehouseCapacityExceededException;
+import com.sagaji.fulfilmentprocess.warehouse.AsyncProcess2WarehouseAdapter;
+import com.sagaji.fulfilmentprocess.warehouse.LocalWarehouseSimulator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Unit test for {@link AsyncProcess2WarehouseAdapter} with the {@link LocalWarehouseSimulator}. The deliveries are
+ * scheduled on a mocked executor and run by the test.
+ */
+@UnitTest
+public class AsyncProcess2WarehouseAdapterTest
+{
+	private static final long PROCESSING_TIME = 200;
+	private static final int CONSIGNMENT_COUNT = 50;
+
+	private final List<Runnable> scheduledDeliveries = new ArrayList<>();
+	private AsyncProcess2WarehouseAdapter adapter;
+	private ModelService modelService;
+	private Warehouse2ProcessAdapter warehouse2ProcessAdapter;
+	private ScheduledExecutorService executor;
+
+	@Before
+	public void setUp()
+	{
+		modelService = mock(ModelService.class);
+		warehouse2ProcessAdapter = mock(Warehouse2ProcessAdapter.class);
+		executor = mock(ScheduledExecutorService.class);
+		given(executor.schedule(any(Runnable.class), eq(PROCESSING_TIME), eq(TimeUnit.MILLISECONDS))).willAnswer(invocation -> {
+			scheduledDeliveries.add(invocation.getArgument(0));
+			return null;
+		});
+
+		final LocalWarehouseSimulator warehouseSimulator = new LocalWarehouseSimulator();
+		warehouseSimulator.setProcessingTime(PROCESSING_TIME);
+
+		adapter = new AsyncProcess2WarehouseAdapter()
+		{
+			@Override
+			protected ScheduledExecutorService createExecutor()
+			{
+				return executor;
+			}
+		};
+		adapter.setModelService(modelService);
+		adapter.setSessionService(mock(SessionService.class));
+		adapter.setWarehouse2ProcessAdapter(warehouse2ProcessAdapter);
+		adapter.setWarehouseConnector(warehouseSimulator);
+		adapter.setTimeService(mock(TimeService.class));
+		adapter.setPoolSize(2);
+		adapter.setMaxInFlight(CONSIGNMENT_COUNT);
+		adapter.afterPropertiesSet();
+	}
+
+	@Test
+	public void testPrepareConsignmentReturnsBeforeWarehouseStatusIsDelivered()
+	{
+		for (int i = 0; i < CONSIGNMENT_COUNT; i++)
+		{
+			adapter.prepareConsignment(createConsignment(i));
+		}
+
+		verify(warehouse2ProcessAdapter, never()).receiveConsignmentStatus(any(ConsignmentModel.class),
+				any(WarehouseConsignmentStatus.class));
+		Assert.assertEquals(CONSIGNMENT_COUNT, adapter.getInFlightCount());
+		Assert.assertEquals(CONSIGNMENT_COUNT, scheduledDeliveries.size());
+
+		scheduledDeliveries.forEach(Runnable::run);
+
+		verify(warehouse2ProcessAdapter, times(CONSIGNMENT_COUNT)).receiveConsignmentStatus(any(ConsignmentModel.class),
+				eq(WarehouseConsignmentStatus.COMPLETE));
+		Assert.assertEquals(0, adapter.getInFlightCount());
+		Assert.assertEquals(CONSIGNMENT_COUNT, adapter.getCompletedCount());
+		Assert.assertEquals(CONSIGNMENT_COUNT, adapter.getPeakInFlightCount());
+		Assert.assertEquals(0, adapter.getFailedCount());
+	}
+
+	@Test
+	public void testConsignmentIsRejectedAtMaxInFlight()
+	{
+		adapter.setMaxInFlight(1);
+		final ConsignmentModel first = createConsignment(1);
+		final ConsignmentModel second = createConsignment(2);
+		adapter.prepareConsignment(first);
+
+		try
+		{
+			adapter.prepareConsignment(second);
+			Assert.fail("second consignment accepted above max in flight");
+		}
+		catch (final WarehouseCapacityExceededException e)
+		{
+			// expected
+		}
+
+		verify(second, never()).setStatus(any(ConsignmentStatus.class));
+		verify(modelService, never()).save(second);
+		verify(warehouse2ProcessAdapter, never()).receiveConsignmentStatus(any(ConsignmentModel.class),
+				any(WarehouseConsignmentStatus.class));
+		Assert.assertEquals(1, adapter.getInFlightCount());
+
+		scheduledDeliveries.get(0).run();
+		adapter.prepareConsignment(second);
+		Assert.assertEquals(1, adapter.getInFlightCount());
+	}
+
+	@Test
+	public void testRejectedConsignmentIsRetriedLater() throws Exception
+	{
+		adapter.setMaxInFlight(0);
+		final ConsignmentProcessModel process = mock(ConsignmentProcessModel.class);
+		final ConsignmentModel consignment = createConsignment(1);
+		given(process.getConsignment()).willReturn(consignment);
+		final SendConsignmentToWarehouseAction action = new SendConsignmentToWarehouseAction();
+		action.setProcess2WarehouseAdapter(adapter);
+		action.setModelService(modelService);
+		action.setBusyRetryDelay(30000L);
+
+		try
+		{
+			action.executeAction(process);
+			Assert.fail("rejected consignment not retried");
+		}
+		catch (final RetryLaterException e)
+		{
+			Assert.assertEquals(30000L, e.getDelay());
+		}
+		verify(process, never()).setWaitingForConsignment(true);
+	}
+
+	@Test
+	public void testFailedDeliveryIsCounted()
+	{
+		final ConsignmentModel consignment = createConsignment(1);
+		doThrow(new IllegalStateException("No mapping for WarehouseConsignmentStatus")).when(warehouse2ProcessAdapter)
+				.receiveConsignmentStatus(consignment, WarehouseConsignmentStatus.COMPLETE);
+
+		adapter.prepareConsignment(consignment);
+		scheduledDeliveries.get(0).run();
+
+		Assert.assertEquals(0, adapter.getInFlightCount());
+		Assert.assertEquals(1, adapter.getFailedCount());
+		Assert.assertEquals(0, adapter.getCompletedCount());
+	}
+
+	protected ConsignmentModel createConsignment(final long pk)
+	{
+		final ConsignmentModel consignment = mock(ConsignmentModel.class);
+		given(consignment.getPk()).willReturn(PK.fromLong(pk));
+		given(consignment.getCode()).willReturn("consignment" + pk);
+		given(consignment.getConsignmentEntries()).willReturn(Collections.emptySet());
+		given(modelService.get(PK.fromLong(pk))).willReturn(consignment);
+		return consignment;
+	}
+}
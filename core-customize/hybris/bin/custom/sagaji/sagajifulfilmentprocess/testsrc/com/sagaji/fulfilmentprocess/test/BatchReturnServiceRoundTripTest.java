@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.enums.ReturnStatus;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.processengine.model.BusinessProcessEvent;
+import de.hybris.platform.returns.model.ReturnEntryModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.dao.ReturnProcessDao;
+import com.sagaji.fulfilmentprocess.dao.StockLevelDeltaDao;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+import com.sagaji.fulfilmentprocess.model.StockLevelDeltaModel;
+import com.sagaji.fulfilmentprocess.returns.BatchReturnResult;
+import com.sagaji.fulfilmentprocess.returns.ReturnRefundAdapter;
+import com.sagaji.fulfilmentprocess.returns.ReturnTaxAdapter;
+import com.sagaji.fulfilmentprocess.returns.impl.DefaultBatchReturnService;
+import com.sagaji.fulfilmentprocess.returns.impl.DefaultStockReplenishmentService;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Runs many returns through {@link DefaultBatchReturnService} and checks that every batch costs one call of each
+ * provider and query instead of one per return, and that every return gets its status, stock and process choice.
+ */
+@UnitTest
+public class BatchReturnServiceRoundTripTest
+{
+	private static final int RETURN_COUNT = 200;
+	private static final int BATCH_SIZE = 50;
+	private static final int PRODUCT_COUNT = 20;
+
+	private final List<ReturnRequestModel> returnRequests = new ArrayList<>();
+	private final Map<ReturnRequestModel, ReturnProcessModel> processByReturn = new HashMap<>();
+	private final Map<String, String> choiceByEvent = new HashMap<>();
+	private final Map<String, StockLevelModel> stockLevels = new HashMap<>();
+	private final Map<StockLevelModel, Integer> expectedStock = new HashMap<>();
+	private final Set<String> refundFailures = new HashSet<>();
+	private final Set<String> taxFailures = new HashSet<>();
+	private final List<StockLevelDeltaModel> deltas = new ArrayList<>();
+
+	private ModelService modelService;
+	private WarehouseStockLevelDao warehouseStockLevelDao;
+	private ReturnProcessDao returnProcessDao;
+	private ReturnRefundAdapter returnRefundAdapter;
+	private ReturnTaxAdapter returnTaxAdapter;
+	private DefaultStockReplenishmentService stockReplenishmentService;
+	private DefaultBatchReturnService batchService;
+
+	@Before
+	public void setUp()
+	{
+		final List<WarehouseModel> warehouses = Arrays.asList(createWarehouse("w1"), createWarehouse("w2"));
+		final List<ProductModel> products = new ArrayList<>();
+		for (int i = 0; i < PRODUCT_COUNT; i++)
+		{
+			final ProductModel product = new ProductModel();
+			product.setCode("p" + i);
+			products.add(product);
+			for (final WarehouseModel warehouse : warehouses)
+			{
+				final StockLevelModel stockLevel = new StockLevelModel();
+				stockLevel.setProductCode(product.getCode());
+				stockLevel.setWarehouse(warehouse);
+				stockLevel.setAvailable(0);
+				stockLevels.put(product.getCode() + "@" + warehouse.getCode(), stockLevel);
+			}
+		}
+
+		for (int i = 0; i < RETURN_COUNT; i++)
+		{
+			final ReturnRequestModel returnRequest = new ReturnRequestModel();
+			returnRequest.setCode("r" + i);
+			returnRequest.setStatus(ReturnStatus.RECEIVED);
+			returnRequest.setReturnWarehouse(warehouses.get(i % warehouses.size()));
+			final List<ReturnEntryModel> entries = new ArrayList<>();
+			for (int j = 0; j < 2; j++)
+			{
+				final OrderEntryModel orderEntry = new OrderEntryModel();
+				orderEntry.setProduct(products.get((i + j * 7) % PRODUCT_COUNT));
+				final ReturnEntryModel entry = new ReturnEntryModel();
+				entry.setOrderEntry(orderEntry);
+				entry.setExpectedQuantity(Long.valueOf(j + 1));
+				entry.setReceivedQuantity(Long.valueOf(j + 1));
+				entry.setStatus(ReturnStatus.RECEIVED);
+				entries.add(entry);
+			}
+			returnRequest.setReturnEntries(entries);
+			returnRequests.add(returnRequest);
+
+			final ReturnProcessModel process = new ReturnProcessModel();
+			process.setCode("rp" + i);
+			process.setReturnRequest(returnRequest);
+			processByReturn.put(returnRequest, process);
+
+			if (i % 100 == 7)
+			{
+				refundFailures.add(returnRequest.getCode());
+			}
+			else if (i % 100 == 13)
+			{
+				taxFailures.add(returnRequest.getCode());
+			}
+			else
+			{
+				for (final ReturnEntryModel entry : entries)
+				{
+					expectedStock.merge(stockLevels.get(entry.getOrderEntry().getProduct().getCode() + "@"
+							+ returnRequest.getReturnWarehouse().getCode()), Integer.valueOf(entry.getReceivedQuantity().intValue()),
+							Integer::sum);
+				}
+			}
+		}
+
+		modelService = mock(ModelService.class);
+		given(modelService.create(StockLevelDeltaModel.class)).willAnswer(invocation -> new StockLevelDeltaModel());
+		doAnswer(invocation -> {
+			for (final Object item : (Collection<?>) invocation.getArgument(0))
+			{
+				if (item instanceof StockLevelDeltaModel)
+				{
+					deltas.add((StockLevelDeltaModel) item);
+				}
+			}
+			return null;
+		}).when(modelService).saveAll(anyCollection());
+		doAnswer(invocation -> deltas.removeAll((Collection<?>) invocation.getArgument(0))).when(modelService)
+				.removeAll(anyCollection());
+
+		final StockLevelDeltaDao stockLevelDeltaDao = mock(StockLevelDeltaDao.class);
+		given(stockLevelDeltaDao.findDeltas(any(StockLevelModel.class))).willAnswer(invocation -> {
+			final List<StockLevelDeltaModel> result = new ArrayList<>();
+			for (final StockLevelDeltaModel delta : deltas)
+			{
+				if (delta.getStockLevel() == invocation.getArgument(0))
+				{
+					result.add(delta);
+				}
+			}
+			return result;
+		});
+
+		warehouseStockLevelDao = mock(WarehouseStockLevelDao.class);
+		given(warehouseStockLevelDao.findStockLevels(anyCollection(), anyCollection())).willAnswer(invocation -> {
+			final List<StockLevelModel> result = new ArrayList<>();
+			for (final Object productCode : (Collection<?>) invocation.getArgument(0))
+			{
+				for (final Object warehouse : (Collection<?>) invocation.getArgument(1))
+				{
+					final StockLevelModel stockLevel = stockLevels.get(productCode + "@" + ((WarehouseModel) warehouse).getCode());
+					if (stockLevel != null)
+					{
+						result.add(stockLevel);
+					}
+				}
+			}
+			return result;
+		});
+
+		returnProcessDao = mock(ReturnProcessDao.class);
+		given(returnProcessDao.findReturnProcesses(anyCollection(), eq(SagajiFulfilmentProcessConstants.WAIT_FOR_GOODS_ACTION)))
+				.willAnswer(invocation -> {
+					final List<ReturnProcessModel> result = new ArrayList<>();
+					for (final Object returnRequest : (Collection<?>) invocation.getArgument(0))
+					{
+						result.add(processByReturn.get(returnRequest));
+					}
+					return result;
+				});
+
+		final BusinessProcessService businessProcessService = mock(BusinessProcessService.class);
+		doAnswer(invocation -> {
+			final BusinessProcessEvent event = invocation.getArgument(0);
+			choiceByEvent.put(event.getEvent(), event.getChoice());
+			return null;
+		}).when(businessProcessService).triggerEvent(any(BusinessProcessEvent.class));
+
+		returnRefundAdapter = mock(ReturnRefundAdapter.class);
+		given(returnRefundAdapter.captureRefunds(anyList())).willAnswer(
+				invocation -> failed(invocation.getArgument(0), refundFailures));
+		returnTaxAdapter = mock(ReturnTaxAdapter.class);
+		given(returnTaxAdapter.reverseTaxes(anyList())).willAnswer(invocation -> failed(invocation.getArgument(0), taxFailures));
+
+		final TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
+		stockReplenishmentService = new DefaultStockReplenishmentService();
+		stockReplenishmentService.setWarehouseStockLevelDao(warehouseStockLevelDao);
+		stockReplenishmentService.setStockLevelDeltaDao(stockLevelDeltaDao);
+		stockReplenishmentService.setModelService(modelService);
+		stockReplenishmentService.setTransactionTemplate(transactionTemplate);
+
+		final TimeService timeService = mock(TimeService.class);
+		given(timeService.getCurrentTime()).willReturn(new Date());
+
+		batchService = new DefaultBatchReturnService();
+		batchService.setReturnRefundAdapter(returnRefundAdapter);
+		batchService.setReturnTaxAdapter(returnTaxAdapter);
+		batchService.setStockReplenishmentService(stockReplenishmentService);
+		batchService.setReturnProcessDao(returnProcessDao);
+		batchService.setModelService(modelService);
+		batchService.setBusinessProcessService(businessProcessService);
+		batchService.setTimeService(timeService);
+		batchService.setTransactionTemplate(transactionTemplate);
+		batchService.setBatchSize(BATCH_SIZE);
+		batchService.setClaimTimeout(600000);
+	}
+
+	@Test
+	public void testEveryBatchCallsProvidersAndQueriesOnce()
+	{
+		final BatchReturnResult result = batchService.processReturns(returnRequests);
+
+		final int batchCount = RETURN_COUNT / BATCH_SIZE;
+		Assert.assertEquals(batchCount, result.getBatchCount());
+		verify(returnRefundAdapter, times(batchCount)).captureRefunds(anyList());
+		verify(returnTaxAdapter, times(batchCount)).reverseTaxes(anyList());
+		verify(warehouseStockLevelDao, times(batchCount)).findStockLevels(anyCollection(), anyCollection());
+		verify(returnProcessDao, times(batchCount)).findReturnProcesses(anyCollection(),
+				eq(SagajiFulfilmentProcessConstants.WAIT_FOR_GOODS_ACTION));
+		// one save of the claims, one of the outcomes and one of the stock deltas per batch
+		verify(modelService, times(3 * batchCount)).saveAll(anyCollection());
+		verify(modelService, never()).save(any(ReturnRequestModel.class));
+		verify(modelService, never()).save(any(ReturnEntryModel.class));
+	}
+
+	@Test
+	public void testEveryReturnGetsItsOutcome()
+	{
+		final BatchReturnResult result = batchService.processReturns(returnRequests);
+
+		final int expectedCompleted = RETURN_COUNT - refundFailures.size() - taxFailures.size();
+		Assert.assertEquals(RETURN_COUNT, result.getReceivedCount());
+		Assert.assertEquals(expectedCompleted, result.getCompletedCount());
+		Assert.assertEquals(RETURN_COUNT, result.getTriggeredEventCount());
+		Assert.assertEquals(refundFailures, new HashSet<>(result.getRefundFailedCodes()));
+		Assert.assertEquals(taxFailures, new HashSet<>(result.getTaxReversalFailedCodes()));
+		Assert.assertEquals(2 * expectedCompleted, result.getRestockedEntryCount());
+		for (final ReturnRequestModel returnRequest : returnRequests)
+		{
+			final ReturnStatus expected;
+			final String expectedChoice;
+			if (refundFailures.contains(returnRequest.getCode()))
+			{
+				expected = ReturnStatus.PAYMENT_REVERSAL_FAILED;
+				expectedChoice = SagajiFulfilmentProcessConstants.BATCH_REFUND_FAILED_CHOICE;
+			}
+			else if (taxFailures.contains(returnRequest.getCode()))
+			{
+				expected = ReturnStatus.TAX_REVERSAL_FAILED;
+				expectedChoice = SagajiFulfilmentProcessConstants.BATCH_TAX_REVERSAL_FAILED_CHOICE;
+			}
+			else
+			{
+				expected = ReturnStatus.COMPLETED;
+				expectedChoice = SagajiFulfilmentProcessConstants.BATCH_PROCESSED_CHOICE;
+			}
+			Assert.assertEquals(expected, returnRequest.getStatus());
+			for (final ReturnEntryModel entry : returnRequest.getReturnEntries())
+			{
+				Assert.assertEquals(expected, entry.getStatus());
+			}
+			Assert.assertEquals(expectedChoice, choiceByEvent.get(processByReturn.get(returnRequest).getCode() + "_"
+					+ SagajiFulfilmentProcessConstants.APPROVE_OR_CANCEL_GOODS_EVENT_NAME));
+		}
+		for (final StockLevelModel stockLevel : stockLevels.values())
+		{
+			stockReplenishmentService.applyPendingQuantities(stockLevel);
+			final Integer expected = expectedStock.get(stockLevel);
+			Assert.assertEquals(expected == null ? 0 : expected.intValue(), stockLevel.getAvailable());
+		}
+		Assert.assertTrue(deltas.isEmpty());
+	}
+
+	protected Set<String> failed(final List<ReturnRequestModel> returnRequests, final Set<String> failures)
+	{
+		final Set<String> result = new HashSet<>();
+		for (final ReturnRequestModel returnRequest : returnRequests)
+		{
+			if (failures.contains(returnRequest.getCode()))
+			{
+				result.add(returnRequest.getCode());
+			}
+		}
+		return result;
+	}
+
+	protected WarehouseModel createWarehouse(final String code)
+	{
+		final WarehouseModel warehouse = new WarehouseModel();
+		warehouse.setCode(code);
+		return warehouse;
+	}
+}
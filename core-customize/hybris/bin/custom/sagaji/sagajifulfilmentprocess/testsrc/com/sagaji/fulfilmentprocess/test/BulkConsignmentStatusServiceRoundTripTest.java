@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.commerceservices.enums.WarehouseConsignmentState;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+import com.sagaji.fulfilmentprocess.dao.ConsignmentProcessDao;
+import com.sagaji.fulfilmentprocess.warehouse.BulkConsignmentStatusResult;
+import com.sagaji.fulfilmentprocess.warehouse.ConsignmentStatusUpdate;
+import com.sagaji.fulfilmentprocess.warehouse.DefaultBulkConsignmentStatusService;
+import com.sagaji.fulfilmentprocess.warehouse.DefaultWarehouse2ProcessAdapter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Counts the database round trips of applying a warehouse status file with {@link DefaultBulkConsignmentStatusService}
+ * and of applying it record by record with the {@link DefaultWarehouse2ProcessAdapter}.
+ */
+@UnitTest
+public class BulkConsignmentStatusServiceRoundTripTest
+{
+	private static final int CONSIGNMENT_COUNT = 1000;
+	private static final int CHUNK_SIZE = 500;
+
+	private final Map<String, ConsignmentProcessModel> processesByConsignment = new HashMap<>();
+	private final Set<String> triggeredEvents = ConcurrentHashMap.newKeySet();
+	private final Map<WarehouseConsignmentStatus, WarehouseConsignmentState> statusMap = new HashMap<>();
+	private final AtomicInteger saves = new AtomicInteger();
+	private final AtomicInteger queries = new AtomicInteger();
+
+	private DefaultBulkConsignmentStatusService bulkService;
+	private DefaultWarehouse2ProcessAdapter adapter;
+
+	@Before
+	public void setUp()
+	{
+		statusMap.put(WarehouseConsignmentStatus.COMPLETE, WarehouseConsignmentState.COMPLETE);
+		statusMap.put(WarehouseConsignmentStatus.CANCEL, WarehouseConsignmentState.CANCEL);
+
+		for (int i = 0; i < CONSIGNMENT_COUNT; i++)
+		{
+			final ConsignmentModel consignment = new ConsignmentModel();
+			consignment.setCode("c" + i);
+			final ConsignmentProcessModel process = new ConsignmentProcessModel();
+			process.setCode("cp" + i);
+			process.setConsignment(consignment);
+			consignment.setConsignmentProcesses(Collections.singleton(process));
+			processesByConsignment.put(consignment.getCode(), process);
+		}
+
+		final ModelService modelService = mock(ModelService.class);
+		doAnswer(invocation -> {
+			saves.incrementAndGet();
+			return null;
+		}).when(modelService).save(any());
+		doAnswer(invocation -> {
+			saves.incrementAndGet();
+			return null;
+		}).when(modelService).saveAll(anyCollection());
+
+		final BusinessProcessService businessProcessService = mock(BusinessProcessService.class);
+		doAnswer(invocation -> {
+			triggeredEvents.add(invocation.getArgument(0));
+			return null;
+		}).when(businessProcessService).triggerEvent(anyString());
+
+		final ConsignmentProcessDao consignmentProcessDao = mock(ConsignmentProcessDao.class);
+		given(consignmentProcessDao.findConsignmentProcesses(anyCollection())).willAnswer(invocation -> {
+			queries.incrementAndGet();
+			final List<ConsignmentProcessModel> result = new ArrayList<>();
+			for (final Object code : (Collection<?>) invocation.getArgument(0))
+			{
+				if (processesByConsignment.containsKey(code))
+				{
+					result.add(processesByConsignment.get(code));
+				}
+			}
+			return result;
+		});
+
+		adapter = new DefaultWarehouse2ProcessAdapter();
+		adapter.setStatusMap(statusMap);
+		adapter.setModelService(modelService);
+		adapter.setBusinessProcessService(businessProcessService);
+
+		bulkService = new DefaultBulkConsignmentStatusService();
+		bulkService.setStatusMap(statusMap);
+		bulkService.setConsignmentProcessDao(consignmentProcessDao);
+		bulkService.setModelService(modelService);
+		bulkService.setBusinessProcessService(businessProcessService);
+		bulkService.setSessionService(mock(SessionService.class));
+		bulkService.setChunkSize(CHUNK_SIZE);
+		bulkService.setEventPoolSize(8);
+		bulkService.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown()
+	{
+		bulkService.destroy();
+	}
+
+	@Test
+	public void testPerRecordUpdatesSaveEveryConsignment()
+	{
+		for (int i = 0; i < CONSIGNMENT_COUNT; i++)
+		{
+			adapter.receiveConsignmentStatus(processesByConsignment.get("c" + i).getConsignment(),
+					WarehouseConsignmentStatus.CANCEL);
+		}
+
+		Assert.assertEquals(CONSIGNMENT_COUNT, saves.get());
+		Assert.assertEquals(CONSIGNMENT_COUNT, triggeredEvents.size());
+	}
+
+	@Test
+	public void testBulkUpdateQueriesAndSavesOncePerChunk()
+	{
+		final BulkConsignmentStatusResult result = bulkService.updateStatuses(createStatusFile());
+
+		final int chunks = (CONSIGNMENT_COUNT + 10 + CHUNK_SIZE - 1) / CHUNK_SIZE;
+		Assert.assertEquals(chunks, queries.get());
+		Assert.assertEquals(chunks, saves.get());
+		Assert.assertEquals(CONSIGNMENT_COUNT + 15, result.getReceivedCount());
+		Assert.assertEquals(CONSIGNMENT_COUNT, result.getUpdatedCount());
+		Assert.assertEquals(CONSIGNMENT_COUNT, result.getTriggeredEventCount());
+		Assert.assertEquals(10, result.getUnknownConsignmentCodes().size());
+		Assert.assertEquals(5, result.getRejectedConsignmentCodes().size());
+		Assert.assertTrue(result.getFailedProcessCodes().isEmpty());
+		Assert.assertEquals(CONSIGNMENT_COUNT, triggeredEvents.size());
+		for (final ConsignmentProcessModel process : processesByConsignment.values())
+		{
+			Assert.assertEquals(WarehouseConsignmentState.COMPLETE, process.getWarehouseConsignmentState());
+		}
+	}
+
+	protected Stream<ConsignmentStatusUpdate> createStatusFile()
+	{
+		final Stream<ConsignmentStatusUpdate> known = IntStream.range(0, CONSIGNMENT_COUNT)
+				.mapToObj(i -> new ConsignmentStatusUpdate("c" + i, WarehouseConsignmentStatus.COMPLETE));
+		final Stream<ConsignmentStatusUpdate> unknown = IntStream.range(0, 10)
+				.mapToObj(i -> new ConsignmentStatusUpdate("unknown" + i, WarehouseConsignmentStatus.COMPLETE));
+		final Stream<ConsignmentStatusUpdate> unreadable = IntStream.range(0, 5)
+				.mapToObj(i -> new ConsignmentStatusUpdate("c" + i, null));
+		return Stream.concat(Stream.concat(known, unknown), unreadable);
+	}
+}
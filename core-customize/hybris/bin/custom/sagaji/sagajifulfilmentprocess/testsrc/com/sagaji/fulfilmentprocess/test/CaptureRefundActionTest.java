@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.enums.ReturnStatus;
+import de.hybris.platform.returns.model.ReturnEntryModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.fulfilmentprocess.actions.returns.CaptureRefundAction;
+
+import java.util.Collections;
+import java.util.Date;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Unit test for the batch claim check of {@link CaptureRefundAction}.
+ */
+@UnitTest
+public class CaptureRefundActionTest
+{
+	private final CaptureRefundAction action = new CaptureRefundAction();
+	private final ModelService modelService = mock(ModelService.class);
+	private ReturnProcessModel process;
+	private ReturnRequestModel returnRequest;
+	private Date now;
+
+	@Before
+	public void setUp()
+	{
+		now = new Date(1000000);
+		final TimeService timeService = mock(TimeService.class);
+		given(timeService.getCurrentTime()).willAnswer(invocation -> now);
+		action.setModelService(modelService);
+		action.setTimeService(timeService);
+		action.setTransactionTemplate(new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+		returnRequest = new ReturnRequestModel();
+		returnRequest.setCode("r1");
+		returnRequest.setStatus(ReturnStatus.RECEIVED);
+		returnRequest.setReturnEntries(Collections.singletonList(new ReturnEntryModel()));
+		process = new ReturnProcessModel();
+		process.setCode("rp1");
+		process.setReturnRequest(returnRequest);
+	}
+
+	@Test
+	public void testReturnIsRefunded() throws Exception
+	{
+		Assert.assertEquals(CaptureRefundAction.Transition.OK.name(), action.execute(process));
+		Assert.assertEquals(ReturnStatus.PAYMENT_REVERSED, returnRequest.getStatus());
+		Assert.assertEquals(ReturnStatus.PAYMENT_REVERSED, returnRequest.getReturnEntries().get(0).getStatus());
+	}
+
+	@Test
+	public void testReturnClaimedByBatchRunIsRetriedWhenTheClaimExpires() throws Exception
+	{
+		returnRequest.setBatchClaimId("batch run");
+		returnRequest.setBatchClaimedUntil(new Date(now.getTime() + 5000));
+		try
+		{
+			action.execute(process);
+			Assert.fail("Claimed return should be retried");
+		}
+		catch (final RetryLaterException e)
+		{
+			Assert.assertEquals(5000, e.getDelay());
+		}
+		Assert.assertEquals(ReturnStatus.RECEIVED, returnRequest.getStatus());
+		verify(modelService, never()).saveAll(anyCollection());
+	}
+
+	@Test
+	public void testReturnCompletedByBatchRunIsNotRefundedAgain() throws Exception
+	{
+		returnRequest.setStatus(ReturnStatus.COMPLETED);
+
+		Assert.assertEquals(CaptureRefundAction.Transition.BATCH_PROCESSED.name(), action.execute(process));
+		Assert.assertEquals(ReturnStatus.COMPLETED, returnRequest.getStatus());
+		verify(modelService, never()).saveAll(anyCollection());
+	}
+
+	@Test
+	public void testReturnRefundedByBatchRunGoesOnToTheTaxReversal() throws Exception
+	{
+		returnRequest.setStatus(ReturnStatus.TAX_REVERSAL_FAILED);
+
+		Assert.assertEquals(CaptureRefundAction.Transition.OK.name(), action.execute(process));
+		Assert.assertEquals(ReturnStatus.TAX_REVERSAL_FAILED, returnRequest.getStatus());
+		verify(modelService, never()).saveAll(anyCollection());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.commerceservices.enums.WarehouseConsignmentState;
+import com.sagaji.fulfilmentprocess.actions.consignment.CheckConsignmentStatusAction;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class CheckConsignmentStatusActionTest
+{
+	private final CheckConsignmentStatusAction action = new CheckConsignmentStatusAction();
+	private final ModelService modelService = mock(ModelService.class);
+	private ConsignmentProcessModel process;
+
+	@Before
+	public void setUp()
+	{
+		action.setModelService(modelService);
+		action.setMaxResends(2);
+
+		process = new ConsignmentProcessModel();
+		process.setCode("cp1");
+		process.setPollAttempts(0);
+	}
+
+	@Test
+	public void testStatusReceivedWhileWaitingIsProcessed() throws Exception
+	{
+		process.setWarehouseConsignmentState(WarehouseConsignmentState.COMPLETE);
+
+		Assert.assertEquals(CheckConsignmentStatusAction.Transition.RECEIVED.name(), action.execute(process));
+		verify(modelService, never()).save(process);
+	}
+
+	@Test
+	public void testMissingStatusIsResentUntilMaxResends() throws Exception
+	{
+		Assert.assertEquals(CheckConsignmentStatusAction.Transition.RESEND.name(), action.execute(process));
+		Assert.assertEquals(CheckConsignmentStatusAction.Transition.RESEND.name(), action.execute(process));
+		Assert.assertEquals(2, process.getPollAttempts());
+
+		Assert.assertEquals(CheckConsignmentStatusAction.Transition.ERROR.name(), action.execute(process));
+		Assert.assertEquals(0, process.getPollAttempts());
+	}
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.enums.ReturnStatus;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.processengine.model.BusinessProcessEvent;
+import de.hybris.platform.returns.model.ReturnEntryModel;
+import de.hybris.platform.returns.model.ReturnProcessModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.dao.ReturnProcessDao;
+import com.sagaji.fulfilmentprocess.returns.BatchReturnResult;
+import com.sagaji.fulfilmentprocess.returns.StockReplenishmentService;
+import com.sagaji.fulfilmentprocess.returns.impl.DefaultBatchReturnService;
+import com.sagaji.fulfilmentprocess.returns.impl.LocalReturnRefundAdapter;
+import com.sagaji.fulfilmentprocess.returns.impl.LocalReturnTaxAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Unit test for the claims and idempotency keys of {@link DefaultBatchReturnService}.
+ */
+@UnitTest
+public class DefaultBatchReturnServiceTest
+{
+	private static final long CLAIM_TIMEOUT = 60000;
+
+	private final DefaultBatchReturnService batchService = new DefaultBatchReturnService();
+	private final LocalReturnRefundAdapter refundAdapter = new LocalReturnRefundAdapter();
+	private final List<String> sentRefundKeys = new ArrayList<>();
+	private PlatformTransactionManager transactionManager;
+	private TimeService timeService;
+	private StockReplenishmentService stockReplenishmentService;
+	private BusinessProcessService businessProcessService;
+	private ReturnRequestModel returnRequest;
+	private Date now;
+
+	@Before
+	public void setUp()
+	{
+		now = new Date(1000000);
+		timeService = mock(TimeService.class);
+		given(timeService.getCurrentTime()).willAnswer(invocation -> now);
+		transactionManager = mock(PlatformTransactionManager.class);
+		stockReplenishmentService = mock(StockReplenishmentService.class);
+		businessProcessService = mock(BusinessProcessService.class);
+
+		returnRequest = new ReturnRequestModel();
+		returnRequest.setCode("r1");
+		final ReturnEntryModel entry = new ReturnEntryModel();
+		returnRequest.setReturnEntries(Collections.singletonList(entry));
+		setReceived(returnRequest);
+		final ReturnProcessModel process = new ReturnProcessModel();
+		process.setCode("rp1");
+		process.setReturnRequest(returnRequest);
+		final ReturnProcessDao returnProcessDao = mock(ReturnProcessDao.class);
+		given(returnProcessDao.findReturnProcesses(anyCollection(), eq(SagajiFulfilmentProcessConstants.WAIT_FOR_GOODS_ACTION)))
+				.willReturn(Collections.singletonList(process));
+
+		batchService.setReturnRefundAdapter(returnRequests -> {
+			returnRequests.forEach(request -> sentRefundKeys.add(request.getRefundIdempotencyKey()));
+			return refundAdapter.captureRefunds(returnRequests);
+		});
+		batchService.setReturnTaxAdapter(new LocalReturnTaxAdapter());
+		batchService.setStockReplenishmentService(stockReplenishmentService);
+		batchService.setReturnProcessDao(returnProcessDao);
+		batchService.setModelService(mock(ModelService.class));
+		batchService.setBusinessProcessService(businessProcessService);
+		batchService.setTimeService(timeService);
+		batchService.setTransactionTemplate(new TransactionTemplate(transactionManager));
+		batchService.setBatchSize(10);
+		batchService.setClaimTimeout(CLAIM_TIMEOUT);
+	}
+
+	@Test
+	public void testReturnClaimedByAnotherRunIsSkipped()
+	{
+		returnRequest.setBatchClaimId("other run");
+		returnRequest.setBatchClaimedUntil(new Date(now.getTime() + 1));
+
+		final BatchReturnResult result = batchService.processReturns(Collections.singletonList(returnRequest));
+
+		Assert.assertEquals(1, result.getSkippedCount());
+		Assert.assertEquals(0, result.getCompletedCount());
+		Assert.assertTrue(sentRefundKeys.isEmpty());
+		Assert.assertEquals(ReturnStatus.RECEIVED, returnRequest.getStatus());
+		verify(stockReplenishmentService, never()).replenish(anyCollection());
+		verify(businessProcessService, never()).triggerEvent(any(BusinessProcessEvent.class));
+	}
+
+	@Test
+	public void testFailedCommitIsRetriedWithSameIdempotencyKey()
+	{
+		// the claim commits, the completion does not
+		doNothing().doThrow(new TransactionSystemException("commit failed")).doNothing().when(transactionManager).commit(any());
+		try
+		{
+			batchService.processReturns(Collections.singletonList(returnRequest));
+			Assert.fail("Failed commit not reported");
+		}
+		catch (final TransactionSystemException e)
+		{
+			// expected
+		}
+		rollBackCompletion(returnRequest);
+
+		final BatchReturnResult retryTooEarly = batchService.processReturns(Collections.singletonList(returnRequest));
+		Assert.assertEquals(1, retryTooEarly.getSkippedCount());
+
+		now = new Date(now.getTime() + CLAIM_TIMEOUT + 1);
+		final BatchReturnResult retry = batchService.processReturns(Collections.singletonList(returnRequest));
+
+		Assert.assertEquals(1, retry.getCompletedCount());
+		Assert.assertEquals(ReturnStatus.COMPLETED, returnRequest.getStatus());
+		Assert.assertNull(returnRequest.getBatchClaimId());
+		Assert.assertEquals(2, sentRefundKeys.size());
+		Assert.assertNotNull(sentRefundKeys.get(0));
+		Assert.assertEquals(sentRefundKeys.get(0), sentRefundKeys.get(1));
+		Assert.assertEquals(1, refundAdapter.getRefundCount());
+		verify(businessProcessService, times(1)).triggerEvent(any(BusinessProcessEvent.class));
+	}
+
+	/**
+	 * Restores the state the database keeps when the completion of a claimed return is rolled back.
+	 */
+	protected void rollBackCompletion(final ReturnRequestModel returnRequest)
+	{
+		setReceived(returnRequest);
+		returnRequest.setBatchClaimId("failed run");
+		returnRequest.setBatchClaimedUntil(new Date(now.getTime() + CLAIM_TIMEOUT));
+	}
+
+	protected void setReceived(final ReturnRequestModel returnRequest)
+	{
+		returnRequest.setStatus(ReturnStatus.RECEIVED);
+		for (final ReturnEntryModel entry : returnRequest.getReturnEntries())
+		{
+			entry.setStatus(ReturnStatus.RECEIVED);
+		}
+	}
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
+import com.sagaji.fulfilmentprocess.impl.DefaultConsignmentSubprocessService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+@UnitTest
+public class DefaultConsignmentSubprocessServiceTest
+{
+	private static final int CONSIGNMENT_COUNT = 50;
+
+	private final DefaultConsignmentSubprocessService service = new DefaultConsignmentSubprocessService();
+	private ModelService modelService;
+	private BusinessProcessService businessProcessService;
+	private OrderProcessModel orderProcess;
+
+	@Before
+	public void setUp()
+	{
+		modelService = mock(ModelService.class);
+		businessProcessService = mock(BusinessProcessService.class);
+		given(businessProcessService.createProcess(anyString(), eq(SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_NAME)))
+				.willAnswer(invocation -> {
+					final ConsignmentProcessModel subprocess = new ConsignmentProcessModel();
+					subprocess.setCode(invocation.getArgument(0));
+					subprocess.setProcessDefinitionName(invocation.getArgument(1));
+					return subprocess;
+				});
+
+		service.setModelService(modelService);
+		service.setBusinessProcessService(businessProcessService);
+		service.setTransactionTemplate(new TransactionTemplate(mock(PlatformTransactionManager.class)));
+
+		orderProcess = new OrderProcessModel();
+		orderProcess.setCode("order-process");
+	}
+
+	@Test
+	public void testSubprocessesAreSavedTogetherAndStarted()
+	{
+		final List<ConsignmentModel> consignments = createConsignments();
+
+		final List<ConsignmentProcessModel> subprocesses = service.startSubprocesses(orderProcess, consignments);
+
+		Assert.assertEquals(CONSIGNMENT_COUNT, subprocesses.size());
+		Assert.assertEquals(CONSIGNMENT_COUNT, orderProcess.getConsignmentSubprocessCount());
+		final ArgumentCaptor<Collection> saved = ArgumentCaptor.forClass(Collection.class);
+		verify(modelService).saveAll(saved.capture());
+		verify(modelService, never()).save(any());
+		verify(modelService, never()).create(any(Class.class));
+		Assert.assertEquals(CONSIGNMENT_COUNT + 1, saved.getValue().size());
+		Assert.assertTrue(saved.getValue().contains(orderProcess));
+
+		for (int i = 0; i < CONSIGNMENT_COUNT; i++)
+		{
+			final ConsignmentProcessModel subprocess = subprocesses.get(i);
+			Assert.assertEquals("order-process_" + (i + 1), subprocess.getCode());
+			Assert.assertEquals(SagajiFulfilmentProcessConstants.CONSIGNMENT_SUBPROCESS_NAME,
+					subprocess.getProcessDefinitionName());
+			Assert.assertSame(orderProcess, subprocess.getParentProcess());
+			Assert.assertSame(consignments.get(i), subprocess.getConsignment());
+			verify(businessProcessService).startProcess(subprocess);
+		}
+	}
+
+	@Test
+	public void testSplittingAgainContinuesNumbering()
+	{
+		final Set<String> codes = new HashSet<String>();
+		for (final ConsignmentProcessModel subprocess : service.startSubprocesses(orderProcess, createConsignments()))
+		{
+			codes.add(subprocess.getCode());
+		}
+		for (final ConsignmentProcessModel subprocess : service.startSubprocesses(orderProcess, createConsignments()))
+		{
+			Assert.assertTrue("Duplicate code " + subprocess.getCode(), codes.add(subprocess.getCode()));
+		}
+
+		Assert.assertEquals(2 * CONSIGNMENT_COUNT, orderProcess.getConsignmentSubprocessCount());
+		verify(modelService, times(2)).saveAll(anyCollection());
+	}
+
+	@Test
+	public void testNoConsignments()
+	{
+		Assert.assertTrue(service.startSubprocesses(orderProcess, new ArrayList<ConsignmentModel>()).isEmpty());
+		verify(modelService, never()).saveAll(anyCollection());
+		verify(businessProcessService, never()).startProcess(any(ConsignmentProcessModel.class));
+	}
+
+	protected List<ConsignmentModel> createConsignments()
+	{
+		final List<ConsignmentModel> consignments = new ArrayList<ConsignmentModel>();
+		for (int i = 0; i < CONSIGNMENT_COUNT; i++)
+		{
+			consignments.add(new ConsignmentModel());
+		}
+		return consignments;
+	}
+}
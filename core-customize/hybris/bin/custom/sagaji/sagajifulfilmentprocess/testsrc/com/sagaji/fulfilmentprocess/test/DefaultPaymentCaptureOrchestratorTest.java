@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.order.payment.CreditCardPaymentInfoModel;
+import de.hybris.platform.core.model.order.payment.DebitPaymentInfoModel;
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionService;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureResult;
+import com.sagaji.fulfilmentprocess.payment.impl.DefaultPaymentCaptureOrchestrator;
+import com.sagaji.fulfilmentprocess.payment.impl.LocalPaymentCaptureGateway;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class DefaultPaymentCaptureOrchestratorTest
+{
+	private static final long WAIT_SECONDS = 10;
+
+	private final DefaultPaymentCaptureOrchestrator orchestrator = new DefaultPaymentCaptureOrchestrator();
+	private final LocalPaymentCaptureGateway gateway = new LocalPaymentCaptureGateway();
+	private ModelService modelService;
+	private OrderModel order;
+
+	@Before
+	public void setUp()
+	{
+		modelService = mock(ModelService.class);
+		given(modelService.create(PaymentTransactionEntryModel.class)).willAnswer(invocation -> new PaymentTransactionEntryModel());
+		gateway.setModelService(modelService);
+
+		orchestrator.setPaymentCaptureGateway(gateway);
+		orchestrator.setModelService(modelService);
+		orchestrator.setSessionService(mock(SessionService.class));
+		orchestrator.setPoolSize(4);
+		orchestrator.setTimeout(TimeUnit.SECONDS.toMillis(WAIT_SECONDS));
+
+		order = new OrderModel();
+		order.setCode("order1");
+	}
+
+	@After
+	public void tearDown()
+	{
+		orchestrator.destroy();
+	}
+
+	@Test
+	public void testTransactionsAreCapturedConcurrently()
+	{
+		// every capture waits until all four are running, captures one after the other break the barrier
+		final CyclicBarrier allRunning = new CyclicBarrier(4);
+		orchestrator.setPaymentCaptureGateway((transaction, idempotencyKey) -> {
+			try
+			{
+				allRunning.await(WAIT_SECONDS, TimeUnit.SECONDS);
+			}
+			catch (final InterruptedException | BrokenBarrierException | TimeoutException e)
+			{
+				throw new IllegalStateException("Captures are not running concurrently", e);
+			}
+			return gateway.capture(transaction, idempotencyKey);
+		});
+		orchestrator.afterPropertiesSet();
+		order.setPaymentTransactions(createTransactions(4));
+
+		final PaymentCaptureResult result = orchestrator.capture(order);
+
+		Assert.assertTrue(result.isCaptured());
+		Assert.assertEquals(Arrays.asList("txn0", "txn1", "txn2", "txn3"), result.getCapturedTransactionCodes());
+		Assert.assertEquals(4, gateway.getChargeCount());
+	}
+
+	@Test
+	public void testWorkersCaptureTheirOwnCopyOfTheTransaction()
+	{
+		final List<PaymentTransactionModel> transactions = createTransactions(2);
+		final List<PaymentTransactionModel> copies = createTransactions(2);
+		for (int i = 0; i < transactions.size(); i++)
+		{
+			given(modelService.get(transactions.get(i).getPk())).willReturn(copies.get(i));
+		}
+		final List<PaymentTransactionModel> captured = new CopyOnWriteArrayList<>();
+		orchestrator.setPaymentCaptureGateway((transaction, idempotencyKey) -> {
+			captured.add(transaction);
+			return gateway.capture(transaction, idempotencyKey);
+		});
+		orchestrator.afterPropertiesSet();
+		order.setPaymentTransactions(transactions);
+
+		Assert.assertTrue(orchestrator.capture(order).isCaptured());
+
+		Assert.assertEquals(2, captured.size());
+		Assert.assertTrue(copies.containsAll(captured));
+	}
+
+	@Test
+	public void testRejectedCaptureFailsTheOrder()
+	{
+		gateway.setFailureRate(100);
+		orchestrator.afterPropertiesSet();
+		order.setPaymentTransactions(createTransactions(2));
+
+		final PaymentCaptureResult result = orchestrator.capture(order);
+
+		Assert.assertFalse(result.isCaptured());
+		Assert.assertEquals(Arrays.asList("txn0", "txn1"), result.getRejectedTransactionCodes());
+	}
+
+	@Test
+	public void testSlowCaptureTimesOutWithoutBeingCancelled() throws Exception
+	{
+		final CountDownLatch answer = new CountDownLatch(1);
+		final CountDownLatch answered = new CountDownLatch(1);
+		final AtomicBoolean interrupted = new AtomicBoolean();
+		orchestrator.setTimeout(100);
+		orchestrator.setPaymentCaptureGateway((transaction, idempotencyKey) -> {
+			if ("txn1".equals(transaction.getCode()))
+			{
+				try
+				{
+					answer.await();
+				}
+				catch (final InterruptedException e)
+				{
+					interrupted.set(true);
+				}
+				answered.countDown();
+			}
+			return createEntry(PaymentTransactionType.CAPTURE, TransactionStatus.ACCEPTED);
+		});
+		orchestrator.afterPropertiesSet();
+		order.setPaymentTransactions(createTransactions(3));
+
+		final PaymentCaptureResult result = orchestrator.capture(order);
+		answer.countDown();
+
+		Assert.assertFalse(result.isCaptured());
+		Assert.assertEquals(Arrays.asList("txn0", "txn2"), result.getCapturedTransactionCodes());
+		Assert.assertEquals(Collections.singletonList("txn1"), result.getTimedOutTransactionCodes());
+		Assert.assertTrue(result.getRejectedTransactionCodes().isEmpty());
+		Assert.assertTrue(answered.await(WAIT_SECONDS, TimeUnit.SECONDS));
+		Assert.assertFalse("Timed out capture was interrupted", interrupted.get());
+	}
+
+	@Test
+	public void testRepeatedCaptureDoesNotChargeTwice()
+	{
+		orchestrator.afterPropertiesSet();
+		final List<PaymentTransactionModel> transactions = createTransactions(2);
+		transactions.get(0).setEntries(Collections.singletonList(createEntry(PaymentTransactionType.CAPTURE,
+				TransactionStatus.ACCEPTED)));
+		order.setPaymentTransactions(transactions);
+
+		Assert.assertTrue(orchestrator.capture(order).isCaptured());
+		Assert.assertTrue(orchestrator.capture(order).isCaptured());
+
+		Assert.assertEquals(1, gateway.getChargeCount());
+	}
+
+	@Test
+	public void testOnlyCreditCardTransactionsAreCaptured()
+	{
+		orchestrator.afterPropertiesSet();
+		final List<PaymentTransactionModel> transactions = createTransactions(2);
+		transactions.get(1).setInfo(new DebitPaymentInfoModel());
+		order.setPaymentTransactions(transactions);
+
+		final PaymentCaptureResult result = orchestrator.capture(order);
+
+		Assert.assertEquals(Collections.singletonList("txn0"), result.getCapturedTransactionCodes());
+		Assert.assertEquals(1, gateway.getChargeCount());
+	}
+
+	/**
+	 * Creates credit card transactions, which the model service returns for their PK.
+	 */
+	protected List<PaymentTransactionModel> createTransactions(final int count)
+	{
+		final List<PaymentTransactionModel> transactions = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			final PK pk = PK.fromLong(i + 1);
+			final PaymentTransactionModel transaction = new PaymentTransactionModel()
+			{
+				@Override
+				public PK getPk()
+				{
+					return pk;
+				}
+			};
+			transaction.setCode("txn" + i);
+			transaction.setInfo(new CreditCardPaymentInfoModel());
+			given(modelService.get(pk)).willReturn(transaction);
+			transactions.add(transaction);
+		}
+		return transactions;
+	}
+
+	protected PaymentTransactionEntryModel createEntry(final PaymentTransactionType type, final TransactionStatus status)
+	{
+		final PaymentTransactionEntryModel entry = new PaymentTransactionEntryModel();
+		entry.setType(type);
+		entry.setTransactionStatus(status.name());
+		return entry;
+	}
+}
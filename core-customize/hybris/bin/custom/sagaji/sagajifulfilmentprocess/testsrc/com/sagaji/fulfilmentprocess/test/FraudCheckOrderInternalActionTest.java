@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.enums.FraudStatus;
+import de.hybris.platform.core.enums.OrderStatus;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.fraud.FraudService;
+import de.hybris.platform.fraud.impl.FraudServiceResponse;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+import de.hybris.platform.fraud.model.FraudReportModel;
+import de.hybris.platform.fraud.model.FraudSymptomScoringModel;
+import de.hybris.platform.orderhistory.model.OrderHistoryEntryModel;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import com.sagaji.fulfilmentprocess.actions.order.AbstractFraudCheckAction.Transition;
+import com.sagaji.fulfilmentprocess.actions.order.FraudCheckOrderInternalAction;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholds;
+import com.sagaji.fulfilmentprocess.fraud.impl.DefaultFraudThresholdsProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+
+/**
+ * Unit test for {@link FraudCheckOrderInternalAction} and the {@link DefaultFraudThresholdsProvider}.
+ */
+@UnitTest
+public class FraudCheckOrderInternalActionTest
+{
+	private static final String SCORE_LIMIT = "sagajifulfilmentprocess.fraud.scoreLimit";
+	private static final String SCORE_TOLERANCE = "sagajifulfilmentprocess.fraud.scoreTolerance";
+
+	private final FraudCheckOrderInternalAction action = new FraudCheckOrderInternalAction();
+	private final Map<String, String> parameters = new HashMap<String, String>();
+	private final DefaultFraudThresholdsProvider fraudThresholdsProvider = new DefaultFraudThresholdsProvider()
+	{
+		@Override
+		protected String getParameter(final String name)
+		{
+			return parameters.get(name);
+		}
+	};
+	private ModelService modelService;
+	private FraudService fraudService;
+	private OrderProcessModel process;
+
+	@Before
+	public void setUp()
+	{
+		modelService = mock(ModelService.class);
+		given(modelService.create(FraudReportModel.class)).willAnswer(invocation -> new FraudReportModel());
+		given(modelService.create(FraudSymptomScoringModel.class)).willAnswer(invocation -> new FraudSymptomScoringModel());
+		given(modelService.create(OrderHistoryEntryModel.class)).willAnswer(invocation -> new OrderHistoryEntryModel());
+		fraudService = mock(FraudService.class);
+		final TimeService timeService = mock(TimeService.class);
+		given(timeService.getCurrentTime()).willReturn(new Date());
+
+		parameters.put(SCORE_LIMIT, "500");
+		parameters.put(SCORE_TOLERANCE, "50");
+		fraudThresholdsProvider.setParameterPrefix("sagajifulfilmentprocess.fraud.");
+
+		action.setModelService(modelService);
+		action.setTimeService(timeService);
+		action.setFraudService(fraudService);
+		action.setProviderName("hybris");
+		action.setFraudThresholdsProvider(fraudThresholdsProvider);
+
+		final OrderModel order = new OrderModel();
+		order.setCode("00001");
+		process = new OrderProcessModel();
+		process.setOrder(order);
+	}
+
+	@Test
+	public void testReportSymptomsHistoryAndOrderAreSavedTogether()
+	{
+		givenScore(200, 300);
+
+		Assert.assertEquals(Transition.POTENTIAL, action.executeAction(process));
+
+		final ArgumentCaptor<Collection> saved = ArgumentCaptor.forClass(Collection.class);
+		verify(modelService, times(1)).saveAll(saved.capture());
+		verify(modelService, never()).save(any());
+		final List<Object> models = new ArrayList<Object>(saved.getValue());
+		Assert.assertEquals(5, models.size());
+		final FraudReportModel fraudReport = (FraudReportModel) models.get(0);
+		Assert.assertEquals(FraudStatus.CHECK, fraudReport.getStatus());
+		Assert.assertEquals("00001_FR0", fraudReport.getCode());
+		Assert.assertTrue(models.get(1) instanceof FraudSymptomScoringModel);
+		Assert.assertTrue(models.get(2) instanceof FraudSymptomScoringModel);
+		Assert.assertTrue(models.get(3) instanceof OrderHistoryEntryModel);
+		Assert.assertSame(process.getOrder(), models.get(4));
+		Assert.assertEquals(Boolean.TRUE, process.getOrder().getPotentiallyFraudulent());
+		Assert.assertEquals(Boolean.FALSE, process.getOrder().getFraudulent());
+		Assert.assertEquals(OrderStatus.FRAUD_CHECKED, process.getOrder().getStatus());
+	}
+
+	@Test
+	public void testTransitionsFollowThresholds()
+	{
+		givenScore(100);
+		Assert.assertEquals(Transition.OK, action.executeAction(process));
+		givenScore(600);
+		Assert.assertEquals(Transition.FRAUD, action.executeAction(process));
+		Assert.assertEquals(Boolean.TRUE, process.getOrder().getFraudulent());
+		verify(modelService, times(2)).saveAll(anyCollection());
+	}
+
+	@Test
+	public void testThresholdsAreCachedUntilFraudPropertyChanges()
+	{
+		final FraudThresholds thresholds = fraudThresholdsProvider.getThresholds(SCORE_LIMIT, SCORE_TOLERANCE);
+		parameters.put(SCORE_LIMIT, "100");
+
+		fraudThresholdsProvider.configChanged("mail.smtp.server", "localhost");
+		Assert.assertSame(thresholds, fraudThresholdsProvider.getThresholds(SCORE_LIMIT, SCORE_TOLERANCE));
+
+		fraudThresholdsProvider.configChanged(SCORE_LIMIT, "100");
+		Assert.assertEquals(100d, fraudThresholdsProvider.getThresholds(SCORE_LIMIT, SCORE_TOLERANCE).getScoreLimit(), 0d);
+	}
+
+	protected void givenScore(final double... symptomScores)
+	{
+		final List<FraudSymptom> symptoms = new ArrayList<FraudSymptom>();
+		double score = 0;
+		for (final double symptomScore : symptomScores)
+		{
+			final FraudSymptom symptom = mock(FraudSymptom.class);
+			given(symptom.getSymptom()).willReturn("symptom" + symptoms.size());
+			given(Double.valueOf(symptom.getScore())).willReturn(Double.valueOf(symptomScore));
+			symptoms.add(symptom);
+			score += symptomScore;
+		}
+		final FraudServiceResponse response = mock(FraudServiceResponse.class);
+		given(Double.valueOf(response.getScore())).willReturn(Double.valueOf(score));
+		given(response.getSymptoms()).willReturn(symptoms);
+		given(fraudService.recognizeOrderSymptoms("hybris", process.getOrder())).willReturn(response);
+	}
+}
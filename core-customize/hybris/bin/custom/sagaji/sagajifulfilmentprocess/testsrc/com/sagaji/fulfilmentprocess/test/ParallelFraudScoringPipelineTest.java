@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.basecommerce.enums.FraudStatus;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.user.AddressModel;
+import de.hybris.platform.fraud.impl.FraudSymptom;
+import de.hybris.platform.core.model.user.UserModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.session.SessionExecutionBody;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.user.UserService;
+import com.sagaji.fulfilmentprocess.fraud.FraudDetector;
+import com.sagaji.fulfilmentprocess.fraud.FraudScoringResult;
+import com.sagaji.fulfilmentprocess.fraud.FraudThresholds;
+import com.sagaji.fulfilmentprocess.fraud.impl.AddressMismatchFraudDetector;
+import com.sagaji.fulfilmentprocess.fraud.impl.OrderValueFraudDetector;
+import com.sagaji.fulfilmentprocess.fraud.impl.ParallelFraudScoringPipeline;
+import com.sagaji.fulfilmentprocess.fraud.impl.SimulatedExternalFraudDetector;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Unit test for {@link ParallelFraudScoringPipeline}.
+ */
+@UnitTest
+public class ParallelFraudScoringPipelineTest
+{
+	private static final long LATENCY = 300;
+	private static final FraudThresholds THRESHOLDS = new FraudThresholds(500, 50);
+
+	private final ParallelFraudScoringPipeline pipeline = new ParallelFraudScoringPipeline();
+	private OrderModel order;
+	private OrderModel loadedOrder;
+
+	@Before
+	public void setUp()
+	{
+		order = createOrder();
+		loadedOrder = createOrder();
+
+		// every detector gets its own copy of the order, loaded by the pk of the order of the caller
+		final ModelService modelService = mock(ModelService.class);
+		given(modelService.get(PK.fromLong(1))).willReturn(loadedOrder);
+		final UserService userService = mock(UserService.class);
+		given(userService.getAdminUser()).willReturn(new UserModel());
+		final SessionService sessionService = mock(SessionService.class);
+		given(sessionService.executeInLocalView(any(SessionExecutionBody.class), any(UserModel.class)))
+				.willAnswer(invocation -> ((SessionExecutionBody) invocation.getArgument(0)).execute());
+
+		pipeline.setSessionService(sessionService);
+		pipeline.setModelService(modelService);
+		pipeline.setUserService(userService);
+		pipeline.setEnabled(true);
+		pipeline.setPoolSize(4);
+		pipeline.setDefaultTimeout(2000);
+		pipeline.setStopTimeout(200);
+		pipeline.setTimeoutStatus(FraudStatus.CHECK);
+		pipeline.afterPropertiesSet();
+	}
+
+	@After
+	public void tearDown()
+	{
+		pipeline.destroy();
+	}
+
+	@Test
+	public void testDetectorsAreEvaluatedConcurrently()
+	{
+		pipeline.setFraudDetectors(Arrays.asList(createExternalDetector("external1", LATENCY, 0, 100),
+				createExternalDetector("external2", LATENCY, 0, 150), createExternalDetector("external3", LATENCY, 0, 0),
+				createOrderValueDetector()));
+
+		final long start = System.nanoTime();
+		final FraudScoringResult result = pipeline.score(order);
+		final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		Assert.assertTrue("Scoring took " + millis + " ms", millis < 2 * LATENCY);
+		Assert.assertEquals(3, result.getSymptoms().size());
+		Assert.assertEquals(450d, result.getScore(), 0d);
+		Assert.assertTrue(result.getUnavailableDetectors().isEmpty());
+		Assert.assertEquals(FraudStatus.OK, result.getStatus(THRESHOLDS));
+	}
+
+	@Test
+	public void testTimedOutDetectorFallsBackToConfiguredVerdict()
+	{
+		pipeline.setFraudDetectors(Arrays.asList(createExternalDetector("slow", 5000, 100, 300), createOrderValueDetector()));
+
+		final long start = System.nanoTime();
+		final FraudScoringResult result = pipeline.score(order);
+		final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		Assert.assertTrue("Scoring took " + millis + " ms", millis < 1000);
+		Assert.assertEquals(Arrays.asList("slow"), Arrays.asList(result.getUnavailableDetectors().toArray()));
+		Assert.assertEquals(200d, result.getScore(), 0d);
+		Assert.assertEquals(FraudStatus.CHECK, result.getStatus(THRESHOLDS));
+		Assert.assertEquals(FraudStatus.FRAUD, result.getStatus(new FraudThresholds(100, 50)));
+	}
+
+	@Test
+	public void testTimedOutDetectorHasStoppedWhenScoringReturns()
+	{
+		final AtomicBoolean stopped = new AtomicBoolean();
+		final SimulatedExternalFraudDetector slow = new SimulatedExternalFraudDetector()
+		{
+			@Override
+			public List<FraudSymptom> detect(final OrderModel order)
+			{
+				try
+				{
+					return super.detect(order);
+				}
+				finally
+				{
+					stopped.set(true);
+				}
+			}
+		};
+		slow.setName("slow");
+		slow.setLatency(5000);
+		slow.setTimeout(100);
+		pipeline.setFraudDetectors(Arrays.asList(slow, createOrderValueDetector()));
+
+		final FraudScoringResult result = pipeline.score(order);
+
+		Assert.assertTrue(stopped.get());
+		Assert.assertEquals(Arrays.asList("slow"), Arrays.asList(result.getUnavailableDetectors().toArray()));
+	}
+
+	@Test
+	public void testDetectorIgnoringTheInterruptIsAbandoned()
+	{
+		final CountDownLatch release = new CountDownLatch(1);
+		final FraudDetector stuck = new AddressMismatchFraudDetector()
+		{
+			@Override
+			public List<FraudSymptom> detect(final OrderModel order)
+			{
+				while (true)
+				{
+					try
+					{
+						release.await();
+						return super.detect(order);
+					}
+					catch (final InterruptedException e)
+					{
+						// ignores the cancellation
+					}
+				}
+			}
+		};
+		((AddressMismatchFraudDetector) stuck).setName("stuck");
+		((AddressMismatchFraudDetector) stuck).setTimeout(100);
+		pipeline.setFraudDetectors(Arrays.asList(stuck, createOrderValueDetector()));
+
+		try
+		{
+			final long start = System.nanoTime();
+			final FraudScoringResult result = pipeline.score(order);
+			final long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+			Assert.assertTrue("Scoring took " + millis + " ms", millis < 1000);
+			Assert.assertEquals(Arrays.asList("stuck"), Arrays.asList(result.getUnavailableDetectors().toArray()));
+			Assert.assertEquals(200d, result.getScore(), 0d);
+			Assert.assertEquals(FraudStatus.CHECK, result.getStatus(THRESHOLDS));
+		}
+		finally
+		{
+			release.countDown();
+		}
+	}
+
+	@Test
+	public void testDetectorsScoreTheirOwnCopyOfTheOrder()
+	{
+		final AtomicReference<OrderModel> scoredOrder = new AtomicReference<>();
+		final AtomicReference<Thread> scoringThread = new AtomicReference<>();
+		final AddressMismatchFraudDetector detector = new AddressMismatchFraudDetector()
+		{
+			@Override
+			public List<FraudSymptom> detect(final OrderModel order)
+			{
+				scoredOrder.set(order);
+				scoringThread.set(Thread.currentThread());
+				return super.detect(order);
+			}
+		};
+		detector.setName("addressMismatch");
+		pipeline.setFraudDetectors(Arrays.asList(detector));
+
+		pipeline.score(order);
+
+		Assert.assertSame(loadedOrder, scoredOrder.get());
+		Assert.assertNotSame(Thread.currentThread(), scoringThread.get());
+	}
+
+	@Test
+	public void testDisabledPipelineScoresOnCallingThread()
+	{
+		final AtomicReference<Thread> scoringThread = new AtomicReference<>();
+		final AddressMismatchFraudDetector detector = new AddressMismatchFraudDetector()
+		{
+			@Override
+			public List<FraudSymptom> detect(final OrderModel order)
+			{
+				scoringThread.set(Thread.currentThread());
+				return super.detect(order);
+			}
+		};
+		detector.setName("addressMismatch");
+		final ParallelFraudScoringPipeline disabled = new ParallelFraudScoringPipeline();
+		disabled.setFraudDetectors(Arrays.asList(detector, createOrderValueDetector()));
+		disabled.setTimeoutStatus(FraudStatus.CHECK);
+		disabled.afterPropertiesSet();
+
+		final FraudScoringResult result = disabled.score(order);
+		disabled.destroy();
+
+		Assert.assertSame(Thread.currentThread(), scoringThread.get());
+		Assert.assertTrue(result.getUnavailableDetectors().isEmpty());
+		Assert.assertEquals(200d, result.getScore(), 0d);
+	}
+
+	@Test
+	public void testFailingDetectorIsReportedAsUnavailable()
+	{
+		final FraudDetector failing = new AddressMismatchFraudDetector()
+		{
+			@Override
+			public List<FraudSymptom> detect(final OrderModel order)
+			{
+				throw new IllegalStateException("provider down");
+			}
+		};
+		((AddressMismatchFraudDetector) failing).setName("failing");
+		pipeline.setFraudDetectors(Arrays.asList(failing, createOrderValueDetector()));
+
+		final FraudScoringResult result = pipeline.score(order);
+
+		Assert.assertTrue(result.getUnavailableDetectors().contains("failing"));
+		Assert.assertEquals(2, result.getSymptoms().size());
+		Assert.assertEquals(FraudStatus.CHECK, result.getStatus(THRESHOLDS));
+	}
+
+	protected FraudDetector createExternalDetector(final String name, final long latency, final long timeout, final double score)
+	{
+		final SimulatedExternalFraudDetector detector = new SimulatedExternalFraudDetector();
+		detector.setName(name);
+		detector.setLatency(latency);
+		detector.setTimeout(timeout);
+		detector.setScore(score);
+		return detector;
+	}
+
+	protected OrderModel createOrder()
+	{
+		final OrderModel order = mock(OrderModel.class);
+		given(order.getPk()).willReturn(PK.fromLong(1));
+		given(order.getCode()).willReturn("00001");
+		given(order.getTotalPrice()).willReturn(Double.valueOf(6000));
+		given(order.getDeliveryAddress()).willReturn(new AddressModel());
+		given(order.getPaymentAddress()).willReturn(new AddressModel());
+		return order;
+	}
+
+	protected FraudDetector createOrderValueDetector()
+	{
+		final OrderValueFraudDetector detector = new OrderValueFraudDetector();
+		detector.setName("orderValue");
+		detector.setLimit(5000);
+		detector.setScore(200);
+		return detector;
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.IntegrationTest;
+import de.hybris.platform.core.enums.OrderStatus;
+import de.hybris.platform.core.model.c2l.CurrencyModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.user.CustomerModel;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.payment.dto.TransactionStatus;
+import de.hybris.platform.payment.enums.PaymentTransactionType;
+import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
+import de.hybris.platform.payment.model.PaymentTransactionModel;
+import de.hybris.platform.servicelayer.ServicelayerTransactionalTest;
+import de.hybris.platform.servicelayer.i18n.CommonI18NService;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.ticket.events.model.CsCustomerEventModel;
+import de.hybris.platform.ticket.model.CsTicketModel;
+import de.hybris.platform.ticket.service.TicketBusinessService;
+import com.sagaji.fulfilmentprocess.actions.order.CheckTransactionReviewStatusAction;
+import com.sagaji.fulfilmentprocess.enums.PaymentReviewStatus;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import javax.annotation.Resource;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Integration test for the payment review status maintained on payment transaction entry creation and read by
+ * {@link CheckTransactionReviewStatusAction}.
+ */
+@IntegrationTest
+public class PaymentReviewStatusIntegrationTest extends ServicelayerTransactionalTest
+{
+	@Resource
+	private ModelService modelService;
+	@Resource
+	private CommonI18NService commonI18NService;
+
+	private final CheckTransactionReviewStatusAction action = new CheckTransactionReviewStatusAction();
+	private final TicketBusinessService ticketBusinessService = mock(TicketBusinessService.class);
+	private CurrencyModel currency;
+	private OrderModel order;
+	private OrderProcessModel process;
+	private int entryNumber;
+
+	@Before
+	public void setUp() throws Exception
+	{
+		createCoreData();
+		currency = commonI18NService.getCurrency("EUR");
+
+		final CustomerModel customer = modelService.create(CustomerModel.class);
+		customer.setUid("review-customer");
+		modelService.save(customer);
+
+		order = modelService.create(OrderModel.class);
+		order.setCode("review-order");
+		order.setUser(customer);
+		order.setCurrency(currency);
+		order.setDate(new Date());
+		order.setNet(Boolean.FALSE);
+		order.setStatus(OrderStatus.CREATED);
+		modelService.save(order);
+
+		process = new OrderProcessModel();
+		process.setOrder(order);
+		action.setModelService(modelService);
+		action.setTicketBusinessService(ticketBusinessService);
+	}
+
+	@Test
+	public void testAcceptedReview() throws Exception
+	{
+		final PaymentTransactionModel transaction = createTransaction("tx1");
+		createEntry(transaction, PaymentTransactionType.AUTHORIZATION, TransactionStatus.REVIEW);
+		createEntry(transaction, PaymentTransactionType.REVIEW_DECISION, TransactionStatus.ACCEPTED);
+
+		Assert.assertEquals(PaymentReviewStatus.ACCEPTED, transaction.getReviewStatus());
+		Assert.assertEquals(PaymentReviewStatus.ACCEPTED, order.getPaymentReviewStatus());
+		Assert.assertEquals("OK", action.execute(process));
+		modelService.refresh(order);
+		Assert.assertEquals(OrderStatus.PAYMENT_AUTHORIZED, order.getStatus());
+		verify(ticketBusinessService, never()).createTicket(any(CsTicketModel.class), any(CsCustomerEventModel.class));
+	}
+
+	@Test
+	public void testRejectedReview() throws Exception
+	{
+		final PaymentTransactionModel transaction = createTransaction("tx1");
+		createEntry(transaction, PaymentTransactionType.AUTHORIZATION, TransactionStatus.REVIEW);
+		createEntry(transaction, PaymentTransactionType.REVIEW_DECISION, TransactionStatus.REJECTED);
+
+		Assert.assertEquals(PaymentReviewStatus.REJECTED, order.getPaymentReviewStatus());
+		Assert.assertEquals("NOK", action.execute(process));
+		modelService.refresh(order);
+		Assert.assertEquals(OrderStatus.PAYMENT_NOT_AUTHORIZED, order.getStatus());
+	}
+
+	@Test
+	public void testPendingReviewCreatesOneTicket() throws Exception
+	{
+		final PaymentTransactionModel transaction = createTransaction("tx1");
+		createEntry(transaction, PaymentTransactionType.AUTHORIZATION, TransactionStatus.REVIEW);
+
+		Assert.assertEquals(PaymentReviewStatus.REVIEW, order.getPaymentReviewStatus());
+		Assert.assertEquals("WAIT", action.execute(process));
+		Assert.assertEquals("WAIT", action.execute(process));
+		modelService.refresh(order);
+		Assert.assertEquals(OrderStatus.SUSPENDED, order.getStatus());
+		verify(ticketBusinessService, times(1)).createTicket(any(CsTicketModel.class), any(CsCustomerEventModel.class));
+
+		createEntry(transaction, PaymentTransactionType.REVIEW_DECISION, TransactionStatus.ACCEPTED);
+		Assert.assertEquals("OK", action.execute(process));
+	}
+
+	@Test
+	public void testMostRestrictiveTransactionWins() throws Exception
+	{
+		final PaymentTransactionModel accepted = createTransaction("tx1");
+		createEntry(accepted, PaymentTransactionType.AUTHORIZATION, TransactionStatus.ACCEPTED);
+		createEntry(accepted, PaymentTransactionType.CAPTURE, TransactionStatus.ACCEPTED);
+		Assert.assertEquals(PaymentReviewStatus.AUTHORIZED, order.getPaymentReviewStatus());
+
+		final PaymentTransactionModel inReview = createTransaction("tx2");
+		createEntry(inReview, PaymentTransactionType.AUTHORIZATION, TransactionStatus.REVIEW);
+		Assert.assertEquals(PaymentReviewStatus.AUTHORIZED, accepted.getReviewStatus());
+		Assert.assertEquals(PaymentReviewStatus.REVIEW, order.getPaymentReviewStatus());
+		Assert.assertEquals("WAIT", action.execute(process));
+	}
+
+	protected PaymentTransactionModel createTransaction(final String code)
+	{
+		final PaymentTransactionModel transaction = modelService.create(PaymentTransactionModel.class);
+		transaction.setCode(code);
+		transaction.setOrder(order);
+		transaction.setCurrency(currency);
+		transaction.setPaymentProvider("Mockup");
+		modelService.save(transaction);
+		modelService.refresh(order);
+		return transaction;
+	}
+
+	protected void createEntry(final PaymentTransactionModel transaction, final PaymentTransactionType type,
+			final TransactionStatus status)
+	{
+		final PaymentTransactionEntryModel entry = modelService.create(PaymentTransactionEntryModel.class);
+		entry.setCode(transaction.getCode() + "-" + entryNumber++);
+		entry.setPaymentTransaction(transaction);
+		entry.setType(type);
+		entry.setTransactionStatus(status.name());
+		entry.setAmount(BigDecimal.TEN);
+		entry.setCurrency(currency);
+		entry.setTime(new Date());
+		modelService.save(entry);
+		modelService.refresh(transaction);
+		modelService.refresh(order);
+	}
+}
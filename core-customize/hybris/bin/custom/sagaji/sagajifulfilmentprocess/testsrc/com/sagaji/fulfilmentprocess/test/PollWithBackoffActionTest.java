@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction.Transition;
+import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.servicelayer.time.TimeService;
+import de.hybris.platform.task.RetryLaterException;
+import com.sagaji.fulfilmentprocess.actions.AbstractPollWithBackoffAction;
+
+import java.util.Date;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+@UnitTest
+public class PollWithBackoffActionTest
+{
+	private static final long INITIAL_DELAY = 1000;
+	private static final long MAX_DELAY = 10000;
+	private static final Date NOW = new Date(1000000);
+
+	private ModelService modelService;
+	private ConsignmentProcessModel process;
+	private boolean ready;
+
+	private final TestPollAction action = new TestPollAction();
+
+	@Before
+	public void setUp()
+	{
+		modelService = mock(ModelService.class);
+		action.setModelService(modelService);
+		final TimeService timeService = mock(TimeService.class);
+		given(timeService.getCurrentTime()).willReturn(NOW);
+		action.setTimeService(timeService);
+		action.setInitialDelay(INITIAL_DELAY);
+		action.setMaxDelay(MAX_DELAY);
+		action.setJitter(0);
+		action.setMaxAttempts(5);
+
+		process = new ConsignmentProcessModel();
+		process.setCode("cp1");
+	}
+
+	@Test
+	public void testReadyOnFirstPollIsNotSaved() throws Exception
+	{
+		ready = true;
+
+		Assert.assertEquals(Transition.OK, action.executeAction(process));
+		verify(modelService, never()).save(any());
+		Assert.assertEquals(1, action.getReadyCount());
+		Assert.assertEquals(0, action.getRescheduledCount());
+	}
+
+	@Test
+	public void testNotReadyIsRescheduledWithExponentialDelay() throws Exception
+	{
+		final long[] expectedDelays =
+		{ 1000, 2000, 4000, 8000 };
+		for (int i = 0; i < expectedDelays.length; i++)
+		{
+			try
+			{
+				action.executeAction(process);
+				Assert.fail("Expected the process to be rescheduled");
+			}
+			catch (final RetryLaterException e)
+			{
+				Assert.assertEquals(expectedDelays[i], e.getDelay());
+				Assert.assertFalse(e.isRollBack());
+			}
+			Assert.assertEquals(i + 1, process.getPollAttempts());
+			Assert.assertEquals(NOW, process.getPollStartTime());
+		}
+		Assert.assertEquals(4, action.getRescheduledCount());
+	}
+
+	@Test
+	public void testDelayIsCappedAndJittered()
+	{
+		action.setJitter(20);
+		for (int attempt = 0; attempt < 40; attempt++)
+		{
+			final long backoff = Math.min(MAX_DELAY, INITIAL_DELAY << Math.min(attempt, 30));
+			final long delay = action.getDelay(attempt);
+			Assert.assertTrue("Delay " + delay + " of attempt " + attempt, delay <= backoff && delay >= backoff * 80 / 100);
+		}
+	}
+
+	@Test
+	public void testGivesUpAfterMaxAttempts() throws Exception
+	{
+		process.setPollAttempts(4);
+		process.setPollStartTime(NOW);
+
+		Assert.assertEquals(Transition.NOK, action.executeAction(process));
+		Assert.assertEquals(0, process.getPollAttempts());
+		Assert.assertNull(process.getPollStartTime());
+		Assert.assertEquals(1, action.getExhaustedCount());
+	}
+
+	@Test
+	public void testAverageWaitCountsFromFirstPoll() throws Exception
+	{
+		process.setPollAttempts(2);
+		process.setPollStartTime(new Date(NOW.getTime() - 3000));
+		ready = true;
+
+		Assert.assertEquals(Transition.OK, action.executeAction(process));
+		Assert.assertEquals(3000, action.getAverageWaitMillis());
+		Assert.assertEquals(0, process.getPollAttempts());
+		Assert.assertNull(process.getPollStartTime());
+		verify(modelService).save(process);
+	}
+
+	protected class TestPollAction extends AbstractPollWithBackoffAction<ConsignmentProcessModel>
+	{
+		@Override
+		protected boolean isReady(final ConsignmentProcessModel process)
+		{
+			return ready;
+		}
+
+		@Override
+		public long getDelay(final int attempt)
+		{
+			return super.getDelay(attempt);
+		}
+	}
+}
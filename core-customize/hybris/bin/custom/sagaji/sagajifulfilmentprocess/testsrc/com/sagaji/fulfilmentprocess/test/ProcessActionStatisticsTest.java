@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import com.sagaji.fulfilmentprocess.actions.AbstractTransitionAction;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionStatistics;
+import com.sagaji.fulfilmentprocess.actions.ProcessActionStatisticsExporter;
+import com.sagaji.fulfilmentprocess.actions.consignment.ReceiveConsignmentStatusAction;
+
+import java.lang.management.ManagementFactory;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.springframework.context.ApplicationContext;
+
+
+@UnitTest
+public class ProcessActionStatisticsTest
+{
+	private final ReceiveConsignmentStatusAction action = new ReceiveConsignmentStatusAction();
+
+	@Test
+	public void testTransitionsAreSharedAndImmutable()
+	{
+		final Set<String> transitions = action.getTransitions();
+
+		Assert.assertSame(transitions, action.getTransitions());
+		Assert.assertSame(transitions, new ReceiveConsignmentStatusAction().getTransitions());
+		Assert.assertSame(transitions, ReceiveConsignmentStatusAction.Transition.getStringValues());
+		Assert.assertEquals(3, transitions.size());
+		Assert.assertTrue(transitions.contains("CANCEL"));
+		try
+		{
+			transitions.add("OTHER");
+			Assert.fail("Transitions must not be modifiable");
+		}
+		catch (final UnsupportedOperationException e)
+		{
+			// expected
+		}
+	}
+
+	@Test
+	public void testExecutionsAreCountedPerTransition() throws Exception
+	{
+		final TestAction testAction = new TestAction();
+
+		Assert.assertEquals("OK", testAction.execute(new ConsignmentProcessModel()));
+		Assert.assertEquals("OK", testAction.execute(new ConsignmentProcessModel()));
+		testAction.next = TestAction.Transition.NOK;
+		Assert.assertEquals("NOK", testAction.execute(new ConsignmentProcessModel()));
+		testAction.next = null;
+		try
+		{
+			testAction.execute(new ConsignmentProcessModel());
+			Assert.fail("Expected the failing execution to be rethrown");
+		}
+		catch (final IllegalStateException e)
+		{
+			// expected
+		}
+
+		final ProcessActionStatistics statistics = testAction.getStatistics();
+		Assert.assertEquals(4, statistics.getExecutionCount());
+		Assert.assertEquals(1, statistics.getFailureCount());
+		Assert.assertEquals(Long.valueOf(2), statistics.getTransitionCounts().get("OK"));
+		Assert.assertEquals(Long.valueOf(1), statistics.getTransitionCounts().get("NOK"));
+		Assert.assertTrue(statistics.getMaxExecutionMillis() >= statistics.getAverageExecutionMillis());
+
+		statistics.reset();
+		Assert.assertEquals(0, statistics.getExecutionCount());
+		Assert.assertEquals(Long.valueOf(0), statistics.getTransitionCounts().get("OK"));
+	}
+
+	@Test
+	public void testStatisticsAreRegisteredOverJmx() throws Exception
+	{
+		final TestAction testAction = new TestAction();
+		testAction.execute(new ConsignmentProcessModel());
+		final ApplicationContext applicationContext = mock(ApplicationContext.class);
+		given(applicationContext.getBeansOfType(AbstractTransitionAction.class))
+				.willReturn((Map) Collections.singletonMap("testTransitionAction", testAction));
+
+		final ProcessActionStatisticsExporter exporter = new ProcessActionStatisticsExporter();
+		exporter.setApplicationContext(applicationContext);
+		exporter.afterSingletonsInstantiated();
+		try
+		{
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final Set<ObjectName> names = server.queryNames(new ObjectName(
+					"com.sagaji.fulfilmentprocess:type=ProcessAction,name=" + ObjectName.quote("testTransitionAction") + ",*"), null);
+			Assert.assertEquals(1, names.size());
+			final ObjectName name = names.iterator().next();
+			Assert.assertEquals(Long.valueOf(1), server.getAttribute(name, "ExecutionCount"));
+			Assert.assertEquals(2, ((TabularData) server.getAttribute(name, "TransitionCounts")).size());
+		}
+		finally
+		{
+			exporter.destroy();
+		}
+		Assert.assertTrue(ManagementFactory.getPlatformMBeanServer()
+				.queryNames(new ObjectName("com.sagaji.fulfilmentprocess:type=ProcessAction,*"), null).isEmpty());
+	}
+
+	protected static class TestAction extends AbstractTransitionAction<ConsignmentProcessModel, TestAction.Transition>
+	{
+		protected enum Transition
+		{
+			OK, NOK
+		}
+
+		private Transition next = Transition.OK;
+
+		public TestAction()
+		{
+			super(Transition.class);
+		}
+
+		@Override
+		protected Transition executeAction(final ConsignmentProcessModel process)
+		{
+			if (next == null)
+			{
+				throw new IllegalStateException("No transition");
+			}
+			return next;
+		}
+	}
+}
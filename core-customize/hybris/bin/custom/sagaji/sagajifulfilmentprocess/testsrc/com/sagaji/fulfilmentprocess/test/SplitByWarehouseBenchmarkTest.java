@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import de.hybris.bootstrap.annotations.PerformanceTest;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.ordersplitting.strategy.impl.OrderEntryGroup;
+import de.hybris.platform.stock.StockService;
+import de.hybris.platform.store.BaseStoreModel;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+import com.sagaji.fulfilmentprocess.strategy.impl.SplitByWarehouse;
+import com.sagaji.fulfilmentprocess.strategy.impl.SplitByWarehouseCover;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.log4j.Logger;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Compares {@link SplitByWarehouse} with {@link SplitByWarehouseCover} on synthetic orders of 10, 100 and 1000 lines
+ * with 15 warehouses. Both strategies read the same synthetic stock, the stock queries issued by each are counted.
+ */
+@PerformanceTest
+public class SplitByWarehouseBenchmarkTest
+{
+	private static final Logger LOG = Logger.getLogger(SplitByWarehouseBenchmarkTest.class);
+
+	private static final int WAREHOUSE_COUNT = 15;
+	private static final double IN_STOCK_PROBABILITY = 0.25;
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	private final AtomicInteger stockQueries = new AtomicInteger();
+	private final Map<String, List<StockLevelModel>> stockLevels = new HashMap<>();
+	private final List<WarehouseModel> warehouses = new ArrayList<>();
+
+	private SplitByWarehouse splitByWarehouse;
+	private SplitByWarehouseCover splitByWarehouseCover;
+	private OrderModel order;
+
+	@Before
+	public void setUp()
+	{
+		for (int i = 0; i < WAREHOUSE_COUNT; i++)
+		{
+			final WarehouseModel warehouse = new WarehouseModel();
+			warehouse.setCode(String.format("warehouse%02d", Integer.valueOf(i)));
+			warehouses.add(warehouse);
+		}
+		final BaseStoreModel store = new BaseStoreModel();
+		store.setWarehouses(warehouses);
+		order = new OrderModel();
+		order.setStore(store);
+
+		final SplitByWarehouseCoverTest.SumAvailabilityCalculationStrategy availabilityCalculationStrategy = new SplitByWarehouseCoverTest.SumAvailabilityCalculationStrategy();
+
+		final StockService stockService = mock(StockService.class);
+		when(stockService.getStockLevels(any(ProductModel.class), anyCollection())).thenAnswer(invocation -> {
+			stockQueries.incrementAndGet();
+			return filterStockLevels(Collections.singleton(((ProductModel) invocation.getArgument(0)).getCode()),
+					invocation.getArgument(1));
+		});
+		splitByWarehouse = new SplitByWarehouse();
+		splitByWarehouse.setStockService(stockService);
+		splitByWarehouse.setCommerceAvailabilityCalculationStrategy(availabilityCalculationStrategy);
+
+		final WarehouseStockLevelDao warehouseStockLevelDao = mock(WarehouseStockLevelDao.class);
+		when(warehouseStockLevelDao.findStockLevels(anyCollection(), anyCollection())).thenAnswer(invocation -> {
+			stockQueries.incrementAndGet();
+			return filterStockLevels(invocation.getArgument(0), invocation.getArgument(1));
+		});
+		splitByWarehouseCover = new SplitByWarehouseCover();
+		splitByWarehouseCover.setStockService(stockService);
+		splitByWarehouseCover.setCommerceAvailabilityCalculationStrategy(availabilityCalculationStrategy);
+		splitByWarehouseCover.setWarehouseStockLevelDao(warehouseStockLevelDao);
+		splitByWarehouseCover.setExactSearchLimit(16);
+	}
+
+	@Test
+	public void compareSplittingOfSyntheticOrders()
+	{
+		for (final int lineCount : new int[]
+		{ 10, 100, 1000 })
+		{
+			final OrderEntryGroup entries = createOrder(lineCount, new Random(lineCount));
+
+			final Result legacy = measure(splitByWarehouse, entries);
+			final Result cover = measure(splitByWarehouseCover, entries);
+
+			LOG.info(String.format(
+					"Split %d lines over %d warehouses: greedy %.3f ms, %d stock queries, %d consignments;"
+							+ " cover %.3f ms, %d stock queries, %d consignments",
+					Integer.valueOf(lineCount), Integer.valueOf(WAREHOUSE_COUNT), Double.valueOf(legacy.millis),
+					Integer.valueOf(legacy.stockQueries), Integer.valueOf(legacy.groups), Double.valueOf(cover.millis),
+					Integer.valueOf(cover.stockQueries), Integer.valueOf(cover.groups)));
+
+			Assert.assertEquals(1, cover.stockQueries);
+			Assert.assertTrue(legacy.stockQueries >= lineCount * WAREHOUSE_COUNT);
+			Assert.assertTrue(cover.groups <= legacy.groups);
+		}
+	}
+
+	protected Result measure(final SplitByWarehouse strategy, final OrderEntryGroup entries)
+	{
+		for (int i = 0; i < WARMUP_RUNS; i++)
+		{
+			strategy.perform(Collections.singletonList(entries));
+		}
+
+		stockQueries.set(0);
+		int groups = 0;
+		final long start = System.nanoTime();
+		for (int i = 0; i < MEASURED_RUNS; i++)
+		{
+			final List<OrderEntryGroup> result = strategy.perform(Collections.singletonList(entries));
+			groups = result.size();
+			assertAllEntriesSplit(entries, result);
+		}
+		final Result result = new Result();
+		result.millis = (System.nanoTime() - start) / (double) TimeUnit.MILLISECONDS.toNanos(1) / MEASURED_RUNS;
+		result.stockQueries = stockQueries.get() / MEASURED_RUNS;
+		result.groups = groups;
+		return result;
+	}
+
+	protected void assertAllEntriesSplit(final OrderEntryGroup entries, final List<OrderEntryGroup> groups)
+	{
+		final Set<AbstractOrderEntryModel> split = new HashSet<>();
+		for (final OrderEntryGroup group : groups)
+		{
+			split.addAll(group);
+		}
+		Assert.assertEquals(new HashSet<>(entries), split);
+	}
+
+	protected OrderEntryGroup createOrder(final int lineCount, final Random random)
+	{
+		final OrderEntryGroup entries = new OrderEntryGroup();
+		for (int line = 0; line < lineCount; line++)
+		{
+			final ProductModel product = new ProductModel();
+			product.setCode(lineCount + "-" + line);
+			final OrderEntryModel entry = new OrderEntryModel();
+			entry.setProduct(product);
+			entry.setOrder(order);
+			entries.add(entry);
+
+			final List<StockLevelModel> productStockLevels = new ArrayList<>();
+			for (final WarehouseModel warehouse : warehouses)
+			{
+				if (random.nextDouble() < IN_STOCK_PROBABILITY)
+				{
+					final StockLevelModel stockLevel = new StockLevelModel();
+					stockLevel.setProductCode(product.getCode());
+					stockLevel.setWarehouse(warehouse);
+					stockLevel.setAvailable(1 + random.nextInt(10));
+					productStockLevels.add(stockLevel);
+				}
+			}
+			stockLevels.put(product.getCode(), productStockLevels);
+		}
+		return entries;
+	}
+
+	protected List<StockLevelModel> filterStockLevels(final Collection<String> productCodes,
+			final Collection<WarehouseModel> candidateWarehouses)
+	{
+		final List<StockLevelModel> result = new ArrayList<>();
+		for (final String productCode : productCodes)
+		{
+			for (final StockLevelModel stockLevel : stockLevels.get(productCode))
+			{
+				if (candidateWarehouses.contains(stockLevel.getWarehouse()))
+				{
+					result.add(stockLevel);
+				}
+			}
+		}
+		return result;
+	}
+
+	protected static class Result
+	{
+		private double millis;
+		private int stockQueries;
+		private int groups;
+	}
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.commerceservices.stock.strategies.CommerceAvailabilityCalculationStrategy;
+import de.hybris.platform.core.model.order.AbstractOrderEntryModel;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.ordersplitting.strategy.impl.OrderEntryGroup;
+import de.hybris.platform.store.BaseStoreModel;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+import com.sagaji.fulfilmentprocess.strategy.impl.SplitByWarehouseCover;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+
+/**
+ * Unit test for {@link SplitByWarehouseCover}.
+ */
+@UnitTest
+public class SplitByWarehouseCoverTest
+{
+	private final SplitByWarehouseCover splitByWarehouseCover = new SplitByWarehouseCover();
+	private final List<StockLevelModel> stockLevels = new ArrayList<StockLevelModel>();
+	private WarehouseStockLevelDao warehouseStockLevelDao;
+	private OrderModel order;
+
+	@Before
+	public void setUp()
+	{
+		warehouseStockLevelDao = mock(WarehouseStockLevelDao.class);
+		given(warehouseStockLevelDao.findStockLevels(anyCollection(), anyCollection())).willReturn(stockLevels);
+
+		splitByWarehouseCover.setWarehouseStockLevelDao(warehouseStockLevelDao);
+		splitByWarehouseCover.setCommerceAvailabilityCalculationStrategy(new SumAvailabilityCalculationStrategy());
+		splitByWarehouseCover.setExactSearchLimit(16);
+
+		order = new OrderModel();
+		order.setStore(new BaseStoreModel());
+	}
+
+	@Test
+	public void testEntriesWithoutStockAreGroupedSeparately()
+	{
+		final WarehouseModel first = createWarehouse("first");
+		final WarehouseModel second = createWarehouse("second");
+		order.getStore().setWarehouses(Arrays.asList(first, second));
+		final OrderEntryGroup entries = createEntries("p1", "p2", "p3");
+		addStock("p1", first, 5);
+		addStock("p2", first, 0);
+		addStock("p3", second, 1);
+
+		final List<OrderEntryGroup> groups = splitByWarehouseCover.perform(Collections.singletonList(entries));
+
+		Assert.assertEquals(3, groups.size());
+		assertGroup(groups.get(0), first, entries.get(0));
+		assertGroup(groups.get(1), second, entries.get(2));
+		assertGroup(groups.get(2), null, entries.get(1));
+		verify(warehouseStockLevelDao, times(1)).findStockLevels(anyCollection(), anyCollection());
+	}
+
+	@Test
+	public void testSmallestCoverIsChosen()
+	{
+		final WarehouseModel large = createWarehouse("large");
+		final WarehouseModel left = createWarehouse("left");
+		final WarehouseModel right = createWarehouse("right");
+		order.getStore().setWarehouses(Arrays.asList(large, left, right));
+		final OrderEntryGroup entries = createEntries("p1", "p2", "p3", "p4", "p5", "p6");
+		for (final String product : Arrays.asList("p1", "p2", "p3", "p4"))
+		{
+			addStock(product, large, 1);
+		}
+		for (final String product : Arrays.asList("p1", "p2", "p5"))
+		{
+			addStock(product, left, 1);
+		}
+		for (final String product : Arrays.asList("p3", "p4", "p6"))
+		{
+			addStock(product, right, 1);
+		}
+
+		final List<OrderEntryGroup> groups = splitByWarehouseCover.perform(Collections.singletonList(entries));
+
+		// a greedy choice would start with the large warehouse and need three consignments
+		Assert.assertEquals(2, groups.size());
+		assertGroup(groups.get(0), left, entries.get(0), entries.get(1), entries.get(4));
+		assertGroup(groups.get(1), right, entries.get(2), entries.get(3), entries.get(5));
+	}
+
+	@Test
+	public void testSplittingIsDeterministic()
+	{
+		final WarehouseModel first = createWarehouse("first");
+		final WarehouseModel second = createWarehouse("second");
+		order.getStore().setWarehouses(Arrays.asList(second, first));
+		final OrderEntryGroup entries = createEntries("p1", "p2");
+		addStock("p1", first, 1);
+		addStock("p1", second, 1);
+		addStock("p2", first, 1);
+		addStock("p2", second, 1);
+
+		for (int i = 0; i < 10; i++)
+		{
+			final List<OrderEntryGroup> groups = splitByWarehouseCover.perform(Collections.singletonList(entries));
+			Assert.assertEquals(1, groups.size());
+			assertGroup(groups.get(0), first, entries.get(0), entries.get(1));
+		}
+	}
+
+	protected void assertGroup(final OrderEntryGroup group, final WarehouseModel warehouse,
+			final AbstractOrderEntryModel... entries)
+	{
+		Assert.assertEquals(Arrays.asList(entries), new ArrayList<AbstractOrderEntryModel>(group));
+		final ConsignmentModel consignment = new ConsignmentModel();
+		splitByWarehouseCover.afterSplitting(group, consignment);
+		Assert.assertEquals(warehouse, consignment.getWarehouse());
+	}
+
+	protected WarehouseModel createWarehouse(final String code)
+	{
+		final WarehouseModel warehouse = new WarehouseModel();
+		warehouse.setCode(code);
+		return warehouse;
+	}
+
+	protected OrderEntryGroup createEntries(final String... productCodes)
+	{
+		final OrderEntryGroup entries = new OrderEntryGroup();
+		for (final String productCode : productCodes)
+		{
+			final ProductModel product = new ProductModel();
+			product.setCode(productCode);
+			final OrderEntryModel entry = new OrderEntryModel();
+			entry.setProduct(product);
+			entry.setOrder(order);
+			entries.add(entry);
+		}
+		return entries;
+	}
+
+	protected void addStock(final String productCode, final WarehouseModel warehouse, final int available)
+	{
+		final StockLevelModel stockLevel = new StockLevelModel();
+		stockLevel.setProductCode(productCode);
+		stockLevel.setWarehouse(warehouse);
+		stockLevel.setAvailable(available);
+		stockLevels.add(stockLevel);
+	}
+
+	protected static class SumAvailabilityCalculationStrategy implements CommerceAvailabilityCalculationStrategy
+	{
+		@Override
+		public Long calculateAvailability(final Collection<StockLevelModel> stockLevels)
+		{
+			long available = 0;
+			for (final StockLevelModel stockLevel : stockLevels)
+			{
+				available += stockLevel.getAvailable();
+			}
+			return Long.valueOf(available);
+		}
+	}
+}
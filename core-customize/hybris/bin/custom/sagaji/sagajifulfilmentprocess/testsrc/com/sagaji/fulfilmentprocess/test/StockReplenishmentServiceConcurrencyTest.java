@@ -0,0 +1,414 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.PK;
+import de.hybris.platform.core.model.order.OrderEntryModel;
+import de.hybris.platform.core.model.product.ProductModel;
+import de.hybris.platform.ordersplitting.model.StockLevelModel;
+import de.hybris.platform.ordersplitting.model.WarehouseModel;
+import de.hybris.platform.returns.model.ReturnEntryModel;
+import de.hybris.platform.returns.model.ReturnRequestModel;
+import de.hybris.platform.servicelayer.model.ModelService;
+import com.sagaji.fulfilmentprocess.dao.StockLevelDeltaDao;
+import com.sagaji.fulfilmentprocess.dao.WarehouseStockLevelDao;
+import com.sagaji.fulfilmentprocess.model.StockLevelDeltaModel;
+import com.sagaji.fulfilmentprocess.returns.impl.DefaultStockReplenishmentService;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Replenishes the stock of returns from many threads while other threads apply the pending quantities, against a
+ * stand-in of the database with row locks: a locked stock level stays locked until the transaction of the locking thread
+ * ends, and writing a stock level without its lock fails. Inserted deltas become visible and removed deltas disappear
+ * when the transaction commits.
+ */
+@UnitTest
+public class StockReplenishmentServiceConcurrencyTest
+{
+	private static final int THREAD_COUNT = 8;
+	private static final int RETURNS_PER_THREAD = 200;
+	private static final int RETURNS_PER_CALL = 5;
+	private static final int PRODUCT_COUNT = 3;
+	private static final int INITIAL_AVAILABLE = 100;
+	private static final int APPLY_THREAD_COUNT = 2;
+
+	private final List<WarehouseModel> warehouses = new ArrayList<>();
+	private final List<ProductModel> products = new ArrayList<>();
+	private final Map<String, Row> database = new HashMap<>();
+	private final List<StockLevelDeltaModel> deltas = new CopyOnWriteArrayList<>();
+	private final ThreadLocal<List<StockLevelDeltaModel>> insertedDeltas = ThreadLocal.withInitial(ArrayList::new);
+	private final ThreadLocal<List<StockLevelDeltaModel>> removedDeltas = ThreadLocal.withInitial(ArrayList::new);
+
+	private DefaultStockReplenishmentService service;
+	private TransactionTemplate transactionTemplate;
+	private ExecutorService executor;
+
+	@Before
+	public void setUp()
+	{
+		for (int i = 0; i < 2; i++)
+		{
+			final WarehouseModel warehouse = new WarehouseModel();
+			warehouse.setCode("w" + i);
+			warehouses.add(warehouse);
+		}
+		for (int i = 0; i < PRODUCT_COUNT; i++)
+		{
+			final ProductModel product = new ProductModel();
+			product.setCode("p" + i);
+			products.add(product);
+			for (final WarehouseModel warehouse : warehouses)
+			{
+				database.put(key(product.getCode(), warehouse.getCode()), new Row(PK.fromLong(database.size() + 1)));
+			}
+		}
+
+		final WarehouseStockLevelDao warehouseStockLevelDao = mock(WarehouseStockLevelDao.class);
+		given(warehouseStockLevelDao.findStockLevels(anyCollection(), anyCollection())).willAnswer(invocation -> {
+			final List<StockLevelModel> result = new ArrayList<>();
+			for (final Object productCode : (Collection<?>) invocation.getArgument(0))
+			{
+				for (final Object warehouse : (Collection<?>) invocation.getArgument(1))
+				{
+					result.add(createStockLevel((String) productCode, (WarehouseModel) warehouse));
+				}
+			}
+			return result;
+		});
+
+		final StockLevelDeltaDao stockLevelDeltaDao = mock(StockLevelDeltaDao.class);
+		given(stockLevelDeltaDao.findDeltas(any(StockLevelModel.class))).willAnswer(invocation -> {
+			final PK pk = ((StockLevelModel) invocation.getArgument(0)).getPk();
+			final List<StockLevelDeltaModel> result = new ArrayList<>();
+			for (final StockLevelDeltaModel delta : deltas)
+			{
+				if (delta.getStockLevel().getPk().equals(pk))
+				{
+					result.add(delta);
+				}
+			}
+			return result;
+		});
+
+		final ModelService modelService = mock(ModelService.class);
+		given(modelService.create(StockLevelDeltaModel.class)).willAnswer(invocation -> new StockLevelDeltaModel());
+		doAnswer(invocation -> {
+			for (final Object delta : (Collection<?>) invocation.getArgument(0))
+			{
+				insertedDeltas.get().add((StockLevelDeltaModel) delta);
+			}
+			return null;
+		}).when(modelService).saveAll(anyCollection());
+		doAnswer(invocation -> {
+			for (final Object delta : (Collection<?>) invocation.getArgument(0))
+			{
+				removedDeltas.get().add((StockLevelDeltaModel) delta);
+			}
+			return null;
+		}).when(modelService).removeAll(anyCollection());
+		doAnswer(invocation -> {
+			row(invocation.getArgument(0)).lock.lock();
+			return null;
+		}).when(modelService).lock(any(PK.class));
+		doAnswer(invocation -> {
+			final StockLevelModel stockLevel = invocation.getArgument(0);
+			stockLevel.setAvailable(row(stockLevel.getPk()).available);
+			return null;
+		}).when(modelService).refresh(any(StockLevelModel.class));
+		doAnswer(invocation -> {
+			final StockLevelModel stockLevel = invocation.getArgument(0);
+			final Row row = row(stockLevel.getPk());
+			if (!row.lock.isHeldByCurrentThread())
+			{
+				throw new IllegalStateException("Stock level " + stockLevel.getPk() + " written without its lock");
+			}
+			row.available = stockLevel.getAvailable();
+			return null;
+		}).when(modelService).save(any(StockLevelModel.class));
+
+		final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		doAnswer(invocation -> {
+			endTransaction(true);
+			return null;
+		}).when(transactionManager).commit(any());
+		doAnswer(invocation -> {
+			endTransaction(false);
+			return null;
+		}).when(transactionManager).rollback(any());
+
+		service = new DefaultStockReplenishmentService();
+		service.setWarehouseStockLevelDao(warehouseStockLevelDao);
+		service.setStockLevelDeltaDao(stockLevelDeltaDao);
+		service.setModelService(modelService);
+		transactionTemplate = new TransactionTemplate(transactionManager);
+		service.setTransactionTemplate(transactionTemplate);
+
+		executor = Executors.newFixedThreadPool(THREAD_COUNT + APPLY_THREAD_COUNT);
+	}
+
+	@After
+	public void tearDown()
+	{
+		executor.shutdownNow();
+	}
+
+	@Test
+	public void testParallelReturnsLoseNoUpdates() throws Exception
+	{
+		final CountDownLatch start = new CountDownLatch(1);
+		final AtomicBoolean returnsDone = new AtomicBoolean();
+		final List<Future<?>> applyFutures = new ArrayList<>();
+		for (int t = 0; t < APPLY_THREAD_COUNT; t++)
+		{
+			applyFutures.add(executor.submit(() -> {
+				start.await();
+				while (!returnsDone.get())
+				{
+					applyAll();
+				}
+				return null;
+			}));
+		}
+		final List<Future<?>> futures = new ArrayList<>();
+		for (int t = 0; t < THREAD_COUNT; t++)
+		{
+			final int thread = t;
+			futures.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < RETURNS_PER_THREAD; i += RETURNS_PER_CALL)
+				{
+					final List<ReturnRequestModel> returnRequests = new ArrayList<>();
+					for (int j = RETURNS_PER_CALL - 1; j >= 0; j--)
+					{
+						returnRequests.add(createReturn(thread * RETURNS_PER_THREAD + i + j));
+					}
+					replenishInTransaction(returnRequests);
+				}
+				return null;
+			}));
+		}
+		start.countDown();
+		for (final Future<?> future : futures)
+		{
+			future.get(60, TimeUnit.SECONDS);
+		}
+		returnsDone.set(true);
+		for (final Future<?> future : applyFutures)
+		{
+			future.get(60, TimeUnit.SECONDS);
+		}
+		applyAll();
+
+		final Map<String, Integer> expected = new HashMap<>();
+		for (int number = 0; number < THREAD_COUNT * RETURNS_PER_THREAD; number++)
+		{
+			final ReturnRequestModel returnRequest = createReturn(number);
+			expected.merge(key(returnRequest.getReturnEntries().get(0).getOrderEntry().getProduct().getCode(),
+					returnRequest.getReturnWarehouse().getCode()), Integer.valueOf(2), Integer::sum);
+		}
+		for (final Map.Entry<String, Row> row : database.entrySet())
+		{
+			Assert.assertEquals(row.getKey(), INITIAL_AVAILABLE + expected.get(row.getKey()).intValue(), row.getValue().available);
+			Assert.assertFalse(row.getKey(), row.getValue().lock.isLocked());
+		}
+		Assert.assertTrue(deltas.isEmpty());
+	}
+
+	@Test
+	public void testReturnsOfOneCallAreWrittenOnce()
+	{
+		final List<ReturnRequestModel> returnRequests = new ArrayList<>();
+		for (int i = 0; i < 100; i++)
+		{
+			returnRequests.add(createReturn(i * PRODUCT_COUNT * warehouses.size()));
+		}
+
+		replenishInTransaction(returnRequests);
+
+		Assert.assertEquals(1, deltas.size());
+		Assert.assertEquals(0, service.getWriteCount());
+		Assert.assertEquals(INITIAL_AVAILABLE, database.get(key("p0", "w0")).available);
+
+		applyAll();
+
+		Assert.assertEquals(1, service.getWriteCount());
+		Assert.assertEquals(INITIAL_AVAILABLE + 2 * 100, database.get(key("p0", "w0")).available);
+		Assert.assertFalse(database.get(key("p0", "w0")).lock.isLocked());
+		Assert.assertTrue(deltas.isEmpty());
+	}
+
+	@Test
+	public void testReturnsOfManyCallsAreWrittenOnce()
+	{
+		for (int i = 0; i < 20; i++)
+		{
+			replenishInTransaction(Collections.singletonList(createReturn(i * PRODUCT_COUNT * warehouses.size())));
+		}
+
+		Assert.assertEquals(20, deltas.size());
+
+		applyAll();
+
+		Assert.assertEquals(1, service.getWriteCount());
+		Assert.assertEquals(INITIAL_AVAILABLE + 2 * 20, database.get(key("p0", "w0")).available);
+		Assert.assertTrue(deltas.isEmpty());
+	}
+
+	/**
+	 * Stores the returned quantities in a transaction, like the completion of the returns.
+	 */
+	protected void replenishInTransaction(final List<ReturnRequestModel> returnRequests)
+	{
+		transactionTemplate.execute(status -> {
+			service.replenish(returnRequests);
+			return null;
+		});
+	}
+
+	/**
+	 * Applies the pending quantities of all stock levels, like a run of the stock replenishment job.
+	 */
+	protected void applyAll()
+	{
+		for (final String stockKey : database.keySet())
+		{
+			final String[] codes = stockKey.split("@");
+			service.applyPendingQuantities(createStockLevel(codes[0], warehouse(codes[1])));
+		}
+	}
+
+	/**
+	 * Creates a return of two pieces of one product, the returns rotate through all products and warehouses.
+	 */
+	protected ReturnRequestModel createReturn(final int number)
+	{
+		final OrderEntryModel orderEntry = new OrderEntryModel();
+		orderEntry.setProduct(products.get(number % PRODUCT_COUNT));
+		final ReturnEntryModel entry = new ReturnEntryModel();
+		entry.setOrderEntry(orderEntry);
+		entry.setReceivedQuantity(Long.valueOf(2));
+
+		final ReturnRequestModel returnRequest = new ReturnRequestModel();
+		returnRequest.setCode("r" + number);
+		returnRequest.setReturnWarehouse(warehouses.get(number / PRODUCT_COUNT % warehouses.size()));
+		returnRequest.setReturnEntries(Collections.singletonList(entry));
+		return returnRequest;
+	}
+
+	/**
+	 * Reads the stock level without locking it, like a flexible search.
+	 */
+	protected StockLevelModel createStockLevel(final String productCode, final WarehouseModel warehouse)
+	{
+		final Row row = database.get(key(productCode, warehouse.getCode()));
+		final StockLevelModel stockLevel = new StockLevelModel()
+		{
+			@Override
+			public PK getPk()
+			{
+				return row.pk;
+			}
+		};
+		stockLevel.setProductCode(productCode);
+		stockLevel.setWarehouse(warehouse);
+		stockLevel.setAvailable(row.available);
+		return stockLevel;
+	}
+
+	/**
+	 * Ends the transaction of the current thread, which makes its inserts and removals of deltas visible if it commits
+	 * and releases all row locks it holds.
+	 */
+	protected void endTransaction(final boolean commit)
+	{
+		if (commit)
+		{
+			deltas.addAll(insertedDeltas.get());
+			deltas.removeAll(removedDeltas.get());
+		}
+		insertedDeltas.get().clear();
+		removedDeltas.get().clear();
+		for (final Row row : database.values())
+		{
+			while (row.lock.isHeldByCurrentThread())
+			{
+				row.lock.unlock();
+			}
+		}
+	}
+
+	protected WarehouseModel warehouse(final String code)
+	{
+		for (final WarehouseModel warehouse : warehouses)
+		{
+			if (warehouse.getCode().equals(code))
+			{
+				return warehouse;
+			}
+		}
+		throw new IllegalArgumentException("No warehouse " + code);
+	}
+
+	protected Row row(final PK pk)
+	{
+		for (final Row row : database.values())
+		{
+			if (row.pk.equals(pk))
+			{
+				return row;
+			}
+		}
+		throw new IllegalArgumentException("No stock level " + pk);
+	}
+
+	protected String key(final String productCode, final String warehouseCode)
+	{
+		return productCode + "@" + warehouseCode;
+	}
+
+	/**
+	 * Stock level row with its available amount and row lock.
+	 */
+	protected static class Row
+	{
+		private final PK pk;
+		private final ReentrantLock lock = new ReentrantLock();
+		private volatile int available = INITIAL_AVAILABLE;
+
+		protected Row(final PK pk)
+		{
+			this.pk = pk;
+		}
+	}
+}
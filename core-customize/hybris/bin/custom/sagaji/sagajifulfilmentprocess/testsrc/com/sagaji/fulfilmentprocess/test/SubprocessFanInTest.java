@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2019 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagaji.fulfilmentprocess.test;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.enums.DeliveryStatus;
+import de.hybris.platform.core.model.order.OrderModel;
+import de.hybris.platform.orderprocessing.model.OrderProcessModel;
+import de.hybris.platform.ordersplitting.model.ConsignmentProcessModel;
+import de.hybris.platform.processengine.BusinessProcessService;
+import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction.Transition;
+import de.hybris.platform.servicelayer.model.ModelService;
+import com.sagaji.fulfilmentprocess.actions.consignment.SubprocessEndAction;
+import com.sagaji.fulfilmentprocess.actions.order.SubprocessesCompletedAction;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+/**
+ * Checks that the order process is only woken up once all consignment subprocesses have ended.
+ */
+@UnitTest
+public class SubprocessFanInTest
+{
+	private static final int CONSIGNMENT_COUNT = 100;
+
+	private final SubprocessEndAction subprocessEndAction = new SubprocessEndAction();
+	private final SubprocessesCompletedAction subprocessesCompletedAction = new SubprocessesCompletedAction();
+	private final List<Transition> decisions = new ArrayList<Transition>();
+	private OrderProcessModel orderProcess;
+
+	@Before
+	public void setUp()
+	{
+		final ModelService modelService = mock(ModelService.class);
+		final BusinessProcessService businessProcessService = mock(BusinessProcessService.class);
+		// every event wakes up the order process in its wait node
+		doAnswer(invocation -> {
+			decisions.add(subprocessesCompletedAction.executeAction(orderProcess));
+			return null;
+		}).when(businessProcessService).triggerEvent(anyString());
+
+		subprocessEndAction.setModelService(modelService);
+		subprocessEndAction.setBusinessProcessService(businessProcessService);
+		subprocessEndAction.setTransactionTemplate(new TransactionTemplate(mock(PlatformTransactionManager.class)));
+		subprocessesCompletedAction.setModelService(modelService);
+
+		orderProcess = new OrderProcessModel();
+		orderProcess.setCode("order-process");
+		orderProcess.setOrder(new OrderModel());
+	}
+
+	@Test
+	public void testOrderProcessIsWokenUpOnceForAllSubprocesses()
+	{
+		orderProcess.setConsignmentSubprocessCount(CONSIGNMENT_COUNT);
+		final List<ConsignmentProcessModel> subprocesses = createSubprocesses();
+
+		for (final ConsignmentProcessModel subprocess : subprocesses)
+		{
+			subprocessEndAction.executeAction(subprocess);
+		}
+
+		Assert.assertEquals(1, decisions.size());
+		Assert.assertEquals(Transition.OK, decisions.get(0));
+		Assert.assertEquals(CONSIGNMENT_COUNT, orderProcess.getCompletedConsignmentSubprocessCount());
+		Assert.assertEquals(DeliveryStatus.SHIPPED, orderProcess.getOrder().getDeliveryStatus());
+	}
+
+	@Test
+	public void testRetriedEndActionWakesUpCompletedOrderProcessWithoutCounting()
+	{
+		orderProcess.setConsignmentSubprocessCount(CONSIGNMENT_COUNT);
+		final List<ConsignmentProcessModel> subprocesses = createSubprocesses();
+		for (final ConsignmentProcessModel subprocess : subprocesses)
+		{
+			subprocessEndAction.executeAction(subprocess);
+		}
+
+		// the event of the first run may have been lost, so a retried end action wakes up the order process again
+		subprocessEndAction.executeAction(subprocesses.get(0));
+
+		Assert.assertEquals(2, decisions.size());
+		Assert.assertEquals(Transition.OK, decisions.get(1));
+		Assert.assertEquals(CONSIGNMENT_COUNT, orderProcess.getCompletedConsignmentSubprocessCount());
+	}
+
+	@Test
+	public void testOrderProcessWithMoreSubprocessesThanCountedIsWokenUp()
+	{
+		orderProcess.setConsignmentSubprocessCount(CONSIGNMENT_COUNT - 1);
+		final List<ConsignmentProcessModel> subprocesses = createSubprocesses();
+
+		for (final ConsignmentProcessModel subprocess : subprocesses)
+		{
+			subprocessEndAction.executeAction(subprocess);
+		}
+
+		Assert.assertEquals(2, decisions.size());
+		Assert.assertEquals(CONSIGNMENT_COUNT, orderProcess.getCompletedConsignmentSubprocessCount());
+	}
+
+	@Test
+	public void testPartiallyCompletedOrderProcessWaits()
+	{
+		orderProcess.setConsignmentSubprocessCount(CONSIGNMENT_COUNT);
+		orderProcess.setCompletedConsignmentSubprocessCount(CONSIGNMENT_COUNT / 2);
+
+		Assert.assertEquals(Transition.NOK, subprocessesCompletedAction.executeAction(orderProcess));
+		Assert.assertEquals(DeliveryStatus.PARTSHIPPED, orderProcess.getOrder().getDeliveryStatus());
+	}
+
+	@Test
+	public void testOrderProcessWithoutSubprocessCountIsWokenUpByEverySubprocess()
+	{
+		final List<ConsignmentProcessModel> subprocesses = createSubprocesses();
+		orderProcess.setConsignmentProcesses(subprocesses);
+
+		for (final ConsignmentProcessModel subprocess : subprocesses)
+		{
+			subprocessEndAction.executeAction(subprocess);
+		}
+
+		Assert.assertEquals(CONSIGNMENT_COUNT, decisions.size());
+		Assert.assertEquals(Transition.NOK, decisions.get(0));
+		Assert.assertEquals(Transition.OK, decisions.get(CONSIGNMENT_COUNT - 1));
+	}
+
+	protected List<ConsignmentProcessModel> createSubprocesses()
+	{
+		final List<ConsignmentProcessModel> subprocesses = new ArrayList<ConsignmentProcessModel>();
+		for (int i = 0; i < CONSIGNMENT_COUNT; i++)
+		{
+			final ConsignmentProcessModel subprocess = new ConsignmentProcessModel();
+			subprocess.setCode(orderProcess.getCode() + "_" + (i + 1));
+			subprocess.setParentProcess(orderProcess);
+			subprocesses.add(subprocess);
+		}
+		return subprocesses;
+	}
+}
@@ -10,6 +10,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import de.hybris.bootstrap.annotations.UnitTest;
+import de.hybris.platform.core.enums.OrderStatus;
 import de.hybris.platform.core.model.order.OrderModel;
 import de.hybris.platform.core.model.order.payment.CreditCardPaymentInfoModel;
 import de.hybris.platform.core.model.order.payment.PaymentInfoModel;
@@ -20,7 +21,11 @@ import de.hybris.platform.payment.model.PaymentTransactionEntryModel;
 import de.hybris.platform.payment.model.PaymentTransactionModel;
 import de.hybris.platform.processengine.action.AbstractSimpleDecisionAction;
 import de.hybris.platform.servicelayer.model.ModelService;
+import de.hybris.platform.task.RetryLaterException;
 import com.sagaji.fulfilmentprocess.actions.order.TakePaymentAction;
+import com.sagaji.fulfilmentprocess.payment.PaymentCaptureResult;
+import com.sagaji.fulfilmentprocess.payment.impl.DefaultPaymentCaptureOrchestrator;
+import com.sagaji.fulfilmentprocess.payment.impl.PaymentServiceCaptureGateway;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -53,6 +58,16 @@ public class TakePaymentActionTest
 	@Before
 	public void setup()
 	{
+		final PaymentServiceCaptureGateway paymentCaptureGateway = new PaymentServiceCaptureGateway();
+		paymentCaptureGateway.setPaymentService(paymentService);
+		final DefaultPaymentCaptureOrchestrator paymentCaptureOrchestrator = new DefaultPaymentCaptureOrchestrator();
+		paymentCaptureOrchestrator.setPaymentCaptureGateway(paymentCaptureGateway);
+		paymentCaptureOrchestrator.setPoolSize(1);
+		paymentCaptureOrchestrator.afterPropertiesSet();
+		action.setPaymentCaptureOrchestrator(paymentCaptureOrchestrator);
+		action.setTimeoutRetryDelay(60000L);
+		action.setMaxTimeoutRetries(3);
+
 		businessProcessModel = mock(OrderProcessModel.class);
 		order = new OrderModel();
 		given(businessProcessModel.getOrder()).willReturn(order);
@@ -73,7 +88,7 @@ public class TakePaymentActionTest
 	}
 
 	@Test
-	public void shouldExecuteReturnOKforAcceptedTransaction()
+	public void shouldExecuteReturnOKforAcceptedTransaction() throws Exception
 	{
 		order.setPaymentTransactions(Collections.singletonList(createPaymentTransactionWithStatus(TransactionStatus.ACCEPTED)));
 		Assert.assertEquals("Execution should return OK", AbstractSimpleDecisionAction.Transition.OK,
@@ -81,7 +96,7 @@ public class TakePaymentActionTest
 	}
 
 	@Test
-	public void shouldExecuteReturnNOKforRejectedTransaction()
+	public void shouldExecuteReturnNOKforRejectedTransaction() throws Exception
 	{
 		order.setPaymentTransactions(Collections.singletonList(createPaymentTransactionWithStatus(TransactionStatus.REJECTED)));
 		Assert.assertEquals("Execution should return NOK", AbstractSimpleDecisionAction.Transition.NOK,
@@ -89,7 +104,7 @@ public class TakePaymentActionTest
 	}
 
 	@Test
-	public void shouldExecuteReturnOKforMultipleAcceptedTransaction()
+	public void shouldExecuteReturnOKforMultipleAcceptedTransaction() throws Exception
 	{
 		order.setPaymentTransactions(Arrays.asList(createPaymentTransactionWithStatus(TransactionStatus.ACCEPTED),
 				createPaymentTransactionWithStatus(TransactionStatus.ACCEPTED)));
@@ -100,11 +115,83 @@ public class TakePaymentActionTest
 	}
 
 	@Test
-	public void shouldExecuteReturnNOKforAtLeastOneRejectedTransaction()
+	public void shouldExecuteReturnNOKforAtLeastOneRejectedTransaction() throws Exception
 	{
 		order.setPaymentTransactions(Arrays.asList(createPaymentTransactionWithStatus(TransactionStatus.ACCEPTED),
 				createPaymentTransactionWithStatus(TransactionStatus.REJECTED)));
 		Assert.assertEquals("Execution should return NOK", AbstractSimpleDecisionAction.Transition.NOK,
 				action.executeAction(businessProcessModel));
 	}
+
+	@Test
+	public void shouldRetryLaterForTimedOutTransaction() throws Exception
+	{
+		action.setPaymentCaptureOrchestrator(capturedOrder -> {
+			final PaymentCaptureResult result = new PaymentCaptureResult();
+			result.addCaptured("txn0");
+			result.addTimedOut("txn1");
+			return result;
+		});
+		try
+		{
+			action.executeAction(businessProcessModel);
+			Assert.fail("Timed out capture should be retried");
+		}
+		catch (final RetryLaterException e)
+		{
+			Assert.assertEquals(60000L, e.getDelay());
+		}
+		Assert.assertNull(order.getStatus());
+		verify(businessProcessModel).setPollAttempts(1);
+	}
+
+	@Test
+	public void shouldRetryTimedOutTransactionBeforeDecidingOnRejectedOne() throws Exception
+	{
+		action.setPaymentCaptureOrchestrator(capturedOrder -> {
+			final PaymentCaptureResult result = new PaymentCaptureResult();
+			result.addRejected("txn0");
+			result.addTimedOut("txn1");
+			return result;
+		});
+		try
+		{
+			action.executeAction(businessProcessModel);
+			Assert.fail("Timed out capture should be retried although another one was rejected");
+		}
+		catch (final RetryLaterException e)
+		{
+			Assert.assertEquals(60000L, e.getDelay());
+		}
+		Assert.assertNull(order.getStatus());
+	}
+
+	@Test
+	public void shouldReturnNOKforRejectedTransactionOnceAllOutcomesAreKnown() throws Exception
+	{
+		given(businessProcessModel.getPollAttempts()).willReturn(2);
+		action.setPaymentCaptureOrchestrator(capturedOrder -> {
+			final PaymentCaptureResult result = new PaymentCaptureResult();
+			result.addRejected("txn0");
+			return result;
+		});
+		Assert.assertEquals(AbstractSimpleDecisionAction.Transition.NOK, action.executeAction(businessProcessModel));
+		Assert.assertEquals(OrderStatus.PAYMENT_NOT_CAPTURED, order.getStatus());
+		verify(businessProcessModel).setPollAttempts(0);
+	}
+
+	@Test
+	public void shouldReturnNOKWhenCaptureStillTimesOutAfterMaxRetries() throws Exception
+	{
+		given(businessProcessModel.getPollAttempts()).willReturn(3);
+		action.setPaymentCaptureOrchestrator(capturedOrder -> {
+			final PaymentCaptureResult result = new PaymentCaptureResult();
+			result.addCaptured("txn0");
+			result.addTimedOut("txn1");
+			return result;
+		});
+		Assert.assertEquals(AbstractSimpleDecisionAction.Transition.NOK, action.executeAction(businessProcessModel));
+		Assert.assertEquals(OrderStatus.PAYMENT_NOT_CAPTURED, order.getStatus());
+		verify(businessProcessModel).setPollAttempts(0);
+	}
 }
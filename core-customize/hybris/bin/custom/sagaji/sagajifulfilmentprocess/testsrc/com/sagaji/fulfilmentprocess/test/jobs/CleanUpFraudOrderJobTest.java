@@ -3,11 +3,16 @@
  */
 package com.sagaji.fulfilmentprocess.test.jobs;
 
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import de.hybris.bootstrap.annotations.IntegrationTest;
+import de.hybris.platform.cronjob.enums.CronJobStatus;
 import de.hybris.platform.cronjob.model.CronJobModel;
 import de.hybris.platform.cronjob.model.JobModel;
 import de.hybris.platform.processengine.BusinessProcessService;
@@ -20,16 +25,21 @@ import de.hybris.platform.servicelayer.internal.model.ServicelayerJobModel;
 import de.hybris.platform.servicelayer.model.ModelService;
 import com.sagaji.fulfilmentprocess.constants.SagajiFulfilmentProcessConstants;
 import com.sagaji.fulfilmentprocess.jobs.CleanUpFraudOrderJob;
+import com.sagaji.fulfilmentprocess.model.CleanUpFraudOrderCronJobModel;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
 import javax.annotation.Resource;
 
+import junit.framework.Assert;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.InOrder;
 
 
 @IntegrationTest
@@ -69,6 +79,7 @@ public class CleanUpFraudOrderJobTest extends ServicelayerTransactionalTest
 	public void after()
 	{
 		job.setBusinessProcessService(businessProcessService);
+		job.setPageSize(1000);
 	}
 
 	private void findJobModel()
@@ -100,9 +111,14 @@ public class CleanUpFraudOrderJobTest extends ServicelayerTransactionalTest
 
 	private void setupProcess()
 	{
-		processCode = PROCESS_DEFINITION_NAME + UUID.randomUUID();
+		processCode = createWaitingProcess().getCode();
+	}
+
+	private BusinessProcessModel createWaitingProcess()
+	{
+		final String code = PROCESS_DEFINITION_NAME + UUID.randomUUID();
 		final String action = "waitForCleanUp";
-		final BusinessProcessModel businessProcess = businessProcessService.createProcess(processCode, PROCESS_DEFINITION_NAME);
+		final BusinessProcessModel businessProcess = businessProcessService.createProcess(code, PROCESS_DEFINITION_NAME);
 		final ProcessTaskModel processTask = new ProcessTaskModel();
 		processTask.setProcess(businessProcess);
 		processTask.setAction(action);
@@ -110,6 +126,28 @@ public class CleanUpFraudOrderJobTest extends ServicelayerTransactionalTest
 		modelService.save(processTask);
 		businessProcess.setCurrentTasks(Collections.singletonList(processTask));
 		modelService.save(businessProcess);
+		return businessProcess;
+	}
+
+	private List<BusinessProcessModel> createWaitingProcesses(final int count)
+	{
+		final List<BusinessProcessModel> processes = new ArrayList<>();
+		for (int i = 0; i < count; i++)
+		{
+			processes.add(createWaitingProcess());
+		}
+		processes.sort((first, second) -> first.getPk().compareTo(second.getPk()));
+		return processes;
+	}
+
+	private CleanUpFraudOrderCronJobModel createResumableCronJob(final Long lastProcessedPk)
+	{
+		final CleanUpFraudOrderCronJobModel resumableCronJob = new CleanUpFraudOrderCronJobModel();
+		resumableCronJob.setCode("cleanUpFraudOrderCronJob" + UUID.randomUUID());
+		resumableCronJob.setJob(jobModel);
+		resumableCronJob.setLastProcessedPk(lastProcessedPk);
+		modelService.save(resumableCronJob);
+		return resumableCronJob;
 	}
 
 	@Test
@@ -126,4 +164,60 @@ public class CleanUpFraudOrderJobTest extends ServicelayerTransactionalTest
 		final String expectedEventName = processCode + EVENT_NAME_SUFFIX;
 		verify(mockedService, times(expectedNumberOfTriggeredEvents)).triggerEvent(expectedEventName);
 	}
+
+	@Test
+	public void testEventsAreSentPageByPageInPkOrder()
+	{
+		//given
+		final List<BusinessProcessModel> processes = createWaitingProcesses(5);
+		final CleanUpFraudOrderCronJobModel resumableCronJob = createResumableCronJob(null);
+		job.setPageSize(2);
+		//when
+		cronJobService.performCronJob(resumableCronJob, true);
+		//then
+		final InOrder inOrder = inOrder(mockedService);
+		for (final BusinessProcessModel process : processes)
+		{
+			inOrder.verify(mockedService).triggerEvent(process.getCode() + EVENT_NAME_SUFFIX);
+		}
+		modelService.refresh(resumableCronJob);
+		Assert.assertNull(resumableCronJob.getLastProcessedPk());
+	}
+
+	@Test
+	public void testAbortedRunResumesAfterLastProcessedPk()
+	{
+		//given
+		final List<BusinessProcessModel> processes = createWaitingProcesses(4);
+		final CleanUpFraudOrderCronJobModel resumableCronJob = createResumableCronJob(null);
+		job.setPageSize(2);
+		doAnswer(invocation -> {
+			// abort is requested while the first page is triggered
+			resumableCronJob.setRequestAbort(Boolean.TRUE);
+			modelService.save(resumableCronJob);
+			return null;
+		}).when(mockedService).triggerEvent(processes.get(1).getCode() + EVENT_NAME_SUFFIX);
+		//when
+		cronJobService.performCronJob(resumableCronJob, true);
+		//then
+		modelService.refresh(resumableCronJob);
+		Assert.assertEquals(CronJobStatus.ABORTED, resumableCronJob.getStatus());
+		Assert.assertEquals(Long.valueOf(processes.get(1).getPk().getLongValue()), resumableCronJob.getLastProcessedPk());
+		verify(mockedService, times(1)).triggerEvent(processes.get(0).getCode() + EVENT_NAME_SUFFIX);
+		verify(mockedService, times(1)).triggerEvent(processes.get(1).getCode() + EVENT_NAME_SUFFIX);
+		verify(mockedService, never()).triggerEvent(processes.get(2).getCode() + EVENT_NAME_SUFFIX);
+		verify(mockedService, never()).triggerEvent(processes.get(3).getCode() + EVENT_NAME_SUFFIX);
+
+		//when
+		reset(mockedService);
+		cronJobService.performCronJob(resumableCronJob, true);
+		//then
+		modelService.refresh(resumableCronJob);
+		Assert.assertEquals(CronJobStatus.FINISHED, resumableCronJob.getStatus());
+		Assert.assertNull(resumableCronJob.getLastProcessedPk());
+		verify(mockedService, never()).triggerEvent(processes.get(0).getCode() + EVENT_NAME_SUFFIX);
+		verify(mockedService, never()).triggerEvent(processes.get(1).getCode() + EVENT_NAME_SUFFIX);
+		verify(mockedService, times(1)).triggerEvent(processes.get(2).getCode() + EVENT_NAME_SUFFIX);
+		verify(mockedService, times(1)).triggerEvent(processes.get(3).getCode() + EVENT_NAME_SUFFIX);
+	}
 }
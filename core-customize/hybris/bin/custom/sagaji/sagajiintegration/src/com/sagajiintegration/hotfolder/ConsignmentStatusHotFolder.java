@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2021 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagajiintegration.hotfolder;
+
+import de.hybris.platform.core.Registry;
+import de.hybris.platform.servicelayer.session.SessionService;
+import de.hybris.platform.servicelayer.user.UserService;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.sagaji.core.concurrent.TenantAwareThreadFactory;
+import com.sagaji.fulfilmentprocess.warehouse.BulkConsignmentStatusResult;
+import com.sagajiintegration.service.ConsignmentStatusImportService;
+
+
+/**
+ * Polls a directory for consignment status files (<code>*.csv</code>) of the logistics provider and imports them in the
+ * order of their names on a single tenant aware thread. Imported files are moved to the <code>archive</code>
+ * subdirectory, files that could not be read to <code>error</code>.
+ * <p>
+ * The provider writes a marker file <code>&lt;name&gt;.csv.done</code> once it has finished writing
+ * <code>&lt;name&gt;.csv</code>; files without a marker are still being written and are left for a later poll. The marker
+ * is removed only after its file has been moved. A file that cannot be moved is quarantined in place: its marker is
+ * renamed to <code>&lt;name&gt;.csv.quarantined</code>, so it is not imported again until an operator has moved it. The
+ * directory is only polled on the cluster node with the id {@link #setClusterNode(int) clusterNode}, so a file is never
+ * imported by two nodes.
+ */
+public class ConsignmentStatusHotFolder implements InitializingBean, DisposableBean
+{
+	private static final Logger LOG = LoggerFactory.getLogger(ConsignmentStatusHotFolder.class);
+
+	private static final String FILE_PATTERN = "*.csv";
+	private static final String DONE_MARKER_SUFFIX = ".done";
+	private static final String QUARANTINE_MARKER_SUFFIX = ".quarantined";
+	private static final String ARCHIVE_DIRECTORY = "archive";
+	private static final String ERROR_DIRECTORY = "error";
+
+	private ConsignmentStatusImportService consignmentStatusImportService;
+	private SessionService sessionService;
+	private UserService userService;
+	private boolean enabled;
+	private String directory;
+	private long pollInterval;
+	private int clusterNode;
+
+	private ScheduledExecutorService executor;
+	private final Set<Path> quarantinedFiles = new HashSet<>();
+
+	@Override
+	public void afterPropertiesSet() throws IOException
+	{
+		if (!enabled)
+		{
+			return;
+		}
+		if (Registry.getClusterID() != clusterNode)
+		{
+			LOG.info("Consignment status files are polled on cluster node {}", Integer.valueOf(clusterNode));
+			return;
+		}
+
+		final Path root = Paths.get(directory);
+		Files.createDirectories(root.resolve(ARCHIVE_DIRECTORY));
+		Files.createDirectories(root.resolve(ERROR_DIRECTORY));
+
+		executor = Executors.newSingleThreadScheduledExecutor(
+				new TenantAwareThreadFactory("ConsignmentStatusHotFolder", getSessionService()));
+		executor.scheduleWithFixedDelay(this::pollDirectory, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+		LOG.info("Polling {} for consignment status files every {} ms", root.toAbsolutePath(), Long.valueOf(pollInterval));
+	}
+
+	@Override
+	public void destroy()
+	{
+		if (executor != null)
+		{
+			executor.shutdownNow();
+		}
+	}
+
+	protected void pollDirectory()
+	{
+		final List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(Paths.get(directory), FILE_PATTERN))
+		{
+			for (final Path file : stream)
+			{
+				if (Files.isRegularFile(file) && Files.exists(getDoneMarker(file)) && !quarantinedFiles.contains(file))
+				{
+					files.add(file);
+				}
+			}
+		}
+		catch (final IOException | RuntimeException e)
+		{
+			LOG.error("Could not list consignment status files in " + directory, e);
+			return;
+		}
+
+		Collections.sort(files);
+		for (final Path file : files)
+		{
+			importFile(file);
+		}
+	}
+
+	protected void importFile(final Path file)
+	{
+		try
+		{
+			getUserService().setCurrentUser(getUserService().getAdminUser());
+			final BulkConsignmentStatusResult result;
+			try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8))
+			{
+				result = getConsignmentStatusImportService().importStatuses(reader);
+			}
+			LOG.info("Imported {}: {} records, {} consignments updated, {} unknown, {} rejected", file.getFileName(),
+					Integer.valueOf(result.getReceivedCount()), Integer.valueOf(result.getUpdatedCount()),
+					Integer.valueOf(result.getUnknownConsignmentCodes().size()),
+					Integer.valueOf(result.getRejectedConsignmentCodes().size()));
+			moveTo(file, ARCHIVE_DIRECTORY);
+		}
+		catch (final IOException | RuntimeException e)
+		{
+			LOG.error("Could not import consignment status file " + file.getFileName(), e);
+			moveTo(file, ERROR_DIRECTORY);
+		}
+		finally
+		{
+			getSessionService().closeCurrentSession();
+		}
+	}
+
+	protected Path getDoneMarker(final Path file)
+	{
+		return file.resolveSibling(file.getFileName() + DONE_MARKER_SUFFIX);
+	}
+
+	protected void moveTo(final Path file, final String targetDirectory)
+	{
+		try
+		{
+			Files.move(file, file.resolveSibling(targetDirectory).resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch (final IOException e)
+		{
+			LOG.error("Could not move consignment status file " + file.getFileName() + " to " + targetDirectory, e);
+			quarantine(file);
+			return;
+		}
+		try
+		{
+			Files.deleteIfExists(getDoneMarker(file));
+		}
+		catch (final IOException e)
+		{
+			LOG.error("Could not remove the marker of consignment status file " + file.getFileName(), e);
+		}
+	}
+
+	/**
+	 * Keeps a file that could not be moved from being imported again. The marker is renamed, so later polls skip the file;
+	 * if that fails too, the file is skipped until the node is restarted.
+	 */
+	protected void quarantine(final Path file)
+	{
+		quarantinedFiles.add(file);
+		try
+		{
+			Files.move(getDoneMarker(file), file.resolveSibling(file.getFileName() + QUARANTINE_MARKER_SUFFIX),
+					StandardCopyOption.REPLACE_EXISTING);
+			quarantinedFiles.remove(file);
+			LOG.warn("Quarantined consignment status file {}", file.getFileName());
+		}
+		catch (final IOException e)
+		{
+			LOG.error("Could not quarantine consignment status file " + file.getFileName()
+					+ ", it is skipped until the next restart", e);
+		}
+	}
+
+	protected ConsignmentStatusImportService getConsignmentStatusImportService()
+	{
+		return consignmentStatusImportService;
+	}
+
+	@Required
+	public void setConsignmentStatusImportService(final ConsignmentStatusImportService consignmentStatusImportService)
+	{
+		this.consignmentStatusImportService = consignmentStatusImportService;
+	}
+
+	protected SessionService getSessionService()
+	{
+		return sessionService;
+	}
+
+	@Required
+	public void setSessionService(final SessionService sessionService)
+	{
+		this.sessionService = sessionService;
+	}
+
+	protected UserService getUserService()
+	{
+		return userService;
+	}
+
+	@Required
+	public void setUserService(final UserService userService)
+	{
+		this.userService = userService;
+	}
+
+	public void setEnabled(final boolean enabled)
+	{
+		this.enabled = enabled;
+	}
+
+	@Required
+	public void setDirectory(final String directory)
+	{
+		this.directory = directory;
+	}
+
+	@Required
+	public void setPollInterval(final long pollInterval)
+	{
+		this.pollInterval = pollInterval;
+	}
+
+	/**
+	 * @param clusterNode
+	 *           id of the only cluster node that polls the directory
+	 */
+	public void setClusterNode(final int clusterNode)
+	{
+		this.clusterNode = clusterNode;
+	}
+}
@@ -0,0 +1,26 @@
+/*
+ * Copyright (c) 2021 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagajiintegration.service;
+
+import com.sagaji.fulfilmentprocess.warehouse.BulkConsignmentStatusResult;
+
+import java.io.Reader;
+
+
+/**
+ * Imports consignment status files of the logistics provider. Every line holds a consignment code and a warehouse
+ * consignment status separated by a comma, e.g. <code>a00001000_0,COMPLETE</code>. Empty lines, lines starting with
+ * <code>#</code> and a <code>consignmentCode,status</code> header are skipped.
+ */
+public interface ConsignmentStatusImportService
+{
+	/**
+	 * Reads the status records and applies them in bulk. The reader is consumed line by line and not closed.
+	 *
+	 * @param reader
+	 *           the status file
+	 * @return counts and the records that could not be applied
+	 */
+	BulkConsignmentStatusResult importStatuses(Reader reader);
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2021 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagajiintegration.service.impl;
+
+import de.hybris.platform.warehouse.WarehouseConsignmentStatus;
+
+import java.io.BufferedReader;
+import java.io.Reader;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Required;
+
+import com.sagaji.fulfilmentprocess.warehouse.BulkConsignmentStatusResult;
+import com.sagaji.fulfilmentprocess.warehouse.BulkConsignmentStatusService;
+import com.sagaji.fulfilmentprocess.warehouse.ConsignmentStatusUpdate;
+import com.sagajiintegration.service.ConsignmentStatusImportService;
+
+
+public class DefaultConsignmentStatusImportService implements ConsignmentStatusImportService
+{
+	private static final Logger LOG = LoggerFactory.getLogger(DefaultConsignmentStatusImportService.class);
+
+	private static final String HEADER = "consignmentCode";
+	private static final String SEPARATOR = ",";
+
+	private BulkConsignmentStatusService bulkConsignmentStatusService;
+
+	@Override
+	public BulkConsignmentStatusResult importStatuses(final Reader reader)
+	{
+		final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		return getBulkConsignmentStatusService().updateStatuses(lines.lines().map(this::parse).filter(Objects::nonNull));
+	}
+
+	/**
+	 * Parses one line of a status file.
+	 *
+	 * @return the status record, <code>null</code> for lines to skip; the status of the record is <code>null</code> if it
+	 *         is not a known warehouse consignment status
+	 */
+	protected ConsignmentStatusUpdate parse(final String line)
+	{
+		final String trimmed = line.trim();
+		if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith(HEADER + SEPARATOR))
+		{
+			return null;
+		}
+
+		final int separator = trimmed.indexOf(SEPARATOR);
+		if (separator < 0)
+		{
+			LOG.warn("Consignment status line without status: {}", trimmed);
+			return new ConsignmentStatusUpdate(trimmed, null);
+		}
+
+		final String consignmentCode = trimmed.substring(0, separator).trim();
+		final String status = trimmed.substring(separator + 1).trim();
+		try
+		{
+			return new ConsignmentStatusUpdate(consignmentCode, WarehouseConsignmentStatus.valueOf(status));
+		}
+		catch (final IllegalArgumentException e)
+		{
+			LOG.warn("Unknown status [{}] of consignment [{}]", status, consignmentCode);
+			return new ConsignmentStatusUpdate(consignmentCode, null);
+		}
+	}
+
+	protected BulkConsignmentStatusService getBulkConsignmentStatusService()
+	{
+		return bulkConsignmentStatusService;
+	}
+
+	@Required
+	public void setBulkConsignmentStatusService(final BulkConsignmentStatusService bulkConsignmentStatusService)
+	{
+		this.bulkConsignmentStatusService = bulkConsignmentStatusService;
+	}
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2021 SAP SE or an SAP affiliate company. All rights reserved.
+ */
+package com.sagajiintegration.controller;
+
+import com.sagaji.fulfilmentprocess.warehouse.BulkConsignmentStatusResult;
+import com.sagajiintegration.service.ConsignmentStatusImportService;
+
+import java.io.IOException;
+
+import javax.annotation.Resource;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+
+/**
+ * Accepts consignment status files of the logistics provider, see {@link ConsignmentStatusImportService} for the format.
+ * The request body is streamed into the import, so large files are not held in memory.
+ */
+@Controller
+@RequestMapping(value = "/consignmentstatus")
+public class ConsignmentStatusController
+{
+	@Resource(name = "consignmentStatusImportService")
+	private ConsignmentStatusImportService consignmentStatusImportService;
+
+	@RequestMapping(method = RequestMethod.POST, consumes = { "text/csv", "text/plain" }, produces = "application/json")
+	@ResponseBody
+	public BulkConsignmentStatusResult importStatuses(final HttpServletRequest request) throws IOException
+	{
+		return consignmentStatusImportService.importStatuses(request.getReader());
+	}
+}
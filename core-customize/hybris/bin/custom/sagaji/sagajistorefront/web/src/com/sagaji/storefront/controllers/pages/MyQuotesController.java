@@ -28,6 +28,7 @@ import de.hybris.platform.commerceservices.search.pagedata.SearchPageData;
 import de.hybris.platform.core.enums.QuoteState;
 import de.hybris.platform.servicelayer.exceptions.ModelNotFoundException;
 import de.hybris.platform.servicelayer.exceptions.UnknownIdentifierException;
+import com.sagaji.facades.quote.QuoteHistoryFacade;
 import com.sagaji.storefront.controllers.ControllerConstants;
 
 import java.util.Arrays;
@@ -74,6 +75,9 @@ public class MyQuotesController extends AbstractSearchPageController
 	@Resource(name = "quoteFacade")
 	private QuoteFacade quoteFacade;
 
+	@Resource(name = "quoteHistoryFacade")
+	private QuoteHistoryFacade quoteHistoryFacade;
+
 	@Resource(name = "voucherFacade")
 	private VoucherFacade voucherFacade;
 
@@ -131,6 +135,7 @@ public class MyQuotesController extends AbstractSearchPageController
 			}
 
 			model.addAttribute("quoteData", quoteData);
+			model.addAttribute("quoteHistory", getQuoteHistoryFacade().getQuoteHistory(quoteCode));
 
 			loadCommentsShown(model);
 			sortComments(quoteData);
@@ -262,6 +267,11 @@ public class MyQuotesController extends AbstractSearchPageController
 		return quoteFacade;
 	}
 
+	protected QuoteHistoryFacade getQuoteHistoryFacade()
+	{
+		return quoteHistoryFacade;
+	}
+
 	public VoucherFacade getVoucherFacade()
 	{
 		return voucherFacade;
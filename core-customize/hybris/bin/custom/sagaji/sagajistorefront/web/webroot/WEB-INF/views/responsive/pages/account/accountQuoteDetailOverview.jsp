@@ -195,6 +195,29 @@
         </div>
     </div>
 </div>
+<c:if test="${fn:length(quoteHistory) gt 1}">
+    <div class="well well-tertiary well-lg">
+        <span class="item-label"><spring:theme code="text.quote.history.label"/></span>
+        <table class="table">
+            <thead>
+                <tr>
+                    <th><spring:theme code="text.quote.history.version"/></th>
+                    <th><spring:theme code="text.quote.history.state"/></th>
+                    <th><spring:theme code="text.quote.history.changedBy"/></th>
+                </tr>
+            </thead>
+            <tbody>
+                <c:forEach items="${quoteHistory}" var="quoteVersion">
+                    <tr>
+                        <td>${fn:escapeXml(quoteVersion.version)}</td>
+                        <td><spring:theme code="text.account.quote.status.display.${quoteVersion.state}"/></td>
+                        <td>${fn:escapeXml(quoteVersion.changedBy)}</td>
+                    </tr>
+                </c:forEach>
+            </tbody>
+        </table>
+    </div>
+</c:if>
 <div class="quote__comments">
     <quote:quoteComments comments="${quoteData.comments}" disabled="true"/>
 </div>